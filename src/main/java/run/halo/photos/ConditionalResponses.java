@@ -0,0 +1,119 @@
+package run.halo.photos;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import run.halo.photos.infra.GalleryVersion;
+import run.halo.photos.infra.PhotoJsonCache;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.service.ResizedImage;
+import run.halo.photos.vo.PhotoVo;
+
+/**
+ * Builds responses of the public API with {@code ETag}, {@code Last-Modified} and
+ * {@code Cache-Control} headers, answering matching conditional requests with
+ * {@code 304 Not Modified}.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConditionalResponses {
+
+    static final CacheControl IMAGE_CACHE_CONTROL =
+        CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final GalleryVersion galleryVersion;
+
+    private final PhotoJsonCache jsonCache;
+
+    private final PhotoSettings photoSettings;
+
+    /**
+     * Respond with a body that may change whenever anything in the gallery changes. The
+     * validators only depend on the request URI and the gallery version, so a revalidation
+     * that hits does not run the query at all. {@link PhotoJsonCache.Segments} bodies are
+     * written as they are.
+     */
+    public Mono<ServerResponse> ofGallery(ServerRequest request, Supplier<Mono<?>> body) {
+        // read last-modified first: a bump in between then only makes the response look newer
+        var lastModified = galleryVersion.lastModified();
+        var etag = etag(request.uri().getRawPath() + "?" + request.uri().getRawQuery(),
+            galleryVersion.current());
+        return respond(request, etag, lastModified, body);
+    }
+
+    /**
+     * Respond with a single photo, validated by its {@code metadata.version}.
+     */
+    public Mono<ServerResponse> ofPhoto(ServerRequest request, PhotoVo photo) {
+        var etag = etag(request.uri().getRawPath(),
+            String.valueOf(photo.getMetadata().getVersion()));
+        return respond(request, etag, galleryVersion.lastModified(),
+            () -> Mono.fromSupplier(() -> jsonCache.photo(photo)));
+    }
+
+    /**
+     * Respond with a resized image file. The validator is the content key of the derivative,
+     * and the file is sent with {@link BodyInserters#fromResource}, which hands it to the
+     * server as a zero-copy file region.
+     */
+    public Mono<ServerResponse> ofImage(ServerRequest request, ResizedImage image) {
+        var etag = "\"" + image.etag() + "\"";
+        return request.checkNotModified(etag)
+            .flatMap(notModified -> ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(IMAGE_CACHE_CONTROL)
+                .build())
+            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok()
+                .contentType(image.format().mediaType())
+                .eTag(etag)
+                .cacheControl(IMAGE_CACHE_CONTROL)
+                .body(BodyInserters.fromResource(new FileSystemResource(image.file())))));
+    }
+
+    private Mono<ServerResponse> respond(ServerRequest request, String etag,
+        Instant lastModified, Supplier<Mono<?>> body) {
+        var cacheControl = photoSettings.current().apiCacheControl();
+        return request.checkNotModified(lastModified, etag)
+            .flatMap(notModified -> ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .headers(headers -> setCacheControl(headers, cacheControl))
+                .build())
+            .switchIfEmpty(Mono.<Object>defer(body)
+                .flatMap(value -> {
+                    var builder = ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .eTag(etag)
+                        .lastModified(lastModified)
+                        .headers(headers -> setCacheControl(headers, cacheControl));
+                    return value instanceof PhotoJsonCache.Segments json
+                        ? builder.body(json.inserter())
+                        : builder.bodyValue(value);
+                }));
+    }
+
+    private static void setCacheControl(HttpHeaders headers, String cacheControl) {
+        if (StringUtils.hasText(cacheControl)) {
+            headers.setCacheControl(cacheControl);
+        }
+    }
+
+    static String etag(String key, String version) {
+        var hash = DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8));
+        return "\"" + hash + "-" + version + "\"";
+    }
+}
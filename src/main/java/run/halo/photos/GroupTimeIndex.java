@@ -0,0 +1,78 @@
+package run.halo.photos;
+
+import static run.halo.app.extension.index.query.Queries.and;
+import static run.halo.app.extension.index.query.Queries.greaterThan;
+import static run.halo.app.extension.index.query.Queries.lessThan;
+
+import java.time.Instant;
+import java.util.HexFormat;
+import org.springframework.data.domain.Sort;
+import run.halo.app.extension.index.query.Condition;
+
+/**
+ * Composite {@code groupTime} index: group name, then the default photo order (effective time
+ * descending, creation time descending, name ascending) folded into one string that sorts
+ * ascending.
+ *
+ * <p>A key is {@code <group>/<effective time><creation time><name>}, where both times are
+ * fixed-width inverted hex, so "photos of group G, newest first" is the key range
+ * {@code (G/, G0)} read in index order, without intersecting the group index and sorting the
+ * matches. Group names never contain {@code /}, and {@code 0} is the character right after it,
+ * so the range of one group never overlaps another, including groups sharing a prefix.
+ * Ungrouped photos use the empty group name.
+ */
+public final class GroupTimeIndex {
+
+    public static final String NAME = "groupTime";
+
+    /**
+     * Index order, equal to {@link PhotoCursor#SORT} within one group.
+     */
+    public static final Sort SORT = Sort.by(Sort.Order.asc(NAME));
+
+    private static final char SEPARATOR = '/';
+    private static final char AFTER_SEPARATOR = SEPARATOR + 1;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private GroupTimeIndex() {
+    }
+
+    public static String key(Photo photo) {
+        var groupName = photo.getSpec() == null ? null : photo.getSpec().getGroupName();
+        var creationTimestamp = PhotoSortUtils.creationTimestamp(photo);
+        return (groupName == null ? "" : groupName)
+            + SEPARATOR
+            + descending(PhotoSortUtils.computeEffectiveTimeIndex(photo))
+            + descending(creationTimestamp)
+            + PhotoSortUtils.metadataName(photo);
+    }
+
+    /**
+     * Condition matching the photos of one group.
+     *
+     * @param group group name, empty for ungrouped photos
+     */
+    public static Condition inGroup(String group) {
+        return and(greaterThan(NAME, lowerBound(group)), lessThan(NAME, upperBound(group)));
+    }
+
+    static String lowerBound(String group) {
+        return group + SEPARATOR;
+    }
+
+    static String upperBound(String group) {
+        return group + AFTER_SEPARATOR;
+    }
+
+    private static String descending(long value) {
+        // flipping the sign bit orders longs as unsigned hex, inverting them reverses it
+        return HEX.toHexDigits(~(value ^ Long.MIN_VALUE));
+    }
+
+    private static String descending(Instant time) {
+        if (time == null) {
+            return descending(PhotoSortUtils.NO_TIME) + HEX.toHexDigits(-1);
+        }
+        return descending(time.getEpochSecond()) + HEX.toHexDigits(~time.getNano());
+    }
+}
@@ -23,6 +23,8 @@ public class Photo extends AbstractExtension {
 
     private PhotoExif exif;
 
+    private PhotoStatus status;
+
     @Data
     public static class PhotoSpec {
         @Schema(requiredMode = REQUIRED)
@@ -75,6 +77,34 @@ public class Photo extends AbstractExtension {
         private Double gpsAltitude;
     }
 
+    @Data
+    public static class PhotoStatus {
+        @Schema(description = "Downscaled JPEG derivatives generated at upload time, in "
+            + "ascending width. Empty when none were generated.")
+        private java.util.List<PhotoVariant> variants;
+
+        @Schema(description = "BlurHash placeholder of the image, computed from the locally "
+            + "stored original at upload or EXIF re-extraction.")
+        private String blurHash;
+
+        @Schema(description = "Display dimensions of the image, read from the container "
+            + "header at upload or EXIF re-extraction, whether or not it carries EXIF.")
+        private PhotoDimensions dimensions;
+    }
+
+    @Data
+    public static class PhotoDimensions {
+        private Integer width;
+        private Integer height;
+    }
+
+    @Data
+    public static class PhotoVariant {
+        private Integer width;
+        private Integer height;
+        private String url;
+    }
+
     @JsonIgnore
     public boolean isDeleted() {
         return getMetadata().getDeletionTimestamp() != null;
@@ -0,0 +1,102 @@
+package run.halo.photos;
+
+import static run.halo.app.extension.index.query.Queries.and;
+import static run.halo.app.extension.index.query.Queries.equal;
+import static run.halo.app.extension.index.query.Queries.greaterThan;
+import static run.halo.app.extension.index.query.Queries.lessThan;
+import static run.halo.app.extension.index.query.Queries.or;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import org.springframework.web.server.ServerWebInputException;
+import run.halo.app.extension.index.query.Condition;
+
+/**
+ * Opaque keyset cursor over photos in the default photo order: effective time descending,
+ * creation time descending, then name ascending.
+ *
+ * <p>A cursor holds the sort key of the last photo of a page, and the next page is the photos
+ * ordered strictly after it. Unlike an offset, the cost of fetching a page does not grow with
+ * its depth.
+ *
+ * @param effectiveTime     {@code effectiveTime} index value of the last photo, see
+ *                          {@link PhotoSortUtils#computeEffectiveTimeIndex(Photo)}
+ * @param creationTimestamp creation time of the last photo
+ * @param name              name of the last photo
+ */
+public record PhotoCursor(long effectiveTime, @Nullable Instant creationTimestamp,
+                          String name) {
+
+    public static final Sort SORT = Sort.by(
+        Sort.Order.desc(PhotoQuery.EFFECTIVE_TIME_INDEX),
+        Sort.Order.desc("metadata.creationTimestamp"),
+        Sort.Order.asc("metadata.name")
+    );
+
+    private static final String SEPARATOR = "\n";
+
+    public static PhotoCursor of(Photo photo) {
+        return new PhotoCursor(PhotoSortUtils.computeEffectiveTimeIndex(photo),
+            PhotoSortUtils.creationTimestamp(photo), photo.getMetadata().getName());
+    }
+
+    /**
+     * Decode a cursor token produced by {@link #encode()}.
+     *
+     * @throws ServerWebInputException if the token is malformed
+     */
+    public static PhotoCursor decode(String token) {
+        try {
+            var decoded = new String(Base64.getUrlDecoder().decode(token),
+                StandardCharsets.UTF_8);
+            var parts = decoded.split(SEPARATOR, -1);
+            if (parts.length != 3 || StringUtils.isEmpty(parts[2])) {
+                throw new ServerWebInputException("Invalid cursor");
+            }
+            var creationTimestamp = parts[1].isEmpty() ? null : Instant.parse(parts[1]);
+            return new PhotoCursor(decodeEffectiveTime(parts[0]), creationTimestamp, parts[2]);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new ServerWebInputException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Cursors issued before the index held epoch milliseconds carry the ISO string, or an
+     * empty string for photos without any time; keep accepting them.
+     */
+    private static long decodeEffectiveTime(String value) {
+        if (value.isEmpty()) {
+            return PhotoSortUtils.NO_TIME;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return Instant.parse(value).toEpochMilli();
+        }
+    }
+
+    public String encode() {
+        var raw = String.join(SEPARATOR, Long.toString(effectiveTime),
+            creationTimestamp == null ? "" : creationTimestamp.toString(), name);
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Condition matching the photos ordered strictly after this cursor in {@link #SORT}.
+     */
+    public Condition after() {
+        Condition sameTime = creationTimestamp == null
+            ? greaterThan("metadata.name", name)
+            : or(lessThan("metadata.creationTimestamp", creationTimestamp),
+                and(equal("metadata.creationTimestamp", creationTimestamp),
+                    greaterThan("metadata.name", name)));
+        return or(lessThan(PhotoQuery.EFFECTIVE_TIME_INDEX, effectiveTime),
+            and(equal(PhotoQuery.EFFECTIVE_TIME_INDEX, effectiveTime), sameTime));
+    }
+}
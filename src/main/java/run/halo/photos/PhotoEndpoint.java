@@ -9,9 +9,11 @@ import static org.springdoc.webflux.core.fn.SpringdocRouteBuilder.route;
 
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
 import org.springdoc.core.fn.builders.parameter.Builder;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.http.codec.multipart.FormFieldPart;
@@ -25,6 +27,9 @@ import reactor.core.publisher.Mono;
 import run.halo.app.core.extension.endpoint.CustomEndpoint;
 import run.halo.app.extension.GroupVersion;
 import run.halo.app.extension.ListResult;
+import run.halo.photos.service.LinkImportProgress;
+import run.halo.photos.service.PhotoExifJobService;
+import run.halo.photos.service.PhotoLinkImportService;
 import run.halo.photos.service.PhotoService;
 import run.halo.photos.service.PhotoUploadService;
 
@@ -40,6 +45,8 @@ public class PhotoEndpoint implements CustomEndpoint {
 
     private final PhotoService photoService;
     private final PhotoUploadService photoUploadService;
+    private final PhotoExifJobService photoExifJobService;
+    private final PhotoLinkImportService photoLinkImportService;
 
     @Override
     public RouterFunction<ServerResponse> endpoint() {
@@ -101,6 +108,46 @@ public class PhotoEndpoint implements CustomEndpoint {
                             .schema(schemaBuilder().implementation(UploadPhotoRequest.class))))
                     .response(responseBuilder().implementation(Photo.class))
             )
+            .POST("photos/import-links", this::importLinks,
+                builder -> builder.operationId("ImportPhotoLinks")
+                    .description("Create photos from external image links, in batches, and "
+                        + "stream one progress event per link as server-sent events. The "
+                        + "body is either plain text with one link per line or a JSON array "
+                        + "of links.")
+                    .tag(tag)
+                    .parameter(parameterBuilder()
+                        .name("group")
+                        .in(ParameterIn.QUERY)
+                        .description("Photo group name to assign the new photos to")
+                        .required(false)
+                        .implementation(String.class))
+                    .parameter(parameterBuilder()
+                        .name("probe")
+                        .in(ParameterIn.QUERY)
+                        .description("Read the leading bytes of each image to fill its "
+                            + "dimensions and EXIF. Defaults to false.")
+                        .required(false)
+                        .implementation(Boolean.class))
+                    .parameter(parameterBuilder()
+                        .name("concurrency")
+                        .in(ParameterIn.QUERY)
+                        .description("Number of links handled concurrently, 1 to 16. "
+                            + "Defaults to 4.")
+                        .required(false)
+                        .implementation(Integer.class))
+                    .requestBody(requestBodyBuilder()
+                        .required(true)
+                        .content(contentBuilder()
+                            .mediaType(MediaType.TEXT_PLAIN_VALUE)
+                            .schema(schemaBuilder().implementation(String.class)))
+                        .content(contentBuilder()
+                            .mediaType(MediaType.APPLICATION_JSON_VALUE)
+                            .schema(schemaBuilder().implementation(String[].class))))
+                    .response(responseBuilder()
+                        .content(contentBuilder()
+                            .mediaType(MediaType.TEXT_EVENT_STREAM_VALUE)
+                            .schema(schemaBuilder().implementation(LinkImportProgress.class))))
+            )
             .POST("photos/{name}/reextract-exif", this::reextractExif,
                 builder -> builder.operationId("ReextractExif")
                     .description("Re-extract EXIF data from the local attachment file "
@@ -115,9 +162,68 @@ public class PhotoEndpoint implements CustomEndpoint {
                     )
                     .response(responseBuilder().implementation(Photo.class))
             )
+            .POST("photoexifjobs", this::startExifJob,
+                builder -> {
+                    builder.operationId("StartPhotoExifJob")
+                        .description("Start a server-side job that re-extracts EXIF data for "
+                            + "all photos matching the given filters. Paging and sort "
+                            + "parameters are ignored.")
+                        .tag(tag)
+                        .parameter(parameterBuilder()
+                            .name("parallelism")
+                            .in(ParameterIn.QUERY)
+                            .description("Number of photos processed concurrently, 1 to 16. "
+                                + "Defaults to 4.")
+                            .required(false)
+                            .implementation(Integer.class))
+                        .parameter(parameterBuilder()
+                            .name("force")
+                            .in(ParameterIn.QUERY)
+                            .description("Re-extract even if the source file is unchanged "
+                                + "since the last extraction")
+                            .required(false)
+                            .implementation(Boolean.class))
+                        .response(responseBuilder().implementation(PhotoExifJob.class));
+                    PhotoQuery.buildParameters(builder);
+                }
+            )
+            .GET("photoexifjobs/{name}", this::getExifJob,
+                builder -> builder.operationId("GetPhotoExifJob")
+                    .description("Get an EXIF re-extraction job with its latest progress.")
+                    .tag(tag)
+                    .parameter(exifJobNameParameter())
+                    .response(responseBuilder().implementation(PhotoExifJob.class))
+            )
+            .GET("photoexifjobs/{name}/progress", this::streamExifJobProgress,
+                builder -> builder.operationId("StreamPhotoExifJobProgress")
+                    .description("Stream the progress of an EXIF re-extraction job as "
+                        + "server-sent events, one event per second until the job ends.")
+                    .tag(tag)
+                    .parameter(exifJobNameParameter())
+                    .response(responseBuilder()
+                        .content(contentBuilder()
+                            .mediaType(MediaType.TEXT_EVENT_STREAM_VALUE)
+                            .schema(schemaBuilder().implementation(PhotoExifJob.class))))
+            )
+            .POST("photoexifjobs/{name}/cancel", this::cancelExifJob,
+                builder -> builder.operationId("CancelPhotoExifJob")
+                    .description("Cancel an EXIF re-extraction job.")
+                    .tag(tag)
+                    .parameter(exifJobNameParameter())
+                    .response(responseBuilder().implementation(PhotoExifJob.class))
+            )
             .build();
     }
 
+    private static Builder exifJobNameParameter() {
+        return parameterBuilder()
+            .name("name")
+            .in(ParameterIn.PATH)
+            .description("EXIF job name")
+            .implementation(String.class)
+            .required(true);
+    }
+
     @Override
     public GroupVersion groupVersion() {
         return GroupVersion.parseAPIVersion("console.api.photo.halo.run/v1alpha1");
@@ -162,12 +268,79 @@ public class PhotoEndpoint implements CustomEndpoint {
         return StringUtils.isNotBlank(queryGroup) ? queryGroup : "";
     }
 
+    private Mono<ServerResponse> importLinks(ServerRequest request) {
+        var group = request.queryParam("group").orElse("");
+        boolean probe = request.queryParam("probe")
+            .map(Boolean::parseBoolean)
+            .orElse(false);
+        return Mono.fromCallable(() -> request.queryParam("concurrency")
+                .filter(StringUtils::isNotBlank)
+                .map(value -> parseInteger("concurrency", value)))
+            .zipWith(readLinks(request))
+            .flatMap(tuple -> ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(photoLinkImportService.importLinks(tuple.getT2(), group, probe,
+                    tuple.getT1().orElse(null)), LinkImportProgress.class));
+    }
+
+    /**
+     * Read the links from a JSON array body, or from plain text with one link per line.
+     */
+    private static Mono<List<String>> readLinks(ServerRequest request) {
+        var contentType = request.headers().contentType().orElse(MediaType.TEXT_PLAIN);
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return request.bodyToMono(new ParameterizedTypeReference<List<String>>() {})
+                .defaultIfEmpty(List.of());
+        }
+        return request.bodyToMono(String.class)
+            .map(text -> text.lines().toList())
+            .defaultIfEmpty(List.of());
+    }
+
     private Mono<ServerResponse> reextractExif(ServerRequest request) {
         String name = request.pathVariable("name");
         return photoService.reextractExif(name)
             .flatMap(photo -> ServerResponse.ok().bodyValue(photo));
     }
 
+    private Mono<ServerResponse> startExifJob(ServerRequest request) {
+        boolean force = request.queryParam("force")
+            .map(Boolean::parseBoolean)
+            .orElse(false);
+        var query = new PhotoQuery(request.exchange());
+        return Mono.fromCallable(() -> request.queryParam("parallelism")
+                .filter(StringUtils::isNotBlank)
+                .map(value -> parseInteger("parallelism", value)))
+            .flatMap(parallelism ->
+                photoExifJobService.start(query, parallelism.orElse(null), force))
+            .flatMap(job -> ServerResponse.ok().bodyValue(job));
+    }
+
+    private static Integer parseInteger(String name, String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new ServerWebInputException(name + " must be an integer");
+        }
+    }
+
+    private Mono<ServerResponse> getExifJob(ServerRequest request) {
+        return photoExifJobService.get(request.pathVariable("name"))
+            .flatMap(job -> ServerResponse.ok().bodyValue(job));
+    }
+
+    private Mono<ServerResponse> streamExifJobProgress(ServerRequest request) {
+        return ServerResponse.ok()
+            .contentType(MediaType.TEXT_EVENT_STREAM)
+            .body(photoExifJobService.watchProgress(request.pathVariable("name")),
+                PhotoExifJob.class);
+    }
+
+    private Mono<ServerResponse> cancelExifJob(ServerRequest request) {
+        return photoExifJobService.cancel(request.pathVariable("name"))
+            .flatMap(job -> ServerResponse.ok().bodyValue(job));
+    }
+
     private Mono<ServerResponse> listTags(ServerRequest request) {
         String name = request.queryParam("name").orElse(null);
         PhotoQuery query = new PhotoQuery(request.exchange());
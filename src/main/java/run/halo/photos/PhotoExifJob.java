@@ -0,0 +1,112 @@
+package run.halo.photos;
+
+import static io.swagger.v3.oas.annotations.media.Schema.RequiredMode.REQUIRED;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.util.List;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import run.halo.app.extension.AbstractExtension;
+import run.halo.app.extension.GVK;
+
+/**
+ * A server-side job that re-extracts EXIF data for every photo matching a selection.
+ *
+ * <p>Photos are processed in {@code metadata.name} order. After each batch the name of the
+ * last photo is saved to {@code status.checkpoint}, so a job interrupted by a restart resumes
+ * after it instead of starting over.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@GVK(group = "core.halo.run", version = "v1alpha1", kind = "PhotoExifJob",
+    plural = "photoexifjobs", singular = "photoexifjob")
+public class PhotoExifJob extends AbstractExtension {
+
+    @Schema(requiredMode = REQUIRED)
+    private PhotoExifJobSpec spec;
+
+    private PhotoExifJobStatus status;
+
+    @JsonIgnore
+    public PhotoExifJobStatus getStatusOrDefault() {
+        if (this.status == null) {
+            this.status = new PhotoExifJobStatus();
+        }
+        return this.status;
+    }
+
+    @Data
+    public static class PhotoExifJobSpec {
+
+        @Schema(requiredMode = REQUIRED)
+        private Selection selection;
+
+        @Schema(description = "Number of photos processed concurrently.")
+        private Integer parallelism;
+
+        @Schema(description = "Re-extract even when the source file has not changed since "
+            + "the last extraction.")
+        private Boolean force;
+    }
+
+    /**
+     * The photos a job runs over, using the same filters as the photo list endpoint.
+     */
+    @Data
+    public static class Selection {
+
+        private String keyword;
+
+        private String group;
+
+        private Boolean ungrouped;
+
+        private String tag;
+
+        private List<String> labelSelector;
+
+        private List<String> fieldSelector;
+    }
+
+    @Data
+    public static class PhotoExifJobStatus {
+
+        private Phase phase;
+
+        @Schema(description = "Number of photos matching the selection when the job started.")
+        private int total;
+
+        private int processed;
+
+        private int updated;
+
+        @Schema(description = "Photos left untouched because the source file is unchanged or "
+            + "not stored locally.")
+        private int skipped;
+
+        private int failed;
+
+        @Schema(description = "Name of the last photo of the last completed batch.")
+        private String checkpoint;
+
+        private Instant startedAt;
+
+        private Instant finishedAt;
+
+        private String message;
+    }
+
+    public enum Phase {
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED;
+
+        public boolean isTerminal() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+}
@@ -4,7 +4,6 @@ import static org.springdoc.core.fn.builders.apiresponse.Builder.responseBuilder
 import static org.springdoc.webflux.core.fn.SpringdocRouteBuilder.route;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
@@ -24,6 +23,8 @@ public class PhotoGroupQueryEndpoint implements CustomEndpoint {
 
     private final PhotoPublicQueryService photoPublicQueryService;
 
+    private final ConditionalResponses conditionalResponses;
+
     @Override
     public RouterFunction<ServerResponse> endpoint() {
         final var tag = "api.photo.halo.run/v1alpha1/PhotoGroup";
@@ -38,11 +39,8 @@ public class PhotoGroupQueryEndpoint implements CustomEndpoint {
     }
 
     private Mono<ServerResponse> listGroups(ServerRequest request) {
-        return photoPublicQueryService.listGroups()
-            .collectList()
-            .flatMap(groups -> ServerResponse.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(groups));
+        return conditionalResponses.ofGallery(request,
+            () -> photoPublicQueryService.listGroups().collectList());
     }
 
     @Override
@@ -0,0 +1,52 @@
+package run.halo.photos;
+
+import static org.springdoc.core.fn.builders.apiresponse.Builder.responseBuilder;
+import static org.springdoc.webflux.core.fn.SpringdocRouteBuilder.route;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import run.halo.app.core.extension.endpoint.CustomEndpoint;
+import run.halo.app.extension.GroupVersion;
+import run.halo.photos.infra.PhotoMetricsProvider;
+
+/**
+ * Console endpoint exposing runtime metrics of the photos plugin.
+ */
+@Component
+@RequiredArgsConstructor
+public class PhotoMetricsEndpoint implements CustomEndpoint {
+
+    private final ObjectProvider<PhotoMetricsProvider> metricsProviders;
+
+    @Override
+    public RouterFunction<ServerResponse> endpoint() {
+        final var tag = "console.api.photo.halo.run/v1alpha1/Metrics";
+        return route()
+            .GET("metrics", this::getMetrics,
+                builder -> builder.operationId("GetPhotoMetrics")
+                    .description("Get runtime metrics of the photos plugin, keyed by section.")
+                    .tag(tag)
+                    .response(responseBuilder().implementation(Map.class))
+            )
+            .build();
+    }
+
+    @Override
+    public GroupVersion groupVersion() {
+        return GroupVersion.parseAPIVersion("console.api.photo.halo.run/v1alpha1");
+    }
+
+    private Mono<ServerResponse> getMetrics(ServerRequest request) {
+        var metrics = new LinkedHashMap<String, Map<String, Object>>();
+        metricsProviders.orderedStream()
+            .forEach(provider -> metrics.put(provider.metricsName(), provider.metrics()));
+        return ServerResponse.ok().bodyValue(metrics);
+    }
+}
@@ -1,8 +1,14 @@
 package run.halo.photos;
 
 import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import run.halo.app.extension.ConfigMap;
 import run.halo.app.extension.Extension;
 import run.halo.app.extension.Scheme;
 import run.halo.app.extension.SchemeManager;
@@ -11,7 +17,20 @@ import run.halo.app.extension.Watcher;
 import run.halo.app.extension.index.IndexSpecs;
 import run.halo.app.plugin.BasePlugin;
 import run.halo.app.plugin.PluginContext;
-import run.halo.photos.finders.PhotoPublicQueryService;
+import run.halo.photos.index.PhotoRankIndex;
+import run.halo.photos.index.PhotoTagIndex;
+import run.halo.photos.infra.DerivativeCache;
+import run.halo.photos.infra.GalleryVersion;
+import run.halo.photos.infra.ImageProcessingScheduler;
+import run.halo.photos.infra.PhotoChange;
+import run.halo.photos.infra.PhotoChangeBus;
+import run.halo.photos.infra.PhotoJsonCache;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.infra.PhotoVoCache;
+import run.halo.photos.infra.RenderedPageCache;
+import run.halo.photos.infra.SingleFlightCache;
+import run.halo.photos.reconciler.PhotoGroupCountUpdater;
+import run.halo.photos.service.PhotoExifJobService;
 
 /**
  * @author ryanwang
@@ -19,18 +38,59 @@ import run.halo.photos.finders.PhotoPublicQueryService;
  */
 @Component
 public class PhotoPlugin extends BasePlugin {
+    private final PluginContext pluginContext;
     private final SchemeManager schemeManager;
     private final ReactiveExtensionClient client;
-    private final PhotoPublicQueryService photoPublicQueryService;
+    private final PhotoTagIndex photoTagIndex;
+    private final PhotoRankIndex photoRankIndex;
+    private final PhotoSettings photoSettings;
+    private final ImageProcessingScheduler imageProcessingScheduler;
+    private final PhotoExifJobService photoExifJobService;
+    private final PhotoGroupCountUpdater photoGroupCountUpdater;
+    private final RenderedPageCache renderedPageCache;
+    private final GalleryVersion galleryVersion;
+    private final PhotoVoCache photoVoCache;
+    private final PhotoJsonCache photoJsonCache;
+    private final PhotoChangeBus photoChangeBus;
+    private final SingleFlightCache singleFlightCache;
+    private final DerivativeCache derivativeCache;
+    private List<Disposable> photoChangeSubscriptions = List.of();
     private Watcher photoWatcher;
+    private Watcher photoGroupWatcher;
+    private Watcher settingWatcher;
 
     public PhotoPlugin(PluginContext pluginContext, SchemeManager schemeManager,
         ReactiveExtensionClient client,
-        PhotoPublicQueryService photoPublicQueryService) {
+        PhotoTagIndex photoTagIndex,
+        PhotoRankIndex photoRankIndex,
+        PhotoSettings photoSettings,
+        ImageProcessingScheduler imageProcessingScheduler,
+        PhotoExifJobService photoExifJobService,
+        PhotoGroupCountUpdater photoGroupCountUpdater,
+        RenderedPageCache renderedPageCache,
+        GalleryVersion galleryVersion,
+        PhotoVoCache photoVoCache,
+        PhotoJsonCache photoJsonCache,
+        PhotoChangeBus photoChangeBus,
+        SingleFlightCache singleFlightCache,
+        DerivativeCache derivativeCache) {
         super(pluginContext);
+        this.pluginContext = pluginContext;
         this.schemeManager = schemeManager;
         this.client = client;
-        this.photoPublicQueryService = photoPublicQueryService;
+        this.photoTagIndex = photoTagIndex;
+        this.photoRankIndex = photoRankIndex;
+        this.photoSettings = photoSettings;
+        this.imageProcessingScheduler = imageProcessingScheduler;
+        this.photoExifJobService = photoExifJobService;
+        this.photoGroupCountUpdater = photoGroupCountUpdater;
+        this.renderedPageCache = renderedPageCache;
+        this.galleryVersion = galleryVersion;
+        this.photoVoCache = photoVoCache;
+        this.photoJsonCache = photoJsonCache;
+        this.photoChangeBus = photoChangeBus;
+        this.singleFlightCache = singleFlightCache;
+        this.derivativeCache = derivativeCache;
     }
 
     @Override
@@ -57,13 +117,12 @@ public class PhotoPlugin extends BasePlugin {
                 .indexFunc(photo -> exifStr(photo, Photo.PhotoExif::getMake)));
             indexSpecs.add(IndexSpecs.<Photo, String>single("exif.model", String.class)
                 .indexFunc(photo -> exifStr(photo, Photo.PhotoExif::getModel)));
-            indexSpecs.add(IndexSpecs.<Photo, String>single("exif.dateTimeOriginal", String.class)
-                .indexFunc(photo -> {
-                    var dt = photo.getExif() == null ? null : photo.getExif().getDateTimeOriginal();
-                    return dt == null ? "" : dt.toString();
-                }));
-            indexSpecs.add(IndexSpecs.<Photo, String>single("effectiveTime", String.class)
+            indexSpecs.add(IndexSpecs.<Photo, Long>single("exif.dateTimeOriginal", Long.class)
+                .indexFunc(PhotoSortUtils::computeDateTimeOriginalIndex));
+            indexSpecs.add(IndexSpecs.<Photo, Long>single("effectiveTime", Long.class)
                 .indexFunc(PhotoSortUtils::computeEffectiveTimeIndex));
+            indexSpecs.add(IndexSpecs.<Photo, String>single(GroupTimeIndex.NAME, String.class)
+                .indexFunc(GroupTimeIndex::key));
         });
         schemeManager.register(PhotoGroup.class, indexSpecs -> {
             indexSpecs.add(IndexSpecs.<PhotoGroup, Integer>single("spec.priority", Integer.class)
@@ -73,27 +132,33 @@ public class PhotoPlugin extends BasePlugin {
                 )
             );
         });
+        schemeManager.register(PhotoExifJob.class);
+        photoChangeSubscriptions = List.of(
+            photoChangeBus.subscribe(changes -> changes.forEach(this::applyToIndexes)),
+            photoChangeBus.subscribe(this::invalidateCaches));
+        // Halo passes every extension event to every watcher
         photoWatcher = new Watcher() {
             private volatile boolean disposed = false;
 
             @Override
             public void onAdd(Extension extension) {
-                if (extension instanceof Photo) {
-                    photoPublicQueryService.invalidateTagCache();
+                if (extension instanceof Photo photo) {
+                    photoChangeBus.publish(PhotoChange.added(photo));
                 }
             }
 
             @Override
             public void onUpdate(Extension oldObj, Extension newObj) {
-                if (newObj instanceof Photo) {
-                    photoPublicQueryService.invalidateTagCache();
+                if (newObj instanceof Photo newPhoto) {
+                    photoChangeBus.publish(PhotoChange.updated(
+                        oldObj instanceof Photo oldPhoto ? oldPhoto : null, newPhoto));
                 }
             }
 
             @Override
             public void onDelete(Extension extension) {
-                if (extension instanceof Photo) {
-                    photoPublicQueryService.invalidateTagCache();
+                if (extension instanceof Photo photo) {
+                    photoChangeBus.publish(PhotoChange.deleted(photo));
                 }
             }
 
@@ -108,15 +173,177 @@ public class PhotoPlugin extends BasePlugin {
             }
         };
         client.watch(photoWatcher);
+        // group pages and titles only show on list pages. Counts are written well after the
+        // photo changes behind them have invalidated the caches, so a count update has to
+        // invalidate again; only updates that leave what readers see unchanged are skipped
+        photoGroupWatcher = changeWatcher(extension -> {
+            if (extension instanceof PhotoGroup) {
+                singleFlightCache.invalidate();
+                renderedPageCache.invalidate(RenderedPageCache.Kind.LIST);
+                galleryVersion.bump();
+            }
+        }, (oldObj, newObj) -> !(oldObj instanceof PhotoGroup oldGroup
+            && newObj instanceof PhotoGroup newGroup && isUnchangedForReaders(oldGroup, newGroup)));
+        client.watch(photoGroupWatcher);
+        settingWatcher = changeWatcher(extension -> {
+            if (extension instanceof ConfigMap configMap
+                && configMap.getMetadata().getName().equals(pluginContext.getConfigMapName())) {
+                reloadSettings();
+            }
+        });
+        client.watch(settingWatcher);
+        photoTagIndex.rebuild();
+        photoRankIndex.rebuild();
+        reloadSettings();
+        photoExifJobService.resumeInterrupted();
+    }
+
+    private void applyToIndexes(PhotoChange change) {
+        var photo = change.photo();
+        switch (change.type()) {
+            case ADDED -> {
+                photoTagIndex.onPhotoAdded(photo);
+                photoRankIndex.onPhotoAdded(photo);
+                photoGroupCountUpdater.onPhotoAdded(photo);
+            }
+            case UPDATED -> {
+                photoTagIndex.onPhotoUpdated(photo);
+                photoRankIndex.onPhotoUpdated(photo);
+                if (change.oldPhoto() != null) {
+                    photoGroupCountUpdater.onPhotoUpdated(change.oldPhoto(), photo);
+                }
+            }
+            case DELETED -> {
+                photoTagIndex.onPhotoDeleted(photo);
+                photoRankIndex.onPhotoDeleted(photo);
+                photoGroupCountUpdater.onPhotoDeleted(photo);
+            }
+        }
+    }
+
+    private void invalidateCaches(List<PhotoChange> changes) {
+        changes.stream()
+            .filter(change -> change.type() == PhotoChange.Type.DELETED)
+            .map(PhotoChange::name)
+            .forEach(name -> {
+                photoVoCache.evict(name);
+                photoJsonCache.evict(name);
+            });
+        singleFlightCache.invalidate();
+        renderedPageCache.invalidate(null);
+        galleryVersion.bump();
+        photoJsonCache.invalidateTags();
+    }
+
+    /**
+     * Reload the settings snapshot and apply it to the components configured from it. Pages
+     * rendered with the previous settings are dropped once the new snapshot is in place.
+     */
+    private void reloadSettings() {
+        photoSettings.refresh()
+            .subscribe(settings -> {
+                imageProcessingScheduler.configure(
+                    ImageProcessingScheduler.Mode.from(settings.imageSchedulerMode()),
+                    settings.imageConcurrency(),
+                    settings.imageQueueCapacity()
+                );
+                renderedPageCache.configure(
+                    settings.pageCacheEnabled(),
+                    settings.pageCacheMaxEntries(),
+                    settings.pageCacheMaxSizeMb() * 1024 * 1024
+                );
+                singleFlightCache.configure(settings.staleWhileRevalidate());
+                derivativeCache.configure(settings.derivativeCacheMaxSizeMb() * 1024 * 1024);
+                renderedPageCache.invalidate(null);
+            }, error -> {
+                // logged by PhotoSettings; the previous snapshot stays in effect
+            });
+    }
+
+    /**
+     * Whether an update of a group changed nothing but {@code status.photoCount}.
+     */
+    static boolean isCountOnlyUpdate(PhotoGroup oldGroup, PhotoGroup newGroup) {
+        var oldMetadata = oldGroup.getMetadata();
+        var newMetadata = newGroup.getMetadata();
+        return Objects.equals(oldGroup.getSpec(), newGroup.getSpec())
+            && Objects.equals(oldMetadata.getLabels(), newMetadata.getLabels())
+            && Objects.equals(oldMetadata.getAnnotations(), newMetadata.getAnnotations())
+            && Objects.equals(oldMetadata.getDeletionTimestamp(),
+                newMetadata.getDeletionTimestamp());
+    }
+
+    /**
+     * Whether an update of a group changed nothing that is shown to readers, not even
+     * {@code status.photoCount}.
+     */
+    static boolean isUnchangedForReaders(PhotoGroup oldGroup, PhotoGroup newGroup) {
+        return isCountOnlyUpdate(oldGroup, newGroup)
+            && Objects.equals(photoCount(oldGroup), photoCount(newGroup));
+    }
+
+    private static Integer photoCount(PhotoGroup group) {
+        return group.getStatus() == null ? null : group.getStatus().getPhotoCount();
+    }
+
+    private static Watcher changeWatcher(Consumer<Extension> onChange) {
+        return changeWatcher(onChange, (oldObj, newObj) -> true);
+    }
+
+    /**
+     * @param relevantUpdate whether an update from the first extension to the second should
+     * be passed on
+     */
+    private static Watcher changeWatcher(Consumer<Extension> onChange,
+        BiPredicate<Extension, Extension> relevantUpdate) {
+        return new Watcher() {
+            private volatile boolean disposed = false;
+
+            @Override
+            public void onAdd(Extension extension) {
+                onChange.accept(extension);
+            }
+
+            @Override
+            public void onUpdate(Extension oldObj, Extension newObj) {
+                if (relevantUpdate.test(oldObj, newObj)) {
+                    onChange.accept(newObj);
+                }
+            }
+
+            @Override
+            public void onDelete(Extension extension) {
+                onChange.accept(extension);
+            }
+
+            @Override
+            public void dispose() {
+                disposed = true;
+            }
+
+            @Override
+            public boolean isDisposed() {
+                return disposed;
+            }
+        };
     }
 
     @Override
     public void stop() {
+        photoChangeSubscriptions.forEach(Disposable::dispose);
+        photoChangeSubscriptions = List.of();
         if (photoWatcher != null) {
             photoWatcher.dispose();
         }
+        if (photoGroupWatcher != null) {
+            photoGroupWatcher.dispose();
+        }
+        if (settingWatcher != null) {
+            settingWatcher.dispose();
+        }
         schemeManager.unregister(Scheme.buildFromType(Photo.class));
         schemeManager.unregister(Scheme.buildFromType(PhotoGroup.class));
+        schemeManager.unregister(Scheme.buildFromType(PhotoExifJob.class));
     }
 
     private static String exifStr(Photo photo, Function<Photo.PhotoExif, String> getter) {
@@ -1,12 +1,16 @@
 package run.halo.photos;
 
+import static org.springdoc.core.fn.builders.parameter.Builder.parameterBuilder;
 import static run.halo.app.extension.index.query.Queries.and;
 import static run.halo.app.extension.index.query.Queries.contains;
 import static run.halo.app.extension.index.query.Queries.empty;
 import static run.halo.app.extension.index.query.Queries.equal;
 import static run.halo.app.extension.router.selector.SelectorUtil.labelAndFieldSelectorToListOptions;
 
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import org.apache.commons.lang3.StringUtils;
+import org.springdoc.core.fn.builders.operation.Builder;
+import org.springframework.lang.Nullable;
 import org.springframework.web.server.ServerWebExchange;
 import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.PageRequest;
@@ -19,6 +23,8 @@ import run.halo.app.extension.router.selector.FieldSelector;
  */
 public class PhotoPublicQuery extends PhotoQuery {
 
+    public static final String CURSOR_PARAM = "cursor";
+
     public PhotoPublicQuery(ServerWebExchange exchange) {
         super(exchange);
     }
@@ -29,16 +35,47 @@ public class PhotoPublicQuery extends PhotoQuery {
      * @return a list options.
      */
     public ListOptions toListOptions() {
+        return toListOptions(true);
+    }
+
+    /**
+     * Build {@link ListOptions} from query params except the group, for listing through
+     * {@link GroupTimeIndex}.
+     */
+    public ListOptions toListOptionsExceptGroup() {
+        return toListOptions(false);
+    }
+
+    /**
+     * The group the request is scoped to: the empty string for {@code ungrouped=true}, the
+     * {@code group} parameter when set, otherwise {@code null}.
+     */
+    @Nullable
+    public String getGroupScope() {
+        if (isUngrouped()) {
+            return "";
+        }
+        return StringUtils.isNotBlank(getGroup()) ? getGroup() : null;
+    }
+
+    /**
+     * Whether the page can be read as a range of {@link GroupTimeIndex}: scoped to one group
+     * and in the default photo order.
+     */
+    public boolean isGroupTimeScan() {
+        return getGroupScope() != null && PhotoCursor.SORT.equals(getSort());
+    }
+
+    private ListOptions toListOptions(boolean withGroup) {
         var listOptions =
             labelAndFieldSelectorToListOptions(getLabelSelector(), getFieldSelector());
         Condition query = empty();
         if (StringUtils.isNotBlank(getKeyword())) {
             query = and(query, contains("spec.displayName", getKeyword()));
         }
-        if (isUngrouped()) {
-            query = and(query, equal("spec.groupName", ""));
-        } else if (StringUtils.isNotBlank(getGroup())) {
-            query = and(query, equal("spec.groupName", getGroup()));
+        var groupScope = getGroupScope();
+        if (withGroup && groupScope != null) {
+            query = and(query, equal("spec.groupName", groupScope));
         }
         if (StringUtils.isNotBlank(getTag())) {
             query = and(query, equal("spec.tags", getTag()));
@@ -53,4 +90,36 @@ public class PhotoPublicQuery extends PhotoQuery {
     public PageRequest toPageRequest() {
         return PageRequestImpl.of(getPage(), getSize(), getSort());
     }
+
+    /**
+     * Whether the request asks for keyset pagination. A present but empty {@code cursor}
+     * requests the first page.
+     */
+    public boolean isCursorMode() {
+        return queryParams.containsKey(CURSOR_PARAM);
+    }
+
+    @Nullable
+    public String getCursor() {
+        return queryParams.getFirst(CURSOR_PARAM);
+    }
+
+    /**
+     * Page size for cursor mode, falling back to {@link ModelConst#DEFAULT_PAGE_SIZE}.
+     */
+    public int getCursorPageSize() {
+        return getSize() > 0 ? getSize() : ModelConst.DEFAULT_PAGE_SIZE;
+    }
+
+    public static void buildParameters(Builder builder) {
+        PhotoQuery.buildParameters(builder);
+        builder.parameter(parameterBuilder()
+            .in(ParameterIn.QUERY)
+            .name(CURSOR_PARAM)
+            .description("Keyset cursor. When present, photos are returned in the default "
+                + "order after the cursor as a page with nextCursor instead of a ListResult; "
+                + "an empty value requests the first page. page and sort are ignored.")
+            .implementation(String.class)
+            .required(false));
+    }
 }
@@ -6,16 +6,20 @@ import static org.springdoc.webflux.core.fn.SpringdocRouteBuilder.route;
 
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.MediaType;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Mono;
 import run.halo.app.core.extension.endpoint.CustomEndpoint;
 import run.halo.app.extension.GroupVersion;
 import run.halo.app.extension.ListResult;
 import run.halo.photos.finders.PhotoPublicQueryService;
+import run.halo.photos.infra.PhotoJsonCache;
+import run.halo.photos.service.PhotoImageService;
+import run.halo.photos.service.ResizedImage;
 import run.halo.photos.vo.PhotoTagVo;
 import run.halo.photos.vo.PhotoVo;
 
@@ -28,6 +32,12 @@ public class PhotoQueryEndpoint implements CustomEndpoint {
 
     private final PhotoPublicQueryService photoPublicQueryService;
 
+    private final ConditionalResponses conditionalResponses;
+
+    private final PhotoJsonCache jsonCache;
+
+    private final PhotoImageService photoImageService;
+
     @Override
     public RouterFunction<ServerResponse> endpoint() {
         final var tag = "api.photo.halo.run/v1alpha1/Photo";
@@ -35,7 +45,8 @@ public class PhotoQueryEndpoint implements CustomEndpoint {
             .GET("photos", this::listPhotos,
                 builder -> {
                     builder.operationId("queryPhotos")
-                        .description("List photos.")
+                        .description("List photos. With the cursor parameter, returns a "
+                            + "PhotoCursorResult page in the default photo order instead.")
                         .tag(tag)
                         .response(responseBuilder()
                             .implementation(ListResult.generateGenericClass(PhotoVo.class)));
@@ -53,6 +64,31 @@ public class PhotoQueryEndpoint implements CustomEndpoint {
                         .required(true))
                     .response(responseBuilder().implementation(PhotoVo.class))
             )
+            .GET("photos/{name}/image", this::getPhotoImage,
+                builder -> builder.operationId("queryPhotoImage")
+                    .description("Get a resized copy of a locally stored photo. Widths are "
+                        + "limited to the configured variant widths; results are cached on "
+                        + "disk and served with an immutable Cache-Control.")
+                    .tag(tag)
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("name")
+                        .description("Photo name")
+                        .required(true))
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.QUERY)
+                        .name("w")
+                        .description("Target width, one of the configured variant widths")
+                        .required(true)
+                        .implementation(Integer.class))
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.QUERY)
+                        .name("fmt")
+                        .description("Output format: jpeg (default) or png")
+                        .required(false)
+                        .implementation(String.class))
+                    .response(responseBuilder().implementation(byte[].class))
+            )
             .GET("tags", this::listTags,
                 builder -> builder.operationId("queryPhotoTags")
                     .description("List photo tags with counts.")
@@ -70,28 +106,47 @@ public class PhotoQueryEndpoint implements CustomEndpoint {
 
     private Mono<ServerResponse> listPhotos(ServerRequest request) {
         PhotoPublicQuery query = new PhotoPublicQuery(request.exchange());
-        return photoPublicQueryService.listPhotos(query.toListOptions(), query.toPageRequest())
-            .flatMap(result -> ServerResponse.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(result));
+        if (query.isCursorMode()) {
+            return conditionalResponses.ofGallery(request,
+                () -> photoPublicQueryService.listPhotosByCursor(query.toListOptions(),
+                        query.getCursor(), query.getCursorPageSize())
+                    .map(jsonCache::cursorPage));
+        }
+        if (query.isGroupTimeScan()) {
+            return conditionalResponses.ofGallery(request,
+                () -> photoPublicQueryService.listGroupPhotos(query.getGroupScope(),
+                        query.toListOptionsExceptGroup(), query.getPage(), query.getSize())
+                    .map(jsonCache::page));
+        }
+        return conditionalResponses.ofGallery(request,
+            () -> photoPublicQueryService.listPhotos(query.toListOptions(),
+                    query.toPageRequest())
+                .map(jsonCache::page));
     }
 
     private Mono<ServerResponse> getPhoto(ServerRequest request) {
         String name = request.pathVariable("name");
         return photoPublicQueryService.getByName(name)
-            .flatMap(photo -> ServerResponse.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(photo))
+            .flatMap(photo -> conditionalResponses.ofPhoto(request, photo))
             .switchIfEmpty(ServerResponse.notFound().build());
     }
 
+    private Mono<ServerResponse> getPhotoImage(ServerRequest request) {
+        String name = request.pathVariable("name");
+        int width = NumberUtils.toInt(request.queryParam("w").orElse(null), -1);
+        var format = ResizedImage.Format.from(request.queryParam("fmt").orElse(null));
+        if (format == null) {
+            return Mono.error(new ServerWebInputException("不支持的图片格式，仅支持 jpeg 和 png。"));
+        }
+        return photoImageService.resize(name, width, format)
+            .flatMap(image -> conditionalResponses.ofImage(request, image));
+    }
+
     private Mono<ServerResponse> listTags(ServerRequest request) {
         String name = request.queryParam("name").orElse(null);
-        return photoPublicQueryService.listTags(name)
-            .collectList()
-            .flatMap(tags -> ServerResponse.ok()
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(tags));
+        return conditionalResponses.ofGallery(request,
+            () -> jsonCache.tags(name,
+                () -> photoPublicQueryService.listTags(name).collectList()));
     }
 
     @Override
@@ -5,35 +5,36 @@ import static org.springframework.web.reactive.function.server.RouterFunctions.r
 
 import java.net.URI;
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Supplier;
+import java.util.Set;
 import lombok.AllArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.HandlerFunction;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
-import org.thymeleaf.context.LazyContextVariable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.ListResult;
 import run.halo.app.extension.PageRequestImpl;
-import run.halo.app.extension.index.query.Queries;
-import run.halo.app.plugin.ReactiveSettingFetcher;
 import run.halo.app.theme.router.UrlContextListResult;
 import run.halo.photos.finders.PhotoFinder;
 import run.halo.photos.finders.PhotoPublicQueryService;
+import run.halo.photos.index.PhotoRankIndex;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.infra.RenderedPageCache;
 import run.halo.photos.vo.PhotoGroupVo;
 import run.halo.photos.vo.PhotoVo;
 
@@ -53,10 +54,14 @@ public class PhotoRouter {
     private static final String SIZE_PARAM = PhotoUrlBuilder.SIZE_PARAM;
     private static final int NEIGHBOR_WINDOW_SIZE = 5;
     private static final Duration BLOCKING_TIMEOUT = Duration.ofSeconds(10);
+    private static final Set<String> CACHE_KEY_PARAMS = Set.of(GROUP_PARAM, PAGE_PARAM,
+        SIZE_PARAM);
 
     private final PhotoFinder photoFinder;
     private final PhotoPublicQueryService photoPublicQueryService;
-    private final ReactiveSettingFetcher settingFetcher;
+    private final PhotoSettings photoSettings;
+    private final PhotoRankIndex photoRankIndex;
+    private final RenderedPageCache pageCache;
 
     /**
      * Routes for the photo theme pages.
@@ -67,9 +72,48 @@ public class PhotoRouter {
      */
     @Bean
     RouterFunction<ServerResponse> photoRouter() {
-        return route(GET("/photos"), listHandler())
+        return route(GET("/photos"), cached(RenderedPageCache.Kind.LIST, listHandler()))
             .andRoute(GET("/photos/page/{page:\\d+}"), legacyPaginationRedirect())
-            .andRoute(GET("/photos/{name}"), detailHandler());
+            .andRoute(GET("/photos/{name}"),
+                cached(RenderedPageCache.Kind.DETAIL, detailHandler()));
+    }
+
+    /**
+     * Serve anonymous requests from the rendered page cache when it is enabled. Requests
+     * carrying query parameters other than group, page and size always render.
+     */
+    private HandlerFunction<ServerResponse> cached(RenderedPageCache.Kind kind,
+        HandlerFunction<ServerResponse> handler) {
+        return request -> {
+            if (!pageCache.isEnabled()
+                || !CACHE_KEY_PARAMS.containsAll(request.queryParams().keySet())) {
+                return handler.handle(request);
+            }
+            return request.principal()
+                .map(principal -> principal instanceof AnonymousAuthenticationToken)
+                .defaultIfEmpty(true)
+                .flatMap(anonymous -> {
+                    if (!anonymous) {
+                        return handler.handle(request);
+                    }
+                    var key = new RenderedPageCache.Key(kind,
+                        request.pathVariables().get("name"),
+                        queryParam(request, GROUP_PARAM),
+                        queryParam(request, PAGE_PARAM),
+                        queryParam(request, SIZE_PARAM),
+                        request.exchange().getLocaleContext().getLocale());
+                    var page = pageCache.get(key);
+                    if (page == null) {
+                        return handler.handle(request)
+                            .map(response -> pageCache.capture(key, response));
+                    }
+                    var response = ServerResponse.ok();
+                    if (page.contentType() != null) {
+                        response.contentType(page.contentType());
+                    }
+                    return response.bodyValue(page.body());
+                });
+        };
     }
 
     private HandlerFunction<ServerResponse> listHandler() {
@@ -77,38 +121,19 @@ public class PhotoRouter {
             var photoUrl = new PhotoUrlBuilder(request);
             String group = queryParam(request, GROUP_PARAM);
             int page = positiveInt(queryParam(request, PAGE_PARAM), 1);
-            return resolvePageSize(queryParam(request, SIZE_PARAM)).flatMap(size -> {
-                var photos = new LazyContextVariable<UrlContextListResult<PhotoVo>>() {
-                    @Override
-                    protected UrlContextListResult<PhotoVo> loadValue() {
-                        System.out.println("进来了吗？");
-                        return photoPublicQueryService.listPhotos(
-                                buildListOptions(group),
-                                PageRequestImpl.of(page, size, defaultPhotoSort()))
-                            .map(list -> buildListContextResult(list, group, page, size))
-                            .block(BLOCKING_TIMEOUT);
-                    }
-                };
-                var groups = new LazyContextVariable<List<PhotoGroupVo>>() {
-                    @Override
-                    protected List<PhotoGroupVo> loadValue() {
-                        return photoGroups().block(BLOCKING_TIMEOUT);
-                    }
-                };
-                var title = new LazyContextVariable<String>() {
-                    @Override
-                    protected String loadValue() {
-                        return getPhotosTitle().block(BLOCKING_TIMEOUT);
-                    }
-                };
-                Map<String, Object> model = new HashMap<>();
-                model.put("groups", groups);
-                model.put("photos", photos);
-                model.put(ModelConst.TEMPLATE_ID, "photos");
-                model.put("title", title);
-                model.put("photoUrl", photoUrl);
-                return ServerResponse.ok().render("photos", model);
-            });
+            int size = resolvePageSize(queryParam(request, SIZE_PARAM));
+            var renderModel = renderModel();
+            var photos = renderModel.variable(listPhotos(group, page, size)
+                .map(list -> buildListContextResult(list, group, page, size)));
+            var groups = renderModel.variable(photoGroups());
+            Map<String, Object> model = new HashMap<>();
+            model.put("groups", groups);
+            model.put("photos", photos);
+            model.put(ModelConst.TEMPLATE_ID, "photos");
+            model.put("title", photoSettings.current().title());
+            model.put("photoUrl", photoUrl);
+            return renderModel.ready()
+                .then(ServerResponse.ok().render("photos", model));
         };
     }
 
@@ -139,10 +164,9 @@ public class PhotoRouter {
             String name = request.pathVariables().get("name");
             String group = queryParam(request, GROUP_PARAM);
             int page = positiveInt(queryParam(request, PAGE_PARAM), 1);
-            return resolvePageSize(queryParam(request, SIZE_PARAM)).flatMap(size ->
-                photoPublicQueryService.getByName(name)
-                    .flatMap(photo -> renderOrRedirectDetail(request, photo, group, page, size))
-            );
+            int size = resolvePageSize(queryParam(request, SIZE_PARAM));
+            return photoPublicQueryService.getByName(name)
+                .flatMap(photo -> renderOrRedirectDetail(request, photo, group, page, size));
         };
     }
 
@@ -159,121 +183,52 @@ public class PhotoRouter {
 
     private Mono<ServerResponse> renderDetail(ServerRequest request, PhotoVo photo,
         String group, int page, int size) {
-        String photoName = photo.getMetadata().getName();
         var photoUrl = new PhotoUrlBuilder(request);
-
-        // Cache for the filtered photo context list to avoid duplicate queries
-        AtomicReference<List<PhotoVo>> contextListRef = new AtomicReference<>();
-
-        Supplier<List<PhotoVo>> resolveContextList = () -> {
-            List<PhotoVo> cached = contextListRef.get();
-            if (cached != null) {
-                return cached;
-            }
-            List<PhotoVo> all = loadFilteredPhotos(group).block(BLOCKING_TIMEOUT);
-            int currentIndex = indexOf(all, photoName);
-            if (currentIndex < 0) {
-                cached = List.of(photo);
-            } else {
-                cached = all;
-            }
-            contextListRef.compareAndSet(null, cached);
-            return contextListRef.get();
-        };
-
-        var neighbors = new LazyContextVariable<List<PhotoVo>>() {
-            @Override
-            protected List<PhotoVo> loadValue() {
-                System.out.println("neighbors 进来了吗？");
-                List<PhotoVo> contextList = resolveContextList.get();
-                int idx = indexOf(contextList, photoName);
-                if (idx < 0) {
-                    idx = 0;
-                }
-                int total = contextList.size();
-                int start = windowStart(idx, total, NEIGHBOR_WINDOW_SIZE);
-                int end = Math.min(start + NEIGHBOR_WINDOW_SIZE, total);
-                List<PhotoVo> result = new ArrayList<>(end - start);
-                for (int i = start; i < end; i++) {
-                    result.add(contextList.get(i));
-                }
-                return result;
-            }
-        };
-
-        var prev = new LazyContextVariable<PhotoVo>() {
-            @Override
-            protected PhotoVo loadValue() {
-                List<PhotoVo> contextList = resolveContextList.get();
-                int idx = indexOf(contextList, photoName);
-                if (idx < 0) {
-                    idx = 0;
-                }
-                return idx > 0 ? contextList.get(idx - 1) : null;
-            }
-        };
-
-        var next = new LazyContextVariable<PhotoVo>() {
-            @Override
-            protected PhotoVo loadValue() {
-                List<PhotoVo> contextList = resolveContextList.get();
-                int idx = indexOf(contextList, photoName);
-                if (idx < 0) {
-                    idx = 0;
-                }
-                int total = contextList.size();
-                return idx + 1 < total ? contextList.get(idx + 1) : null;
-            }
-        };
-
-        var position = new LazyContextVariable<Integer>() {
-            @Override
-            protected Integer loadValue() {
-                List<PhotoVo> contextList = resolveContextList.get();
-                int idx = indexOf(contextList, photoName);
-                if (idx < 0) {
-                    idx = 0;
-                }
-                return idx + 1;
-            }
-        };
-
-        var total = new LazyContextVariable<Integer>() {
-            @Override
-            protected Integer loadValue() {
-                return resolveContextList.get().size();
-            }
-        };
-
-        var title = new LazyContextVariable<String>() {
-            @Override
-            protected String loadValue() {
-                return getDetailTitle(photo).block(BLOCKING_TIMEOUT);
-            }
-        };
-
+        var renderModel = renderModel();
+        // Shared by the context variables, so it is resolved at most once
+        var context = loadDetailContext(photo, group).cache();
         Map<String, Object> model = new LinkedHashMap<>();
         model.put("photo", photo);
-        model.put("neighbors", neighbors);
-        model.put("prev", prev);
-        model.put("next", next);
-        model.put("position", position);
-        model.put("total", total);
+        model.put("neighbors", renderModel.variable(context.map(DetailContext::neighbors)));
+        model.put("prev", renderModel.variable(context.mapNotNull(DetailContext::prev)));
+        model.put("next", renderModel.variable(context.mapNotNull(DetailContext::next)));
+        model.put("position", renderModel.variable(context.map(ctx -> ctx.index() + 1)));
+        model.put("total", renderModel.variable(context.map(DetailContext::total)));
         model.put("group", group);
         model.put("page", page);
         model.put("size", size);
         model.put("backUrl", photoUrl.list(group, page, size));
-        model.put("title", title);
+        model.put("title", detailTitle(photo));
         model.put(ModelConst.TEMPLATE_ID, "photo");
         model.put("photoUrl", photoUrl);
-        return ServerResponse.ok().render("photo", model);
+        return renderModel.ready()
+            .then(ServerResponse.ok().render("photo", model));
+    }
+
+    private RenderModel renderModel() {
+        return new RenderModel(RenderModel.Mode.from(photoSettings.current().themeRenderMode()),
+            BLOCKING_TIMEOUT);
     }
 
-    private Mono<List<PhotoVo>> loadFilteredPhotos(String group) {
-        return photoPublicQueryService.listAllPhotos(
-                buildListOptions(group),
-                defaultPhotoSort())
-            .collectList();
+    /**
+     * Resolve the neighbor window, position and total of a photo from the rank index, loading
+     * only the photos inside the window. A photo that is not ranked is shown on its own.
+     */
+    Mono<DetailContext> loadDetailContext(PhotoVo photo, String group) {
+        String photoName = photo.getMetadata().getName();
+        return photoRankIndex.whenReady()
+            .then(Mono.fromSupplier(() ->
+                photoRankIndex.window(photoName, group, NEIGHBOR_WINDOW_SIZE)))
+            .flatMap(Mono::justOrEmpty)
+            .flatMap(window -> Flux.fromIterable(window.names())
+                .flatMapSequential(name -> photoName.equals(name)
+                    ? Mono.just(photo)
+                    : photoPublicQueryService.getByName(name)
+                        .onErrorResume(ResponseStatusException.class, e -> Mono.empty()))
+                .collectList()
+                .map(photos -> new DetailContext(photos, indexOf(photos, photoName),
+                    window.index(), window.total())))
+            .defaultIfEmpty(new DetailContext(List.of(photo), 0, 0, 1));
     }
 
     private static int indexOf(List<PhotoVo> photos, String name) {
@@ -286,18 +241,28 @@ public class PhotoRouter {
     }
 
     static int windowStart(int currentIndex, int total, int windowSize) {
-        if (total <= windowSize) {
-            return 0;
-        }
-        int half = windowSize / 2;
-        int start = currentIndex - half;
-        if (start < 0) {
-            return 0;
+        return PhotoRankIndex.windowStart(currentIndex, total, windowSize);
+    }
+
+    /**
+     * Neighbor window of a photo on the detail page.
+     *
+     * @param neighbors photos around the current one, in display order
+     * @param current   index of the current photo within {@code neighbors}, or -1 if the
+     *                  window no longer holds it (the index has not caught up with a change)
+     * @param index     zero-based position of the current photo among all photos
+     * @param total     number of photos in the context
+     */
+    record DetailContext(List<PhotoVo> neighbors, int current, int index, int total) {
+
+        PhotoVo prev() {
+            return current > 0 ? neighbors.get(current - 1) : null;
         }
-        if (start + windowSize > total) {
-            return total - windowSize;
+
+        PhotoVo next() {
+            return current >= 0 && current + 1 < neighbors.size()
+                ? neighbors.get(current + 1) : null;
         }
-        return start;
     }
 
     private UrlContextListResult<PhotoVo> buildListContextResult(ListResult<PhotoVo> list,
@@ -352,28 +317,15 @@ public class PhotoRouter {
         return parsed > 0 ? parsed : fallback;
     }
 
-    private Mono<Integer> resolvePageSize(String requested) {
+    private int resolvePageSize(String requested) {
         int requestedSize = NumberUtils.toInt(requested, -1);
-        if (requestedSize > 0) {
-            return Mono.just(requestedSize);
-        }
-        return this.settingFetcher.getSettingValue("base")
-            .map(item -> item.get("pageSize").asInt(ModelConst.DEFAULT_PAGE_SIZE))
-            .defaultIfEmpty(ModelConst.DEFAULT_PAGE_SIZE);
+        return requestedSize > 0 ? requestedSize : photoSettings.current().pageSize();
     }
 
-    private Mono<String> getPhotosTitle() {
-        return this.settingFetcher.getSettingValue("base")
-            .map(setting -> setting.get("title").asText("图库"))
-            .defaultIfEmpty("图库");
-    }
-
-    private Mono<String> getDetailTitle(PhotoVo photo) {
+    private String detailTitle(PhotoVo photo) {
         String displayName = photo.getSpec() == null ? null : photo.getSpec().getDisplayName();
-        if (StringUtils.isNotBlank(displayName)) {
-            return Mono.just(displayName);
-        }
-        return getPhotosTitle();
+        return StringUtils.isNotBlank(displayName)
+            ? displayName : photoSettings.current().title();
     }
 
     private Mono<List<PhotoGroupVo>> photoGroups() {
@@ -388,11 +340,12 @@ public class PhotoRouter {
         );
     }
 
-    private static ListOptions buildListOptions(String group) {
-        var builder = ListOptions.builder();
+    private Mono<ListResult<PhotoVo>> listPhotos(String group, int page, int size) {
+        var options = ListOptions.builder().build();
         if (StringUtils.isNotBlank(group)) {
-            builder.andQuery(Queries.equal("spec.groupName", group));
+            return photoPublicQueryService.listGroupPhotos(group, options, page, size);
         }
-        return builder.build();
+        return photoPublicQueryService.listPhotos(options,
+            PageRequestImpl.of(page, size, defaultPhotoSort()));
     }
 }
@@ -21,20 +21,37 @@ public final class PhotoSortUtils {
     }
 
     /**
-     * Compute the effective-time index value for a photo. Uses EXIF shoot time when present,
-     * falling back to the creation timestamp. Returns an empty string when neither is set.
+     * Index value of a photo without any time. Being the smallest value, it sorts after every
+     * real time in descending order.
      */
-    public static String computeEffectiveTimeIndex(Photo photo) {
-        Instant dt = photo.getExif() == null ? null : photo.getExif().getDateTimeOriginal();
-        if (dt != null) {
-            return dt.toString();
-        }
-        Instant created = photo.getMetadata() == null
-            ? null : photo.getMetadata().getCreationTimestamp();
-        return created == null ? "" : created.toString();
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * Compute the effective-time index value for a photo: the EXIF shoot time when present,
+     * falling back to the creation timestamp, as epoch milliseconds. Returns {@link #NO_TIME}
+     * when neither is set.
+     */
+    public static long computeEffectiveTimeIndex(Photo photo) {
+        return timeIndex(effectiveTime(photo));
+    }
+
+    /**
+     * Compute the {@code exif.dateTimeOriginal} index value for a photo as epoch milliseconds,
+     * or {@link #NO_TIME} when the photo has no EXIF shoot time.
+     */
+    public static long computeDateTimeOriginalIndex(Photo photo) {
+        return timeIndex(dateTimeOriginal(photo));
+    }
+
+    /**
+     * Encode a time as an index value. Epoch milliseconds are fixed-size and order like the
+     * times they encode, unlike ISO strings, whose length varies with the fraction digits.
+     */
+    public static long timeIndex(Instant time) {
+        return time == null ? NO_TIME : time.toEpochMilli();
     }
 
-    static Instant effectiveTime(Photo photo) {
+    public static Instant effectiveTime(Photo photo) {
         var dateTimeOriginal = dateTimeOriginal(photo);
         return dateTimeOriginal == null ? creationTimestamp(photo) : dateTimeOriginal;
     }
@@ -44,7 +61,7 @@ public final class PhotoSortUtils {
         return exif == null ? null : exif.getDateTimeOriginal();
     }
 
-    static Instant creationTimestamp(Photo photo) {
+    public static Instant creationTimestamp(Photo photo) {
         MetadataOperator metadata = photo == null ? null : photo.getMetadata();
         return metadata == null ? null : metadata.getCreationTimestamp();
     }
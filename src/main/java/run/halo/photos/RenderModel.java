@@ -0,0 +1,65 @@
+package run.halo.photos;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.thymeleaf.context.LazyContextVariable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Builds the deferred variables of a theme page model.
+ *
+ * <p>In {@link Mode#LAZY} mode a variable runs its query the first time the template reads
+ * it, blocking the rendering thread, and a variable the template never reads costs nothing.
+ * In {@link Mode#PREFETCH} mode all variables are resolved concurrently and without blocking
+ * before rendering starts, so the template only reads values that are already there; the
+ * queries of unused variables still run. In both modes a failed query surfaces only when the
+ * template reads the variable.
+ */
+final class RenderModel {
+
+    enum Mode {
+        LAZY,
+        PREFETCH;
+
+        static Mode from(String value) {
+            return "prefetch".equalsIgnoreCase(value) ? PREFETCH : LAZY;
+        }
+    }
+
+    private final Mode mode;
+    private final Duration timeout;
+    private final List<Mono<?>> pending = new ArrayList<>();
+
+    RenderModel(Mode mode, Duration timeout) {
+        this.mode = mode;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Wrap a query as a template variable. An empty query yields {@code null}.
+     */
+    <T> LazyContextVariable<T> variable(Mono<T> query) {
+        var cached = query.cache();
+        if (mode == Mode.PREFETCH) {
+            pending.add(cached.onErrorResume(error -> Mono.empty()));
+        }
+        return new LazyContextVariable<>() {
+            @Override
+            protected T loadValue() {
+                return cached.block(timeout);
+            }
+        };
+    }
+
+    /**
+     * Complete once the model can be rendered: immediately in lazy mode, after all variables
+     * are resolved in prefetch mode.
+     */
+    Mono<Void> ready() {
+        if (pending.isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.when(pending).timeout(timeout, Mono.empty());
+    }
+}
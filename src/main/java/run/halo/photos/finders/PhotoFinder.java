@@ -3,6 +3,7 @@ package run.halo.photos.finders;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.extension.ListResult;
+import run.halo.photos.vo.PhotoCursorResult;
 import run.halo.photos.vo.PhotoGroupVo;
 import run.halo.photos.vo.PhotoVo;
 
@@ -40,6 +41,17 @@ public interface PhotoFinder {
      */
     Mono<ListResult<PhotoVo>> list(Integer page, Integer size, String group);
     
+    /**
+     * List photos by keyset cursor in the default photo order. Unlike page numbers, the cost
+     * of a page does not grow with its depth, which suits infinite scrolling.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or blank for the first page
+     * @param size   page size
+     * @param group  group name, or blank for all photos
+     * @return a mono of the page, carrying the cursor of the next one
+     */
+    Mono<PhotoCursorResult> listByCursor(String cursor, Integer size, String group);
+
     /**
      * List photos by group.
      *
@@ -49,9 +61,18 @@ public interface PhotoFinder {
     Flux<PhotoVo> listBy(String group);
     
     /**
-     * List all groups.
+     * List all groups with their photos.
      *
      * @return a flux of photo group vo
      */
     Flux<PhotoGroupVo> groupBy();
+
+    /**
+     * List all groups with at most {@code limit} photos each, in the default photo order.
+     * All groups are filled from a single scan of photos.
+     *
+     * @param limit maximum number of photos per group, or {@code null} for all of them
+     * @return a flux of photo group vo
+     */
+    Flux<PhotoGroupVo> groupBy(Integer limit);
 }
@@ -1,12 +1,14 @@
 package run.halo.photos.finders;
 
 import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.ListResult;
 import run.halo.app.extension.PageRequest;
 import run.halo.photos.Photo;
+import run.halo.photos.vo.PhotoCursorResult;
 import run.halo.photos.vo.PhotoGroupVo;
 import run.halo.photos.vo.PhotoTagVo;
 import run.halo.photos.vo.PhotoVo;
@@ -25,6 +27,31 @@ public interface PhotoPublicQueryService {
      */
     Mono<ListResult<PhotoVo>> listPhotos(ListOptions options, PageRequest page);
 
+    /**
+     * List photos of one group in the default photo order. The page is read as a range of the
+     * composite {@link run.halo.photos.GroupTimeIndex}, already in order.
+     *
+     * @param group   group name, empty for ungrouped photos
+     * @param options additional filters, without a group condition
+     * @param page    page number, starting from 1
+     * @param size    page size
+     * @return a mono of list result
+     */
+    Mono<ListResult<PhotoVo>> listGroupPhotos(String group, ListOptions options, int page,
+        int size);
+
+    /**
+     * List one page of photos in the default photo order, starting after a keyset cursor.
+     *
+     * @param options list options
+     * @param cursor  cursor returned as {@code nextCursor} by the previous page, or blank for
+     *                the first page
+     * @param size    page size
+     * @return a mono of the page
+     */
+    Mono<PhotoCursorResult> listPhotosByCursor(ListOptions options, @Nullable String cursor,
+        int size);
+
     /**
      * Get a single photo by name.
      *
@@ -34,7 +61,8 @@ public interface PhotoPublicQueryService {
     Mono<PhotoVo> getByName(String name);
 
     /**
-     * List all photo groups sorted by priority, with photo counts populated.
+     * List all photo groups sorted by priority, with photo counts populated. Concurrent calls
+     * share one query, and the result is kept until a photo or group changes.
      *
      * @return a flux of all photo group vos
      */
@@ -57,7 +85,8 @@ public interface PhotoPublicQueryService {
     Mono<PhotoVo> toPhotoVo(Photo photo);
 
     /**
-     * List all photos matching the given options, iterating through all pages.
+     * List all photos matching the given options, iterating through all pages. Pages are
+     * fetched by keyset cursor when {@code sort} is the default photo order.
      *
      * @param options list options
      * @param sort    sort order
@@ -66,9 +95,12 @@ public interface PhotoPublicQueryService {
     Flux<PhotoVo> listAllPhotos(ListOptions options, Sort sort);
 
     /**
-     * Invalidate the tag cache so that the next call to {@link #listTags} re-fetches from DB.
-     * Should be called whenever a {@link run.halo.photos.Photo} is added, updated, or deleted.
+     * List all photos of one group in the default photo order. Concurrent calls for the same
+     * group share one scan, and the result is kept until a photo or group changes.
+     *
+     * @param group group name, empty for ungrouped photos
+     * @return a flux of the group's photo vos
      */
-    void invalidateTagCache();
+    Flux<PhotoVo> listAllGroupPhotos(String group);
 
 }
@@ -3,6 +3,10 @@ package run.halo.photos.finders.impl;
 import static org.springframework.data.domain.Sort.Order.asc;
 import static org.springframework.data.domain.Sort.Order.desc;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Sort;
 import reactor.core.publisher.Flux;
@@ -12,8 +16,11 @@ import run.halo.app.extension.ListResult;
 import run.halo.app.extension.PageRequestImpl;
 import run.halo.app.extension.index.query.Queries;
 import run.halo.app.theme.finders.Finder;
+import run.halo.photos.ModelConst;
+import run.halo.photos.PhotoGroup;
 import run.halo.photos.finders.PhotoFinder;
 import run.halo.photos.finders.PhotoPublicQueryService;
+import run.halo.photos.vo.PhotoCursorResult;
 import run.halo.photos.vo.PhotoGroupVo;
 import run.halo.photos.vo.PhotoVo;
 
@@ -42,42 +49,126 @@ public class PhotoFinderImpl implements PhotoFinder {
 
     @Override
     public Mono<ListResult<PhotoVo>> list(Integer page, Integer size, String group) {
+        if (StringUtils.isNotEmpty(group)) {
+            return photoPublicQueryService.listGroupPhotos(group, ListOptions.builder().build(),
+                page, size);
+        }
+        return photoPublicQueryService.listPhotos(ListOptions.builder().build(),
+            PageRequestImpl.of(page, size, defaultPhotoSort()));
+    }
+
+    @Override
+    public Mono<PhotoCursorResult> listByCursor(String cursor, Integer size, String group) {
         var options = ListOptions.builder();
         if (StringUtils.isNotEmpty(group)) {
             options.andQuery(Queries.equal("spec.groupName", group));
         }
-        return photoPublicQueryService.listPhotos(options.build(),
-            PageRequestImpl.of(page, size, defaultPhotoSort()));
+        int pageSize = size == null || size <= 0 ? ModelConst.DEFAULT_PAGE_SIZE : size;
+        return photoPublicQueryService.listPhotosByCursor(options.build(), cursor, pageSize);
     }
 
     @Override
     public Flux<PhotoVo> listBy(String groupName) {
-        var options = ListOptions.builder()
-            .andQuery(Queries.equal("spec.groupName", groupName))
-            .build();
-        return photoPublicQueryService.listAllPhotos(options, defaultPhotoSort());
+        return photoPublicQueryService.listAllGroupPhotos(groupName);
     }
 
     @Override
     public Flux<PhotoGroupVo> groupBy() {
+        return groupBy(null);
+    }
+
+    @Override
+    public Flux<PhotoGroupVo> groupBy(Integer limit) {
+        boolean limited = limit != null && limit > 0;
         return photoPublicQueryService.listGroups()
-            .concatMap(group -> {
-                String groupName = group.getMetadata().getName();
-                return photoPublicQueryService.listAllPhotos(
-                        ListOptions.builder()
-                            .andQuery(Queries.equal("spec.groupName", groupName))
-                            .build(),
-                        defaultPhotoSort())
-                    .collectList()
-                    .map(photos -> PhotoGroupVo.builder()
-                        .metadata(group.getMetadata())
-                        .spec(group.getSpec())
-                        .status(group.getStatus())
-                        .photos(photos)
-                        .build());
+            .collectList()
+            .flatMapMany(groups -> {
+                if (groups.isEmpty()) {
+                    return Flux.empty();
+                }
+                var buckets = new GroupBuckets(groups, limited ? limit : Integer.MAX_VALUE);
+                var options = ListOptions.builder()
+                    .andQuery(Queries.not(Queries.equal("spec.groupName", "")))
+                    .build();
+                var scan = photoPublicQueryService.listAllPhotos(options, defaultPhotoSort())
+                    .doOnNext(buckets::add);
+                if (limited) {
+                    // stop paging once every group has its first photos, or all it has
+                    scan = scan.takeUntil(photo -> buckets.isFull());
+                }
+                return scan.thenMany(Flux.defer(() -> Flux.fromIterable(groups)
+                    .map(group -> buckets.toGroupVo(group, !limited))));
             });
     }
 
+    /**
+     * Photos of one sorted scan, bucketed by group name and capped per group.
+     *
+     * <p>A group is full once it holds {@code limit} photos, or as many as its materialized
+     * count says it has, so that small groups do not keep the scan going to the end. That
+     * count lags behind photo changes, so a count of zero is not trusted: such a group, like
+     * one without a count, is only full at {@code limit}, and photos seen after a group is
+     * full are still kept up to {@code limit} while the scan goes on.
+     */
+    private static final class GroupBuckets {
+        private final Map<String, List<PhotoVo>> photos = new HashMap<>();
+        private final Map<String, Integer> targets = new HashMap<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+        private final int groups;
+        private final int limit;
+        private int fullGroups;
+
+        GroupBuckets(List<PhotoGroupVo> groups, int limit) {
+            groups.forEach(group -> {
+                var name = group.getMetadata().getName();
+                var stored = group.getStatus() == null ? null
+                    : group.getStatus().getPhotoCount();
+                photos.put(name, new ArrayList<>());
+                targets.put(name, stored == null || stored <= 0 ? limit : Math.min(limit, stored));
+            });
+            this.groups = photos.size();
+            this.limit = limit;
+        }
+
+        void add(PhotoVo photo) {
+            var groupName = photo.getSpec() == null ? null : photo.getSpec().getGroupName();
+            var bucket = groupName == null ? null : photos.get(groupName);
+            if (bucket == null) {
+                return;
+            }
+            counts.merge(groupName, 1, Integer::sum);
+            if (bucket.size() < limit) {
+                bucket.add(photo);
+                if (bucket.size() == targets.get(groupName)) {
+                    fullGroups++;
+                }
+            }
+        }
+
+        boolean isFull() {
+            return fullGroups == groups;
+        }
+
+        /**
+         * Build the group vo. A complete scan saw every photo, so its count is exact; a scan
+         * stopped early falls back to the count materialized on the group, unless it has
+         * already seen more photos than that.
+         */
+        PhotoGroupVo toGroupVo(PhotoGroupVo group, boolean complete) {
+            var name = group.getMetadata().getName();
+            var stored = group.getStatus() == null ? null : group.getStatus().getPhotoCount();
+            var status = new PhotoGroup.PhotoGroupStatus();
+            var seen = counts.getOrDefault(name, 0);
+            status.setPhotoCount(complete || stored == null ? seen : Math.max(stored, seen));
+            return PhotoGroupVo.builder()
+                .metadata(group.getMetadata())
+                .spec(group.getSpec())
+                .status(status)
+                .photos(photos.get(name))
+                .build();
+        }
+    }
+
     static Sort defaultPhotoSort() {
         return Sort.by(
             desc("effectiveTime"),
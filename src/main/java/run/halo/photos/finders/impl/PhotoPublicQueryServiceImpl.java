@@ -1,17 +1,7 @@
 package run.halo.photos.finders.impl;
 
-import static run.halo.app.extension.index.query.Queries.equal;
-import static run.halo.app.extension.index.query.Queries.isNull;
-import static run.halo.app.extension.index.query.Queries.not;
-
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-import java.time.Duration;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
@@ -24,10 +14,16 @@ import run.halo.app.extension.ListResult;
 import run.halo.app.extension.PageRequest;
 import run.halo.app.extension.PageRequestImpl;
 import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.GroupTimeIndex;
 import run.halo.photos.Photo;
+import run.halo.photos.PhotoCursor;
 import run.halo.photos.PhotoGroup;
 import run.halo.photos.PhotoSortUtils;
 import run.halo.photos.finders.PhotoPublicQueryService;
+import run.halo.photos.index.PhotoTagIndex;
+import run.halo.photos.infra.PhotoVoCache;
+import run.halo.photos.infra.SingleFlightCache;
+import run.halo.photos.vo.PhotoCursorResult;
 import run.halo.photos.vo.PhotoGroupVo;
 import run.halo.photos.vo.PhotoTagVo;
 import run.halo.photos.vo.PhotoVo;
@@ -38,29 +34,61 @@ import run.halo.photos.vo.PhotoVo;
 @Component
 public class PhotoPublicQueryServiceImpl implements PhotoPublicQueryService {
 
-    private final ReactiveExtensionClient client;
+    private static final int ALL_PHOTOS_PAGE_SIZE = 500;
 
-    private final Cache<String, List<PhotoTagVo>> tagCache = Caffeine.newBuilder()
-        .expireAfterWrite(Duration.ofMinutes(30))
-        .build();
+    private final ReactiveExtensionClient client;
+    private final PhotoTagIndex tagIndex;
+    private final PhotoVoCache voCache;
+    private final SingleFlightCache singleFlight;
 
-    public PhotoPublicQueryServiceImpl(ReactiveExtensionClient client) {
+    public PhotoPublicQueryServiceImpl(ReactiveExtensionClient client, PhotoTagIndex tagIndex,
+        PhotoVoCache voCache, SingleFlightCache singleFlight) {
         this.client = client;
+        this.tagIndex = tagIndex;
+        this.voCache = voCache;
+        this.singleFlight = singleFlight;
     }
 
     @Override
-    public void invalidateTagCache() {
-        tagCache.invalidateAll();
+    public Mono<ListResult<PhotoVo>> listPhotos(ListOptions options, PageRequest page) {
+        return client.listBy(Photo.class, options, page)
+            .map(result -> new ListResult<>(result.getPage(), result.getSize(),
+                result.getTotal(), toPhotoVos(result.getItems())));
     }
 
     @Override
-    public Mono<ListResult<PhotoVo>> listPhotos(ListOptions options, PageRequest page) {
-        return client.listBy(Photo.class, options, page)
-            .flatMap(result -> Flux.fromIterable(result.getItems())
-                .flatMap(this::toPhotoVo)
-                .collectList()
-                .map(items -> new ListResult<>(
-                    result.getPage(), result.getSize(), result.getTotal(), items)));
+    public Mono<ListResult<PhotoVo>> listGroupPhotos(String group, ListOptions options,
+        int page, int size) {
+        var groupOptions = ListOptions.builder(options)
+            .andQuery(GroupTimeIndex.inGroup(group))
+            .build();
+        return listPhotos(groupOptions, PageRequestImpl.of(page, size, GroupTimeIndex.SORT));
+    }
+
+    @Override
+    public Mono<PhotoCursorResult> listPhotosByCursor(ListOptions options, String cursor,
+        int size) {
+        return Mono.fromCallable(() -> {
+                var builder = ListOptions.builder(options);
+                if (StringUtils.isNotBlank(cursor)) {
+                    builder.andQuery(PhotoCursor.decode(cursor).after());
+                }
+                return builder.build();
+            })
+            .flatMap(keysetOptions -> client.listBy(Photo.class, keysetOptions,
+                PageRequestImpl.of(1, size, PhotoCursor.SORT)))
+            .map(result -> {
+                var photos = result.getItems();
+                boolean hasNext = result.getTotal() > photos.size();
+                var nextCursor = hasNext && !photos.isEmpty()
+                    ? PhotoCursor.of(photos.getLast()).encode() : null;
+                return PhotoCursorResult.builder()
+                    .items(toPhotoVos(photos))
+                    .size(size)
+                    .hasNext(hasNext)
+                    .nextCursor(nextCursor)
+                    .build();
+            });
     }
 
     @Override
@@ -69,83 +97,72 @@ public class PhotoPublicQueryServiceImpl implements PhotoPublicQueryService {
             .filter(photo -> !photo.isDeleted())
             .switchIfEmpty(Mono.error(
                 () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Photo not found")))
-            .flatMap(this::toPhotoVo);
+            .map(voCache::get);
     }
 
     @Override
     public Flux<PhotoGroupVo> listGroups() {
-        return client.listAll(PhotoGroup.class, new ListOptions(), Sort.unsorted())
-            .sort(PhotoSortUtils.groupComparator())
-            .concatMap(this::toGroupVo);
+        return singleFlight.<List<PhotoGroupVo>>get("groups",
+                () -> client.listAll(PhotoGroup.class, new ListOptions(), Sort.unsorted())
+                    .sort(PhotoSortUtils.groupComparator())
+                    .map(PhotoPublicQueryServiceImpl::toGroupVo)
+                    .collectList()
+                    .map(List::copyOf))
+            .flatMapIterable(Function.identity());
     }
 
-    private Mono<PhotoGroupVo> toGroupVo(PhotoGroup group) {
-        return fetchPhotoCount(group)
-            .map(count -> {
-                var status = group.getStatusOrDefault();
-                status.setPhotoCount(count);
-                return PhotoGroupVo.builder()
-                    .metadata(group.getMetadata())
-                    .spec(group.getSpec())
-                    .status(status)
-                    .photos(null)
-                    .build();
-            });
-    }
-
-    private Mono<Integer> fetchPhotoCount(PhotoGroup group) {
-        String name = group.getMetadata().getName();
-        var options = ListOptions.builder()
-            .andQuery(equal("spec.groupName", name))
+    private static PhotoGroupVo toGroupVo(PhotoGroup group) {
+        // status.photoCount is maintained by PhotoGroupReconciler
+        var status = group.getStatusOrDefault();
+        if (status.getPhotoCount() == null) {
+            status.setPhotoCount(0);
+        }
+        return PhotoGroupVo.builder()
+            .metadata(group.getMetadata())
+            .spec(group.getSpec())
+            .status(status)
+            .photos(null)
             .build();
-        return client.listBy(Photo.class, options,
-                PageRequestImpl.of(1, 1, Sort.unsorted()))
-            .map(ListResult::getTotal)
-            .map(Long::intValue);
     }
 
     @Override
     public Flux<PhotoTagVo> listTags(String nameFilter) {
-        var cacheKey = StringUtils.defaultString(nameFilter, "");
-        var cached = tagCache.getIfPresent(cacheKey);
-        if (cached != null) {
-            return Flux.fromIterable(cached);
-        }
-        return client.listAll(Photo.class,
-                ListOptions.builder().andQuery(not(isNull("spec.tags"))).build(),
-                Sort.unsorted())
-            .filter(photo -> !photo.isDeleted())
-            .flatMapIterable(photo -> {
-                var tags = photo.getSpec() == null ? null : photo.getSpec().getTags();
-                return Objects.requireNonNullElseGet(tags, List::of);
-            })
-            .filter(tag -> StringUtils.isBlank(nameFilter)
-                || StringUtils.containsIgnoreCase(tag, nameFilter))
-            .collect(Collectors.groupingBy(tag -> tag, Collectors.counting()))
-            .flatMapMany(tagCounts -> {
-                var entries = tagCounts.entrySet().stream()
-                    .sorted(Map.Entry.comparingByKey())
-                    .map(entry -> PhotoTagVo.builder()
-                        .name(entry.getKey())
-                        .photoCount(entry.getValue().intValue())
-                        .build())
-                    .toList();
-                return Flux.fromIterable(entries);
-            })
-            .collectList()
-            .doOnNext(list -> tagCache.put(cacheKey, list))
-            .flatMapMany(Flux::fromIterable);
+        return tagIndex.whenReady()
+            .thenMany(Flux.defer(() -> Flux.fromIterable(tagIndex.tags(nameFilter))));
     }
 
     @Override
     public Mono<PhotoVo> toPhotoVo(Photo photo) {
-        return Mono.fromSupplier(() -> PhotoVo.from(photo));
+        return Mono.fromSupplier(() -> voCache.get(photo));
+    }
+
+    private List<PhotoVo> toPhotoVos(List<Photo> photos) {
+        return photos.stream().map(voCache::get).toList();
     }
 
     @Override
     public Flux<PhotoVo> listAllPhotos(ListOptions options, Sort sort) {
+        if (PhotoCursor.SORT.equals(sort)) {
+            return listPhotosByCursor(options, null, ALL_PHOTOS_PAGE_SIZE)
+                .expand(page -> page.isHasNext()
+                    ? listPhotosByCursor(options, page.getNextCursor(), ALL_PHOTOS_PAGE_SIZE)
+                    : Mono.empty())
+                .concatMapIterable(PhotoCursorResult::getItems);
+        }
         return fetchAllPages(
-            page -> listPhotos(options, PageRequestImpl.of(page, 500, sort)));
+            page -> listPhotos(options, PageRequestImpl.of(page, ALL_PHOTOS_PAGE_SIZE, sort)));
+    }
+
+    @Override
+    public Flux<PhotoVo> listAllGroupPhotos(String group) {
+        var options = ListOptions.builder()
+            .andQuery(GroupTimeIndex.inGroup(group))
+            .build();
+        return singleFlight.<List<PhotoVo>>get("groupPhotos/" + group,
+                () -> listAllPhotos(options, GroupTimeIndex.SORT)
+                    .collectList()
+                    .map(List::copyOf))
+            .flatMapIterable(Function.identity());
     }
 
     private static <T> Flux<T> fetchAllPages(
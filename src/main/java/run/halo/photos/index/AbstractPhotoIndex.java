@@ -0,0 +1,123 @@
+package run.halo.photos.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+
+/**
+ * Base class for in-memory photo indexes that are built from a single scan at plugin start and
+ * then kept current by the photo watcher.
+ *
+ * <p>Soft-deleted photos are treated as removed. Events that arrive while the scan is running
+ * are journaled and replayed on top of its result. Subclasses guard their state with the
+ * monitor of {@code this}.
+ */
+@Slf4j
+abstract class AbstractPhotoIndex {
+
+    private final ReactiveExtensionClient client;
+    private List<Event> journal;
+    private Mono<Void> ready;
+
+    AbstractPhotoIndex(ReactiveExtensionClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Rebuild the index from scratch. A failed scan is forgotten, so that the next
+     * {@link #whenReady()} tries again instead of replaying the error.
+     *
+     * @return a mono completing once the index reflects all photos
+     */
+    public synchronized Mono<Void> rebuild() {
+        var attempt = new ArrayList<Event>();
+        journal = attempt;
+        var scan = client.listAll(Photo.class, scanOptions(), Sort.unsorted())
+            .filter(photo -> !photo.isDeleted())
+            .collectList()
+            .doOnNext(this::install)
+            .then()
+            .doOnError(error -> failed(attempt))
+            .cache();
+        ready = scan;
+        scan.subscribe(null, error -> log.warn("Failed to build {}",
+            getClass().getSimpleName(), error));
+        return scan;
+    }
+
+    /**
+     * Completes once the index is built, triggering the initial build if needed.
+     */
+    public synchronized Mono<Void> whenReady() {
+        return ready != null ? ready : rebuild();
+    }
+
+    public void onPhotoAdded(Photo photo) {
+        record(photo.getMetadata().getName(), photo.isDeleted() ? null : photo);
+    }
+
+    public void onPhotoUpdated(Photo photo) {
+        record(photo.getMetadata().getName(), photo.isDeleted() ? null : photo);
+    }
+
+    public void onPhotoDeleted(Photo photo) {
+        record(photo.getMetadata().getName(), null);
+    }
+
+    /**
+     * Options of the initial scan; defaults to all photos.
+     */
+    ListOptions scanOptions() {
+        return ListOptions.builder().build();
+    }
+
+    /**
+     * Drop all indexed state.
+     */
+    abstract void clear();
+
+    /**
+     * Index the current state of a photo, called with the monitor held.
+     *
+     * @param name  photo name
+     * @param photo current photo, or {@code null} if it was deleted
+     */
+    abstract void apply(String name, @Nullable Photo photo);
+
+    private synchronized void install(List<Photo> photos) {
+        clear();
+        photos.forEach(photo -> apply(photo.getMetadata().getName(), photo));
+        if (journal != null) {
+            journal.forEach(event -> apply(event.name(), event.photo()));
+            journal = null;
+        }
+    }
+
+    /**
+     * Stop journaling for a failed scan; events are applied directly until the next rebuild
+     * replaces the state anyway.
+     */
+    private synchronized void failed(List<Event> attempt) {
+        if (journal == attempt) {
+            journal = null;
+            ready = null;
+        }
+    }
+
+    private synchronized void record(String name, @Nullable Photo photo) {
+        if (journal != null) {
+            journal.add(new Event(name, photo));
+            return;
+        }
+        apply(name, photo);
+    }
+
+    private record Event(String name, @Nullable Photo photo) {
+    }
+}
@@ -0,0 +1,169 @@
+package run.halo.photos.index;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+import run.halo.photos.PhotoSortUtils;
+
+/**
+ * In-memory rank index of photos in the default photo order: effective time descending,
+ * creation time descending, then name ascending.
+ *
+ * <p>Photos are kept in sorted arrays, one over all photos and one per group, so the rank of a
+ * photo and its neighbors are found by binary search without loading the group. Soft-deleted
+ * photos are not ranked.
+ */
+@Component
+public class PhotoRankIndex extends AbstractPhotoIndex {
+
+    /**
+     * Effective time is compared as its epoch-millisecond index value, like the database sort
+     * of the list pages, so times that differ below a millisecond tie there too.
+     */
+    static final Comparator<RankKey> ORDER = Comparator
+        .comparingLong(RankKey::effectiveTime).reversed()
+        .thenComparing(RankKey::creationTimestamp,
+            Comparator.nullsLast(Comparator.reverseOrder()))
+        .thenComparing(RankKey::name);
+
+    private final Map<String, RankKey> byName = new HashMap<>();
+    private final List<RankKey> all = new ArrayList<>();
+    private final Map<String, List<RankKey>> byGroup = new HashMap<>();
+
+    public PhotoRankIndex(ReactiveExtensionClient client) {
+        super(client);
+    }
+
+    /**
+     * Locate a photo and the window of photos around it.
+     *
+     * @param name  photo name
+     * @param group group to rank within, or blank to rank among all photos
+     * @param size  maximum number of photos in the window
+     * @return the window, or empty if the photo is not ranked within the group
+     */
+    public synchronized Optional<Window> window(String name, @Nullable String group, int size) {
+        var key = byName.get(name);
+        if (key == null) {
+            return Optional.empty();
+        }
+        var ranked = StringUtils.isBlank(group) ? all : byGroup.get(group);
+        if (ranked == null) {
+            return Optional.empty();
+        }
+        int index = Collections.binarySearch(ranked, key, ORDER);
+        if (index < 0) {
+            return Optional.empty();
+        }
+        int total = ranked.size();
+        int start = windowStart(index, total, size);
+        int end = Math.min(start + size, total);
+        var names = ranked.subList(start, end).stream()
+            .map(RankKey::name)
+            .toList();
+        return Optional.of(new Window(names, index - start, index, total));
+    }
+
+    /**
+     * Start of a window of {@code windowSize} items that keeps the current item as close to
+     * the middle as the list bounds allow.
+     */
+    public static int windowStart(int currentIndex, int total, int windowSize) {
+        if (total <= windowSize) {
+            return 0;
+        }
+        int half = windowSize / 2;
+        int start = currentIndex - half;
+        if (start < 0) {
+            return 0;
+        }
+        if (start + windowSize > total) {
+            return total - windowSize;
+        }
+        return start;
+    }
+
+    @Override
+    void clear() {
+        byName.clear();
+        all.clear();
+        byGroup.clear();
+    }
+
+    @Override
+    void apply(String name, @Nullable Photo photo) {
+        var key = photo == null ? null : RankKey.of(photo);
+        var previous = byName.get(name);
+        if (previous != null) {
+            if (previous.equals(key)) {
+                return;
+            }
+            byName.remove(name);
+            remove(all, previous);
+            var groupList = byGroup.get(previous.group());
+            if (groupList != null) {
+                remove(groupList, previous);
+                if (groupList.isEmpty()) {
+                    byGroup.remove(previous.group());
+                }
+            }
+        }
+        if (key == null) {
+            return;
+        }
+        byName.put(name, key);
+        insert(all, key);
+        insert(byGroup.computeIfAbsent(key.group(), group -> new ArrayList<>()), key);
+    }
+
+    private static void insert(List<RankKey> ranked, RankKey key) {
+        int index = Collections.binarySearch(ranked, key, ORDER);
+        if (index < 0) {
+            ranked.add(-index - 1, key);
+        }
+    }
+
+    private static void remove(List<RankKey> ranked, RankKey key) {
+        int index = Collections.binarySearch(ranked, key, ORDER);
+        if (index >= 0) {
+            ranked.remove(index);
+        }
+    }
+
+    /**
+     * Photos around a ranked photo.
+     *
+     * @param names   names of the photos in the window, in rank order
+     * @param current index of the photo within {@code names}
+     * @param index   zero-based rank of the photo
+     * @param total   number of photos ranked
+     */
+    public record Window(List<String> names, int current, int index, int total) {
+    }
+
+    /**
+     * @param effectiveTime effective time index value, {@link PhotoSortUtils#NO_TIME} sorting
+     *                      last
+     */
+    record RankKey(long effectiveTime, Instant creationTimestamp, String name,
+                   String group) {
+
+        static RankKey of(Photo photo) {
+            var groupName = photo.getSpec() == null ? null : photo.getSpec().getGroupName();
+            return new RankKey(PhotoSortUtils.computeEffectiveTimeIndex(photo),
+                PhotoSortUtils.creationTimestamp(photo),
+                photo.getMetadata().getName(),
+                StringUtils.defaultString(groupName));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package run.halo.photos.index;
+
+import static run.halo.app.extension.index.query.Queries.isNull;
+import static run.halo.app.extension.index.query.Queries.not;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+import run.halo.photos.vo.PhotoTagVo;
+
+/**
+ * In-memory mirror of the {@code spec.tags} index: each tag maps to its posting list, the
+ * names of the photos carrying it. Each photo event is applied as the difference between the
+ * photo's previous and current tag set, so listing tags and their counts never scans photos.
+ *
+ * <p>The group of every tagged photo is kept as well, so tags can also be listed within one
+ * group or among the photos carrying another tag.
+ */
+@Component
+public class PhotoTagIndex extends AbstractPhotoIndex {
+
+    private final Map<String, TaggedPhoto> photos = new HashMap<>();
+    private final TreeMap<String, Set<String>> postings = new TreeMap<>();
+
+    public PhotoTagIndex(ReactiveExtensionClient client) {
+        super(client);
+    }
+
+    /**
+     * Tags with their photo counts, sorted by name.
+     *
+     * @param nameFilter optional case-insensitive substring filter
+     */
+    public List<PhotoTagVo> tags(String nameFilter) {
+        return tags(nameFilter, null, null);
+    }
+
+    /**
+     * Tags with their photo counts among the photos of a scope, sorted by name. Tags without
+     * photos in the scope are omitted.
+     *
+     * @param nameFilter optional case-insensitive substring filter
+     * @param group optional group name, empty for ungrouped photos
+     * @param tag optional tag the photos must carry
+     */
+    public synchronized List<PhotoTagVo> tags(@Nullable String nameFilter,
+        @Nullable String group, @Nullable String tag) {
+        Set<String> scope = null;
+        if (tag != null) {
+            scope = postings.getOrDefault(tag, Set.of());
+        }
+        var result = new ArrayList<PhotoTagVo>();
+        for (var entry : postings.entrySet()) {
+            if (StringUtils.isNotBlank(nameFilter)
+                && !StringUtils.containsIgnoreCase(entry.getKey(), nameFilter)) {
+                continue;
+            }
+            int count = group == null && scope == null
+                ? entry.getValue().size()
+                : count(entry.getValue(), group, scope);
+            if (count > 0) {
+                result.add(PhotoTagVo.builder()
+                    .name(entry.getKey())
+                    .photoCount(count)
+                    .build());
+            }
+        }
+        return result;
+    }
+
+    private int count(Set<String> names, @Nullable String group, @Nullable Set<String> scope) {
+        int count = 0;
+        for (var name : names) {
+            if (scope != null && !scope.contains(name)) {
+                continue;
+            }
+            if (group != null && !group.equals(photos.get(name).group())) {
+                continue;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    ListOptions scanOptions() {
+        return ListOptions.builder().andQuery(not(isNull("spec.tags"))).build();
+    }
+
+    @Override
+    void clear() {
+        photos.clear();
+        postings.clear();
+    }
+
+    @Override
+    void apply(String name, @Nullable Photo photo) {
+        var tags = tagsOf(photo);
+        var current = tags.isEmpty() ? null : new TaggedPhoto(groupOf(photo), tags);
+        var previous = current == null ? photos.remove(name) : photos.put(name, current);
+        if (previous != null) {
+            previous.tags().stream()
+                .filter(tag -> !tags.contains(tag))
+                .forEach(tag -> postings.computeIfPresent(tag, (key, names) -> {
+                    names.remove(name);
+                    return names.isEmpty() ? null : names;
+                }));
+        }
+        tags.forEach(tag -> postings.computeIfAbsent(tag, key -> new HashSet<>()).add(name));
+    }
+
+    private static String groupOf(Photo photo) {
+        // the spec.groupName index coerces null to "", so ungrouped is the empty name
+        return Objects.toString(photo.getSpec().getGroupName(), "");
+    }
+
+    private static Set<String> tagsOf(@Nullable Photo photo) {
+        if (photo == null || photo.getSpec() == null || photo.getSpec().getTags() == null) {
+            return Set.of();
+        }
+        return photo.getSpec().getTags().stream()
+            .filter(Objects::nonNull)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private record TaggedPhoto(String group, Set<String> tags) {
+    }
+}
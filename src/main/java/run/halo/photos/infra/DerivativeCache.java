@@ -0,0 +1,241 @@
+package run.halo.photos.infra;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import run.halo.app.infra.BackupRootGetter;
+
+/**
+ * On-disk cache of rendered image derivatives under the Halo work directory, bounded by total
+ * file bytes and evicting the least recently served file first. Files already on disk are
+ * picked up again after a restart, oldest first.
+ *
+ * <p>Concurrent misses for the same key share a single load, so a burst of requests for a
+ * new derivative renders it once.
+ */
+@Slf4j
+@Component
+public class DerivativeCache implements PhotoMetricsProvider {
+
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private static final String TEMP_MARKER = ".tmp-";
+
+    private final BackupRootGetter backupRootGetter;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Mono<Path>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong joins = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long bytes;
+    private Path directory;
+
+    public DerivativeCache(BackupRootGetter backupRootGetter) {
+        this.backupRootGetter = backupRootGetter;
+    }
+
+    /**
+     * Resize the cache, deleting files over the new limit.
+     *
+     * @param maxBytes maximum total file bytes; {@code <= 0} picks the default
+     */
+    public synchronized void configure(long maxBytes) {
+        this.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+        if (directory != null) {
+            evictOverflow(null);
+        }
+    }
+
+    /**
+     * Get the cached file for a key, loading and storing it on a miss. Blocks on file system
+     * access, so subscribe off the event loop.
+     *
+     * @param key       content key; must be safe as a file name and change whenever the
+     *                  content would
+     * @param extension file extension without the dot
+     * @param loader    produces the file content
+     * @return the cached file
+     */
+    public Mono<Path> get(String key, String extension, Supplier<Mono<byte[]>> loader) {
+        return Mono.defer(() -> {
+            var cached = lookup(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            var loading = new boolean[1];
+            var flight = inFlight.computeIfAbsent(key, k -> {
+                loading[0] = true;
+                return loader.get()
+                    .map(content -> store(k, extension, content))
+                    .doOnError(error -> failures.incrementAndGet())
+                    .doFinally(signal -> inFlight.remove(k))
+                    .cache();
+            });
+            if (!loading[0]) {
+                joins.incrementAndGet();
+            }
+            return flight;
+        });
+    }
+
+    private synchronized Path lookup(String key) {
+        ensureLoaded();
+        var entry = entries.get(key);
+        if (entry != null && Files.isRegularFile(entry.file())) {
+            hits.incrementAndGet();
+            return entry.file();
+        }
+        if (entry != null) {
+            // removed from disk behind our back
+            entries.remove(key);
+            bytes -= entry.size();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private Path store(String key, String extension, byte[] content) {
+        Path target;
+        synchronized (this) {
+            ensureLoaded();
+            target = directory.resolve(key + "." + extension);
+        }
+        try {
+            var temp = Files.createTempFile(target.getParent(), key, TEMP_MARKER);
+            try {
+                Files.write(temp, content);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store image derivative " + target, e);
+        }
+        synchronized (this) {
+            var previous = entries.put(key, new Entry(target, content.length));
+            bytes += content.length - (previous == null ? 0 : previous.size());
+            evictOverflow(key);
+        }
+        return target;
+    }
+
+    /**
+     * Delete the least recently served files until the cache fits, keeping {@code keep}.
+     */
+    private void evictOverflow(String keep) {
+        var iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            var eldest = iterator.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            iterator.remove();
+            bytes -= eldest.getValue().size();
+            evictions.incrementAndGet();
+            try {
+                Files.deleteIfExists(eldest.getValue().file());
+            } catch (IOException e) {
+                log.warn("Failed to delete image derivative {}: {}",
+                    eldest.getValue().file(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Create the directory on first use and index the files left by a previous run.
+     */
+    private void ensureLoaded() {
+        if (directory != null) {
+            return;
+        }
+        var dir = backupRootGetter.get().getParent()
+            .resolve("plugin-photos").resolve("derivatives");
+        try {
+            Files.createDirectories(dir);
+            try (var files = Files.list(dir)) {
+                files.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparing(DerivativeCache::lastModified))
+                    .forEach(file -> {
+                        var fileName = file.getFileName().toString();
+                        if (fileName.contains(TEMP_MARKER)) {
+                            deleteQuietly(file);
+                            return;
+                        }
+                        var size = size(file);
+                        entries.put(StringUtils.substringBeforeLast(fileName, "."),
+                            new Entry(file, size));
+                        bytes += size;
+                    });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open image derivative cache " + dir, e);
+        }
+        directory = dir;
+        evictOverflow(null);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "derivativeCache";
+    }
+
+    @Override
+    public synchronized Map<String, Object> metrics() {
+        var metrics = new LinkedHashMap<String, Object>();
+        metrics.put("entries", entries.size());
+        metrics.put("bytes", bytes);
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("joins", joins.get());
+        metrics.put("evictions", evictions.get());
+        metrics.put("failures", failures.get());
+        metrics.put("inFlight", inFlight.size());
+        return metrics;
+    }
+
+    private record Entry(Path file, long size) {
+    }
+}
@@ -0,0 +1,38 @@
+package run.halo.photos.infra;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+
+/**
+ * A gallery-wide version, bumped whenever a photo or a photo group changes. Public list
+ * responses derive their validators from it, so they can be revalidated without querying.
+ *
+ * <p>The version is prefixed with the start time of this instance, because the counter
+ * starts over when the plugin restarts. {@link #lastModified()} is kept at second precision
+ * and strictly increases with every bump, so two changes within one second are still told
+ * apart by {@code If-Modified-Since}.
+ */
+@Component
+public class GalleryVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong counter = new AtomicLong();
+
+    private volatile Instant lastModified = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    public synchronized void bump() {
+        counter.incrementAndGet();
+        var now = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+        lastModified = now.isAfter(lastModified) ? now : lastModified.plusSeconds(1);
+    }
+
+    public String current() {
+        return epoch + "." + counter.get();
+    }
+
+    public Instant lastModified() {
+        return lastModified;
+    }
+}
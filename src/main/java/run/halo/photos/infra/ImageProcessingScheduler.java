@@ -0,0 +1,180 @@
+package run.halo.photos.infra;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Runs CPU- and disk-heavy photo work (metadata parsing, file reads, image decoding) away from
+ * the Netty event loop. Concurrency and the number of waiting tasks are both bounded, so a
+ * batch upload cannot starve request handling or grow memory without limit.
+ *
+ * <p>Two modes are supported: {@link Mode#BOUNDED_ELASTIC} uses a dedicated Reactor
+ * bounded-elastic scheduler with one platform thread per permit; {@link Mode#VIRTUAL} runs
+ * each task on its own virtual thread, with a semaphore capping how many run at once.
+ */
+@Slf4j
+@Component
+public class ImageProcessingScheduler implements PhotoMetricsProvider, DisposableBean {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile Lane lane;
+
+    public ImageProcessingScheduler() {
+        this.lane = Lane.create(Mode.BOUNDED_ELASTIC, defaultConcurrency(),
+            DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Run a blocking task on the image-processing lane.
+     *
+     * @param task blocking task; a {@code null} result completes the {@link Mono} empty
+     * @return the task result, or an error with status 429 if the queue is full
+     */
+    public <T> Mono<T> fromCallable(Callable<T> task) {
+        return Mono.defer(() -> {
+            var current = lane;
+            // check and reserve in one step, so that concurrent submissions cannot all pass
+            // the check and overfill the queue
+            int capacity = current.queueCapacity();
+            if (queued.getAndUpdate(count -> count < capacity ? count + 1 : count) >= capacity) {
+                rejected.incrementAndGet();
+                return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "图片处理队列已满，请稍后重试。"));
+            }
+            // 0 = waiting, 1 = started, 2 = cancelled before start
+            var state = new AtomicInteger();
+            return Mono.fromCallable(() -> {
+                    if (state.get() != 0) {
+                        return null;
+                    }
+                    current.permits().acquire();
+                    try {
+                        if (!state.compareAndSet(0, 1)) {
+                            return null;
+                        }
+                        queued.decrementAndGet();
+                        active.incrementAndGet();
+                        try {
+                            var result = task.call();
+                            completed.incrementAndGet();
+                            return result;
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                            throw e;
+                        } finally {
+                            active.decrementAndGet();
+                        }
+                    } finally {
+                        current.permits().release();
+                    }
+                })
+                .subscribeOn(current.scheduler())
+                .doFinally(signal -> {
+                    if (state.compareAndSet(0, 2)) {
+                        queued.decrementAndGet();
+                    }
+                });
+        });
+    }
+
+    /**
+     * Replace the lane with a new mode or size. Tasks already submitted finish on the previous
+     * lane, which is disposed gracefully.
+     *
+     * @param mode execution mode
+     * @param concurrency maximum number of tasks running at once; {@code <= 0} picks a default
+     * based on the number of CPUs
+     * @param queueCapacity maximum number of tasks waiting to run; {@code <= 0} picks the default
+     */
+    public synchronized void configure(Mode mode, int concurrency, int queueCapacity) {
+        int effectiveConcurrency = concurrency > 0 ? concurrency : defaultConcurrency();
+        int effectiveCapacity = queueCapacity > 0 ? queueCapacity : DEFAULT_QUEUE_CAPACITY;
+        var previous = lane;
+        if (previous.mode() == mode && previous.concurrency() == effectiveConcurrency
+            && previous.queueCapacity() == effectiveCapacity) {
+            return;
+        }
+        lane = Lane.create(mode, effectiveConcurrency, effectiveCapacity);
+        previous.scheduler().disposeGracefully().subscribe();
+        log.info("Image processing scheduler configured: mode={}, concurrency={}, queue={}",
+            mode, effectiveConcurrency, effectiveCapacity);
+    }
+
+    @Override
+    public String metricsName() {
+        return "imageProcessing";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        var current = lane;
+        var metrics = new LinkedHashMap<String, Object>();
+        metrics.put("mode", current.mode().name());
+        metrics.put("concurrency", current.concurrency());
+        metrics.put("queueCapacity", current.queueCapacity());
+        metrics.put("queued", queued.get());
+        metrics.put("active", active.get());
+        metrics.put("completed", completed.get());
+        metrics.put("failed", failed.get());
+        metrics.put("rejected", rejected.get());
+        return metrics;
+    }
+
+    @Override
+    public void destroy() {
+        lane.scheduler().dispose();
+    }
+
+    private static int defaultConcurrency() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
+
+    public enum Mode {
+        VIRTUAL,
+        BOUNDED_ELASTIC;
+
+        /**
+         * Parse the setting value, falling back to {@link #BOUNDED_ELASTIC}.
+         */
+        public static Mode from(String value) {
+            return "virtual".equalsIgnoreCase(value) ? VIRTUAL : BOUNDED_ELASTIC;
+        }
+    }
+
+    private record Lane(Mode mode, int concurrency, int queueCapacity, Scheduler scheduler,
+                        Semaphore permits) {
+
+        static Lane create(Mode mode, int concurrency, int queueCapacity) {
+            var scheduler = switch (mode) {
+                case VIRTUAL -> Schedulers.fromExecutorService(
+                    Executors.newThreadPerTaskExecutor(
+                        Thread.ofVirtual().name("photos-image-", 0).factory()),
+                    "photos-image");
+                case BOUNDED_ELASTIC -> Schedulers.newBoundedElastic(concurrency,
+                    Integer.MAX_VALUE, "photos-image", 60, true);
+            };
+            return new Lane(mode, concurrency, queueCapacity, scheduler,
+                new Semaphore(concurrency));
+        }
+    }
+}
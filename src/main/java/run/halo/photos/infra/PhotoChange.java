@@ -0,0 +1,36 @@
+package run.halo.photos.infra;
+
+import org.springframework.lang.Nullable;
+import run.halo.photos.Photo;
+
+/**
+ * A photo add, update or delete event as delivered by {@link PhotoChangeBus}.
+ *
+ * @param type kind of change
+ * @param oldPhoto photo before an update, {@code null} for other changes
+ * @param photo photo after the change, or the deleted photo
+ */
+public record PhotoChange(Type type, @Nullable Photo oldPhoto, Photo photo) {
+
+    public enum Type {
+        ADDED,
+        UPDATED,
+        DELETED
+    }
+
+    public static PhotoChange added(Photo photo) {
+        return new PhotoChange(Type.ADDED, null, photo);
+    }
+
+    public static PhotoChange updated(@Nullable Photo oldPhoto, Photo photo) {
+        return new PhotoChange(Type.UPDATED, oldPhoto, photo);
+    }
+
+    public static PhotoChange deleted(Photo photo) {
+        return new PhotoChange(Type.DELETED, null, photo);
+    }
+
+    public String name() {
+        return photo.getMetadata().getName();
+    }
+}
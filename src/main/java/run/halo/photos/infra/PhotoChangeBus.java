@@ -0,0 +1,166 @@
+package run.halo.photos.infra;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Coalesces photo change events into micro-batches before fanning them out to the derived
+ * indexes and caches. A batch is delivered {@link #DEFAULT_WINDOW} after its first event, or
+ * as soon as it holds {@link #DEFAULT_MAX_BATCH} events, so a bulk delete or import
+ * invalidates the caches once per batch instead of once per photo.
+ *
+ * <p>Batches are delivered one at a time and in event order, to every subscriber in
+ * subscription order. A batch filled by {@link #publish(PhotoChange)} is delivered on the
+ * publishing thread, which slows down a publisher that outpaces the subscribers.
+ */
+@Slf4j
+@Component
+public class PhotoChangeBus implements PhotoMetricsProvider, DisposableBean {
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(50);
+    public static final int DEFAULT_MAX_BATCH = 1024;
+
+    private final Duration window;
+    private final int maxBatch;
+    private final List<Consumer<List<PhotoChange>>> subscribers = new CopyOnWriteArrayList<>();
+    private final Object deliveryLock = new Object();
+    private List<PhotoChange> pending = new ArrayList<>();
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final RateWindow eventRate = new RateWindow();
+    private final RateWindow batchRate = new RateWindow();
+
+    public PhotoChangeBus() {
+        this(DEFAULT_WINDOW, DEFAULT_MAX_BATCH);
+    }
+
+    PhotoChangeBus(Duration window, int maxBatch) {
+        this.window = window;
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Receive every batch of changes until the returned subscription is disposed.
+     */
+    public Disposable subscribe(Consumer<List<PhotoChange>> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    public void publish(PhotoChange change) {
+        events.incrementAndGet();
+        eventRate.add(1);
+        int size;
+        synchronized (this) {
+            pending.add(change);
+            size = pending.size();
+        }
+        if (size >= maxBatch) {
+            flush();
+        } else if (size == 1) {
+            Mono.delay(window).subscribe(tick -> flush());
+        }
+    }
+
+    /**
+     * Deliver the pending events now.
+     */
+    void flush() {
+        synchronized (deliveryLock) {
+            List<PhotoChange> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+            }
+            batches.incrementAndGet();
+            batchRate.add(1);
+            largestBatch.accumulateAndGet(batch.size(), Math::max);
+            var changes = List.copyOf(batch);
+            for (var subscriber : subscribers) {
+                try {
+                    subscriber.accept(changes);
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                    log.warn("Failed to apply {} photo changes", changes.size(), e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+        subscribers.clear();
+    }
+
+    @Override
+    public String metricsName() {
+        return "changeBus";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        var metrics = new LinkedHashMap<String, Object>();
+        metrics.put("windowMillis", window.toMillis());
+        metrics.put("maxBatch", maxBatch);
+        synchronized (this) {
+            metrics.put("pending", pending.size());
+        }
+        metrics.put("events", events.get());
+        metrics.put("batches", batches.get());
+        metrics.put("largestBatch", largestBatch.get());
+        metrics.put("failures", failures.get());
+        metrics.put("eventsPerSecond", eventRate.perSecond());
+        metrics.put("batchesPerSecond", batchRate.perSecond());
+        return metrics;
+    }
+
+    /**
+     * Counts per second over the last {@link #SECONDS} seconds.
+     */
+    private static final class RateWindow {
+
+        private static final int SECONDS = 60;
+
+        private final long[] counts = new long[SECONDS];
+        private final long[] seconds = new long[SECONDS];
+
+        synchronized void add(long count) {
+            long now = System.currentTimeMillis() / 1000;
+            int slot = (int) (now % SECONDS);
+            if (seconds[slot] != now) {
+                seconds[slot] = now;
+                counts[slot] = 0;
+            }
+            counts[slot] += count;
+        }
+
+        synchronized double perSecond() {
+            long now = System.currentTimeMillis() / 1000;
+            long total = 0;
+            for (int i = 0; i < SECONDS; i++) {
+                if (now - seconds[i] < SECONDS) {
+                    total += counts[i];
+                }
+            }
+            return (double) total / SECONDS;
+        }
+    }
+}
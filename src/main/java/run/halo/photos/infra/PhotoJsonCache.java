@@ -0,0 +1,252 @@
+package run.halo.photos.infra;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import run.halo.app.extension.ListResult;
+import run.halo.photos.vo.PhotoCursorResult;
+import run.halo.photos.vo.PhotoTagVo;
+import run.halo.photos.vo.PhotoVo;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Cache of UTF-8 JSON bytes for the public API. Each {@link PhotoVo} is encoded once per
+ * {@code metadata.version} and tag lists once per name filter; pages are written by splicing
+ * the cached photo bytes into a freshly encoded envelope, so only the few page fields are
+ * serialized per request.
+ *
+ * <p>Encoding uses the application's {@link JsonMapper}, the one behind the HTTP codecs, so
+ * that cached bytes are the same as those of an uncached response.
+ *
+ * <p>Tag lists depend on every photo and are dropped by {@link #invalidateTags()}, which the
+ * photo watcher calls. A tag list computed across an invalidation is not stored.
+ */
+@Component
+public class PhotoJsonCache implements PhotoMetricsProvider {
+
+    public static final int DEFAULT_MAX_PHOTOS = 4096;
+
+    private static final int MAX_TAG_LISTS = 256;
+
+    private static final byte[] EMPTY_ITEMS = "\"items\":[]".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] COMMA = {','};
+
+    private final JsonMapper mapper;
+    private final int maxPhotos;
+    private final LinkedHashMap<String, EncodedPhoto> photos;
+    private final LinkedHashMap<String, byte[]> tagLists;
+    private final AtomicLong tagGeneration = new AtomicLong();
+    private final AtomicLong photoHits = new AtomicLong();
+    private final AtomicLong photoMisses = new AtomicLong();
+    private final AtomicLong tagHits = new AtomicLong();
+    private final AtomicLong tagMisses = new AtomicLong();
+
+    /**
+     * Falls back to a default mapper only where the application does not expose one.
+     */
+    @Autowired
+    public PhotoJsonCache(ObjectProvider<JsonMapper> mapper) {
+        this(mapper.getIfAvailable(() -> JsonMapper.builder().build()));
+    }
+
+    public PhotoJsonCache(JsonMapper mapper) {
+        this(mapper, DEFAULT_MAX_PHOTOS);
+    }
+
+    PhotoJsonCache(JsonMapper mapper, int maxPhotos) {
+        this.mapper = mapper;
+        this.maxPhotos = maxPhotos;
+        this.photos = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EncodedPhoto> eldest) {
+                return size() > PhotoJsonCache.this.maxPhotos;
+            }
+        };
+        this.tagLists = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > MAX_TAG_LISTS;
+            }
+        };
+    }
+
+    public Segments photo(PhotoVo photo) {
+        return Segments.of(encode(photo));
+    }
+
+    public Segments page(ListResult<PhotoVo> result) {
+        var envelope = new ListResult<PhotoVo>(result.getPage(), result.getSize(),
+            result.getTotal(), List.of());
+        return splice(result, envelope, result.getItems());
+    }
+
+    public Segments cursorPage(PhotoCursorResult result) {
+        var envelope = PhotoCursorResult.builder()
+            .items(List.of())
+            .size(result.getSize())
+            .hasNext(result.isHasNext())
+            .nextCursor(result.getNextCursor())
+            .build();
+        return splice(result, envelope, result.getItems());
+    }
+
+    /**
+     * Get the encoded tag list for a name filter, computing it on a miss.
+     */
+    public Mono<Segments> tags(@Nullable String nameFilter,
+        Supplier<Mono<List<PhotoTagVo>>> tags) {
+        return Mono.defer(() -> {
+            var key = Objects.toString(nameFilter, "");
+            byte[] cached;
+            synchronized (tagLists) {
+                cached = tagLists.get(key);
+            }
+            if (cached != null) {
+                tagHits.incrementAndGet();
+                return Mono.just(Segments.of(cached));
+            }
+            tagMisses.incrementAndGet();
+            long generation = tagGeneration.get();
+            return tags.get().map(list -> {
+                var bytes = mapper.writeValueAsBytes(list);
+                synchronized (tagLists) {
+                    if (generation == tagGeneration.get()) {
+                        tagLists.put(key, bytes);
+                    }
+                }
+                return Segments.of(bytes);
+            });
+        });
+    }
+
+    public void invalidateTags() {
+        synchronized (tagLists) {
+            tagGeneration.incrementAndGet();
+            tagLists.clear();
+        }
+    }
+
+    public void evict(String name) {
+        synchronized (photos) {
+            photos.remove(name);
+        }
+    }
+
+    private Segments splice(Object value, Object envelope, List<PhotoVo> items) {
+        var json = mapper.writeValueAsBytes(envelope);
+        int at = indexOf(json, EMPTY_ITEMS);
+        if (at < 0) {
+            return Segments.of(mapper.writeValueAsBytes(value));
+        }
+        int itemsStart = at + EMPTY_ITEMS.length - 1;
+        var segments = new ArrayList<byte[]>(items.size() * 2 + 2);
+        segments.add(slice(json, 0, itemsStart));
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                segments.add(COMMA);
+            }
+            segments.add(encode(items.get(i)));
+        }
+        segments.add(slice(json, itemsStart, json.length));
+        return new Segments(segments);
+    }
+
+    private byte[] encode(PhotoVo photo) {
+        var metadata = photo.getMetadata();
+        var version = metadata.getVersion();
+        if (version == null) {
+            return mapper.writeValueAsBytes(photo);
+        }
+        synchronized (photos) {
+            var cached = photos.get(metadata.getName());
+            if (cached != null && cached.version() == version) {
+                photoHits.incrementAndGet();
+                return cached.json();
+            }
+        }
+        photoMisses.incrementAndGet();
+        var json = mapper.writeValueAsBytes(photo);
+        synchronized (photos) {
+            photos.put(metadata.getName(), new EncodedPhoto(version, json));
+        }
+        return json;
+    }
+
+    private static byte[] slice(byte[] bytes, int from, int to) {
+        var slice = new byte[to - from];
+        System.arraycopy(bytes, from, slice, 0, slice.length);
+        return slice;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        outer:
+        for (int i = 0; i <= bytes.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String metricsName() {
+        return "jsonCache";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        var metrics = new LinkedHashMap<String, Object>();
+        synchronized (photos) {
+            metrics.put("photos", photos.size());
+        }
+        synchronized (tagLists) {
+            metrics.put("tagLists", tagLists.size());
+        }
+        metrics.put("maxPhotos", maxPhotos);
+        metrics.put("photoHits", photoHits.get());
+        metrics.put("photoMisses", photoMisses.get());
+        metrics.put("tagHits", tagHits.get());
+        metrics.put("tagMisses", tagMisses.get());
+        return metrics;
+    }
+
+    private record EncodedPhoto(long version, byte[] json) {
+    }
+
+    /**
+     * A JSON document held as byte segments that are written out without copying.
+     */
+    public record Segments(List<byte[]> parts) {
+
+        static Segments of(byte[] json) {
+            return new Segments(List.of(json));
+        }
+
+        public BodyInserter<Segments, ReactiveHttpOutputMessage> inserter() {
+            return (message, context) -> message.writeWith(Flux.fromIterable(parts)
+                .map(part -> message.bufferFactory().wrap(part)));
+        }
+
+        public String asString() {
+            var builder = new StringBuilder();
+            parts.forEach(part -> builder.append(new String(part, StandardCharsets.UTF_8)));
+            return builder.toString();
+        }
+    }
+}
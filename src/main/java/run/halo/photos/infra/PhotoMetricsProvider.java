@@ -0,0 +1,20 @@
+package run.halo.photos.infra;
+
+import java.util.Map;
+
+/**
+ * A component that exposes runtime counters of the photos plugin, aggregated by the console
+ * metrics endpoint.
+ */
+public interface PhotoMetricsProvider {
+
+    /**
+     * Name of the metrics section, e.g. {@code imageProcessing}.
+     */
+    String metricsName();
+
+    /**
+     * A point-in-time snapshot of the counters in this section.
+     */
+    Map<String, Object> metrics();
+}
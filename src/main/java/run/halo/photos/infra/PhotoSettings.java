@@ -0,0 +1,149 @@
+package run.halo.photos.infra;
+
+import java.util.Arrays;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import run.halo.app.plugin.ReactiveSettingFetcher;
+import run.halo.photos.ModelConst;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.node.JsonNodeFactory;
+
+/**
+ * Holds the plugin settings as a typed, immutable {@link Snapshot}. The snapshot is loaded at
+ * plugin start and reloaded when the plugin's ConfigMap changes, so request handlers read it
+ * with a single volatile load instead of fetching and parsing the setting groups every time.
+ * Until the first load completes, {@link Snapshot#DEFAULTS} is served.
+ */
+@Slf4j
+@Component
+public class PhotoSettings {
+
+    private final ReactiveSettingFetcher settingFetcher;
+
+    private volatile Snapshot snapshot = Snapshot.DEFAULTS;
+
+    public PhotoSettings(ReactiveSettingFetcher settingFetcher) {
+        this.settingFetcher = settingFetcher;
+    }
+
+    public Snapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Load the {@code base} and {@code advanced} setting groups and replace the snapshot.
+     *
+     * @return the new snapshot
+     */
+    public Mono<Snapshot> refresh() {
+        return Mono.zip(group("base"), group("advanced"))
+            .map(groups -> Snapshot.from(groups.getT1(), groups.getT2()))
+            .doOnNext(loaded -> snapshot = loaded)
+            .doOnError(error -> log.warn("Failed to load photo plugin settings", error));
+    }
+
+    private Mono<JsonNode> group(String name) {
+        return settingFetcher.getSettingValue(name)
+            .defaultIfEmpty(JsonNodeFactory.instance.objectNode());
+    }
+
+    /**
+     * Plugin settings; zero sizes and blank modes mean "use the component default".
+     *
+     * @param title gallery page title
+     * @param pageSize theme list page size
+     * @param policyName attachment storage policy of uploads
+     * @param groupName attachment group of uploads
+     * @param themeRenderMode theme page render mode
+     * @param apiCacheControl {@code Cache-Control} of the public API, empty for none
+     * @param exifHeaderWindowKb leading kilobytes read for EXIF parsing
+     * @param imageSchedulerMode image processing thread mode
+     * @param imageConcurrency image processing concurrency
+     * @param imageQueueCapacity image processing queue capacity
+     * @param variantWidths widths of the JPEG derivatives generated at upload, ascending
+     * @param variantQuality JPEG quality of the derivatives in percent
+     * @param derivativeCacheMaxSizeMb on-disk resize cache size limit in megabytes
+     * @param pageCacheEnabled whether theme pages are cached
+     * @param pageCacheMaxEntries page cache entry limit
+     * @param pageCacheMaxSizeMb page cache size limit in megabytes
+     * @param staleWhileRevalidate whether invalidated query results are served while refreshing
+     */
+    public record Snapshot(
+        String title,
+        int pageSize,
+        String policyName,
+        String groupName,
+        String themeRenderMode,
+        String apiCacheControl,
+        int exifHeaderWindowKb,
+        String imageSchedulerMode,
+        int imageConcurrency,
+        int imageQueueCapacity,
+        List<Integer> variantWidths,
+        int variantQuality,
+        long derivativeCacheMaxSizeMb,
+        boolean pageCacheEnabled,
+        int pageCacheMaxEntries,
+        long pageCacheMaxSizeMb,
+        boolean staleWhileRevalidate
+    ) {
+
+        public static final String DEFAULT_TITLE = "图库";
+        public static final String DEFAULT_API_CACHE_CONTROL = "no-cache";
+        public static final String DEFAULT_VARIANT_WIDTHS = "320,640,1280";
+
+        public static final Snapshot DEFAULTS = from(JsonNodeFactory.instance.objectNode(),
+            JsonNodeFactory.instance.objectNode());
+
+        static Snapshot from(JsonNode base, JsonNode advanced) {
+            int pageSize = integer(base, "pageSize");
+            return new Snapshot(
+                text(base, "title", DEFAULT_TITLE),
+                pageSize > 0 ? pageSize : ModelConst.DEFAULT_PAGE_SIZE,
+                text(base, "policyName", ""),
+                text(base, "groupName", ""),
+                text(advanced, "themeRenderMode", ""),
+                text(advanced, "apiCacheControl", DEFAULT_API_CACHE_CONTROL).trim(),
+                integer(advanced, "exifHeaderWindow"),
+                text(advanced, "imageSchedulerMode", ""),
+                integer(advanced, "imageConcurrency"),
+                integer(advanced, "imageQueueCapacity"),
+                widths(text(advanced, "variantWidths", DEFAULT_VARIANT_WIDTHS)),
+                integer(advanced, "variantQuality"),
+                advanced.has("derivativeCacheMaxSize")
+                    ? advanced.get("derivativeCacheMaxSize").asLong(0) : 0,
+                advanced.has("pageCacheEnabled")
+                    && advanced.get("pageCacheEnabled").asBoolean(false),
+                integer(advanced, "pageCacheMaxEntries"),
+                advanced.has("pageCacheMaxSize")
+                    ? advanced.get("pageCacheMaxSize").asLong(0) : 0,
+                advanced.has("staleWhileRevalidate")
+                    && advanced.get("staleWhileRevalidate").asBoolean(false)
+            );
+        }
+
+        private static String text(JsonNode node, String field, String defaultValue) {
+            return node.has(field) ? node.get(field).asText(defaultValue) : defaultValue;
+        }
+
+        /**
+         * Parse a comma-separated width list, dropping entries that are not positive numbers.
+         */
+        static List<Integer> widths(String value) {
+            return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .map(width -> NumberUtils.toInt(width, 0))
+                .filter(width -> width > 0)
+                .distinct()
+                .sorted()
+                .toList();
+        }
+
+        private static int integer(JsonNode node, String field) {
+            return node.has(field) ? node.get(field).asInt(0) : 0;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package run.halo.photos.infra;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+import run.halo.photos.Photo;
+import run.halo.photos.vo.PhotoVo;
+
+/**
+ * Bounded cache of {@link PhotoVo}s keyed by photo name. A cached vo is reused as long as the
+ * photo's {@code metadata.version} is unchanged, which saves copying the EXIF block for every
+ * photo on every page. Photos without a version (never persisted) are always converted.
+ */
+@Component
+public class PhotoVoCache implements PhotoMetricsProvider {
+
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, PhotoVo> vos;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public PhotoVoCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    PhotoVoCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.vos = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PhotoVo> eldest) {
+                return size() > PhotoVoCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the vo of a photo, converting it only when the cached one is missing or stale.
+     */
+    public PhotoVo get(Photo photo) {
+        var metadata = photo.getMetadata();
+        var version = metadata.getVersion();
+        if (version == null) {
+            return PhotoVo.from(photo);
+        }
+        var name = metadata.getName();
+        synchronized (vos) {
+            var cached = vos.get(name);
+            if (cached != null && Objects.equals(cached.getMetadata().getVersion(), version)) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        var vo = PhotoVo.from(photo);
+        synchronized (vos) {
+            vos.put(name, vo);
+        }
+        return vo;
+    }
+
+    public void evict(String name) {
+        synchronized (vos) {
+            vos.remove(name);
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "photoVoCache";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        var metrics = new LinkedHashMap<String, Object>();
+        synchronized (vos) {
+            metrics.put("entries", vos.size());
+        }
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        return metrics;
+    }
+}
@@ -0,0 +1,230 @@
+package run.halo.photos.infra;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Opt-in cache of rendered theme pages, bounded by entry count and total body bytes and
+ * evicting the least recently used page first.
+ *
+ * <p>Pages are grouped by kind so that a change only drops the pages that can show it. A
+ * page rendered while an invalidation happens is not stored, since it may already be stale.
+ */
+@Slf4j
+@Component
+public class RenderedPageCache implements PhotoMetricsProvider {
+
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final LinkedHashMap<Key, Page> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile boolean enabled;
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long bytes;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Enable or disable the cache and resize it; disabling drops all pages.
+     *
+     * @param maxEntries maximum number of pages; {@code <= 0} picks the default
+     * @param maxBytes maximum total body bytes; {@code <= 0} picks the default
+     */
+    public synchronized void configure(boolean enabled, int maxEntries, long maxBytes) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries > 0 ? maxEntries : DEFAULT_MAX_ENTRIES;
+        this.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+        if (enabled) {
+            evictOverflow();
+        } else {
+            invalidate(null);
+        }
+    }
+
+    @Nullable
+    public synchronized Page get(Key key) {
+        var page = enabled ? pages.get(key) : null;
+        if (page == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return page;
+    }
+
+    /**
+     * Drop cached pages.
+     *
+     * @param kind kind of pages to drop, or {@code null} for all pages
+     */
+    public synchronized void invalidate(@Nullable Kind kind) {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        Iterator<Map.Entry<Key, Page>> iterator = pages.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (kind == null || entry.getKey().kind() == kind) {
+                bytes -= entry.getValue().body().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Wrap a freshly rendered response so that its body is stored under {@code key} once it
+     * has been written. Responses other than {@code 200 OK} pass through untouched.
+     */
+    public ServerResponse capture(Key key, ServerResponse response) {
+        if (!enabled || !HttpStatus.OK.equals(response.statusCode())) {
+            return response;
+        }
+        return new CapturingResponse(key, generation.get(), response);
+    }
+
+    private synchronized void put(Key key, long renderedAt, Page page) {
+        if (!enabled || renderedAt != generation.get() || page.body().length > maxBytes) {
+            return;
+        }
+        var previous = pages.put(key, page);
+        if (previous != null) {
+            bytes -= previous.body().length;
+        }
+        bytes += page.body().length;
+        evictOverflow();
+    }
+
+    private void evictOverflow() {
+        Iterator<Page> iterator = pages.values().iterator();
+        while ((pages.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+            bytes -= iterator.next().body().length;
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "pageCache";
+    }
+
+    @Override
+    public synchronized Map<String, Object> metrics() {
+        var metrics = new LinkedHashMap<String, Object>();
+        metrics.put("enabled", enabled);
+        metrics.put("entries", pages.size());
+        metrics.put("bytes", bytes);
+        metrics.put("maxEntries", maxEntries);
+        metrics.put("maxBytes", maxBytes);
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("evictions", evictions.get());
+        metrics.put("invalidations", invalidations.get());
+        return metrics;
+    }
+
+    public enum Kind {
+        LIST,
+        DETAIL
+    }
+
+    /**
+     * Cache key of a page.
+     *
+     * @param kind  page kind
+     * @param name  photo name for detail pages, {@code null} for list pages
+     * @param group {@code group} query parameter
+     * @param page  {@code page} query parameter
+     * @param size  {@code size} query parameter
+     * @param locale locale the page was rendered for
+     */
+    public record Key(Kind kind, @Nullable String name, @Nullable String group,
+                      @Nullable String page, @Nullable String size, @Nullable Locale locale) {
+    }
+
+    /**
+     * A rendered page body.
+     */
+    public record Page(@Nullable MediaType contentType, byte[] body) {
+    }
+
+    private final class CapturingResponse implements ServerResponse {
+
+        private final Key key;
+        private final long renderedAt;
+        private final ServerResponse delegate;
+
+        CapturingResponse(Key key, long renderedAt, ServerResponse delegate) {
+            this.key = key;
+            this.renderedAt = renderedAt;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpStatusCode statusCode() {
+            return delegate.statusCode();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return delegate.headers();
+        }
+
+        @Override
+        public MultiValueMap<String, ResponseCookie> cookies() {
+            return delegate.cookies();
+        }
+
+        @Override
+        public Mono<Void> writeTo(ServerWebExchange exchange, Context context) {
+            var response = exchange.getResponse();
+            var capturing = new ServerHttpResponseDecorator(response) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    return DataBufferUtils.join(Flux.from(body))
+                        .defaultIfEmpty(bufferFactory().wrap(new byte[0]))
+                        .flatMap(buffer -> {
+                            var bytes = new byte[buffer.readableByteCount()];
+                            buffer.read(bytes);
+                            DataBufferUtils.release(buffer);
+                            if (HttpStatus.OK.equals(getStatusCode())
+                                && getCookies().isEmpty()) {
+                                put(key, renderedAt,
+                                    new Page(getHeaders().getContentType(), bytes));
+                            }
+                            return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                        });
+                }
+            };
+            return delegate.writeTo(exchange.mutate().response(capturing).build(), context);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package run.halo.photos.infra;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Shares one in-flight load between concurrent identical queries and keeps the last result of
+ * each query until {@link #invalidate()}, which the photo and group watchers call.
+ *
+ * <p>With stale-while-revalidate enabled, a query whose result was invalidated is answered
+ * with the previous result while a single refresh runs in the background. Pages and ETags
+ * built from such a stale result would otherwise outlive the refresh, so once a refresh that
+ * has served stale results completes, the rendered page cache is cleared and the gallery
+ * version bumped once more.
+ *
+ * <p>Results are weighed by their number of elements (one for a value that is not a
+ * collection), and the least recently used ones are dropped beyond {@link #MAX_WEIGHT}, so
+ * that a large gallery cannot pin many whole per-group photo lists in memory. A result
+ * heavier than that on its own is shared with concurrent callers but not kept.
+ */
+@Slf4j
+@Component
+public class SingleFlightCache implements PhotoMetricsProvider {
+
+    static final int MAX_ENTRIES = 256;
+    static final long MAX_WEIGHT = 10_000;
+
+    private final RenderedPageCache pageCache;
+    private final GalleryVersion galleryVersion;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Flight> flights = new HashMap<>();
+    private final long maxWeight;
+    private long generation;
+    private long weight;
+    private volatile boolean staleWhileRevalidate;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong joins = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    @Autowired
+    public SingleFlightCache(RenderedPageCache pageCache, GalleryVersion galleryVersion) {
+        this(pageCache, galleryVersion, MAX_WEIGHT);
+    }
+
+    SingleFlightCache(RenderedPageCache pageCache, GalleryVersion galleryVersion,
+        long maxWeight) {
+        this.pageCache = pageCache;
+        this.galleryVersion = galleryVersion;
+        this.maxWeight = maxWeight;
+    }
+
+    public void configure(boolean staleWhileRevalidate) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    /**
+     * Mark every cached result stale. Loads started before the call are not joined anymore.
+     */
+    public synchronized void invalidate() {
+        generation++;
+    }
+
+    /**
+     * Get the result of a query, loading it unless a current result is cached or an identical
+     * load is in flight.
+     *
+     * @param key identity of the query
+     * @param loader loads the result; an empty result is not cached
+     */
+    @SuppressWarnings("unchecked")
+    public <V> Mono<V> get(String key, Supplier<Mono<V>> loader) {
+        return Mono.defer(() -> {
+            Entry entry;
+            Flight flight;
+            synchronized (this) {
+                entry = entries.get(key);
+                if (entry != null && entry.generation() == generation) {
+                    hits.incrementAndGet();
+                    return Mono.just((V) entry.value());
+                }
+                flight = flights.get(key);
+                if (flight != null && flight.generation == generation) {
+                    joins.incrementAndGet();
+                } else {
+                    loads.incrementAndGet();
+                    flight = new Flight(generation);
+                    flight.result = load(key, flight, loader);
+                    flights.put(key, flight);
+                }
+                if (entry != null && staleWhileRevalidate) {
+                    flight.servedStale = true;
+                }
+            }
+            if (entry != null && staleWhileRevalidate) {
+                staleServed.incrementAndGet();
+                flight.result.subscribe(null, error -> { });
+                return Mono.just((V) entry.value());
+            }
+            return (Mono<V>) flight.result;
+        });
+    }
+
+    private <V> Mono<Object> load(String key, Flight flight, Supplier<Mono<V>> loader) {
+        return Mono.defer(loader)
+            .<Object>map(value -> value)
+            .doOnNext(value -> store(key, flight, value))
+            .doOnError(error -> {
+                failures.incrementAndGet();
+                log.warn("Failed to load {}", key, error);
+            })
+            .doFinally(signal -> {
+                synchronized (this) {
+                    flights.remove(key, flight);
+                }
+            })
+            .cache();
+    }
+
+    private void store(String key, Flight flight, Object value) {
+        boolean servedStale;
+        synchronized (this) {
+            var current = entries.get(key);
+            if (current == null || current.generation() <= flight.generation) {
+                put(key, new Entry(flight.generation, value, weigh(value)));
+            }
+            servedStale = flight.servedStale;
+        }
+        if (servedStale) {
+            pageCache.invalidate(null);
+            galleryVersion.bump();
+        }
+    }
+
+    /**
+     * Store an entry and evict the least recently used ones beyond the bounds, called with
+     * the monitor held.
+     */
+    private void put(String key, Entry entry) {
+        var previous = entry.weight() > maxWeight ? entries.remove(key) : entries.put(key, entry);
+        if (previous != null) {
+            weight -= previous.weight();
+        }
+        if (entry.weight() > maxWeight) {
+            return;
+        }
+        weight += entry.weight();
+        var iterator = entries.values().iterator();
+        while ((weight > maxWeight || entries.size() > MAX_ENTRIES) && iterator.hasNext()) {
+            weight -= iterator.next().weight();
+            iterator.remove();
+        }
+    }
+
+    private static long weigh(Object value) {
+        return value instanceof Collection<?> collection ? Math.max(1, collection.size()) : 1;
+    }
+
+    @Override
+    public String metricsName() {
+        return "singleFlight";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        var metrics = new LinkedHashMap<String, Object>();
+        metrics.put("staleWhileRevalidate", staleWhileRevalidate);
+        metrics.put("maxWeight", maxWeight);
+        synchronized (this) {
+            metrics.put("entries", entries.size());
+            metrics.put("weight", weight);
+            metrics.put("inFlight", flights.size());
+        }
+        metrics.put("hits", hits.get());
+        metrics.put("loads", loads.get());
+        metrics.put("joins", joins.get());
+        metrics.put("staleServed", staleServed.get());
+        metrics.put("failures", failures.get());
+        return metrics;
+    }
+
+    private record Entry(long generation, Object value, long weight) {
+    }
+
+    private static final class Flight {
+        private final long generation;
+        private Mono<Object> result;
+        private boolean servedStale;
+
+        Flight(long generation) {
+            this.generation = generation;
+        }
+    }
+}
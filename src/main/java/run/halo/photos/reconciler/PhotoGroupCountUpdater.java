@@ -0,0 +1,115 @@
+package run.halo.photos.reconciler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+import run.halo.photos.PhotoGroup;
+
+/**
+ * Applies photo add, update and delete events to the materialized
+ * {@link PhotoGroup.PhotoGroupStatus#getPhotoCount()} as increments. Deltas are coalesced
+ * per group for {@link #FLUSH_DELAY} so a batch upload updates each group once.
+ *
+ * <p>Groups whose count has not been computed yet are left to {@link PhotoGroupReconciler}.
+ */
+@Slf4j
+@Component
+public class PhotoGroupCountUpdater {
+
+    static final Duration FLUSH_DELAY = Duration.ofMillis(500);
+
+    private final ReactiveExtensionClient client;
+    private final Map<String, Integer> pendingDeltas = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public PhotoGroupCountUpdater(ReactiveExtensionClient client) {
+        this.client = client;
+    }
+
+    public void onPhotoAdded(Photo photo) {
+        adjust(groupOf(photo), 1);
+    }
+
+    public void onPhotoUpdated(Photo oldPhoto, Photo newPhoto) {
+        var from = groupOf(oldPhoto);
+        var to = groupOf(newPhoto);
+        if (!from.equals(to)) {
+            adjust(from, -1);
+            adjust(to, 1);
+        }
+    }
+
+    public void onPhotoDeleted(Photo photo) {
+        adjust(groupOf(photo), -1);
+    }
+
+    private void adjust(String groupName, int delta) {
+        if (groupName.isEmpty()) {
+            return;
+        }
+        pendingDeltas.merge(groupName, delta, Integer::sum);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Mono.delay(FLUSH_DELAY)
+            .then(Mono.defer(this::flush))
+            .doFinally(signal -> {
+                flushScheduled.set(false);
+                if (!pendingDeltas.isEmpty()) {
+                    scheduleFlush();
+                }
+            })
+            .subscribe();
+    }
+
+    Mono<Void> flush() {
+        return Flux.fromIterable(List.copyOf(pendingDeltas.keySet()))
+            .concatMap(groupName -> {
+                var delta = pendingDeltas.remove(groupName);
+                if (delta == null || delta == 0) {
+                    return Mono.empty();
+                }
+                return applyDelta(groupName, delta);
+            })
+            .then();
+    }
+
+    private Mono<Void> applyDelta(String groupName, int delta) {
+        return Mono.defer(() -> client.fetch(PhotoGroup.class, groupName)
+                .flatMap(group -> {
+                    var status = group.getStatusOrDefault();
+                    if (status.getPhotoCount() == null) {
+                        return Mono.empty();
+                    }
+                    status.setPhotoCount(Math.max(0, status.getPhotoCount() + delta));
+                    return client.update(group);
+                }))
+            .retryWhen(Retry.backoff(5, Duration.ofMillis(50))
+                .filter(OptimisticLockingFailureException.class::isInstance))
+            .onErrorResume(error -> {
+                log.warn("Failed to update photo count of group {}: {}", groupName,
+                    error.getMessage());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private static String groupOf(Photo photo) {
+        var groupName = photo.getSpec() == null ? null : photo.getSpec().getGroupName();
+        return groupName == null ? "" : groupName;
+    }
+}
@@ -0,0 +1,90 @@
+package run.halo.photos.reconciler;
+
+import static run.halo.app.extension.index.query.Queries.equal;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import run.halo.app.extension.ExtensionClient;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.PageRequestImpl;
+import run.halo.app.extension.controller.Controller;
+import run.halo.app.extension.controller.ControllerBuilder;
+import run.halo.app.extension.controller.Reconciler;
+import run.halo.photos.Photo;
+import run.halo.photos.PhotoGroup;
+
+/**
+ * Maintains {@link PhotoGroup.PhotoGroupStatus#getPhotoCount()} by counting the photos of a
+ * group when it is first seen (on start and for new groups), and again every
+ * {@link #RESYNC_INTERVAL} to repair any drift left by the incremental updates of
+ * {@link PhotoGroupCountUpdater}. Those updates trigger a reconcile of their own, which must
+ * not turn into a full count per change, so reconciles in between are only requeued.
+ */
+@Component
+public class PhotoGroupReconciler implements Reconciler<Reconciler.Request> {
+
+    static final Duration RESYNC_INTERVAL = Duration.ofMinutes(30);
+
+    private final ExtensionClient client;
+    private final Clock clock;
+    private final Map<String, Instant> countedAt = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PhotoGroupReconciler(ExtensionClient client) {
+        this(client, Clock.systemUTC());
+    }
+
+    PhotoGroupReconciler(ExtensionClient client, Clock clock) {
+        this.client = client;
+        this.clock = clock;
+    }
+
+    @Override
+    public Result reconcile(Request request) {
+        var group = client.fetch(PhotoGroup.class, request.name()).orElse(null);
+        if (group == null || group.getMetadata().getDeletionTimestamp() != null) {
+            countedAt.remove(request.name());
+            return Result.doNotRetry();
+        }
+        var status = group.getStatusOrDefault();
+        var now = clock.instant();
+        var lastCounted = countedAt.get(request.name());
+        if (status.getPhotoCount() != null && lastCounted != null) {
+            var due = lastCounted.plus(RESYNC_INTERVAL);
+            if (now.isBefore(due)) {
+                return new Result(true, Duration.between(now, due));
+            }
+        }
+        var count = countPhotos(request.name());
+        countedAt.put(request.name(), now);
+        if (!Objects.equals(status.getPhotoCount(), count)) {
+            status.setPhotoCount(count);
+            client.update(group);
+        }
+        return new Result(true, RESYNC_INTERVAL);
+    }
+
+    int countPhotos(String groupName) {
+        var options = ListOptions.builder()
+            .andQuery(equal("spec.groupName", groupName))
+            .build();
+        var result = client.listBy(Photo.class, options,
+            PageRequestImpl.of(1, 1, Sort.unsorted()));
+        return (int) result.getTotal();
+    }
+
+    @Override
+    public Controller setupWith(ControllerBuilder builder) {
+        return builder
+            .extension(new PhotoGroup())
+            .syncAllOnStart(true)
+            .build();
+    }
+}
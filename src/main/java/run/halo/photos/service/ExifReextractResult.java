@@ -0,0 +1,28 @@
+package run.halo.photos.service;
+
+import run.halo.photos.Photo;
+
+/**
+ * Result of re-extracting EXIF data for one photo.
+ *
+ * @param photo   the photo after the operation; the updated photo when {@code outcome} is
+ *                {@link Outcome#UPDATED}, otherwise the photo as given
+ * @param outcome what happened
+ */
+public record ExifReextractResult(Photo photo, Outcome outcome) {
+
+    public enum Outcome {
+        /**
+         * EXIF data was extracted and saved.
+         */
+        UPDATED,
+        /**
+         * The source file has not changed since the last extraction.
+         */
+        UNCHANGED,
+        /**
+         * The photo has no locally stored source file.
+         */
+        NO_SOURCE
+    }
+}
@@ -0,0 +1,33 @@
+package run.halo.photos.service;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Progress of an external-link import, emitted once per link in the order the links were
+ * given.
+ *
+ * @param total     number of links in the import
+ * @param completed links handled so far, including this one
+ * @param created   photos created so far
+ * @param failed    links that did not produce a photo so far
+ * @param url       the link this event is about
+ * @param outcome   what happened to the link
+ * @param photoName name of the created photo, {@code null} unless {@code outcome} is
+ *                  {@link Outcome#CREATED}
+ * @param message   why the link failed, or why probing it did not yield image information
+ */
+public record LinkImportProgress(int total, int completed, int created, int failed,
+                                 String url, Outcome outcome, @Nullable String photoName,
+                                 @Nullable String message) {
+
+    public enum Outcome {
+        /**
+         * A photo was created; it carries the probed dimensions and EXIF when available.
+         */
+        CREATED,
+        /**
+         * The link is not an http(s) URL or the photo could not be saved.
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,53 @@
+package run.halo.photos.service;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import run.halo.photos.PhotoExifJob;
+import run.halo.photos.PhotoQuery;
+
+/**
+ * Runs bulk EXIF re-extraction as server-side {@link PhotoExifJob}s.
+ */
+public interface PhotoExifJobService {
+
+    /**
+     * Start a job over the photos matching the filters of {@code query}.
+     *
+     * @param query       photo filters; paging and sort are ignored
+     * @param parallelism number of photos processed concurrently, or {@code null} for the
+     *                    default
+     * @param force       re-extract even when the source file is unchanged
+     * @return the created job
+     */
+    Mono<PhotoExifJob> start(PhotoQuery query, Integer parallelism, boolean force);
+
+    /**
+     * Get a job with its latest progress.
+     *
+     * @param name job name
+     * @return the job, or an error with status 404 if it does not exist
+     */
+    Mono<PhotoExifJob> get(String name);
+
+    /**
+     * Stream the progress of a job, emitting its latest state every second until it ends.
+     *
+     * @param name job name
+     * @return a flux of job snapshots, the last one in a terminal phase
+     */
+    Flux<PhotoExifJob> watchProgress(String name);
+
+    /**
+     * Cancel a job. Cancelling a finished job has no effect.
+     *
+     * @param name job name
+     * @return the job after cancellation
+     */
+    Mono<PhotoExifJob> cancel(String name);
+
+    /**
+     * Resume jobs left pending or running by a previous run of the plugin, continuing after
+     * their persisted checkpoint.
+     */
+    void resumeInterrupted();
+}
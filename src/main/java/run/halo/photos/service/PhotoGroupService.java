@@ -15,7 +15,7 @@ public interface PhotoGroupService {
     /**
      * List all photo groups sorted by priority.
      *
-     * @return a mono of all photo groups with photo counts populated
+     * @return a mono of all photo groups with their materialized photo counts
      */
     Mono<List<PhotoGroup>> listPhotoGroup();
     
@@ -0,0 +1,22 @@
+package run.halo.photos.service;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves resized copies of locally stored photos.
+ */
+public interface PhotoImageService {
+
+    /**
+     * Resize a photo to one of the configured variant widths, rendering it on first request
+     * and serving it from the on-disk derivative cache afterwards.
+     *
+     * @param name   photo name
+     * @param width  target width; must be one of {@code advanced.variantWidths}
+     * @param format output format
+     * @return the cached derivative; an error with status 400 for a width that is not
+     * allowed, 404 if the photo or its local original does not exist, or 415 if the
+     * original cannot be decoded
+     */
+    Mono<ResizedImage> resize(String name, int width, ResizedImage.Format format);
+}
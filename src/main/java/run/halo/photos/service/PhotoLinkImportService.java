@@ -0,0 +1,23 @@
+package run.halo.photos.service;
+
+import java.util.List;
+import reactor.core.publisher.Flux;
+
+/**
+ * Creates photos that reference images hosted elsewhere.
+ */
+public interface PhotoLinkImportService {
+
+    /**
+     * Create one photo per link, in batches.
+     *
+     * @param links       image URLs; blank lines and duplicates are skipped
+     * @param groupName   group to put the photos in, or blank for ungrouped
+     * @param probe       read the leading bytes of each image to fill its dimensions and EXIF
+     * @param concurrency number of links handled concurrently, or {@code null} for the
+     *                    default
+     * @return one event per link, or an error with status 400 if the input is invalid
+     */
+    Flux<LinkImportProgress> importLinks(List<String> links, String groupName, boolean probe,
+        Integer concurrency);
+}
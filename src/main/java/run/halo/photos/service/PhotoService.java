@@ -49,4 +49,14 @@ public interface PhotoService {
      *         be read, returns the photo unchanged
      */
     Mono<Photo> reextractExif(String name);
+
+    /**
+     * Re-extract EXIF data for a loaded photo from its local source file.
+     *
+     * @param photo photo to update
+     * @param force when false, a photo whose source file has the same size and modification
+     *              time as at its last extraction is left untouched
+     * @return the result, carrying the updated photo when EXIF data was saved
+     */
+    Mono<ExifReextractResult> reextractExif(Photo photo, boolean force);
 }
@@ -0,0 +1,61 @@
+package run.halo.photos.service;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+
+/**
+ * A resized photo stored in the derivative cache.
+ *
+ * @param file   the cached file
+ * @param etag   content key of the derivative; changes when the original, width, format or
+ *               quality changes
+ * @param format encoded format
+ */
+public record ResizedImage(Path file, String etag, Format format) {
+
+    public enum Format {
+        JPEG("jpeg", "jpg", MediaType.IMAGE_JPEG),
+        PNG("png", "png", MediaType.IMAGE_PNG);
+
+        private final String imageIoName;
+        private final String extension;
+        private final MediaType mediaType;
+
+        Format(String imageIoName, String extension, MediaType mediaType) {
+            this.imageIoName = imageIoName;
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public String imageIoName() {
+            return imageIoName;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public MediaType mediaType() {
+            return mediaType;
+        }
+
+        /**
+         * Parse the {@code fmt} query parameter; a missing value means {@link #JPEG}.
+         *
+         * @return the format, or {@code null} if it is not supported
+         */
+        @Nullable
+        public static Format from(@Nullable String value) {
+            if (value == null || value.isBlank()) {
+                return JPEG;
+            }
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "jpeg", "jpg" -> JPEG;
+                case "png" -> PNG;
+                default -> null;
+            };
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package run.halo.photos.service.impl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import run.halo.app.infra.BackupRootGetter;
+
+/**
+ * Resolves the on-disk file behind a local attachment permalink, so image bytes can be read
+ * directly instead of through HTTP.
+ */
+@Component
+class AttachmentFileResolver {
+
+    private final BackupRootGetter backupRootGetter;
+
+    AttachmentFileResolver(BackupRootGetter backupRootGetter) {
+        this.backupRootGetter = backupRootGetter;
+    }
+
+    /**
+     * Resolve a permalink such as {@code /upload/photo.jpg} to its file under the Halo work
+     * directory.
+     *
+     * @param permalink attachment permalink
+     * @return the regular file backing the permalink, or empty if the attachment is not stored
+     * locally or the file does not exist
+     */
+    Optional<Path> resolve(String permalink) {
+        if (StringUtils.isBlank(permalink) || !permalink.startsWith("/")) {
+            return Optional.empty();
+        }
+        var root = backupRootGetter.get().getParent().resolve("attachments").normalize();
+        var file = root.resolve(permalink.substring(1)).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+}
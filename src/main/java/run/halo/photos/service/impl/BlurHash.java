@@ -0,0 +1,117 @@
+package run.halo.photos.service.impl;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Encoder for <a href="https://blurha.sh">BlurHash</a>, a short string that decodes to a
+ * blurred preview of an image. Themes paint it as a placeholder while the image loads.
+ */
+final class BlurHash {
+
+    private static final String CHARACTERS =
+        "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    /**
+     * Encode an image with 4 x 3 components, or 3 x 4 for portrait images. The image should
+     * already be small (a few dozen pixels wide); every pixel is visited once per component.
+     */
+    static String encode(BufferedImage image) {
+        boolean portrait = image.getHeight() > image.getWidth();
+        return encode(image, portrait ? 3 : 4, portrait ? 4 : 3);
+    }
+
+    static String encode(BufferedImage image, int componentsX, int componentsY) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        var pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        var linear = new double[pixels.length * 3];
+        for (int i = 0; i < pixels.length; i++) {
+            linear[i * 3] = toLinear((pixels[i] >> 16) & 0xff);
+            linear[i * 3 + 1] = toLinear((pixels[i] >> 8) & 0xff);
+            linear[i * 3 + 2] = toLinear(pixels[i] & 0xff);
+        }
+
+        var factors = new double[componentsX * componentsY][3];
+        var cosX = new double[width];
+        var cosY = new double[height];
+        for (int j = 0; j < componentsY; j++) {
+            for (int y = 0; y < height; y++) {
+                cosY[y] = Math.cos(Math.PI * j * y / height);
+            }
+            for (int i = 0; i < componentsX; i++) {
+                for (int x = 0; x < width; x++) {
+                    cosX[x] = Math.cos(Math.PI * i * x / width);
+                }
+                var factor = factors[j * componentsX + i];
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        var basis = cosX[x] * cosY[y];
+                        int offset = (y * width + x) * 3;
+                        factor[0] += basis * linear[offset];
+                        factor[1] += basis * linear[offset + 1];
+                        factor[2] += basis * linear[offset + 2];
+                    }
+                }
+                double scale = (i == 0 && j == 0 ? 1.0 : 2.0) / (width * height);
+                factor[0] *= scale;
+                factor[1] *= scale;
+                factor[2] *= scale;
+            }
+        }
+
+        var hash = new StringBuilder();
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+        double maximumValue;
+        if (factors.length > 1) {
+            double actualMax = 0;
+            for (int i = 1; i < factors.length; i++) {
+                for (double value : factors[i]) {
+                    actualMax = Math.max(actualMax, Math.abs(value));
+                }
+            }
+            int quantisedMax = (int) Math.max(0, Math.min(82, Math.floor(actualMax * 166 - 0.5)));
+            maximumValue = (quantisedMax + 1) / 166.0;
+            encode83(hash, quantisedMax, 1);
+        } else {
+            maximumValue = 1;
+            encode83(hash, 0, 1);
+        }
+        var dc = factors[0];
+        encode83(hash, (toSrgb(dc[0]) << 16) + (toSrgb(dc[1]) << 8) + toSrgb(dc[2]), 4);
+        for (int i = 1; i < factors.length; i++) {
+            var ac = factors[i];
+            encode83(hash, quantiseAc(ac[0], maximumValue) * 19 * 19
+                + quantiseAc(ac[1], maximumValue) * 19
+                + quantiseAc(ac[2], maximumValue), 2);
+        }
+        return hash.toString();
+    }
+
+    private static int quantiseAc(double value, double maximumValue) {
+        double normalised = value / maximumValue;
+        double curved = Math.signum(normalised) * Math.sqrt(Math.abs(normalised));
+        return (int) Math.max(0, Math.min(18, Math.floor(curved * 9 + 9.5)));
+    }
+
+    private static double toLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int toSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+            ? (int) (v * 12.92 * 255 + 0.5)
+            : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(StringBuilder hash, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (int) (value / Math.pow(83, length - i)) % 83;
+            hash.append(CHARACTERS.charAt(digit));
+        }
+    }
+}
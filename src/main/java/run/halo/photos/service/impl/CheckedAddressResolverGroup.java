@@ -0,0 +1,90 @@
+package run.halo.photos.service.impl;
+
+import io.netty.resolver.AbstractAddressResolver;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Resolves the addresses a Netty client connects to and refuses a host unless every address
+ * it resolves to is allowed. The check happens on the very answer that is connected to, so a
+ * name server answering differently between a check and the connection cannot slip an
+ * address past it. Literal addresses are checked the same way.
+ *
+ * <p>Host names are looked up off the event loop, since the lookup may block.
+ */
+final class CheckedAddressResolverGroup extends AddressResolverGroup<InetSocketAddress> {
+
+    private final Lookup lookup;
+    private final Predicate<InetAddress> allowedAddress;
+
+    CheckedAddressResolverGroup(Lookup lookup, Predicate<InetAddress> allowedAddress) {
+        this.lookup = lookup;
+        this.allowedAddress = allowedAddress;
+    }
+
+    @Override
+    protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) {
+        return new AbstractAddressResolver<>(executor, InetSocketAddress.class) {
+            @Override
+            protected boolean doIsResolved(InetSocketAddress address) {
+                // never connect to an address without checking it first
+                return false;
+            }
+
+            @Override
+            protected void doResolve(InetSocketAddress address,
+                Promise<InetSocketAddress> promise) {
+                resolve(address).subscribe(resolved -> promise.trySuccess(resolved.getFirst()),
+                    promise::tryFailure);
+            }
+
+            @Override
+            protected void doResolveAll(InetSocketAddress address,
+                Promise<List<InetSocketAddress>> promise) {
+                resolve(address).subscribe(promise::trySuccess, promise::tryFailure);
+            }
+        };
+    }
+
+    private Mono<List<InetSocketAddress>> resolve(InetSocketAddress address) {
+        var host = address.getHostString();
+        var addresses = address.isUnresolved()
+            ? Mono.fromCallable(() -> lookup.lookup(host))
+                .subscribeOn(Schedulers.boundedElastic())
+            : Mono.just(new InetAddress[] {address.getAddress()});
+        return addresses.handle((all, sink) -> {
+            var resolved = new ArrayList<InetSocketAddress>(all.length);
+            for (var candidate : all) {
+                if (!allowedAddress.test(candidate)) {
+                    sink.error(new UnknownHostException("Address of " + host
+                        + " is not allowed: " + candidate.getHostAddress()));
+                    return;
+                }
+                resolved.add(new InetSocketAddress(candidate, address.getPort()));
+            }
+            if (resolved.isEmpty()) {
+                sink.error(new UnknownHostException(host));
+                return;
+            }
+            sink.next(List.copyOf(resolved));
+        });
+    }
+
+    /**
+     * Looks up the addresses of a host name, like {@link InetAddress#getAllByName(String)}.
+     */
+    @FunctionalInterface
+    interface Lookup {
+        InetAddress[] lookup(String host) throws UnknownHostException;
+    }
+}
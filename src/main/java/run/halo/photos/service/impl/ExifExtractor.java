@@ -1,5 +1,7 @@
 package run.halo.photos.service.impl;
 
+import com.drew.imaging.FileType;
+import com.drew.imaging.FileTypeDetector;
 import com.drew.imaging.ImageMetadataReader;
 import com.drew.imaging.ImageProcessingException;
 import com.drew.lang.GeoLocation;
@@ -7,21 +9,44 @@ import com.drew.metadata.Metadata;
 import com.drew.metadata.exif.ExifIFD0Directory;
 import com.drew.metadata.exif.ExifSubIFDDirectory;
 import com.drew.metadata.exif.GpsDirectory;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.TimeZone;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import run.halo.photos.Photo;
+import run.halo.photos.infra.PhotoSettings;
 
 /**
- * Extracts EXIF metadata from image byte arrays.
+ * Extracts EXIF metadata from image bytes, reading only the file header where the container
+ * allows it.
  */
 @Slf4j
 @Component
 public class ExifExtractor {
 
+    /**
+     * Default number of leading bytes read before attempting to parse metadata. EXIF, TIFF and
+     * XMP segments of JPEG and HEIC files sit well inside this window.
+     */
+    public static final int DEFAULT_HEADER_WINDOW = 256 * 1024;
+
+    private static final int MIN_HEADER_WINDOW = 16 * 1024;
+
+    /**
+     * The header window of the {@code advanced.exifHeaderWindow} setting (in KB).
+     */
+    static int headerWindow(PhotoSettings.Snapshot settings) {
+        var kb = settings.exifHeaderWindowKb();
+        return kb > 0 ? Math.max(kb * 1024, MIN_HEADER_WINDOW) : DEFAULT_HEADER_WINDOW;
+    }
+
     /**
      * Extract EXIF data from image bytes.
      *
@@ -38,6 +63,92 @@ public class ExifExtractor {
         }
     }
 
+    /**
+     * Extract EXIF data from the leading bytes of an image. The full content is only read when
+     * the header alone is not enough: the header was cut off inside the metadata segments, or
+     * the container (PNG, WebP, TIFF-based RAW) may keep its EXIF block after the image data.
+     *
+     * @param header      leading bytes of the file
+     * @param truncated   whether the file is longer than {@code header}
+     * @param fullContent opens the complete file for the fallback read; may be {@code null}
+     *                    when the full content is not available, in which case whatever the
+     *                    header yields is returned
+     * @return extracted EXIF data, or empty data if parsing fails
+     */
+    public ExifData extractExif(byte[] header, boolean truncated,
+        @Nullable ContentSource fullContent) {
+        if (!truncated) {
+            return extractExif(header);
+        }
+        Metadata metadata = null;
+        try {
+            metadata = ImageMetadataReader.readMetadata(new ByteArrayInputStream(header));
+        } catch (ImageProcessingException | IOException e) {
+            log.debug("Header window too small for EXIF, falling back to full read: {}",
+                e.getMessage());
+        }
+        if (metadata != null && !requiresFullRead(header, metadata)) {
+            return new ExifData(metadata);
+        }
+        if (fullContent == null) {
+            return new ExifData(metadata);
+        }
+        try (var inputStream = new BufferedInputStream(fullContent.open())) {
+            return new ExifData(ImageMetadataReader.readMetadata(inputStream));
+        } catch (ImageProcessingException | IOException e) {
+            log.warn("Failed to extract EXIF data: {}", e.getMessage());
+            return new ExifData(metadata);
+        }
+    }
+
+    /**
+     * Extract EXIF data from an image file, reading only the first {@code headerWindow} bytes
+     * unless the container requires a full read.
+     *
+     * @param file         image file
+     * @param headerWindow number of leading bytes to read first
+     * @return extracted EXIF data, or empty data if parsing fails
+     */
+    public ExifData extractExif(Path file, int headerWindow) {
+        try {
+            long size = Files.size(file);
+            byte[] header;
+            try (var inputStream = Files.newInputStream(file)) {
+                header = inputStream.readNBytes((int) Math.min(size, headerWindow));
+            }
+            return extractExif(header, size > header.length, () -> Files.newInputStream(file));
+        } catch (IOException e) {
+            log.warn("Failed to read image file {}: {}", file, e.getMessage());
+            return new ExifData(null);
+        }
+    }
+
+    /**
+     * JPEG keeps every metadata segment before the start-of-scan marker, so a header that
+     * parsed cleanly is complete. Other containers may append EXIF after the pixel data.
+     */
+    private static boolean requiresFullRead(byte[] header, Metadata metadata) {
+        if (metadata.containsDirectoryOfType(ExifIFD0Directory.class)
+            || metadata.containsDirectoryOfType(ExifSubIFDDirectory.class)) {
+            return false;
+        }
+        try {
+            var fileType = FileTypeDetector.detectFileType(
+                new BufferedInputStream(new ByteArrayInputStream(header)));
+            return fileType != FileType.Jpeg;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Opens the complete image content for a fallback read.
+     */
+    @FunctionalInterface
+    public interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
     /**
      * Populate a {@link Photo.PhotoExif} from extracted EXIF data.
      *
@@ -188,6 +299,17 @@ public class ExifExtractor {
             return dir != null ? dir.getInteger(ExifSubIFDDirectory.TAG_EXIF_IMAGE_HEIGHT) : null;
         }
 
+        /**
+         * The EXIF orientation (1-8) the pixels must be turned by for display, or 1 when
+         * the image does not record one.
+         */
+        public int getOrientation() {
+            var dir = getDir(ExifIFD0Directory.class);
+            var orientation = dir != null
+                ? dir.getInteger(ExifIFD0Directory.TAG_ORIENTATION) : null;
+            return orientation != null && orientation >= 1 && orientation <= 8 ? orientation : 1;
+        }
+
         public Double getGpsLatitude() {
             var gps = getGpsLocation();
             return gps != null ? gps.getLatitude() : null;
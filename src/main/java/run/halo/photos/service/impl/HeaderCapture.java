@@ -0,0 +1,62 @@
+package run.halo.photos.service.impl;
+
+import java.util.Arrays;
+import org.springframework.core.io.buffer.DataBuffer;
+
+/**
+ * Copies the leading bytes of a streamed upload as it passes through, so that metadata can be
+ * parsed without joining the whole file in memory. Buffers are only read, never retained or
+ * consumed, so the same buffers can be forwarded downstream untouched.
+ *
+ * <p>Not thread-safe; a capture belongs to a single upload subscription.
+ */
+final class HeaderCapture {
+
+    private final int capacity;
+    private byte[] bytes;
+    private int length;
+    private long totalBytes;
+
+    HeaderCapture(int capacity) {
+        this.capacity = capacity;
+        this.bytes = new byte[Math.min(capacity, 8192)];
+    }
+
+    void capture(DataBuffer dataBuffer) {
+        int readable = dataBuffer.readableByteCount();
+        totalBytes += readable;
+        int toCopy = Math.min(readable, capacity - length);
+        if (toCopy <= 0) {
+            return;
+        }
+        ensureCapacity(length + toCopy);
+        int start = dataBuffer.readPosition();
+        for (int i = 0; i < toCopy; i++) {
+            bytes[length + i] = dataBuffer.getByte(start + i);
+        }
+        length += toCopy;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Whether the stream was longer than the captured window.
+     */
+    boolean isTruncated() {
+        return totalBytes > length;
+    }
+
+    long totalBytes() {
+        return totalBytes;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= bytes.length) {
+            return;
+        }
+        int newLength = Math.min(capacity, Math.max(required, bytes.length * 2));
+        bytes = Arrays.copyOf(bytes, newLength);
+    }
+}
@@ -0,0 +1,125 @@
+package run.halo.photos.service.impl;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Limits how many requests run against the same host at a time, without blocking a thread
+ * while waiting: a task that finds the host busy is queued and subscribed once a permit is
+ * passed on to it. Hosts are forgotten once they have neither running nor waiting tasks.
+ */
+final class HostPermits {
+
+    private final int limit;
+    private final Duration maxWait;
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    HostPermits(int limit, Duration maxWait) {
+        this.limit = limit;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Run a task while holding a permit of a host.
+     *
+     * @return the task result, or a {@link java.util.concurrent.TimeoutException} if no
+     * permit became free within the maximum wait
+     */
+    <T> Mono<T> withPermit(String host, Supplier<Mono<T>> task) {
+        return Mono.defer(() -> {
+            var ticket = new Ticket(host);
+            var granted = enqueue(ticket);
+            if (granted != null) {
+                granted.grant();
+            }
+            return ticket.permit.asMono()
+                .timeout(maxWait)
+                .then(Mono.defer(task))
+                .doFinally(signal -> {
+                    var next = release(ticket);
+                    if (next != null) {
+                        next.grant();
+                    }
+                });
+        });
+    }
+
+    synchronized int hosts() {
+        return slots.size();
+    }
+
+    /**
+     * @return the ticket if it got a permit right away
+     */
+    @Nullable
+    private synchronized Ticket enqueue(Ticket ticket) {
+        var slot = slots.computeIfAbsent(ticket.host, host -> new Slot());
+        if (slot.active < limit) {
+            slot.active++;
+            ticket.owner = true;
+            return ticket;
+        }
+        slot.waiting.add(ticket);
+        return null;
+    }
+
+    /**
+     * Give up the permit of a ticket, or its place in the queue if it never got one.
+     *
+     * @return the waiting ticket the permit passes on to
+     */
+    @Nullable
+    private synchronized Ticket release(Ticket ticket) {
+        var slot = slots.get(ticket.host);
+        if (slot == null || ticket.released) {
+            return null;
+        }
+        ticket.released = true;
+        Ticket next = null;
+        if (ticket.owner) {
+            next = slot.waiting.poll();
+            if (next != null) {
+                next.owner = true;
+            } else {
+                slot.active--;
+            }
+        } else {
+            slot.waiting.remove(ticket);
+        }
+        if (slot.active == 0 && slot.waiting.isEmpty()) {
+            slots.remove(ticket.host);
+        }
+        return next;
+    }
+
+    private static final class Slot {
+        private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+        private int active;
+    }
+
+    /**
+     * One task's claim on a host. Ownership of a permit is recorded under the monitor of the
+     * {@link HostPermits}, so a task that gives up while its permit is being granted still
+     * passes it on.
+     */
+    private static final class Ticket {
+        private final String host;
+        private final Sinks.Empty<Void> permit = Sinks.empty();
+        private boolean owner;
+        private boolean released;
+
+        Ticket(String host) {
+            this.host = host;
+        }
+
+        void grant() {
+            permit.tryEmitEmpty();
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package run.halo.photos.service.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import run.halo.photos.Photo;
+
+/**
+ * Reads the pixel dimensions of an image from its container header without decoding it:
+ * the JPEG frame header, PNG {@code IHDR}, the GIF logical screen, WebP {@code VP8}/
+ * {@code VP8L}/{@code VP8X} and the HEIF/AVIF {@code ispe} property. Only the structures on
+ * the way to the size are read; large segments such as EXIF blocks are skipped, not read.
+ */
+@Slf4j
+@Component
+public class ImageDimensionProber {
+
+    /**
+     * Upper bound on the bytes read from one image, whatever the container looks like.
+     */
+    static final int MAX_READ_BYTES = 8 * 1024;
+
+    /**
+     * Probe the leading bytes of an image.
+     *
+     * @param header      leading bytes of the file
+     * @param orientation EXIF orientation; 5-8 swap width and height, except for HEIF, whose
+     *                    own {@code irot} property is applied instead
+     * @return display dimensions, or {@code null} if the format is not recognized or the
+     * size lies beyond {@code header}
+     */
+    @Nullable
+    public Photo.PhotoDimensions probe(byte[] header, int orientation) {
+        try {
+            return probe((position, target) -> {
+                if (position >= header.length) {
+                    return 0;
+                }
+                int length = (int) Math.min(target.length, header.length - position);
+                System.arraycopy(header, (int) position, target, 0, length);
+                return length;
+            }, orientation);
+        } catch (IOException e) {
+            // not thrown by in-memory reads
+            return null;
+        }
+    }
+
+    /**
+     * Probe an image file, reading at most {@link #MAX_READ_BYTES}.
+     *
+     * @see #probe(byte[], int)
+     */
+    @Nullable
+    public Photo.PhotoDimensions probe(Path file, int orientation) {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return probe((position, target) -> {
+                var buffer = ByteBuffer.wrap(target);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                return buffer.position();
+            }, orientation);
+        } catch (IOException e) {
+            log.warn("Failed to probe image dimensions of {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Photo.PhotoDimensions probe(Input input, int orientation)
+        throws IOException {
+        var reader = new Reader(input);
+        var head = reader.bytes(0, 12);
+        if (head == null) {
+            return null;
+        }
+        int[] size;
+        boolean swap = orientation >= 5 && orientation <= 8;
+        if (u8(head, 0) == 0xff && u8(head, 1) == 0xd8) {
+            size = jpeg(reader);
+        } else if (startsWith(head, 0, "\u0089PNG\r\n\u001a\n")) {
+            size = png(reader);
+        } else if (startsWith(head, 0, "GIF8")) {
+            size = gif(reader);
+        } else if (startsWith(head, 0, "RIFF") && startsWith(head, 8, "WEBP")) {
+            size = webp(reader);
+        } else if (startsWith(head, 4, "ftyp")) {
+            size = heif(reader);
+            swap = size != null && size[2] % 2 == 1;
+        } else {
+            return null;
+        }
+        if (size == null || size[0] <= 0 || size[1] <= 0) {
+            return null;
+        }
+        var dimensions = new Photo.PhotoDimensions();
+        dimensions.setWidth(swap ? size[1] : size[0]);
+        dimensions.setHeight(swap ? size[0] : size[1]);
+        return dimensions;
+    }
+
+    /**
+     * Walk the marker segments up to the first start-of-frame, skipping over the others by
+     * their length.
+     */
+    @Nullable
+    private static int[] jpeg(Reader reader) throws IOException {
+        long position = 2;
+        while (true) {
+            var marker = reader.bytes(position, 4);
+            if (marker == null || u8(marker, 0) != 0xff) {
+                return null;
+            }
+            int type = u8(marker, 1);
+            if (type == 0xff) {
+                // fill byte before the marker
+                position++;
+                continue;
+            }
+            if (type == 0x01 || type >= 0xd0 && type <= 0xd8) {
+                // markers without a segment
+                position += 2;
+                continue;
+            }
+            if (type == 0xd9 || type == 0xda) {
+                // end of image or start of scan before any frame header
+                return null;
+            }
+            if (type >= 0xc0 && type <= 0xcf && type != 0xc4 && type != 0xc8 && type != 0xcc) {
+                // length, precision, then height and width
+                var frame = reader.bytes(position + 5, 4);
+                return frame == null ? null : new int[] {u16be(frame, 2), u16be(frame, 0)};
+            }
+            int length = u16be(marker, 2);
+            if (length < 2) {
+                return null;
+            }
+            position += 2 + length;
+        }
+    }
+
+    @Nullable
+    private static int[] png(Reader reader) throws IOException {
+        var chunk = reader.bytes(8, 16);
+        if (chunk == null || !startsWith(chunk, 4, "IHDR")) {
+            return null;
+        }
+        return new int[] {u31be(chunk, 8), u31be(chunk, 12)};
+    }
+
+    @Nullable
+    private static int[] gif(Reader reader) throws IOException {
+        var screen = reader.bytes(6, 4);
+        return screen == null ? null : new int[] {u16le(screen, 0), u16le(screen, 2)};
+    }
+
+    /**
+     * The first chunk after the RIFF header carries the size: the canvas of an extended
+     * file, or the frame header of a simple lossy or lossless one.
+     */
+    @Nullable
+    private static int[] webp(Reader reader) throws IOException {
+        var chunk = reader.bytes(12, 18);
+        if (chunk == null) {
+            return null;
+        }
+        if (startsWith(chunk, 0, "VP8X")) {
+            return new int[] {u24le(chunk, 12) + 1, u24le(chunk, 15) + 1};
+        }
+        if (startsWith(chunk, 0, "VP8L") && u8(chunk, 8) == 0x2f) {
+            int bits = u8(chunk, 9) | u8(chunk, 10) << 8 | u8(chunk, 11) << 16
+                | u8(chunk, 12) << 24;
+            return new int[] {(bits & 0x3fff) + 1, (bits >>> 14 & 0x3fff) + 1};
+        }
+        if (startsWith(chunk, 0, "VP8 ")
+            && u8(chunk, 11) == 0x9d && u8(chunk, 12) == 0x01 && u8(chunk, 13) == 0x2a) {
+            return new int[] {u16le(chunk, 14) & 0x3fff, u16le(chunk, 16) & 0x3fff};
+        }
+        return null;
+    }
+
+    /**
+     * Descend {@code meta/iprp/ipco} and take the largest {@code ispe}: grid images list a
+     * property per tile and thumbnails have their own, while the full image is the largest.
+     *
+     * @return width, height and the {@code irot} rotation in quarter turns
+     */
+    @Nullable
+    private static int[] heif(Reader reader) throws IOException {
+        var meta = find(reader, 0, Long.MAX_VALUE, "meta");
+        // meta is a full box: version and flags precede its children
+        var iprp = meta == null ? null : find(reader, meta.content() + 4, meta.end(), "iprp");
+        var ipco = iprp == null ? null : find(reader, iprp.content(), iprp.end(), "ipco");
+        if (ipco == null) {
+            return null;
+        }
+        int[] size = null;
+        int rotation = 0;
+        long position = ipco.content();
+        while (position < ipco.end()) {
+            var property = box(reader, position);
+            if (property == null) {
+                break;
+            }
+            if (property.type().equals("ispe")) {
+                var extent = reader.bytes(property.content() + 4, 8);
+                if (extent != null) {
+                    int width = u31be(extent, 0);
+                    int height = u31be(extent, 4);
+                    if (size == null || (long) width * height > (long) size[0] * size[1]) {
+                        size = new int[] {width, height};
+                    }
+                }
+            } else if (property.type().equals("irot")) {
+                var angle = reader.bytes(property.content(), 1);
+                rotation = angle == null ? 0 : u8(angle, 0) & 0x3;
+            }
+            position = property.end();
+        }
+        return size == null ? null : new int[] {size[0], size[1], rotation};
+    }
+
+    @Nullable
+    private static Box find(Reader reader, long start, long end, String type)
+        throws IOException {
+        long position = start;
+        while (position < end) {
+            var box = box(reader, position);
+            if (box == null) {
+                return null;
+            }
+            if (box.type().equals(type)) {
+                return box;
+            }
+            position = box.end();
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Box box(Reader reader, long position) throws IOException {
+        var header = reader.bytes(position, 8);
+        if (header == null) {
+            return null;
+        }
+        long size = u32be(header, 0);
+        var type = new String(header, 4, 4, StandardCharsets.ISO_8859_1);
+        long content = position + 8;
+        if (size == 1) {
+            var large = reader.bytes(position + 8, 8);
+            if (large == null) {
+                return null;
+            }
+            size = u32be(large, 0) << 32 | u32be(large, 4);
+            content += 8;
+        } else if (size == 0) {
+            // extends to the end of the file
+            return new Box(type, content, Long.MAX_VALUE);
+        }
+        if (size < content - position) {
+            return null;
+        }
+        return new Box(type, content, position + size);
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, String signature) {
+        if (bytes.length < offset + signature.length()) {
+            return false;
+        }
+        for (int i = 0; i < signature.length(); i++) {
+            if (u8(bytes, offset + i) != signature.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int u8(byte[] bytes, int offset) {
+        return bytes[offset] & 0xff;
+    }
+
+    private static int u16be(byte[] bytes, int offset) {
+        return u8(bytes, offset) << 8 | u8(bytes, offset + 1);
+    }
+
+    private static int u16le(byte[] bytes, int offset) {
+        return u8(bytes, offset) | u8(bytes, offset + 1) << 8;
+    }
+
+    private static int u24le(byte[] bytes, int offset) {
+        return u16le(bytes, offset) | u8(bytes, offset + 2) << 16;
+    }
+
+    private static long u32be(byte[] bytes, int offset) {
+        return (long) u16be(bytes, offset) << 16 | u16be(bytes, offset + 2);
+    }
+
+    /**
+     * An unsigned 32-bit size, or -1 when it does not fit an {@code int}.
+     */
+    private static int u31be(byte[] bytes, int offset) {
+        long value = u32be(bytes, offset);
+        return value > Integer.MAX_VALUE ? -1 : (int) value;
+    }
+
+    /**
+     * Reads up to {@code target.length} bytes at {@code position}, returning how many were
+     * read; fewer only at the end of the content.
+     */
+    @FunctionalInterface
+    private interface Input {
+        int read(long position, byte[] target) throws IOException;
+    }
+
+    /**
+     * Positional reads against an {@link Input}, refusing to go past
+     * {@link #MAX_READ_BYTES} in total.
+     */
+    private static final class Reader {
+
+        private final Input input;
+        private int budget = MAX_READ_BYTES;
+
+        Reader(Input input) {
+            this.input = input;
+        }
+
+        /**
+         * @return exactly {@code length} bytes, or {@code null} past the end of the content
+         * or the read budget
+         */
+        @Nullable
+        byte[] bytes(long position, int length) throws IOException {
+            if (position < 0 || length > budget) {
+                return null;
+            }
+            budget -= length;
+            var target = new byte[length];
+            return input.read(position, target) == length ? target : null;
+        }
+    }
+
+    private record Box(String type, long content, long end) {
+    }
+}
@@ -0,0 +1,298 @@
+package run.halo.photos.service.impl;
+
+import static run.halo.app.extension.index.query.Queries.greaterThan;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.PageRequestImpl;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+import run.halo.photos.PhotoExifJob;
+import run.halo.photos.PhotoQuery;
+import run.halo.photos.service.ExifReextractResult;
+import run.halo.photos.service.PhotoExifJobService;
+import run.halo.photos.service.PhotoService;
+
+/**
+ * Implementation of {@link PhotoExifJobService}.
+ *
+ * <p>A job walks the selection in {@code metadata.name} order, one page of
+ * {@link #BATCH_SIZE} photos at a time, re-extracting up to {@code spec.parallelism} photos
+ * concurrently. Progress counters live in memory while the job runs and are written to the
+ * job status together with the checkpoint after every batch.
+ */
+@Slf4j
+@Component
+class PhotoExifJobServiceImpl implements PhotoExifJobService, DisposableBean {
+
+    static final int BATCH_SIZE = 100;
+    static final int DEFAULT_PARALLELISM = 4;
+    static final int MAX_PARALLELISM = 16;
+    static final Duration PROGRESS_INTERVAL = Duration.ofSeconds(1);
+
+    private final ReactiveExtensionClient client;
+    private final PhotoService photoService;
+    private final Map<String, RunningJob> runningJobs = new ConcurrentHashMap<>();
+
+    PhotoExifJobServiceImpl(ReactiveExtensionClient client, PhotoService photoService) {
+        this.client = client;
+        this.photoService = photoService;
+    }
+
+    @Override
+    public Mono<PhotoExifJob> start(PhotoQuery query, Integer parallelism, boolean force) {
+        if (parallelism != null && (parallelism < 1 || parallelism > MAX_PARALLELISM)) {
+            return Mono.error(new ServerWebInputException(
+                "并发数必须介于 1 到 " + MAX_PARALLELISM + " 之间。"));
+        }
+        var job = new PhotoExifJob();
+        var metadata = new Metadata();
+        metadata.setGenerateName("photo-exif-job-");
+        job.setMetadata(metadata);
+
+        var spec = new PhotoExifJob.PhotoExifJobSpec();
+        spec.setSelection(toSelection(query));
+        spec.setParallelism(parallelism == null ? DEFAULT_PARALLELISM : parallelism);
+        spec.setForce(force);
+        job.setSpec(spec);
+        job.getStatusOrDefault().setPhase(PhotoExifJob.Phase.PENDING);
+
+        var pageRequest = PageRequestImpl.of(1, 1, Sort.unsorted());
+        return client.listBy(Photo.class, PhotoServiceImpl.toListOptions(spec.getSelection()),
+                pageRequest)
+            .flatMap(result -> {
+                job.getStatusOrDefault().setTotal((int) result.getTotal());
+                return client.create(job);
+            })
+            .doOnNext(this::launch);
+    }
+
+    @Override
+    public Mono<PhotoExifJob> get(String name) {
+        return client.fetch(PhotoExifJob.class, name)
+            .switchIfEmpty(Mono.error(
+                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "EXIF job not found")))
+            .doOnNext(job -> {
+                var running = runningJobs.get(name);
+                if (running != null) {
+                    running.copyTo(job.getStatusOrDefault());
+                }
+            });
+    }
+
+    @Override
+    public Flux<PhotoExifJob> watchProgress(String name) {
+        return Flux.interval(Duration.ZERO, PROGRESS_INTERVAL)
+            .onBackpressureDrop()
+            .concatMap(tick -> get(name))
+            .takeUntil(PhotoExifJobServiceImpl::isTerminal);
+    }
+
+    @Override
+    public Mono<PhotoExifJob> cancel(String name) {
+        return get(name).flatMap(job -> {
+            if (isTerminal(job)) {
+                return Mono.just(job);
+            }
+            var running = runningJobs.remove(name);
+            if (running != null) {
+                running.subscription.dispose();
+            }
+            return finish(name, running, PhotoExifJob.Phase.CANCELLED, null);
+        });
+    }
+
+    @Override
+    public void resumeInterrupted() {
+        client.listAll(PhotoExifJob.class, ListOptions.builder().build(),
+                Sort.by("metadata.creationTimestamp"))
+            .filter(job -> !isTerminal(job))
+            .subscribe(job -> {
+                log.info("Resuming EXIF job {} after checkpoint {}", job.getMetadata().getName(),
+                    job.getStatusOrDefault().getCheckpoint());
+                launch(job);
+            }, error -> log.warn("Failed to resume EXIF jobs", error));
+    }
+
+    /**
+     * Stop running jobs without changing their phase, so they resume on the next start.
+     */
+    @Override
+    public void destroy() {
+        runningJobs.values().forEach(running -> running.subscription.dispose());
+        runningJobs.clear();
+    }
+
+    private void launch(PhotoExifJob job) {
+        var name = job.getMetadata().getName();
+        var running = new RunningJob(job.getStatusOrDefault());
+        if (runningJobs.putIfAbsent(name, running) != null) {
+            return;
+        }
+        var spec = job.getSpec();
+        var parallelism = spec.getParallelism() == null
+            ? DEFAULT_PARALLELISM : Math.min(Math.max(spec.getParallelism(), 1), MAX_PARALLELISM);
+        var force = Boolean.TRUE.equals(spec.getForce());
+        running.subscription.update(updateStatus(name, status -> {
+                status.setPhase(PhotoExifJob.Phase.RUNNING);
+                if (status.getStartedAt() == null) {
+                    status.setStartedAt(Instant.now());
+                }
+            })
+            .then(processBatches(name, spec.getSelection(), parallelism, force, running))
+            .then(Mono.defer(() -> finish(name, running, PhotoExifJob.Phase.SUCCEEDED, null)))
+            .onErrorResume(error -> {
+                log.warn("EXIF job {} failed", name, error);
+                return finish(name, running, PhotoExifJob.Phase.FAILED, error.getMessage());
+            })
+            .doFinally(signal -> runningJobs.remove(name, running))
+            .subscribe(null, error -> log.warn("Failed to update EXIF job {}", name, error)));
+    }
+
+    /**
+     * Walk the selection batch after batch with {@code expand}, which fetches the next page
+     * only once the previous one has been processed and checkpointed, and keeps the operator
+     * chain at the same depth however many batches there are.
+     */
+    private Mono<Void> processBatches(String name, PhotoExifJob.Selection selection,
+        int parallelism, boolean force, RunningJob running) {
+        return processBatch(name, selection, parallelism, force, running)
+            .expand(photos -> photos.size() < BATCH_SIZE ? Mono.empty()
+                : processBatch(name, selection, parallelism, force, running))
+            .then();
+    }
+
+    /**
+     * Process the page after the checkpoint and advance the checkpoint past it.
+     *
+     * @return the photos of the page, fewer than {@link #BATCH_SIZE} on the last one
+     */
+    private Mono<List<Photo>> processBatch(String name, PhotoExifJob.Selection selection,
+        int parallelism, boolean force, RunningJob running) {
+        return Mono.defer(() -> {
+            var options = ListOptions.builder(PhotoServiceImpl.toListOptions(selection));
+            if (running.checkpoint != null) {
+                options.andQuery(greaterThan("metadata.name", running.checkpoint));
+            }
+            var pageRequest = PageRequestImpl.of(1, BATCH_SIZE, Sort.by("metadata.name"));
+            return client.listBy(Photo.class, options.build(), pageRequest);
+        }).flatMap(page -> {
+            var photos = page.getItems();
+            if (photos.isEmpty()) {
+                return Mono.just(photos);
+            }
+            return Flux.fromIterable(photos)
+                .flatMap(photo -> process(photo, force, running), parallelism)
+                .then(Mono.defer(() -> {
+                    running.checkpoint = photos.getLast().getMetadata().getName();
+                    return updateStatus(name, running::copyTo);
+                }))
+                .thenReturn(photos);
+        });
+    }
+
+    private Mono<Void> process(Photo photo, boolean force, RunningJob running) {
+        return photoService.reextractExif(photo, force)
+            .doOnNext(result -> {
+                if (result.outcome() == ExifReextractResult.Outcome.UPDATED) {
+                    running.updated.incrementAndGet();
+                } else {
+                    running.skipped.incrementAndGet();
+                }
+                running.processed.incrementAndGet();
+            })
+            .onErrorResume(error -> {
+                log.warn("Failed to re-extract EXIF for photo {}: {}",
+                    photo.getMetadata().getName(), error.getMessage());
+                running.failed.incrementAndGet();
+                running.processed.incrementAndGet();
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private Mono<PhotoExifJob> finish(String name, @Nullable RunningJob running,
+        PhotoExifJob.Phase phase, @Nullable String message) {
+        return updateStatus(name, status -> {
+            if (running != null) {
+                running.copyTo(status);
+            }
+            status.setPhase(phase);
+            status.setFinishedAt(Instant.now());
+            status.setMessage(message);
+        });
+    }
+
+    private Mono<PhotoExifJob> updateStatus(String name,
+        Consumer<PhotoExifJob.PhotoExifJobStatus> mutator) {
+        return Mono.defer(() -> client.get(PhotoExifJob.class, name)
+                .flatMap(job -> {
+                    mutator.accept(job.getStatusOrDefault());
+                    return client.update(job);
+                }))
+            .retryWhen(Retry.backoff(5, Duration.ofMillis(100))
+                .filter(OptimisticLockingFailureException.class::isInstance));
+    }
+
+    private static boolean isTerminal(PhotoExifJob job) {
+        var phase = job.getStatusOrDefault().getPhase();
+        return phase != null && phase.isTerminal();
+    }
+
+    private static PhotoExifJob.Selection toSelection(PhotoQuery query) {
+        var selection = new PhotoExifJob.Selection();
+        selection.setKeyword(query.getKeyword());
+        selection.setGroup(query.getGroup());
+        selection.setUngrouped(query.isUngrouped());
+        selection.setTag(query.getTag());
+        selection.setLabelSelector(query.getLabelSelector());
+        selection.setFieldSelector(query.getFieldSelector());
+        return selection;
+    }
+
+    private static final class RunningJob {
+        final AtomicInteger processed = new AtomicInteger();
+        final AtomicInteger updated = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final Disposable.Swap subscription = Disposables.swap();
+        volatile String checkpoint;
+
+        RunningJob(PhotoExifJob.PhotoExifJobStatus status) {
+            processed.set(status.getProcessed());
+            updated.set(status.getUpdated());
+            skipped.set(status.getSkipped());
+            failed.set(status.getFailed());
+            checkpoint = status.getCheckpoint();
+        }
+
+        void copyTo(PhotoExifJob.PhotoExifJobStatus status) {
+            status.setProcessed(processed.get());
+            status.setUpdated(updated.get());
+            status.setSkipped(skipped.get());
+            status.setFailed(failed.get());
+            status.setCheckpoint(checkpoint);
+        }
+    }
+}
@@ -6,13 +6,10 @@ import java.util.List;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
-import org.springframework.util.Assert;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.core.extension.attachment.Attachment;
 import run.halo.app.extension.ListOptions;
-import run.halo.app.extension.ListResult;
-import run.halo.app.extension.PageRequestImpl;
 import run.halo.app.extension.ReactiveExtensionClient;
 import run.halo.photos.Photo;
 import run.halo.photos.PhotoGroup;
@@ -38,7 +35,7 @@ class PhotoGroupServiceImpl implements PhotoGroupService {
     public Mono<List<PhotoGroup>> listPhotoGroup() {
         return client.listAll(PhotoGroup.class, new ListOptions(), Sort.unsorted())
             .sort(PhotoSortUtils.groupComparator())
-            .concatMap(this::populatePhotos)
+            .doOnNext(PhotoGroupServiceImpl::defaultPhotoCount)
             .collectList();
     }
 
@@ -89,21 +86,14 @@ class PhotoGroupServiceImpl implements PhotoGroupService {
             .then(client.delete(photo));
     }
 
-    private Mono<PhotoGroup> populatePhotos(PhotoGroup photoGroup) {
-        return fetchPhotoCount(photoGroup)
-            .doOnNext(count -> photoGroup.getStatusOrDefault().setPhotoCount(count))
-            .thenReturn(photoGroup);
-    }
-
-    Mono<Integer> fetchPhotoCount(PhotoGroup photoGroup) {
-        Assert.notNull(photoGroup, "The photoGroup must not be null.");
-        String name = photoGroup.getMetadata().getName();
-        var options = ListOptions.builder()
-            .andQuery(equal("spec.groupName", name))
-            .build();
-        return client.listBy(Photo.class, options,
-                PageRequestImpl.of(1, 1, Sort.unsorted()))
-            .map(ListResult::getTotal)
-            .map(Long::intValue);
+    /**
+     * The photo count is maintained by {@code PhotoGroupReconciler}; a group it has not
+     * reached yet reports zero.
+     */
+    private static void defaultPhotoCount(PhotoGroup photoGroup) {
+        var status = photoGroup.getStatusOrDefault();
+        if (status.getPhotoCount() == null) {
+            status.setPhotoCount(0);
+        }
     }
 }
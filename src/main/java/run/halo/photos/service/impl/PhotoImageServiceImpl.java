@@ -0,0 +1,91 @@
+package run.halo.photos.service.impl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+import run.halo.photos.infra.DerivativeCache;
+import run.halo.photos.infra.ImageProcessingScheduler;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.service.PhotoImageService;
+import run.halo.photos.service.ResizedImage;
+
+/**
+ * Implementation of {@link PhotoImageService}.
+ */
+@Component
+@RequiredArgsConstructor
+class PhotoImageServiceImpl implements PhotoImageService {
+
+    private final ReactiveExtensionClient client;
+    private final PhotoSettings photoSettings;
+    private final AttachmentFileResolver attachmentFileResolver;
+    private final ExifExtractor exifExtractor;
+    private final VariantGenerator variantGenerator;
+    private final ImageProcessingScheduler imageProcessingScheduler;
+    private final DerivativeCache derivativeCache;
+
+    @Override
+    public Mono<ResizedImage> resize(String name, int width, ResizedImage.Format format) {
+        var settings = photoSettings.current();
+        if (!settings.variantWidths().contains(width)) {
+            return Mono.error(new ServerWebInputException(
+                "不支持的图片宽度，可选值：" + settings.variantWidths()));
+        }
+        return client.fetch(Photo.class, name)
+            .filter(photo -> !photo.isDeleted() && photo.getSpec() != null)
+            .switchIfEmpty(Mono.error(
+                () -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Photo not found")))
+            // resolving and fingerprinting the original touch the disk
+            .flatMap(photo -> imageProcessingScheduler.fromCallable(() ->
+                    source(photo, width, format, settings.variantQuality()))
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(
+                    HttpStatus.NOT_FOUND, "图片原文件不在本地存储，无法缩放。"))))
+            .flatMap(source -> derivativeCache.get(source.key(), format.extension(),
+                    () -> imageProcessingScheduler.fromCallable(() ->
+                        render(source.file(), width, format, settings)))
+                .map(file -> new ResizedImage(file, source.key(), format)));
+    }
+
+    private Source source(Photo photo, int width, ResizedImage.Format format, int quality)
+        throws IOException {
+        var file = attachmentFileResolver.resolve(photo.getSpec().getUrl()).orElse(null);
+        if (file == null) {
+            return null;
+        }
+        var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        var identity = String.join("|", file.toString(),
+            String.valueOf(attributes.size()),
+            String.valueOf(attributes.lastModifiedTime().toMillis()),
+            String.valueOf(width), format.name(), String.valueOf(quality));
+        return new Source(file,
+            DigestUtils.md5DigestAsHex(identity.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private byte[] render(Path file, int width, ResizedImage.Format format,
+        PhotoSettings.Snapshot settings) throws IOException {
+        var orientation = exifExtractor
+            .extractExif(file, ExifExtractor.headerWindow(settings))
+            .getOrientation();
+        var rendition = variantGenerator.resize(() -> Files.newInputStream(file), orientation,
+            width, format.imageIoName(), settings.variantQuality());
+        if (rendition == null) {
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                "无法解码该图片格式。");
+        }
+        return rendition.bytes();
+    }
+
+    private record Source(Path file, String key) {
+    }
+}
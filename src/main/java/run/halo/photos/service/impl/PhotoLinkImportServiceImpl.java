@@ -0,0 +1,346 @@
+package run.halo.photos.service.impl;
+
+import io.netty.channel.ChannelOption;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.service.LinkImportProgress;
+import run.halo.photos.service.PhotoLinkImportService;
+
+/**
+ * Implementation of {@link PhotoLinkImportService}.
+ *
+ * <p>Links are handled {@link #BATCH_SIZE} at a time, up to {@code concurrency} at once. When
+ * probing, only the leading bytes of each image are requested with a {@code Range} header.
+ * The addresses of every connection, including those to redirect targets, are checked as
+ * they are resolved for that connection and refused unless all of them are public, so that
+ * imports cannot reach the loopback, private or link-local networks of the server; redirects
+ * are followed by hand so that each hop makes a connection of its own. Across all imports,
+ * at most {@link #PER_HOST_LIMIT} requests go to the host actually connected to, and each
+ * request gives up after {@link #DEFAULT_PROBE_TIMEOUT}. A failed probe still creates the
+ * photo, just without dimensions and EXIF, and the caller is only told that the probe failed.
+ */
+@Slf4j
+@Component
+class PhotoLinkImportServiceImpl implements PhotoLinkImportService, DisposableBean {
+
+    static final int BATCH_SIZE = 50;
+    static final int MAX_LINKS = 1000;
+    static final int DEFAULT_CONCURRENCY = 4;
+    static final int MAX_CONCURRENCY = 16;
+    static final int PER_HOST_LIMIT = 2;
+    static final int MAX_REDIRECTS = 5;
+    static final Duration DEFAULT_PROBE_TIMEOUT = Duration.ofSeconds(10);
+    static final Duration MAX_PERMIT_WAIT = Duration.ofSeconds(60);
+    static final String PROBE_FAILED = "无法读取图片信息。";
+
+    private final ReactiveExtensionClient client;
+    private final PhotoSettings photoSettings;
+    private final ExifExtractor exifExtractor;
+    private final ImageDimensionProber imageDimensionProber;
+    private final Duration probeTimeout;
+    private final HostPermits hostPermits;
+    private final CheckedAddressResolverGroup resolverGroup;
+    private final ConnectionProvider connectionProvider;
+    private final HttpClient httpClient;
+
+    @Autowired
+    PhotoLinkImportServiceImpl(ReactiveExtensionClient client, PhotoSettings photoSettings,
+        ExifExtractor exifExtractor, ImageDimensionProber imageDimensionProber) {
+        this(client, photoSettings, exifExtractor, imageDimensionProber,
+            DEFAULT_PROBE_TIMEOUT, PhotoLinkImportServiceImpl::isPublicAddress);
+    }
+
+    PhotoLinkImportServiceImpl(ReactiveExtensionClient client, PhotoSettings photoSettings,
+        ExifExtractor exifExtractor, ImageDimensionProber imageDimensionProber,
+        Duration probeTimeout, Predicate<InetAddress> allowedAddress) {
+        this(client, photoSettings, exifExtractor, imageDimensionProber, probeTimeout,
+            allowedAddress, InetAddress::getAllByName);
+    }
+
+    PhotoLinkImportServiceImpl(ReactiveExtensionClient client, PhotoSettings photoSettings,
+        ExifExtractor exifExtractor, ImageDimensionProber imageDimensionProber,
+        Duration probeTimeout, Predicate<InetAddress> allowedAddress,
+        CheckedAddressResolverGroup.Lookup lookup) {
+        this.client = client;
+        this.photoSettings = photoSettings;
+        this.exifExtractor = exifExtractor;
+        this.imageDimensionProber = imageDimensionProber;
+        this.probeTimeout = probeTimeout;
+        this.hostPermits = new HostPermits(PER_HOST_LIMIT, MAX_PERMIT_WAIT);
+        this.resolverGroup = new CheckedAddressResolverGroup(lookup, allowedAddress);
+        this.connectionProvider = ConnectionProvider.create("photo-link-import");
+        this.httpClient = HttpClient.create(connectionProvider)
+            .resolver(resolverGroup)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) probeTimeout.toMillis())
+            .responseTimeout(probeTimeout)
+            .followRedirect(false);
+    }
+
+    @Override
+    public Flux<LinkImportProgress> importLinks(List<String> links, String groupName,
+        boolean probe, Integer concurrency) {
+        if (concurrency != null && (concurrency < 1 || concurrency > MAX_CONCURRENCY)) {
+            return Flux.error(new ServerWebInputException(
+                "并发数必须介于 1 到 " + MAX_CONCURRENCY + " 之间。"));
+        }
+        var urls = new LinkedHashSet<String>();
+        for (var link : links) {
+            if (StringUtils.isNotBlank(link)) {
+                urls.add(link.strip());
+            }
+        }
+        if (urls.isEmpty()) {
+            return Flux.error(new ServerWebInputException("请提供至少一个图片链接。"));
+        }
+        if (urls.size() > MAX_LINKS) {
+            return Flux.error(new ServerWebInputException(
+                "一次最多导入 " + MAX_LINKS + " 个链接。"));
+        }
+        int total = urls.size();
+        var window = ExifExtractor.headerWindow(photoSettings.current());
+        return Flux.defer(() -> {
+            var completed = new AtomicInteger();
+            var created = new AtomicInteger();
+            return Flux.fromIterable(urls)
+                .buffer(BATCH_SIZE)
+                .concatMap(batch -> Flux.fromIterable(batch)
+                    .flatMapSequential(url -> importLink(url, groupName, probe, window),
+                        concurrency == null ? DEFAULT_CONCURRENCY : concurrency))
+                .map(result -> {
+                    int done = completed.incrementAndGet();
+                    int createdCount = result.outcome() == LinkImportProgress.Outcome.CREATED
+                        ? created.incrementAndGet() : created.get();
+                    return new LinkImportProgress(total, done, createdCount,
+                        done - createdCount, result.url(), result.outcome(),
+                        result.photoName(), result.message());
+                });
+        });
+    }
+
+    /**
+     * Probe (if asked to) and create the photo of one link.
+     */
+    private Mono<Result> importLink(String url, String groupName, boolean probe, int window) {
+        var uri = parse(url);
+        if (uri == null) {
+            return Mono.just(Result.failed(url, "不是有效的 http(s) 链接。"));
+        }
+        var probed = !probe ? Mono.just(Probe.NONE)
+            : fetchHeader(uri, window, 0)
+                .map(header -> inspect(header, window))
+                .onErrorResume(e -> {
+                    // the reason stays in the log: it would tell the caller about hosts the
+                    // server can reach
+                    log.debug("Failed to probe {}: {}", url, e.toString());
+                    return Mono.just(new Probe(null, null, PROBE_FAILED));
+                });
+        return probed.flatMap(result -> client.create(toPhoto(uri, url, groupName, result))
+            .map(photo -> new Result(url, LinkImportProgress.Outcome.CREATED,
+                photo.getMetadata().getName(), result.message()))
+            .onErrorResume(e -> {
+                log.warn("Failed to create photo for {}: {}", url, e.getMessage());
+                return Mono.just(Result.failed(url, "创建图片失败：" + e.getMessage()));
+            }));
+    }
+
+    HostPermits hostPermits() {
+        return hostPermits;
+    }
+
+    /**
+     * Read the leading {@code window} bytes of a remote image, following redirects one hop
+     * at a time so that every target goes through the address check when connected to.
+     */
+    private Mono<HeaderCapture> fetchHeader(URI uri, int window, int redirects) {
+        var host = uri.getHost().toLowerCase(Locale.ROOT);
+        return hostPermits.withPermit(host, () -> exchange(uri, window))
+            .flatMap(hop -> {
+                if (hop.location() == null) {
+                    return Mono.justOrEmpty(hop.header());
+                }
+                if (redirects >= MAX_REDIRECTS) {
+                    return Mono.error(new IOException("Too many redirects"));
+                }
+                var next = parse(uri.resolve(hop.location()).toString());
+                return next == null
+                    ? Mono.error(new IOException("Redirect to an unsupported location"))
+                    : fetchHeader(next, window, redirects + 1);
+            });
+    }
+
+    /**
+     * One request without following redirects. The body is read as it arrives and cancelled
+     * once {@code window} bytes are in, so a server that ignores {@code Range} does not send
+     * the whole file.
+     */
+    private Mono<Hop> exchange(URI uri, int window) {
+        return httpClient
+            .headers(headers -> headers.set(HttpHeaders.RANGE, "bytes=0-" + (window - 1)))
+            .get()
+            .uri(uri)
+            .<Hop>response((response, body) -> {
+                // a body that is not read is dropped along with the connection
+                int status = response.status().code();
+                if (status / 100 == 3) {
+                    var location = response.responseHeaders().get(HttpHeaders.LOCATION);
+                    return location != null
+                        ? Mono.just(new Hop(null, location))
+                        : Mono.error(new IOException("HTTP " + status + " without location"));
+                }
+                if (status != 200 && status != 206) {
+                    return Mono.error(new IOException("HTTP " + status));
+                }
+                var header = new HeaderCapture(window);
+                return body.asByteBuffer()
+                    .doOnNext(buffer -> header.capture(
+                        DefaultDataBufferFactory.sharedInstance.wrap(buffer)))
+                    .takeUntil(buffer -> header.totalBytes() >= window)
+                    .then(Mono.fromSupplier(() -> new Hop(header, null)));
+            })
+            .next()
+            .timeout(probeTimeout);
+    }
+
+    private Probe inspect(HeaderCapture header, int window) {
+        var bytes = header.toByteArray();
+        // a full window may have been cut off by Range, or by us if the server ignored it
+        var exifData = exifExtractor.extractExif(bytes, bytes.length >= window, null);
+        var dimensions = imageDimensionProber.probe(bytes, exifData.getOrientation());
+        return new Probe(exifData, dimensions, dimensions == null ? "无法识别图片尺寸。" : null);
+    }
+
+    /**
+     * Whether an address is on the public internet: not loopback, wildcard, link-local (which
+     * includes cloud metadata endpoints), private, carrier-grade NAT, unique local IPv6 or
+     * multicast.
+     */
+    static boolean isPublicAddress(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isAnyLocalAddress()
+            || address.isLinkLocalAddress() || address.isSiteLocalAddress()
+            || address.isMulticastAddress()) {
+            return false;
+        }
+        var bytes = address.getAddress();
+        if (address instanceof Inet4Address) {
+            // 100.64.0.0/10
+            return !((bytes[0] & 0xff) == 100 && (bytes[1] & 0xc0) == 64);
+        }
+        if (address instanceof Inet6Address) {
+            // fc00::/7
+            return (bytes[0] & 0xfe) != 0xfc;
+        }
+        return true;
+    }
+
+    private Photo toPhoto(URI uri, String url, String groupName, Probe probe) {
+        var photo = new Photo();
+        var metadata = new Metadata();
+        metadata.setGenerateName("photo-");
+        metadata.setAnnotations(new HashMap<>());
+        photo.setMetadata(metadata);
+
+        var spec = new Photo.PhotoSpec();
+        spec.setDisplayName(displayName(uri));
+        spec.setUrl(url);
+        spec.setGroupName(StringUtils.isBlank(groupName) ? null : groupName);
+        spec.setPriority(0);
+        photo.setSpec(spec);
+
+        if (probe.exifData() != null) {
+            photo.setExif(exifExtractor.toPhotoExif(probe.exifData()));
+        }
+        if (probe.dimensions() != null) {
+            var status = new Photo.PhotoStatus();
+            status.setDimensions(probe.dimensions());
+            photo.setStatus(status);
+        }
+        return photo;
+    }
+
+    /**
+     * The last path segment of the link, like the console used to derive.
+     */
+    private static String displayName(URI uri) {
+        var path = StringUtils.defaultString(uri.getRawPath());
+        var fileName = StringUtils.substringAfterLast("/" + path, "/");
+        if (StringUtils.isBlank(fileName)) {
+            return "未命名";
+        }
+        try {
+            return URLDecoder.decode(fileName, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return fileName;
+        }
+    }
+
+    @Nullable
+    private static URI parse(String url) {
+        try {
+            var uri = URI.create(url);
+            var scheme = uri.getScheme();
+            if (("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))
+                && StringUtils.isNotBlank(uri.getHost())) {
+                return uri;
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through
+        }
+        return null;
+    }
+
+    @Override
+    public void destroy() {
+        connectionProvider.dispose();
+        resolverGroup.close();
+    }
+
+    private record Probe(@Nullable ExifExtractor.ExifData exifData,
+                         @Nullable Photo.PhotoDimensions dimensions,
+                         @Nullable String message) {
+
+        static final Probe NONE = new Probe(null, null, null);
+    }
+
+    /**
+     * Outcome of one request: the header that was read, or where it redirects to.
+     */
+    private record Hop(@Nullable HeaderCapture header, @Nullable String location) {
+    }
+
+    private record Result(String url, LinkImportProgress.Outcome outcome,
+                          @Nullable String photoName, @Nullable String message) {
+
+        static Result failed(String url, String message) {
+            return new Result(url, LinkImportProgress.Outcome.FAILED, null, message);
+        }
+    }
+}
@@ -6,14 +6,19 @@ import static run.halo.app.extension.index.query.Queries.isNull;
 import static run.halo.app.extension.index.query.Queries.not;
 import static run.halo.app.extension.router.selector.SelectorUtil.labelAndFieldSelectorToListOptions;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.core.extension.attachment.Attachment;
@@ -21,10 +26,15 @@ import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.ListResult;
 import run.halo.app.extension.PageRequestImpl;
 import run.halo.app.extension.ReactiveExtensionClient;
-import run.halo.app.infra.BackupRootGetter;
 import run.halo.photos.Photo;
+import run.halo.photos.PhotoExifJob;
 import run.halo.photos.PhotoQuery;
+import run.halo.photos.index.PhotoTagIndex;
+import run.halo.photos.infra.ImageProcessingScheduler;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.service.ExifReextractResult;
 import run.halo.photos.service.PhotoService;
+import run.halo.photos.vo.PhotoTagVo;
 
 /**
  * Service implementation for {@link Photo}.
@@ -36,16 +46,36 @@ import run.halo.photos.service.PhotoService;
 @Component
 class PhotoServiceImpl implements PhotoService {
 
+    /**
+     * Records the size and modification time of the source file EXIF was last extracted from.
+     */
+    static final String EXIF_SOURCE_ANNO = "photo.halo.run/exif-source";
+
     private final ReactiveExtensionClient client;
-    private final BackupRootGetter backupRootGetter;
+    private final AttachmentFileResolver attachmentFileResolver;
     private final ExifExtractor exifExtractor;
+    private final PhotoSettings photoSettings;
+    private final ImageProcessingScheduler imageProcessingScheduler;
+    private final PhotoTagIndex tagIndex;
+    private final VariantGenerator variantGenerator;
+    private final ImageDimensionProber imageDimensionProber;
 
     public PhotoServiceImpl(ReactiveExtensionClient client,
-        BackupRootGetter backupRootGetter,
-        ExifExtractor exifExtractor) {
+        AttachmentFileResolver attachmentFileResolver,
+        ExifExtractor exifExtractor,
+        PhotoSettings photoSettings,
+        ImageProcessingScheduler imageProcessingScheduler,
+        PhotoTagIndex tagIndex,
+        VariantGenerator variantGenerator,
+        ImageDimensionProber imageDimensionProber) {
         this.client = client;
-        this.backupRootGetter = backupRootGetter;
+        this.attachmentFileResolver = attachmentFileResolver;
         this.exifExtractor = exifExtractor;
+        this.photoSettings = photoSettings;
+        this.imageProcessingScheduler = imageProcessingScheduler;
+        this.tagIndex = tagIndex;
+        this.variantGenerator = variantGenerator;
+        this.imageDimensionProber = imageDimensionProber;
     }
 
     @Override
@@ -59,6 +89,14 @@ class PhotoServiceImpl implements PhotoService {
 
     @Override
     public Flux<String> listAllTags(PhotoQuery query) {
+        if (isTagIndexScope(query)) {
+            var group = query.isUngrouped() ? ""
+                : StringUtils.defaultIfBlank(query.getGroup(), null);
+            var tag = StringUtils.defaultIfBlank(query.getTag(), null);
+            return tagIndex.whenReady()
+                .thenMany(Flux.defer(() -> Flux.fromIterable(tagIndex.tags(null, group, tag))))
+                .map(PhotoTagVo::getName);
+        }
         var options = ListOptions.builder(toListOptions(query))
             .andQuery(not(isNull("spec.tags")))
             .build();
@@ -71,23 +109,44 @@ class PhotoServiceImpl implements PhotoService {
             .distinct();
     }
 
+    /**
+     * Whether the tags of a query can be read from {@link PhotoTagIndex}, which knows the group
+     * and tags of each photo but not its display name, labels or other fields.
+     */
+    private static boolean isTagIndexScope(PhotoQuery query) {
+        return StringUtils.isBlank(query.getKeyword())
+            && CollectionUtils.isEmpty(query.getLabelSelector())
+            && CollectionUtils.isEmpty(query.getFieldSelector());
+    }
+
     ListOptions toListOptions(PhotoQuery query) {
-        var builder = ListOptions.builder(labelAndFieldSelectorToListOptions(
-            query.getLabelSelector(), query.getFieldSelector())
-        );
+        return toListOptions(query.getLabelSelector(), query.getFieldSelector(),
+            query.getKeyword(), query.isUngrouped(), query.getGroup(), query.getTag());
+    }
 
-        if (StringUtils.isNotBlank(query.getKeyword())) {
-            builder.andQuery(contains("spec.displayName", query.getKeyword()));
+    static ListOptions toListOptions(PhotoExifJob.Selection selection) {
+        return toListOptions(selection.getLabelSelector(), selection.getFieldSelector(),
+            selection.getKeyword(), Boolean.TRUE.equals(selection.getUngrouped()),
+            selection.getGroup(), selection.getTag());
+    }
+
+    private static ListOptions toListOptions(List<String> labelSelector,
+        List<String> fieldSelector, String keyword, boolean ungrouped, String group, String tag) {
+        var builder = ListOptions.builder(
+            labelAndFieldSelectorToListOptions(labelSelector, fieldSelector));
+
+        if (StringUtils.isNotBlank(keyword)) {
+            builder.andQuery(contains("spec.displayName", keyword));
         }
-        if (query.isUngrouped()) {
+        if (ungrouped) {
             // Match photos whose groupName is the empty string. The index function in
             // PhotoPlugin already coerces null to "" so this also matches null values.
             builder.andQuery(equal("spec.groupName", ""));
-        } else if (StringUtils.isNotBlank(query.getGroup())) {
-            builder.andQuery(equal("spec.groupName", query.getGroup()));
+        } else if (StringUtils.isNotBlank(group)) {
+            builder.andQuery(equal("spec.groupName", group));
         }
-        if (StringUtils.isNotBlank(query.getTag())) {
-            builder.andQuery(equal("spec.tags", query.getTag()));
+        if (StringUtils.isNotBlank(tag)) {
+            builder.andQuery(equal("spec.tags", tag));
         }
         return builder.build();
     }
@@ -121,25 +180,85 @@ class PhotoServiceImpl implements PhotoService {
                     .build();
                 return client.listAll(Attachment.class, options, Sort.unsorted())
                     .next()
-                    .flatMap(attachment -> {
-                        try {
-                            var workDir = backupRootGetter.get().getParent();
-                            var filePath = workDir.resolve("attachments" + url);
-                            if (!Files.exists(filePath)) {
-                                log.warn("Attachment file not found for photo {}: {}", name, filePath);
-                                return Mono.just(photo);
-                            }
-                            var bytes = Files.readAllBytes(filePath);
-                            var exifData = exifExtractor.extractExif(bytes);
-                            var exif = exifExtractor.toPhotoExif(exifData);
-                            photo.setExif(exif);
-                            return client.update(photo);
-                        } catch (Exception e) {
-                            log.warn("Failed to re-extract EXIF for photo {}: {}", name, e.getMessage());
-                            return Mono.just(photo);
+                    .flatMap(attachment -> reextractExif(photo, true))
+                    .map(result -> {
+                        if (result.outcome() == ExifReextractResult.Outcome.NO_SOURCE) {
+                            log.warn("Attachment file not found for photo {}: {}", name, url);
                         }
+                        return result.photo();
                     })
                     .switchIfEmpty(Mono.just(photo));
             });
     }
+
+    @Override
+    public Mono<ExifReextractResult> reextractExif(Photo photo, boolean force) {
+        var url = photo.getSpec() == null ? null : photo.getSpec().getUrl();
+        if (StringUtils.isBlank(url)) {
+            return Mono.just(new ExifReextractResult(photo, ExifReextractResult.Outcome.NO_SOURCE));
+        }
+        var annotations = photo.getMetadata().getAnnotations();
+        var previousSource = annotations == null ? null : annotations.get(EXIF_SOURCE_ANNO);
+        var window = ExifExtractor.headerWindow(photoSettings.current());
+        // File access and parsing are blocking; keep them off the event loop.
+        // Only the file header is read unless the container needs more.
+        return imageProcessingScheduler.fromCallable(() -> {
+            var filePath = attachmentFileResolver.resolve(url);
+            if (filePath.isEmpty()) {
+                return new Extraction(null, null, null, null);
+            }
+            var source = sourceFingerprint(filePath.get());
+            if (!force && source.equals(previousSource)) {
+                return new Extraction(source, null, null, null);
+            }
+            var exifData = exifExtractor.extractExif(filePath.get(), window);
+            var blurHash = variantGenerator.blurHash(() -> Files.newInputStream(filePath.get()),
+                exifData.getOrientation());
+            var dimensions = imageDimensionProber.probe(filePath.get(), exifData.getOrientation());
+            return new Extraction(source, exifData, blurHash, dimensions);
+        })
+            .flatMap(extraction -> {
+                if (extraction.source() == null) {
+                    return Mono.just(
+                        new ExifReextractResult(photo, ExifReextractResult.Outcome.NO_SOURCE));
+                }
+                if (extraction.exifData() == null) {
+                    return Mono.just(
+                        new ExifReextractResult(photo, ExifReextractResult.Outcome.UNCHANGED));
+                }
+                photo.setExif(exifExtractor.toPhotoExif(extraction.exifData()));
+                if (photo.getMetadata().getAnnotations() == null) {
+                    photo.getMetadata().setAnnotations(new HashMap<>());
+                }
+                photo.getMetadata().getAnnotations().put(EXIF_SOURCE_ANNO, extraction.source());
+                if (extraction.blurHash() != null || extraction.dimensions() != null) {
+                    if (photo.getStatus() == null) {
+                        photo.setStatus(new Photo.PhotoStatus());
+                    }
+                    if (extraction.blurHash() != null) {
+                        photo.getStatus().setBlurHash(extraction.blurHash());
+                    }
+                    if (extraction.dimensions() != null) {
+                        photo.getStatus().setDimensions(extraction.dimensions());
+                    }
+                }
+                return client.update(photo).map(updated ->
+                    new ExifReextractResult(updated, ExifReextractResult.Outcome.UPDATED));
+            });
+    }
+
+    /**
+     * Identify a version of the source file by size and modification time, cheap enough to
+     * check for every photo of a bulk job.
+     */
+    private static String sourceFingerprint(Path file) throws IOException {
+        var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return attributes.size() + "-" + attributes.lastModifiedTime().toMillis();
+    }
+
+    private record Extraction(@Nullable String source,
+                              @Nullable ExifExtractor.ExifData exifData,
+                              @Nullable String blurHash,
+                              @Nullable Photo.PhotoDimensions dimensions) {
+    }
 }
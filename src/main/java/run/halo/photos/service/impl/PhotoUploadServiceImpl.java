@@ -1,23 +1,30 @@
 package run.halo.photos.service.impl;
 
-import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.core.extension.attachment.Attachment;
 import run.halo.app.core.extension.service.AttachmentService;
 import run.halo.app.extension.ReactiveExtensionClient;
-import run.halo.app.plugin.ReactiveSettingFetcher;
 import run.halo.photos.Photo;
+import run.halo.photos.infra.ImageProcessingScheduler;
+import run.halo.photos.infra.PhotoSettings;
 import run.halo.photos.service.PhotoUploadService;
 
 /**
@@ -31,12 +38,16 @@ import run.halo.photos.service.PhotoUploadService;
 @RequiredArgsConstructor
 public class PhotoUploadServiceImpl implements PhotoUploadService {
 
-    private static final long MAX_FILE_SIZE = 50L * 1024 * 1024;
+    static final long MAX_FILE_SIZE = 50L * 1024 * 1024;
 
     private final AttachmentService attachmentService;
     private final ReactiveExtensionClient client;
-    private final ReactiveSettingFetcher settingFetcher;
+    private final PhotoSettings photoSettings;
     private final ExifExtractor exifExtractor;
+    private final AttachmentFileResolver attachmentFileResolver;
+    private final ImageProcessingScheduler imageProcessingScheduler;
+    private final VariantGenerator variantGenerator;
+    private final ImageDimensionProber imageDimensionProber;
 
     @Override
     public Mono<Photo> upload(FilePart filePart, String groupName) {
@@ -48,50 +59,126 @@ public class PhotoUploadServiceImpl implements PhotoUploadService {
         if (contentLength > 0 && contentLength > MAX_FILE_SIZE) {
             return Mono.error(new ServerWebInputException("图片大小超过 50MB 限制。"));
         }
-        return readFileContent(filePart)
-            .flatMap(fileContent -> {
-                var filename = filePart.filename();
-                var exifData = exifExtractor.extractExif(fileContent);
-                var attachmentConfig = fetchAttachmentConfig();
-                return attachmentConfig.flatMap(config -> {
-                    if (StringUtils.isBlank(config.policyName())) {
-                        return Mono.error(() ->
-                            new ServerWebInputException("附件存储策略未配置，请先在插件设置中配置。"));
-                    }
-                    return uploadAttachment(config.policyName(), config.groupName(),
-                        filename, fileContent, mediaType)
-                        .flatMap(attachment -> createPhoto(attachment, groupName, filename, exifData));
-                });
-            });
+        var filename = filePart.filename();
+        var settings = photoSettings.current();
+        if (StringUtils.isBlank(settings.policyName())) {
+            return Mono.error(() ->
+                new ServerWebInputException("附件存储策略未配置，请先在插件设置中配置。"));
+        }
+        // Stream the upload straight through to the attachment service; only the leading
+        // bytes that hold the image metadata are copied aside for EXIF parsing.
+        // A fresh capture per subscription, so that a resubscribed (retried) upload does not
+        // append its bytes to those of the previous pass.
+        var window = ExifExtractor.headerWindow(settings);
+        var header = new AtomicReference<>(new HeaderCapture(window));
+        var content = Flux.defer(() -> {
+            var capture = new HeaderCapture(window);
+            header.set(capture);
+            return limitSize(filePart.content()).doOnNext(capture::capture);
+        });
+        return attachmentService.upload(settings.policyName(), settings.groupName(), filename,
+                content, mediaType)
+            .flatMap(attachment -> imageProcessingScheduler
+                .fromCallable(() -> inspect(header.get(), attachment))
+                .flatMap(inspection -> createDerivatives(attachment, filename,
+                        inspection.exifData(), settings)
+                    .flatMap(status -> {
+                        status.setDimensions(inspection.dimensions());
+                        return createPhoto(attachment, groupName, filename,
+                            inspection.exifData(), status);
+                    })));
     }
 
-    private Mono<byte[]> readFileContent(FilePart filePart) {
-        return DataBufferUtils.join(filePart.content())
-            .map(dataBuffer -> {
-                try {
-                    byte[] bytes = new byte[dataBuffer.readableByteCount()];
-                    dataBuffer.read(bytes);
-                    return bytes;
-                } finally {
+    /**
+     * Enforce {@link #MAX_FILE_SIZE} while bytes arrive instead of after the whole file has been
+     * received, so oversized uploads are rejected without ever being fully read.
+     */
+    static Flux<DataBuffer> limitSize(Flux<DataBuffer> content) {
+        return Flux.defer(() -> {
+            var received = new AtomicLong();
+            return content.handle((dataBuffer, sink) -> {
+                if (received.addAndGet(dataBuffer.readableByteCount()) > MAX_FILE_SIZE) {
                     DataBufferUtils.release(dataBuffer);
+                    sink.error(new ServerWebInputException("图片大小超过 50MB 限制。"));
+                    return;
                 }
-            })
-            .flatMap(bytes -> {
-                if (bytes.length > MAX_FILE_SIZE) {
-                    return Mono.error(new ServerWebInputException("图片大小超过 50MB 限制。"));
-                }
-                return Mono.just(bytes);
+                sink.next(dataBuffer);
             });
+        });
+    }
+
+    /**
+     * Parse EXIF and probe the dimensions from the captured header; if the container keeps
+     * either beyond the window, fall back to the stored file when the attachment lives on
+     * local disk.
+     */
+    private Inspection inspect(HeaderCapture header, Attachment attachment) {
+        var permalink = attachment.getStatus() == null ? null
+            : attachment.getStatus().getPermalink();
+        var file = attachmentFileResolver.resolve(permalink);
+        var bytes = header.toByteArray();
+        var exifData = exifExtractor.extractExif(bytes, header.isTruncated(),
+            file.<ExifExtractor.ContentSource>map(path -> () -> Files.newInputStream(path))
+                .orElse(null));
+        var dimensions = imageDimensionProber.probe(bytes, exifData.getOrientation());
+        if (dimensions == null && header.isTruncated() && file.isPresent()) {
+            dimensions = imageDimensionProber.probe(file.get(), exifData.getOrientation());
+        }
+        return new Inspection(exifData, dimensions);
     }
 
-    private Mono<Attachment> uploadAttachment(String policyName, String attachmentGroupName,
-        String filename, byte[] content, MediaType mediaType) {
-        var dataBufferFlux = DataBufferUtils.readInputStream(
-            () -> new ByteArrayInputStream(content),
-            new org.springframework.core.io.buffer.DefaultDataBufferFactory(),
-            8192);
-        return attachmentService.upload(policyName, attachmentGroupName, filename, dataBufferFlux,
-            mediaType);
+    /**
+     * Render the BlurHash placeholder and the configured JPEG derivatives from the stored
+     * original in one decode, and upload each derivative as an attachment under the same
+     * policy and group. This is best effort: an original that is not on local disk or cannot
+     * be decoded leaves the status empty, and a failed derivative upload only drops the
+     * variants, instead of failing the upload.
+     */
+    private Mono<Photo.PhotoStatus> createDerivatives(Attachment attachment, String filename,
+        ExifExtractor.ExifData exifData, PhotoSettings.Snapshot settings) {
+        var file = attachmentFileResolver.resolve(attachment.getStatus() == null ? null
+            : attachment.getStatus().getPermalink());
+        if (file.isEmpty()) {
+            return Mono.just(new Photo.PhotoStatus());
+        }
+        var path = file.get();
+        var baseName = StringUtils.defaultIfBlank(
+            StringUtils.substringBeforeLast(filename, "."), "photo");
+        return imageProcessingScheduler
+            .fromCallable(() -> variantGenerator.render(() -> Files.newInputStream(path),
+                exifData.getOrientation(), settings.variantWidths(), settings.variantQuality()))
+            .flatMap(derivatives -> Flux.fromIterable(derivatives.variants())
+                .concatMap(rendition -> uploadVariant(rendition, baseName, settings))
+                .collectList()
+                .onErrorResume(e -> {
+                    log.warn("Failed to upload variants of {}: {}", filename, e.getMessage());
+                    return Mono.just(List.of());
+                })
+                .map(variants -> {
+                    var status = new Photo.PhotoStatus();
+                    status.setVariants(variants);
+                    status.setBlurHash(derivatives.blurHash());
+                    return status;
+                }))
+            .onErrorResume(e -> {
+                log.warn("Failed to render derivatives of {}: {}", filename, e.getMessage());
+                return Mono.just(new Photo.PhotoStatus());
+            });
+    }
+
+    private Mono<Photo.PhotoVariant> uploadVariant(VariantGenerator.Rendition rendition,
+        String baseName, PhotoSettings.Snapshot settings) {
+        return attachmentService.upload(settings.policyName(), settings.groupName(),
+                baseName + "-" + rendition.width() + "w.jpg",
+                Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(rendition.bytes())),
+                MediaType.IMAGE_JPEG)
+            .map(attachment -> {
+                var variant = new Photo.PhotoVariant();
+                variant.setWidth(rendition.width());
+                variant.setHeight(rendition.height());
+                variant.setUrl(attachment.getStatus().getPermalink());
+                return variant;
+            });
     }
 
     private static MediaType resolveMediaType(FilePart filePart) {
@@ -112,7 +199,7 @@ public class PhotoUploadServiceImpl implements PhotoUploadService {
     }
 
     private Mono<Photo> createPhoto(Attachment attachment, String groupName, String filename,
-        ExifExtractor.ExifData exifData) {
+        ExifExtractor.ExifData exifData, Photo.PhotoStatus status) {
         var photo = new Photo();
 
         var metadata = new run.halo.app.extension.Metadata();
@@ -131,21 +218,15 @@ public class PhotoUploadServiceImpl implements PhotoUploadService {
             photo.setExif(exif);
         }
 
-        return client.create(photo);
-    }
+        if (status.getBlurHash() != null || status.getDimensions() != null
+            || status.getVariants() != null && !status.getVariants().isEmpty()) {
+            photo.setStatus(status);
+        }
 
-    private Mono<AttachmentConfig> fetchAttachmentConfig() {
-        return settingFetcher.getSettingValue("base")
-            .map(setting -> {
-                var policyName = setting.has("policyName")
-                    ? setting.get("policyName").asText("") : "";
-                var groupName = setting.has("groupName")
-                    ? setting.get("groupName").asText("") : "";
-                return new AttachmentConfig(policyName, groupName);
-            })
-            .switchIfEmpty(Mono.just(new AttachmentConfig("", "")));
+        return client.create(photo);
     }
 
-    private record AttachmentConfig(String policyName, String groupName) {
+    private record Inspection(ExifExtractor.ExifData exifData,
+                              @Nullable Photo.PhotoDimensions dimensions) {
     }
 }
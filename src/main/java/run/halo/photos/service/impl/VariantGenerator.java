@@ -0,0 +1,279 @@
+package run.halo.photos.service.impl;
+
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renders downscaled derivatives of an image with the JDK's {@link ImageIO}, so themes and
+ * the console can load a small file instead of the original.
+ *
+ * <p>The source is decoded with subsampling close to the largest requested width rather than
+ * at full resolution, which keeps memory bounded for large photos. Formats without a JDK
+ * reader (WebP, HEIC) produce no derivatives.
+ */
+@Slf4j
+@Component
+public class VariantGenerator {
+
+    public static final int DEFAULT_QUALITY = 80;
+
+    /**
+     * Width of the sample the BlurHash is computed from; the hash only keeps a handful of
+     * components, so more pixels add cost without changing it.
+     */
+    private static final int BLUR_HASH_WIDTH = 32;
+
+    /**
+     * Render one JPEG per width that is narrower than the displayed image, plus a BlurHash
+     * placeholder, from a single decode.
+     *
+     * @param source      opens the original image
+     * @param orientation EXIF orientation applied before scaling
+     * @param widths      target widths in pixels; may be empty to only compute the BlurHash
+     * @param quality     JPEG quality in percent; values outside 1-100 use
+     *                    {@link #DEFAULT_QUALITY}
+     * @return renditions in ascending width, empty if the image is not wider than any target;
+     * {@link Derivatives#NONE} if the image cannot be decoded
+     */
+    public Derivatives render(ExifExtractor.ContentSource source, int orientation,
+        List<Integer> widths, int quality) throws IOException {
+        var image = decode(source, orientation,
+            widths.stream().max(Integer::compare).orElse(BLUR_HASH_WIDTH), false);
+        if (image == null) {
+            return Derivatives.NONE;
+        }
+        var targets = widths.stream()
+            .filter(width -> width > 0 && width < image.getWidth())
+            .distinct()
+            .sorted(Comparator.reverseOrder())
+            .toList();
+        var renditions = new ArrayList<Rendition>(targets.size());
+        var current = image;
+        for (int width : targets) {
+            // each rendition is scaled from the next larger one, not the original
+            current = scale(current, width, heightFor(image, width));
+            renditions.add(new Rendition(current.getWidth(), current.getHeight(),
+                encode(current, "jpeg", quality)));
+        }
+        return new Derivatives(renditions.reversed(), blurHash(current));
+    }
+
+    /**
+     * Compute only the BlurHash placeholder of an image.
+     *
+     * @return the BlurHash, or {@code null} if the image cannot be decoded
+     */
+    @Nullable
+    public String blurHash(ExifExtractor.ContentSource source, int orientation)
+        throws IOException {
+        var image = decode(source, orientation, BLUR_HASH_WIDTH, false);
+        return image == null ? null : blurHash(image);
+    }
+
+    private static String blurHash(BufferedImage image) {
+        int width = Math.min(BLUR_HASH_WIDTH, image.getWidth());
+        return BlurHash.encode(scale(image, width, heightFor(image, width)));
+    }
+
+    /**
+     * Render a single derivative, never wider than the displayed image.
+     *
+     * @param source      opens the original image
+     * @param orientation EXIF orientation applied before scaling
+     * @param width       target width in pixels
+     * @param format      ImageIO format name, {@code jpeg} or {@code png}; PNG keeps
+     *                    transparency
+     * @param quality     JPEG quality in percent; ignored for PNG
+     * @return the rendition, or {@code null} if the image cannot be decoded
+     */
+    @Nullable
+    public Rendition resize(ExifExtractor.ContentSource source, int orientation, int width,
+        String format, int quality) throws IOException {
+        boolean png = "png".equals(format);
+        var image = decode(source, orientation, width, png);
+        if (image == null) {
+            return null;
+        }
+        int target = Math.min(width, image.getWidth());
+        var resized = scale(image, target, heightFor(image, target));
+        return new Rendition(resized.getWidth(), resized.getHeight(),
+            encode(resized, png ? "png" : "jpeg", quality));
+    }
+
+    private static int heightFor(BufferedImage image, int width) {
+        return Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+    }
+
+    /**
+     * Decode the image upright, subsampled so that it stays at least twice as wide as
+     * {@code maxWidth} where the original allows.
+     */
+    @Nullable
+    private static BufferedImage decode(ExifExtractor.ContentSource source, int orientation,
+        int maxWidth, boolean keepAlpha) throws IOException {
+        try (var inputStream = source.open();
+             var imageStream = ImageIO.createImageInputStream(inputStream)) {
+            if (imageStream == null) {
+                return null;
+            }
+            var readers = ImageIO.getImageReaders(imageStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            var reader = readers.next();
+            try {
+                reader.setInput(imageStream, true, true);
+                boolean sideways = orientation >= 5;
+                int displayWidth = sideways ? reader.getHeight(0) : reader.getWidth(0);
+                // keep at least twice the target width so the final scale can still smooth
+                var param = reader.getDefaultReadParam();
+                int step = maxWidth > 0 ? Math.max(1, displayWidth / (maxWidth * 2)) : 1;
+                param.setSourceSubsampling(step, step, 0, 0);
+                var image = reader.read(0, param);
+                return orient(keepAlpha && image.getColorModel().hasAlpha()
+                    ? toType(image, BufferedImage.TYPE_INT_ARGB)
+                    : toRgb(image), orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * JPEG has no alpha channel; flatten transparent pixels onto white.
+     */
+    private static BufferedImage toRgb(BufferedImage image) {
+        return toType(image, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private static BufferedImage toType(BufferedImage image, int type) {
+        if (image.getType() == type) {
+            return image;
+        }
+        var converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        var graphics = converted.createGraphics();
+        try {
+            graphics.drawImage(image, 0, 0,
+                type == BufferedImage.TYPE_INT_RGB ? Color.WHITE : null, null);
+        } finally {
+            graphics.dispose();
+        }
+        return converted;
+    }
+
+    /**
+     * Turn the pixels upright: orientations 3, 6 and 8 are rotations, and 2, 4, 5 and 7 add a
+     * horizontal flip after the rotation.
+     */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        int quarterTurns = switch (orientation) {
+            case 3, 4 -> 2;
+            case 5, 6 -> 1;
+            case 7, 8 -> 3;
+            default -> 0;
+        };
+        boolean flip = orientation == 2 || orientation == 4 || orientation == 5
+            || orientation == 7;
+        if (quarterTurns == 0 && !flip) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int outWidth = quarterTurns % 2 == 0 ? width : height;
+        int outHeight = quarterTurns % 2 == 0 ? height : width;
+        var transform = new AffineTransform();
+        if (flip) {
+            transform.translate(outWidth, 0);
+            transform.scale(-1, 1);
+        }
+        switch (quarterTurns) {
+            case 1 -> transform.translate(height, 0);
+            case 2 -> transform.translate(width, height);
+            case 3 -> transform.translate(0, width);
+            default -> {
+            }
+        }
+        transform.quadrantRotate(quarterTurns);
+        var oriented = new BufferedImage(outWidth, outHeight, image.getType());
+        var graphics = oriented.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+
+    /**
+     * Downscale in halving steps so bilinear filtering does not skip source pixels.
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        var current = image;
+        while (current.getWidth() > width || current.getHeight() > height) {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(height, current.getHeight() / 2);
+            var next = new BufferedImage(stepWidth, stepHeight, current.getType());
+            var graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format, int quality)
+        throws IOException {
+        var writer = ImageIO.getImageWritersByFormatName(format).next();
+        var output = new ByteArrayOutputStream();
+        try (var imageStream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageStream);
+            var param = writer.getDefaultWriteParam();
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(
+                    (quality >= 1 && quality <= 100 ? quality : DEFAULT_QUALITY) / 100f);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Everything rendered from one decode of the original.
+     *
+     * @param variants renditions in ascending width
+     * @param blurHash BlurHash placeholder, {@code null} if the image could not be decoded
+     */
+    public record Derivatives(List<Rendition> variants, @Nullable String blurHash) {
+
+        public static final Derivatives NONE = new Derivatives(List.of(), null);
+    }
+
+    /**
+     * An encoded derivative.
+     */
+    public record Rendition(int width, int height, byte[] bytes) {
+    }
+}
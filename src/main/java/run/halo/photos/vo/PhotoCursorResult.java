@@ -0,0 +1,24 @@
+package run.halo.photos.vo;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A page of photos fetched by keyset cursor.
+ */
+@Value
+@Builder
+public class PhotoCursorResult {
+
+    List<PhotoVo> items;
+
+    int size;
+
+    boolean hasNext;
+
+    /**
+     * Cursor of the next page, or {@code null} on the last page.
+     */
+    String nextCursor;
+}
@@ -1,5 +1,6 @@
 package run.halo.photos.vo;
 
+import java.util.List;
 import lombok.Builder;
 import lombok.Value;
 import run.halo.app.extension.MetadataOperator;
@@ -19,6 +20,21 @@ public class PhotoVo implements ExtensionVoOperator {
 
     Photo.PhotoExif exif;
 
+    /**
+     * Downscaled derivatives in ascending width, for {@code srcset}; empty if none.
+     */
+    List<Photo.PhotoVariant> variants;
+
+    /**
+     * BlurHash placeholder to paint while the image loads; {@code null} if not computed.
+     */
+    String blurHash;
+
+    /**
+     * Display dimensions of the image, with EXIF orientation applied; {@code null} if unknown.
+     */
+    Photo.PhotoDimensions dimensions;
+
     String permalink;
 
     public static PhotoVo from(Photo photo) {
@@ -26,6 +42,10 @@ public class PhotoVo implements ExtensionVoOperator {
             .metadata(photo.getMetadata())
             .spec(photo.getSpec())
             .exif(cloneExifWithoutGps(photo.getExif()))
+            .variants(photo.getStatus() == null || photo.getStatus().getVariants() == null
+                ? List.of() : List.copyOf(photo.getStatus().getVariants()))
+            .blurHash(photo.getStatus() == null ? null : photo.getStatus().getBlurHash())
+            .dimensions(photo.getStatus() == null ? null : photo.getStatus().getDimensions())
             .permalink("/photos/" + photo.getMetadata().getName())
             .build();
     }
@@ -0,0 +1,125 @@
+package run.halo.photos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import run.halo.app.extension.Metadata;
+
+/**
+ * Compares the former ISO-string {@code effectiveTime} index values with the epoch-millisecond
+ * ones on 100k photos: heap held by the values, the time to sort them, and how many adjacent
+ * pairs the string order gets wrong. Heap is estimated for a 64-bit JVM with compressed oops
+ * and compact strings, since GC-based measurements are too noisy at this size. Run with
+ * {@code PHOTOS_BENCHMARK=true ./gradlew test --tests '*EffectiveTimeIndexBenchmark'}.
+ */
+@EnabledIfEnvironmentVariable(named = "PHOTOS_BENCHMARK", matches = "true")
+class EffectiveTimeIndexBenchmark {
+
+    private static final int PHOTOS = 100_000;
+    private static final int ROUNDS = 20;
+
+    @Test
+    void compareIndexEncodings() {
+        var photos = photos();
+
+        Result iso = null;
+        Result millis = null;
+        // the first pass warms up the JIT
+        for (int pass = 0; pass < 2; pass++) {
+            iso = measure("iso string", photos, EffectiveTimeIndexBenchmark::isoIndex,
+                Comparator.<String>naturalOrder(),
+                value -> align(24) + align(16 + value.length()));
+            millis = measure("epoch millis", photos, PhotoSortUtils::computeEffectiveTimeIndex,
+                Comparator.<Long>naturalOrder(), value -> align(16));
+        }
+
+        assertThat(millis.misordered()).isZero();
+        assertThat(iso.misordered()).isPositive();
+    }
+
+    private static <T> Result measure(String label, List<Photo> photos,
+        Function<Photo, T> indexFunc, Comparator<T> order, ToLongFunction<T> sizeOf) {
+        var values = new ArrayList<T>(PHOTOS);
+        photos.forEach(photo -> values.add(indexFunc.apply(photo)));
+        long retained = values.stream().mapToLong(sizeOf).sum();
+
+        long elapsed = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            var copy = new ArrayList<>(values);
+            long start = System.nanoTime();
+            copy.sort(order);
+            elapsed += System.nanoTime() - start;
+        }
+
+        // pair every value with the photo time and count inversions after sorting
+        var indexes = new ArrayList<Integer>(PHOTOS);
+        for (int i = 0; i < PHOTOS; i++) {
+            indexes.add(i);
+        }
+        indexes.sort(Comparator.comparing(values::get, order));
+        long misordered = 0;
+        for (int i = 1; i < PHOTOS; i++) {
+            var previous = PhotoSortUtils.effectiveTime(photos.get(indexes.get(i - 1)));
+            var current = PhotoSortUtils.effectiveTime(photos.get(indexes.get(i)));
+            if (previous.isAfter(current)) {
+                misordered++;
+            }
+        }
+
+        System.out.printf("%-12s retained=%,d bytes (%.1f per photo) sort=%.2f ms "
+                + "misordered=%,d%n", label, retained, (double) retained / PHOTOS,
+            elapsed / 1e6 / ROUNDS, misordered);
+        assertThat(values).hasSize(PHOTOS);
+        return new Result(retained, misordered);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) / 8 * 8;
+    }
+
+    private static String isoIndex(Photo photo) {
+        var time = PhotoSortUtils.effectiveTime(photo);
+        return time == null ? "" : time.toString();
+    }
+
+    private static List<Photo> photos() {
+        var random = new Random(42);
+        var start = Instant.parse("2015-01-01T00:00:00Z").toEpochMilli();
+        var photos = new ArrayList<Photo>(PHOTOS);
+        long seconds = start / 1000;
+        for (int i = 0; i < PHOTOS; i++) {
+            var metadata = new Metadata();
+            metadata.setName("photo-" + i);
+            metadata.setCreationTimestamp(Instant.ofEpochMilli(
+                start + (long) (random.nextDouble() * 10 * 365 * 86_400_000L)));
+            var exif = new Photo.PhotoExif();
+            if (random.nextInt(10) < 7) {
+                // EXIF shoot times come in whole seconds or with sub-second digits, and burst
+                // shots share the second of the previous photo
+                if (random.nextInt(5) > 0) {
+                    seconds = start / 1000 + (long) (random.nextDouble() * 10 * 365 * 86_400);
+                }
+                exif.setDateTimeOriginal(random.nextBoolean()
+                    ? Instant.ofEpochSecond(seconds)
+                    : Instant.ofEpochMilli(seconds * 1000 + 1 + random.nextInt(999)));
+            }
+            var photo = new Photo();
+            photo.setMetadata(metadata);
+            photo.setSpec(new Photo.PhotoSpec());
+            photo.setExif(exif);
+            photos.add(photo);
+        }
+        return photos;
+    }
+
+    private record Result(long retained, long misordered) {
+    }
+}
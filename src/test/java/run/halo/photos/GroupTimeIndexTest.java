@@ -0,0 +1,78 @@
+package run.halo.photos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import run.halo.app.extension.Metadata;
+
+class GroupTimeIndexTest {
+
+    @Test
+    void keyOrderShouldMatchDefaultPhotoOrder() {
+        var random = new Random(7);
+        var photos = new ArrayList<Photo>();
+        for (int i = 0; i < 500; i++) {
+            var created = Instant.ofEpochSecond(1_700_000_000L + random.nextInt(1000),
+                random.nextInt(3) * 250_000_000);
+            var shot = random.nextBoolean() ? null
+                : Instant.ofEpochMilli(1_600_000_000_000L + random.nextInt(1000) * 500L);
+            photos.add(photo("p" + random.nextInt(100), "trips", created, shot));
+        }
+        photos.add(photo("no-time", "trips", null, null));
+        photos.add(photo("pre-epoch", "trips", Instant.parse("2026-01-01T00:00:00Z"),
+            Instant.parse("1969-07-20T20:17:40Z")));
+
+        var byKey = new ArrayList<>(photos);
+        byKey.sort(Comparator.comparing(GroupTimeIndex::key));
+        var byOrder = new ArrayList<>(photos);
+        byOrder.sort(PhotoSortUtils.effectiveTimeComparator(false));
+
+        assertThat(byKey).containsExactlyElementsOf(byOrder);
+        assertThat(byKey.getLast().getMetadata().getName()).isEqualTo("no-time");
+    }
+
+    @Test
+    void groupRangeShouldNotOverlapOtherGroups() {
+        var time = Instant.parse("2026-05-01T00:00:00Z");
+        var lower = GroupTimeIndex.lowerBound("a");
+        var upper = GroupTimeIndex.upperBound("a");
+
+        for (var other : List.of("", "a-b", "a.b", "ab", "a0", "b")) {
+            var key = GroupTimeIndex.key(photo("x", other, time, time));
+            assertThat(key.compareTo(lower) > 0 && key.compareTo(upper) < 0)
+                .as("group %s", other)
+                .isFalse();
+        }
+        var key = GroupTimeIndex.key(photo("x", "a", time, time));
+        assertThat(key).isGreaterThan(lower).isLessThan(upper);
+    }
+
+    @Test
+    void ungroupedPhotosShouldUseEmptyGroup() {
+        var time = Instant.parse("2026-05-01T00:00:00Z");
+        var key = GroupTimeIndex.key(photo("x", null, time, null));
+
+        assertThat(key).isGreaterThan(GroupTimeIndex.lowerBound(""))
+            .isLessThan(GroupTimeIndex.upperBound(""));
+    }
+
+    private static Photo photo(String name, String group, Instant created, Instant shot) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        metadata.setCreationTimestamp(created);
+        var spec = new Photo.PhotoSpec();
+        spec.setGroupName(group);
+        var exif = new Photo.PhotoExif();
+        exif.setDateTimeOriginal(shot);
+        var photo = new Photo();
+        photo.setMetadata(metadata);
+        photo.setSpec(spec);
+        photo.setExif(exif);
+        return photo;
+    }
+}
@@ -0,0 +1,69 @@
+package run.halo.photos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ServerWebInputException;
+import run.halo.app.extension.Metadata;
+
+class PhotoCursorTest {
+
+    @Test
+    void shouldRoundTripThroughToken() {
+        var cursor = new PhotoCursor(Instant.parse("2026-05-01T00:00:00Z").toEpochMilli(),
+            Instant.parse("2026-05-02T03:04:05.678Z"), "photo-abc");
+
+        var decoded = PhotoCursor.decode(cursor.encode());
+
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(cursor.encode()).doesNotContain("photo-abc");
+    }
+
+    @Test
+    void shouldUseEffectiveTimeIndexOfPhoto() {
+        var metadata = new Metadata();
+        metadata.setName("a");
+        metadata.setCreationTimestamp(Instant.parse("2026-05-02T00:00:00Z"));
+        var exif = new Photo.PhotoExif();
+        exif.setDateTimeOriginal(Instant.parse("2020-01-01T00:00:00Z"));
+        var photo = new Photo();
+        photo.setMetadata(metadata);
+        photo.setExif(exif);
+
+        var cursor = PhotoCursor.of(photo);
+
+        assertThat(cursor.effectiveTime())
+            .isEqualTo(Instant.parse("2020-01-01T00:00:00Z").toEpochMilli());
+        assertThat(cursor.creationTimestamp()).isEqualTo(Instant.parse("2026-05-02T00:00:00Z"));
+        assertThat(cursor.name()).isEqualTo("a");
+    }
+
+    @Test
+    void legacyIsoTokenShouldStillDecode() {
+        var legacy = java.util.Base64.getUrlEncoder()
+            .encodeToString("2026-05-01T00:00:00.5Z\n2026-05-02T00:00:00Z\na".getBytes());
+        var noTime = java.util.Base64.getUrlEncoder()
+            .encodeToString("\n\nb".getBytes());
+
+        assertThat(PhotoCursor.decode(legacy).effectiveTime())
+            .isEqualTo(Instant.parse("2026-05-01T00:00:00.500Z").toEpochMilli());
+        assertThat(PhotoCursor.decode(noTime).effectiveTime())
+            .isEqualTo(PhotoSortUtils.NO_TIME);
+    }
+
+    @Test
+    void malformedTokenShouldBeRejected() {
+        assertThatThrownBy(() -> PhotoCursor.decode("not base64!"))
+            .isInstanceOf(ServerWebInputException.class);
+        var missingName = java.util.Base64.getUrlEncoder()
+            .encodeToString("2026-05-01T00:00:00Z\n\n".getBytes());
+        assertThatThrownBy(() -> PhotoCursor.decode(missingName))
+            .isInstanceOf(ServerWebInputException.class);
+        var badTime = java.util.Base64.getUrlEncoder()
+            .encodeToString("x\nyesterday\na".getBytes());
+        assertThatThrownBy(() -> PhotoCursor.decode(badTime))
+            .isInstanceOf(ServerWebInputException.class);
+    }
+}
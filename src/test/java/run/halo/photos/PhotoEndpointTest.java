@@ -1,20 +1,29 @@
 package run.halo.photos;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Instant;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.extension.ListResult;
 import run.halo.app.extension.Metadata;
+import run.halo.photos.service.LinkImportProgress;
+import run.halo.photos.service.PhotoExifJobService;
+import run.halo.photos.service.PhotoLinkImportService;
 import run.halo.photos.service.PhotoService;
 import run.halo.photos.service.PhotoUploadService;
 
@@ -22,12 +31,16 @@ class PhotoEndpointTest {
 
     private final PhotoService photoService = mock(PhotoService.class);
     private final PhotoUploadService photoUploadService = mock(PhotoUploadService.class);
+    private final PhotoExifJobService photoExifJobService = mock(PhotoExifJobService.class);
+    private final PhotoLinkImportService photoLinkImportService =
+        mock(PhotoLinkImportService.class);
 
     private WebTestClient webTestClient;
 
     @BeforeEach
     void setUp() {
-        var endpoint = new PhotoEndpoint(photoService, photoUploadService);
+        var endpoint = new PhotoEndpoint(photoService, photoUploadService,
+            photoExifJobService, photoLinkImportService);
         webTestClient = WebTestClient.bindToRouterFunction(endpoint.endpoint())
             .configureClient()
             .build();
@@ -114,6 +127,66 @@ class PhotoEndpointTest {
             .expectStatus().is4xxClientError();
     }
 
+    @Test
+    void importLinksShouldStreamProgressForPlainTextLines() {
+        var links = List.of("https://example.com/a.jpg", "https://example.com/b.jpg");
+        when(photoLinkImportService.importLinks(links, "trips", true, null))
+            .thenReturn(Flux.just(
+                new LinkImportProgress(2, 1, 1, 0, links.get(0),
+                    LinkImportProgress.Outcome.CREATED, "photo-a", null),
+                new LinkImportProgress(2, 2, 1, 1, links.get(1),
+                    LinkImportProgress.Outcome.FAILED, null, "创建图片失败：boom")));
+
+        var events = webTestClient.post().uri("/photos/import-links?group=trips&probe=true")
+            .contentType(MediaType.TEXT_PLAIN)
+            .bodyValue(String.join("\n", links))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+            .returnResult(LinkImportProgress.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertThat(events)
+            .extracting(LinkImportProgress::completed, LinkImportProgress::outcome)
+            .containsExactly(
+                tuple(1, LinkImportProgress.Outcome.CREATED),
+                tuple(2, LinkImportProgress.Outcome.FAILED));
+    }
+
+    @Test
+    void importLinksShouldAcceptJsonArray() {
+        var links = List.of("https://example.com/a.jpg");
+        when(photoLinkImportService.importLinks(links, "", false, 2))
+            .thenReturn(Flux.empty());
+
+        webTestClient.post().uri("/photos/import-links?concurrency=2")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(links)
+            .exchange()
+            .expectStatus().isOk();
+
+        verify(photoLinkImportService).importLinks(links, "", false, 2);
+    }
+
+    @Test
+    void importLinksWithInvalidInputShouldReturn400() {
+        when(photoLinkImportService.importLinks(List.of(), "", false, null))
+            .thenReturn(Flux.error(new ServerWebInputException("请提供至少一个图片链接。")));
+
+        webTestClient.post().uri("/photos/import-links")
+            .contentType(MediaType.TEXT_PLAIN)
+            .bodyValue("")
+            .exchange()
+            .expectStatus().isBadRequest();
+        webTestClient.post().uri("/photos/import-links?concurrency=many")
+            .contentType(MediaType.TEXT_PLAIN)
+            .bodyValue("https://example.com/a.jpg")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
     @Test
     void deletePhotoShouldReturn200() {
         var photo = photo("p1", "2026-05-01T00:00:00Z");
@@ -150,6 +223,70 @@ class PhotoEndpointTest {
             .jsonPath("$.metadata.name").isEqualTo("p1");
     }
 
+    @Test
+    void startExifJobShouldPassSelectionAndOptionsToService() {
+        when(photoExifJobService.start(any(PhotoQuery.class), eq(8), eq(true)))
+            .thenReturn(Mono.just(exifJob("job-1", PhotoExifJob.Phase.PENDING)));
+
+        webTestClient.post().uri("/photoexifjobs?group=trips&parallelism=8&force=true")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.metadata.name").isEqualTo("job-1");
+
+        var queryCaptor = ArgumentCaptor.forClass(PhotoQuery.class);
+        verify(photoExifJobService).start(queryCaptor.capture(), eq(8), eq(true));
+        assertThat(queryCaptor.getValue().getGroup()).isEqualTo("trips");
+    }
+
+    @Test
+    void startExifJobWithInvalidParallelismShouldReturn4xx() {
+        webTestClient.post().uri("/photoexifjobs?parallelism=many")
+            .exchange()
+            .expectStatus().is4xxClientError();
+    }
+
+    @Test
+    void cancelExifJobShouldReturnCancelledJob() {
+        when(photoExifJobService.cancel("job-1"))
+            .thenReturn(Mono.just(exifJob("job-1", PhotoExifJob.Phase.CANCELLED)));
+
+        webTestClient.post().uri("/photoexifjobs/job-1/cancel")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.status.phase").isEqualTo("CANCELLED");
+    }
+
+    @Test
+    void exifJobProgressShouldStreamServerSentEvents() {
+        when(photoExifJobService.watchProgress("job-1")).thenReturn(Flux.just(
+            exifJob("job-1", PhotoExifJob.Phase.RUNNING),
+            exifJob("job-1", PhotoExifJob.Phase.SUCCEEDED)));
+
+        var events = webTestClient.get().uri("/photoexifjobs/job-1/progress")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+            .returnResult(PhotoExifJob.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertThat(events).extracting(job -> job.getStatus().getPhase())
+            .containsExactly(PhotoExifJob.Phase.RUNNING, PhotoExifJob.Phase.SUCCEEDED);
+    }
+
+    private static PhotoExifJob exifJob(String name, PhotoExifJob.Phase phase) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        var job = new PhotoExifJob();
+        job.setMetadata(metadata);
+        job.setSpec(new PhotoExifJob.PhotoExifJobSpec());
+        job.getStatusOrDefault().setPhase(phase);
+        return job;
+    }
+
     private static Photo photo(String name, String creationTimestamp) {
         var metadata = new Metadata();
         metadata.setName(name);
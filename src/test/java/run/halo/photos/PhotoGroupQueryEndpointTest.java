@@ -1,26 +1,39 @@
 package run.halo.photos;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import run.halo.app.extension.Metadata;
+import run.halo.app.plugin.ReactiveSettingFetcher;
 import run.halo.photos.finders.PhotoPublicQueryService;
+import run.halo.photos.infra.GalleryVersion;
+import run.halo.photos.infra.PhotoJsonCache;
+import run.halo.photos.infra.PhotoSettings;
 import run.halo.photos.vo.PhotoGroupVo;
+import tools.jackson.databind.json.JsonMapper;
 
 class PhotoGroupQueryEndpointTest {
 
     private final PhotoPublicQueryService queryService = org.mockito.Mockito.mock(
         PhotoPublicQueryService.class);
 
+    private final ReactiveSettingFetcher settingFetcher = mock(ReactiveSettingFetcher.class);
+
     private WebTestClient webTestClient;
 
     @BeforeEach
     void setUp() {
-        var endpoint = new PhotoGroupQueryEndpoint(queryService);
+        var endpoint = new PhotoGroupQueryEndpoint(queryService,
+            new ConditionalResponses(new GalleryVersion(), new PhotoJsonCache(JsonMapper.builder().build()),
+                new PhotoSettings(settingFetcher)));
         webTestClient = WebTestClient.bindToRouterFunction(endpoint.endpoint())
             .configureClient()
             .build();
@@ -65,4 +78,22 @@ class PhotoGroupQueryEndpointTest {
             .expectBody()
             .jsonPath("$").isEmpty();
     }
+
+    @Test
+    void listGroupsShouldReturn304ForMatchingEtag() {
+        when(queryService.listGroups()).thenReturn(Flux.empty());
+
+        var etag = webTestClient.get().uri("/photogroups")
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class)
+            .getResponseHeaders()
+            .getETag();
+
+        webTestClient.get().uri("/photogroups")
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .exchange()
+            .expectStatus().isNotModified();
+        verify(queryService, times(1)).listGroups();
+    }
 }
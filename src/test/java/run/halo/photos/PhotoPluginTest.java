@@ -1,19 +1,111 @@
 package run.halo.photos;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.time.Instant;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
 import run.halo.app.extension.Metadata;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.extension.SchemeManager;
+import run.halo.app.extension.Watcher;
+import run.halo.app.plugin.PluginContext;
+import run.halo.photos.index.PhotoRankIndex;
+import run.halo.photos.index.PhotoTagIndex;
+import run.halo.photos.infra.DerivativeCache;
+import run.halo.photos.infra.GalleryVersion;
+import run.halo.photos.infra.ImageProcessingScheduler;
+import run.halo.photos.infra.PhotoChange;
+import run.halo.photos.infra.PhotoChangeBus;
+import run.halo.photos.infra.PhotoJsonCache;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.infra.PhotoVoCache;
+import run.halo.photos.infra.RenderedPageCache;
+import run.halo.photos.infra.SingleFlightCache;
+import run.halo.photos.reconciler.PhotoGroupCountUpdater;
+import run.halo.photos.service.PhotoExifJobService;
 
 class PhotoPluginTest {
 
+    @Test
+    void groupUpdateChangingOnlyCountShouldBeCountOnly() {
+        var oldGroup = group("Trips");
+        oldGroup.getStatusOrDefault().setPhotoCount(3);
+        var countBump = group("Trips");
+        countBump.getStatusOrDefault().setPhotoCount(4);
+        var renamed = group("Travel");
+        renamed.getStatusOrDefault().setPhotoCount(3);
+
+        assertThat(PhotoPlugin.isCountOnlyUpdate(oldGroup, countBump)).isTrue();
+        assertThat(PhotoPlugin.isCountOnlyUpdate(oldGroup, renamed)).isFalse();
+        assertThat(PhotoPlugin.isUnchangedForReaders(oldGroup, countBump)).isFalse();
+        assertThat(PhotoPlugin.isUnchangedForReaders(oldGroup, group("Trips"))).isFalse();
+        var resynced = group("Trips");
+        resynced.getStatusOrDefault().setPhotoCount(3);
+        assertThat(PhotoPlugin.isUnchangedForReaders(oldGroup, resynced)).isTrue();
+    }
+
+    @Test
+    void countWrittenAfterPhotoChangeShouldInvalidateGroupsAgain() {
+        var client = mock(ReactiveExtensionClient.class);
+        var watchers = new CopyOnWriteArrayList<Watcher>();
+        doAnswer(invocation -> watchers.add(invocation.getArgument(0)))
+            .when(client).watch(any(Watcher.class));
+        var storedCount = new AtomicInteger(3);
+        when(client.fetch(PhotoGroup.class, "trips"))
+            .thenAnswer(invocation -> Mono.just(counted(storedCount.get())));
+        when(client.update(any(PhotoGroup.class))).thenAnswer(invocation -> {
+            PhotoGroup updated = invocation.getArgument(0);
+            var old = counted(storedCount.getAndSet(updated.getStatus().getPhotoCount()));
+            watchers.forEach(watcher -> watcher.onUpdate(old, updated));
+            return Mono.just(updated);
+        });
+        var settings = mock(PhotoSettings.class);
+        when(settings.refresh()).thenReturn(Mono.empty());
+        var pageCache = new RenderedPageCache();
+        var galleryVersion = new GalleryVersion();
+        var singleFlightCache = new SingleFlightCache(pageCache, galleryVersion);
+        var changeBus = new PhotoChangeBus();
+        var plugin = new PhotoPlugin(mock(PluginContext.class), mock(SchemeManager.class), client,
+            mock(PhotoTagIndex.class), mock(PhotoRankIndex.class), settings,
+            mock(ImageProcessingScheduler.class), mock(PhotoExifJobService.class),
+            new PhotoGroupCountUpdater(client), pageCache, galleryVersion,
+            mock(PhotoVoCache.class), mock(PhotoJsonCache.class), changeBus, singleFlightCache,
+            mock(DerivativeCache.class));
+        Supplier<Integer> groups = () -> singleFlightCache.<Integer>get("groups",
+            () -> Mono.fromSupplier(storedCount::get)).block();
+        plugin.start();
+
+        var initial = galleryVersion.current();
+        var photo = photo("a", "2026-05-02T00:00:00Z", null);
+        photo.getSpec().setGroupName("trips");
+        changeBus.publish(PhotoChange.added(photo));
+        await(() -> !galleryVersion.current().equals(initial));
+        // a reader between the photo change and the count update it leads to
+        assertThat(groups.get()).isEqualTo(3);
+        var etag = galleryVersion.current();
+        await(() -> storedCount.get() == 4);
+
+        assertThat(groups.get()).isEqualTo(4);
+        assertThat(galleryVersion.current()).isNotEqualTo(etag);
+        plugin.stop();
+    }
+
     @Test
     void exifTimePresentShouldUseExif() {
         var photo = photo("a", "2026-05-02T00:00:00Z", "2020-01-01T00:00:00Z");
 
         assertThat(PhotoSortUtils.computeEffectiveTimeIndex(photo))
-            .isEqualTo("2020-01-01T00:00:00Z");
+            .isEqualTo(Instant.parse("2020-01-01T00:00:00Z").toEpochMilli());
     }
 
     @Test
@@ -21,14 +113,15 @@ class PhotoPluginTest {
         var photo = photo("a", "2026-05-02T00:00:00Z", null);
 
         assertThat(PhotoSortUtils.computeEffectiveTimeIndex(photo))
-            .isEqualTo("2026-05-02T00:00:00Z");
+            .isEqualTo(Instant.parse("2026-05-02T00:00:00Z").toEpochMilli());
     }
 
     @Test
-    void neitherTimePresentShouldReturnEmptyString() {
+    void neitherTimePresentShouldReturnNoTime() {
         var photo = photo("a", null, null);
 
-        assertThat(PhotoSortUtils.computeEffectiveTimeIndex(photo)).isEmpty();
+        assertThat(PhotoSortUtils.computeEffectiveTimeIndex(photo))
+            .isEqualTo(PhotoSortUtils.NO_TIME);
     }
 
     @Test
@@ -42,15 +135,35 @@ class PhotoPluginTest {
         photo.setSpec(new Photo.PhotoSpec());
 
         assertThat(PhotoSortUtils.computeEffectiveTimeIndex(photo))
-            .isEqualTo("2026-05-02T00:00:00Z");
+            .isEqualTo(Instant.parse("2026-05-02T00:00:00Z").toEpochMilli());
     }
 
     @Test
-    void nullMetadataAndExifShouldReturnEmptyString() {
+    void nullMetadataAndExifShouldReturnNoTime() {
         var photo = new Photo();
         photo.setSpec(new Photo.PhotoSpec());
 
-        assertThat(PhotoSortUtils.computeEffectiveTimeIndex(photo)).isEmpty();
+        assertThat(PhotoSortUtils.computeEffectiveTimeIndex(photo))
+            .isEqualTo(PhotoSortUtils.NO_TIME);
+    }
+
+    @Test
+    void effectiveTimeIndexShouldOrderLikeTimesWithFractions() {
+        var whole = photo("a", "2026-05-02T00:00:00Z", "2026-05-01T10:00:00Z");
+        var fraction = photo("b", "2026-05-02T00:00:00Z", "2026-05-01T10:00:00.500Z");
+
+        // as ISO strings "...00.500Z" sorts before "...00Z"
+        assertThat(PhotoSortUtils.computeEffectiveTimeIndex(fraction))
+            .isGreaterThan(PhotoSortUtils.computeEffectiveTimeIndex(whole));
+    }
+
+    @Test
+    void dateTimeOriginalIndexShouldIgnoreCreationTimestamp() {
+        assertThat(PhotoSortUtils.computeDateTimeOriginalIndex(
+            photo("a", "2026-05-02T00:00:00Z", null))).isEqualTo(PhotoSortUtils.NO_TIME);
+        assertThat(PhotoSortUtils.computeDateTimeOriginalIndex(
+            photo("a", "2026-05-02T00:00:00Z", "2020-01-01T00:00:00Z")))
+            .isEqualTo(Instant.parse("2020-01-01T00:00:00Z").toEpochMilli());
     }
 
     private static Photo photo(String name, String creationTimestamp, String dateTimeOriginal) {
@@ -72,6 +185,35 @@ class PhotoPluginTest {
         return photo;
     }
 
+    private static PhotoGroup counted(int photoCount) {
+        var group = group("Trips");
+        group.getStatusOrDefault().setPhotoCount(photoCount);
+        return group;
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static PhotoGroup group(String displayName) {
+        var metadata = new Metadata();
+        metadata.setName("trips");
+        var spec = new PhotoGroup.PhotoGroupSpec();
+        spec.setDisplayName(displayName);
+        var group = new PhotoGroup();
+        group.setMetadata(metadata);
+        group.setSpec(spec);
+        return group;
+    }
+
     private static Instant parse(String value) {
         return value == null ? null : Instant.parse(value);
     }
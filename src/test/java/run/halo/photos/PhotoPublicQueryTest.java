@@ -48,6 +48,22 @@ class PhotoPublicQueryTest {
         assertThat(orders.get(0).isAscending()).isTrue();
     }
 
+    @Test
+    void groupScopeShouldPreferUngrouped() {
+        assertThat(query("/photos?group=trips").getGroupScope()).isEqualTo("trips");
+        assertThat(query("/photos?group=trips&ungrouped=true").getGroupScope()).isEmpty();
+        assertThat(query("/photos").getGroupScope()).isNull();
+    }
+
+    @Test
+    void groupTimeScanShouldRequireGroupAndDefaultSort() {
+        assertThat(query("/photos?group=trips").isGroupTimeScan()).isTrue();
+        assertThat(query("/photos?ungrouped=true").isGroupTimeScan()).isTrue();
+        assertThat(query("/photos").isGroupTimeScan()).isFalse();
+        assertThat(query("/photos?group=trips&sort=metadata.creationTimestamp,asc")
+            .isGroupTimeScan()).isFalse();
+    }
+
     private static PhotoPublicQuery query(String uri) {
         var request = MockServerHttpRequest.get(uri).build();
         return new PhotoPublicQuery(MockServerWebExchange.from(request));
@@ -2,14 +2,26 @@ package run.halo.photos;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
@@ -18,20 +30,42 @@ import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.ListResult;
 import run.halo.app.extension.Metadata;
 import run.halo.app.extension.PageRequestImpl;
+import run.halo.app.plugin.ReactiveSettingFetcher;
 import run.halo.photos.finders.PhotoPublicQueryService;
+import run.halo.photos.infra.GalleryVersion;
+import run.halo.photos.infra.PhotoJsonCache;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.service.PhotoImageService;
+import run.halo.photos.service.ResizedImage;
+import run.halo.photos.vo.PhotoCursorResult;
 import run.halo.photos.vo.PhotoTagVo;
 import run.halo.photos.vo.PhotoVo;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.databind.node.JsonNodeFactory;
 
 class PhotoQueryEndpointTest {
 
     private final PhotoPublicQueryService queryService = org.mockito.Mockito.mock(
         PhotoPublicQueryService.class);
 
+    private final ReactiveSettingFetcher settingFetcher = mock(ReactiveSettingFetcher.class);
+
+    private final PhotoSettings photoSettings = new PhotoSettings(settingFetcher);
+
+    private final GalleryVersion galleryVersion = new GalleryVersion();
+
+    private final PhotoJsonCache jsonCache = new PhotoJsonCache(JsonMapper.builder().build());
+
+    private final PhotoImageService imageService = mock(PhotoImageService.class);
+
     private WebTestClient webTestClient;
 
     @BeforeEach
     void setUp() {
-        var endpoint = new PhotoQueryEndpoint(queryService);
+        lenient().when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.empty());
+        var endpoint = new PhotoQueryEndpoint(queryService,
+            new ConditionalResponses(galleryVersion, jsonCache, photoSettings), jsonCache,
+            imageService);
         webTestClient = WebTestClient.bindToRouterFunction(endpoint.endpoint())
             .configureClient()
             .build();
@@ -67,6 +101,71 @@ class PhotoQueryEndpointTest {
         assertThat(exif.get("make")).isEqualTo("Canon");
     }
 
+    @Test
+    void listPhotosWithCursorShouldReturnCursorPage() {
+        var photoVo = PhotoVo.from(photoWithGps());
+        when(queryService.listPhotosByCursor(any(ListOptions.class), eq("abc"), eq(20)))
+            .thenReturn(Mono.just(PhotoCursorResult.builder()
+                .items(List.of(photoVo))
+                .size(20)
+                .hasNext(true)
+                .nextCursor("next")
+                .build()));
+
+        webTestClient.get().uri("/photos?cursor=abc&size=20")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.items.length()").isEqualTo(1)
+            .jsonPath("$.nextCursor").isEqualTo("next")
+            .jsonPath("$.hasNext").isEqualTo(true);
+        verify(queryService, never()).listPhotos(any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
+    @Test
+    void listPhotosInGroupShouldUseGroupTimeIndex() {
+        var photoVo = PhotoVo.from(photoWithGps());
+        when(queryService.listGroupPhotos(eq("trips"), any(ListOptions.class), eq(2), eq(5)))
+            .thenReturn(Mono.just(new ListResult<>(2, 5, 6, List.of(photoVo))));
+
+        webTestClient.get().uri("/photos?group=trips&page=2&size=5")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.items.length()").isEqualTo(1)
+            .jsonPath("$.total").isEqualTo(6);
+        verify(queryService, never()).listPhotos(any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
+    @Test
+    void listPhotosInGroupWithCustomSortShouldNotUseGroupTimeIndex() {
+        when(queryService.listPhotos(any(ListOptions.class), any(PageRequestImpl.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 10, 0, List.of())));
+
+        webTestClient.get().uri("/photos?group=trips&sort=metadata.creationTimestamp,asc")
+            .exchange()
+            .expectStatus().isOk();
+        verify(queryService, never()).listGroupPhotos(any(), any(ListOptions.class),
+            anyInt(), anyInt());
+    }
+
+    @Test
+    void listPhotosWithEmptyCursorShouldRequestFirstPage() {
+        when(queryService.listPhotosByCursor(any(ListOptions.class), eq(""), eq(10)))
+            .thenReturn(Mono.just(PhotoCursorResult.builder()
+                .items(List.of())
+                .size(10)
+                .build()));
+
+        webTestClient.get().uri("/photos?cursor=")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.hasNext").isEqualTo(false);
+    }
+
     @Test
     void getPhotoShouldReturn200ForExisting() {
         var photo = photoWithGps();
@@ -163,6 +262,109 @@ class PhotoQueryEndpointTest {
         assertThat(tags.get(0)).doesNotContainKey("permalink");
     }
 
+    @Test
+    void listPhotosShouldReturn304ForMatchingEtagWithoutQuerying() {
+        when(queryService.listPhotos(any(ListOptions.class), any(PageRequestImpl.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 10, 0, List.<PhotoVo>of())));
+
+        var etag = webTestClient.get().uri("/photos?page=1")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().cacheControl(CacheControl.noCache())
+            .expectHeader().exists(HttpHeaders.LAST_MODIFIED)
+            .returnResult(String.class)
+            .getResponseHeaders()
+            .getETag();
+        assertThat(etag).isNotBlank();
+
+        webTestClient.get().uri("/photos?page=1")
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .exchange()
+            .expectStatus().isNotModified()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, etag);
+
+        verify(queryService, times(1)).listPhotos(any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
+    @Test
+    void listPhotosEtagShouldChangeWithGalleryVersionAndQuery() {
+        when(queryService.listPhotos(any(ListOptions.class), any(PageRequestImpl.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 10, 0, List.<PhotoVo>of())));
+
+        var first = listEtag("/photos?page=1");
+        assertThat(listEtag("/photos?page=2")).isNotEqualTo(first);
+
+        galleryVersion.bump();
+
+        webTestClient.get().uri("/photos?page=1")
+            .header(HttpHeaders.IF_NONE_MATCH, first)
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    @Test
+    void getPhotoEtagShouldFollowMetadataVersion() {
+        var photo = photoWithGps();
+        photo.getMetadata().setVersion(3L);
+        when(queryService.getByName("abc")).thenAnswer(invocation ->
+            Mono.just(PhotoVo.from(photo)));
+
+        var etag = listEtag("/photos/abc");
+
+        webTestClient.get().uri("/photos/abc")
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .exchange()
+            .expectStatus().isNotModified();
+
+        galleryVersion.bump();
+        webTestClient.get().uri("/photos/abc")
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .exchange()
+            .expectStatus().isNotModified();
+
+        photo.getMetadata().setVersion(4L);
+        webTestClient.get().uri("/photos/abc")
+            .header(HttpHeaders.IF_NONE_MATCH, etag)
+            .exchange()
+            .expectStatus().isOk();
+    }
+
+    @Test
+    void cacheControlShouldFollowSetting() {
+        var advanced = JsonNodeFactory.instance.objectNode();
+        advanced.put("apiCacheControl", "public, max-age=60");
+        when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.just(advanced));
+        photoSettings.refresh().block();
+        when(queryService.listTags(null)).thenReturn(Flux.empty());
+
+        webTestClient.get().uri("/tags")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "public, max-age=60");
+    }
+
+    @Test
+    void listTagsShouldBeServedFromJsonCacheUntilInvalidated() {
+        when(queryService.listTags(null))
+            .thenReturn(Flux.just(PhotoTagVo.builder().name("sunset").photoCount(2).build()));
+
+        for (int i = 0; i < 2; i++) {
+            webTestClient.get().uri("/tags")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].name").isEqualTo("sunset");
+        }
+        verify(queryService, times(1)).listTags(null);
+
+        jsonCache.invalidateTags();
+        webTestClient.get().uri("/tags")
+            .exchange()
+            .expectStatus().isOk();
+        verify(queryService, times(2)).listTags(null);
+    }
+
     @Test
     void postToPhotosShouldReturn4xx() {
         webTestClient.post().uri("/photos")
@@ -172,6 +374,46 @@ class PhotoQueryEndpointTest {
             .expectStatus().is4xxClientError();
     }
 
+    private String listEtag(String uri) {
+        return webTestClient.get().uri(uri)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(String.class)
+            .getResponseHeaders()
+            .getETag();
+    }
+
+    @Test
+    void photoImageShouldStreamCachedFileWithImmutableCaching(@TempDir Path dir)
+        throws Exception {
+        var file = Files.write(dir.resolve("abc.jpg"), new byte[] {1, 2, 3});
+        when(imageService.resize("abc", 640, ResizedImage.Format.JPEG))
+            .thenReturn(Mono.just(new ResizedImage(file, "k1", ResizedImage.Format.JPEG)));
+
+        webTestClient.get().uri("/photos/abc/image?w=640")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.IMAGE_JPEG)
+            .expectHeader().valueEquals(HttpHeaders.ETAG, "\"k1\"")
+            .expectHeader().value(HttpHeaders.CACHE_CONTROL, cacheControl ->
+                assertThat(cacheControl).contains("max-age=31536000", "public", "immutable"))
+            .expectBody(byte[].class).isEqualTo(new byte[] {1, 2, 3});
+
+        webTestClient.get().uri("/photos/abc/image?w=640")
+            .header(HttpHeaders.IF_NONE_MATCH, "\"k1\"")
+            .exchange()
+            .expectStatus().isNotModified();
+    }
+
+    @Test
+    void photoImageWithUnsupportedFormatShouldFail() {
+        webTestClient.get().uri("/photos/abc/image?w=640&fmt=webp")
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        verify(imageService, never()).resize(any(), anyInt(), any());
+    }
+
     private static Photo photoWithGps() {
         var metadata = new Metadata();
         metadata.setName("abc");
@@ -5,6 +5,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import tools.jackson.databind.ObjectMapper;
@@ -31,9 +33,13 @@ import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.ListResult;
 import run.halo.app.extension.Metadata;
 import run.halo.app.extension.PageRequestImpl;
+import run.halo.app.extension.ReactiveExtensionClient;
 import run.halo.app.plugin.ReactiveSettingFetcher;
 import run.halo.photos.finders.PhotoFinder;
 import run.halo.photos.finders.PhotoPublicQueryService;
+import run.halo.photos.index.PhotoRankIndex;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.infra.RenderedPageCache;
 import run.halo.photos.vo.PhotoVo;
 
 class PhotoRouterTest {
@@ -45,11 +51,22 @@ class PhotoRouterTest {
 
     private final ReactiveSettingFetcher settingFetcher = mock(ReactiveSettingFetcher.class);
 
+    private final PhotoSettings photoSettings = new PhotoSettings(settingFetcher);
+
+    private final ReactiveExtensionClient client = mock(ReactiveExtensionClient.class);
+
+    private final PhotoRankIndex photoRankIndex = new PhotoRankIndex(client);
+
+    private final RenderedPageCache pageCache = new RenderedPageCache();
+
+    private PhotoRouter router;
+
     private WebTestClient webTestClient;
 
     @BeforeEach
     void setUp() {
-        var router = new PhotoRouter(photoFinder, photoPublicQueryService, settingFetcher);
+        router = new PhotoRouter(photoFinder, photoPublicQueryService, photoSettings,
+            photoRankIndex, pageCache);
         var strategies = HandlerStrategies.builder()
             .viewResolver(new StubViewResolver())
             .build();
@@ -63,6 +80,8 @@ class PhotoRouterTest {
         baseSetting.put("pageSize", 10);
         baseSetting.put("title", "图库");
         lenient().when(settingFetcher.getSettingValue(eq("base"))).thenReturn(Mono.just(baseSetting));
+        lenient().when(settingFetcher.getSettingValue(eq("advanced"))).thenReturn(Mono.empty());
+        photoSettings.refresh().block();
     }
 
     @ParameterizedTest(name = "windowStart(idx={0}, total={1}) -> {2}")
@@ -128,14 +147,137 @@ class PhotoRouterTest {
         var photo = photoVo("abc", "2026-05-01T00:00:00Z", null);
         photo.getSpec().setGroupName("trips");
         when(photoPublicQueryService.getByName("abc")).thenReturn(Mono.just(photo));
-        when(photoPublicQueryService.listAllPhotos(any(ListOptions.class), any(Sort.class)))
-            .thenReturn(Flux.fromIterable(List.of(photo)));
 
         webTestClient.get().uri("/photos/abc?group=trips&page=1&size=10")
             .exchange()
             .expectStatus().is2xxSuccessful();
     }
 
+    @Test
+    void listRendersInPrefetchMode() {
+        ObjectNode advanced = new ObjectMapper().createObjectNode();
+        advanced.put("themeRenderMode", "prefetch");
+        when(settingFetcher.getSettingValue(eq("advanced"))).thenReturn(Mono.just(advanced));
+        photoSettings.refresh().block();
+        when(photoPublicQueryService.listPhotos(any(ListOptions.class), any(PageRequestImpl.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 10, 0, List.of())));
+
+        webTestClient.get().uri("/photos")
+            .exchange()
+            .expectStatus().is2xxSuccessful();
+
+        verify(photoPublicQueryService).listPhotos(any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
+    @Test
+    void groupListShouldUseGroupTimeIndex() {
+        ObjectNode advanced = new ObjectMapper().createObjectNode();
+        advanced.put("themeRenderMode", "prefetch");
+        when(settingFetcher.getSettingValue(eq("advanced"))).thenReturn(Mono.just(advanced));
+        photoSettings.refresh().block();
+        when(photoPublicQueryService.listGroupPhotos(eq("trips"), any(ListOptions.class),
+            eq(1), eq(10)))
+            .thenReturn(Mono.just(new ListResult<>(1, 10, 0, List.of())));
+
+        webTestClient.get().uri("/photos?group=trips")
+            .exchange()
+            .expectStatus().is2xxSuccessful();
+
+        verify(photoPublicQueryService, never()).listPhotos(any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
+    @Test
+    void listDoesNotQueryUnreadVariablesInLazyMode() {
+        webTestClient.get().uri("/photos")
+            .exchange()
+            .expectStatus().is2xxSuccessful();
+
+        verify(photoPublicQueryService, never()).listPhotos(any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
+    @Test
+    void listShouldBeServedFromPageCacheWhenEnabled() {
+        pageCache.configure(true, 0, 0);
+
+        webTestClient.get().uri("/photos?page=2")
+            .exchange()
+            .expectStatus().is2xxSuccessful();
+        webTestClient.get().uri("/photos?page=2")
+            .exchange()
+            .expectStatus().is2xxSuccessful();
+
+        assertThat(pageCache.metrics())
+            .containsEntry("misses", 1L)
+            .containsEntry("hits", 1L);
+    }
+
+    @Test
+    void listWithExtraParamsShouldBypassPageCache() {
+        pageCache.configure(true, 0, 0);
+
+        webTestClient.get().uri("/photos?page=2&preview-theme=other")
+            .exchange()
+            .expectStatus().is2xxSuccessful();
+        webTestClient.get().uri("/photos?page=2&preview-theme=other")
+            .exchange()
+            .expectStatus().is2xxSuccessful();
+
+        assertThat(pageCache.metrics()).containsEntry("entries", 0);
+    }
+
+    @Test
+    void detailContextShouldComeFromRankIndex() {
+        var photos = mixedPhotos();
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.fromIterable(photos));
+        photos.forEach(photo -> lenient().when(
+                photoPublicQueryService.getByName(photo.getMetadata().getName()))
+            .thenReturn(Mono.just(PhotoVo.from(photo))));
+        var current = PhotoVo.from(photos.get(2));
+
+        var context = router.loadDetailContext(current, null).block();
+
+        assertThat(context).isNotNull();
+        assertThat(context.neighbors()).extracting(vo -> vo.getMetadata().getName())
+            .containsExactly("new-no-exif", "middle-exif", "old-exif", "old-no-exif");
+        assertThat(context.index()).isEqualTo(1);
+        assertThat(context.total()).isEqualTo(4);
+        assertThat(context.prev().getMetadata().getName()).isEqualTo("new-no-exif");
+        assertThat(context.next().getMetadata().getName()).isEqualTo("old-exif");
+        verify(photoPublicQueryService, never())
+            .listAllPhotos(any(ListOptions.class), any(Sort.class));
+    }
+
+    @Test
+    void detailContextShouldFallBackToSinglePhotoWhenNotRanked() {
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.empty());
+        var current = photoVo("abc", "2026-05-01T00:00:00Z", null);
+
+        var context = router.loadDetailContext(current, "trips").block();
+
+        assertThat(context).isNotNull();
+        assertThat(context.neighbors()).containsExactly(current);
+        assertThat(context.index()).isZero();
+        assertThat(context.total()).isEqualTo(1);
+        assertThat(context.prev()).isNull();
+        assertThat(context.next()).isNull();
+    }
+
+    @Test
+    void detailContextWithoutCurrentPhotoShouldHaveNoNeighbors() {
+        var neighbors = List.of(photoVo("a", "2026-05-01T00:00:00Z", null),
+            photoVo("b", "2026-04-01T00:00:00Z", null));
+
+        var context = new PhotoRouter.DetailContext(neighbors, -1, 0, 2);
+
+        assertThat(context.prev()).isNull();
+        assertThat(context.next()).isNull();
+    }
+
     @Test
     void legacyPaginationRedirectsWith301() {
         webTestClient.get().uri("/photos/page/2")
@@ -177,7 +319,6 @@ class PhotoRouterTest {
         return PhotoVo.from(photo);
     }
 
-    @SuppressWarnings("unused")
     private static List<Photo> mixedPhotos() {
         return List.of(
             photo("old-exif", "2026-05-02T00:00:00Z", "2020-01-01T00:00:00Z"),
@@ -232,7 +373,10 @@ class PhotoRouterTest {
         @Override
         public Mono<Void> render(java.util.Map<String, ?> model, MediaType contentType,
             org.springframework.web.server.ServerWebExchange exchange) {
-            return Mono.empty();
+            var response = exchange.getResponse();
+            response.getHeaders().setContentType(MediaType.TEXT_HTML);
+            return response.writeWith(Mono.just(response.bufferFactory()
+                .wrap("<html></html>".getBytes(java.nio.charset.StandardCharsets.UTF_8))));
         }
     }
 }
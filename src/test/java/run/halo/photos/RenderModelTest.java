@@ -0,0 +1,67 @@
+package run.halo.photos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+class RenderModelTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void lazyModeShouldQueryOnlyOnFirstRead() {
+        var subscriptions = new AtomicInteger();
+        var model = new RenderModel(RenderModel.Mode.LAZY, TIMEOUT);
+        var variable = model.variable(Mono.fromSupplier(() -> "value")
+            .doOnSubscribe(subscription -> subscriptions.incrementAndGet()));
+
+        model.ready().block();
+        assertThat(subscriptions).hasValue(0);
+
+        assertThat(variable.getValue()).isEqualTo("value");
+        assertThat(variable.getValue()).isEqualTo("value");
+        assertThat(subscriptions).hasValue(1);
+    }
+
+    @Test
+    void prefetchModeShouldResolveVariablesConcurrentlyBeforeRendering() {
+        var subscriptions = new AtomicInteger();
+        var model = new RenderModel(RenderModel.Mode.PREFETCH, TIMEOUT);
+        var slow = model.variable(Mono.just("slow").delayElement(Duration.ofMillis(300))
+            .doOnSubscribe(subscription -> subscriptions.incrementAndGet()));
+        var alsoSlow = model.variable(Mono.just("also slow").delayElement(Duration.ofMillis(300))
+            .doOnSubscribe(subscription -> subscriptions.incrementAndGet()));
+        var empty = model.variable(Mono.<String>empty());
+
+        long start = System.nanoTime();
+        model.ready().block();
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(subscriptions).hasValue(2);
+        assertThat(elapsed).isLessThan(Duration.ofMillis(550));
+        assertThat(slow.getValue()).isEqualTo("slow");
+        assertThat(alsoSlow.getValue()).isEqualTo("also slow");
+        assertThat(empty.getValue()).isNull();
+    }
+
+    @Test
+    void prefetchModeShouldDeferErrorsToRead() {
+        var model = new RenderModel(RenderModel.Mode.PREFETCH, TIMEOUT);
+        var failing = model.variable(Mono.<String>error(new IllegalStateException("boom")));
+
+        model.ready().block();
+
+        assertThatThrownBy(failing::getValue).hasMessageContaining("boom");
+    }
+
+    @Test
+    void modeShouldDefaultToLazy() {
+        assertThat(RenderModel.Mode.from("prefetch")).isEqualTo(RenderModel.Mode.PREFETCH);
+        assertThat(RenderModel.Mode.from("")).isEqualTo(RenderModel.Mode.LAZY);
+        assertThat(RenderModel.Mode.from(null)).isEqualTo(RenderModel.Mode.LAZY);
+    }
+}
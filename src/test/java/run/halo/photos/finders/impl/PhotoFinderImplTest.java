@@ -3,10 +3,14 @@ package run.halo.photos.finders.impl;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.domain.Sort;
@@ -67,10 +71,24 @@ class PhotoFinderImplTest {
         assertThat(names(result.getItems())).containsExactly("new-no-exif", "middle-exif");
     }
 
+    @Test
+    void listWithGroupShouldUseGroupTimeIndex() {
+        var photoVos = mixedPhotos().stream().map(PhotoVo::from).toList();
+        when(queryService.listGroupPhotos(eq("travel"), any(ListOptions.class), eq(1), eq(2)))
+            .thenReturn(Mono.just(new ListResult<>(1, 2, 4, photoVos.subList(0, 2))));
+
+        var result = finder.list(1, 2, "travel").block();
+
+        assertThat(result).isNotNull();
+        assertThat(names(result.getItems())).containsExactly("new-no-exif", "middle-exif");
+        verify(queryService, times(0)).listPhotos(any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
     @Test
     void listByShouldReturnPhotosInGroup() {
         var photoVos = mixedPhotos().stream().map(PhotoVo::from).toList();
-        when(queryService.listAllPhotos(any(ListOptions.class), any(Sort.class)))
+        when(queryService.listAllGroupPhotos("travel"))
             .thenReturn(Flux.fromIterable(photoVos));
 
         var names = finder.listBy("travel")
@@ -135,6 +153,106 @@ class PhotoFinderImplTest {
         assertThat(groups.get(0).getPhotos()).isNotEmpty();
     }
 
+    @Test
+    void groupByShouldBucketOneScanAcrossGroups() {
+        var trips = groupVo("trips", null);
+        var travel = groupVo("travel", 9);
+        var photoVos = new ArrayList<>(mixedPhotos().stream().map(PhotoVo::from).toList());
+        var tripPhoto = photo("trip-1", "2026-05-05T00:00:00Z", null);
+        tripPhoto.getSpec().setGroupName("trips");
+        photoVos.add(1, PhotoVo.from(tripPhoto));
+
+        when(queryService.listGroups()).thenReturn(Flux.just(trips, travel));
+        when(queryService.listAllPhotos(any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.fromIterable(photoVos));
+
+        var groups = finder.groupBy().collectList().block();
+
+        assertThat(groups).extracting(g -> g.getMetadata().getName())
+            .containsExactly("trips", "travel");
+        assertThat(names(groups.get(0).getPhotos())).containsExactly("trip-1");
+        assertThat(groups.get(0).getStatus().getPhotoCount()).isEqualTo(1);
+        assertThat(groups.get(1).getPhotos()).hasSize(4);
+        assertThat(groups.get(1).getStatus().getPhotoCount()).isEqualTo(4);
+        verify(queryService, times(1)).listAllPhotos(any(ListOptions.class), any(Sort.class));
+    }
+
+    @Test
+    void groupByWithLimitShouldCapPhotosAndStopScanning() {
+        var travel = groupVo("travel", 9);
+        var emitted = new AtomicInteger();
+        when(queryService.listGroups()).thenReturn(Flux.just(travel));
+        when(queryService.listAllPhotos(any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.fromIterable(mixedPhotos().stream().map(PhotoVo::from).toList())
+                .doOnNext(photo -> emitted.incrementAndGet()));
+
+        var groups = finder.groupBy(2).collectList().block();
+
+        assertThat(groups).singleElement().satisfies(g -> {
+            assertThat(names(g.getPhotos())).containsExactly("new-no-exif", "middle-exif");
+            assertThat(g.getStatus().getPhotoCount()).isEqualTo(9);
+        });
+        assertThat(emitted).hasValue(2);
+    }
+
+    @Test
+    void groupByWithLimitShouldStopOnceSmallGroupsHaveAllTheirPhotos() {
+        var travel = groupVo("travel", 9);
+        var small = groupVo("small", 1);
+        var photoVos = new ArrayList<>(mixedPhotos().stream().map(PhotoVo::from).toList());
+        var smallPhoto = photo("small-1", "2026-05-04T12:00:00Z", null);
+        smallPhoto.getSpec().setGroupName("small");
+        photoVos.add(1, PhotoVo.from(smallPhoto));
+        var emitted = new AtomicInteger();
+        when(queryService.listGroups()).thenReturn(Flux.just(travel, small));
+        when(queryService.listAllPhotos(any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.fromIterable(photoVos).doOnNext(photo -> emitted.incrementAndGet()));
+
+        var groups = finder.groupBy(2).collectList().block();
+
+        assertThat(groups).extracting(g -> names(g.getPhotos()))
+            .containsExactly(List.of("new-no-exif", "middle-exif"), List.of("small-1"));
+        assertThat(emitted).hasValue(3);
+    }
+
+    @Test
+    void groupByWithLimitShouldNotTrustStaleLowCounts() {
+        // counts not yet updated for photos just added
+        var travel = groupVo("travel", 0);
+        var small = groupVo("small", 1);
+        var photoVos = new ArrayList<PhotoVo>();
+        for (var name : List.of("small-1", "new-no-exif", "small-2", "middle-exif",
+            "small-3")) {
+            var photo = photo(name, "2026-05-04T00:00:00Z", null);
+            photo.getSpec().setGroupName(name.startsWith("small") ? "small" : "travel");
+            photoVos.add(PhotoVo.from(photo));
+        }
+        when(queryService.listGroups()).thenReturn(Flux.just(travel, small));
+        when(queryService.listAllPhotos(any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.fromIterable(photoVos));
+
+        var groups = finder.groupBy(2).collectList().block();
+
+        assertThat(groups).extracting(g -> names(g.getPhotos()))
+            .containsExactly(List.of("new-no-exif", "middle-exif"),
+                List.of("small-1", "small-2"));
+        assertThat(groups).extracting(g -> g.getStatus().getPhotoCount())
+            .containsExactly(2, 2);
+    }
+
+    @Test
+    void groupByWithLimitShouldScanWhenEveryStoredCountIsZero() {
+        when(queryService.listGroups()).thenReturn(Flux.just(groupVo("travel", 0)));
+        when(queryService.listAllPhotos(any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.fromIterable(mixedPhotos()).map(PhotoVo::from));
+
+        var groups = finder.groupBy(2).collectList().block();
+
+        assertThat(groups).singleElement()
+            .satisfies(group -> assertThat(names(group.getPhotos()))
+                .containsExactly("new-no-exif", "middle-exif"));
+    }
+
     @Test
     void listAllShouldReturnSameSetAndOrderAsBeforeRefactor() {
         var photoVos = mixedPhotos().stream().map(PhotoVo::from).toList();
@@ -170,6 +288,16 @@ class PhotoFinderImplTest {
         );
     }
 
+    private static PhotoGroupVo groupVo(String name, Integer photoCount) {
+        var group = group(name);
+        group.getStatus().setPhotoCount(photoCount);
+        return PhotoGroupVo.builder()
+            .metadata(group.getMetadata())
+            .spec(group.getSpec())
+            .status(group.getStatus())
+            .build();
+    }
+
     private static PhotoGroup group(String name) {
         var metadata = new Metadata();
         metadata.setName(name);
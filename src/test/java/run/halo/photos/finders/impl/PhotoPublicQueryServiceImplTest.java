@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -12,9 +13,11 @@ import java.time.Instant;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.extension.ListOptions;
@@ -22,19 +25,30 @@ import run.halo.app.extension.ListResult;
 import run.halo.app.extension.Metadata;
 import run.halo.app.extension.PageRequestImpl;
 import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.GroupTimeIndex;
 import run.halo.photos.Photo;
+import run.halo.photos.PhotoCursor;
 import run.halo.photos.PhotoGroup;
+import run.halo.photos.index.PhotoTagIndex;
+import run.halo.photos.infra.GalleryVersion;
+import run.halo.photos.infra.PhotoVoCache;
+import run.halo.photos.infra.RenderedPageCache;
+import run.halo.photos.infra.SingleFlightCache;
 
 class PhotoPublicQueryServiceImplTest {
 
     private final ReactiveExtensionClient client = org.mockito.Mockito.mock(
         ReactiveExtensionClient.class);
 
+    private final SingleFlightCache singleFlight =
+        new SingleFlightCache(new RenderedPageCache(), new GalleryVersion());
+
     private PhotoPublicQueryServiceImpl service;
 
     @BeforeEach
     void setUp() {
-        service = new PhotoPublicQueryServiceImpl(client);
+        service = new PhotoPublicQueryServiceImpl(client, new PhotoTagIndex(client),
+            new PhotoVoCache(), singleFlight);
     }
 
     @Test
@@ -113,6 +127,24 @@ class PhotoPublicQueryServiceImplTest {
         assertThat(result.getItems().get(0).getSpec().getDisplayName()).isEqualTo("Beach Sunset");
     }
 
+    @Test
+    void listGroupPhotosShouldReadGroupTimeRange() {
+        var photo1 = photo("a", "2026-05-01T00:00:00Z", null);
+        photo1.getSpec().setGroupName("trips");
+        var pageRequest = ArgumentCaptor.forClass(PageRequestImpl.class);
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), pageRequest.capture()))
+            .thenReturn(Mono.just(new ListResult<>(1, 10, 1, List.of(photo1))));
+
+        var result = service.listGroupPhotos("trips", ListOptions.builder().build(), 1, 10)
+            .block();
+
+        assertThat(result).isNotNull();
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(pageRequest.getValue().getSort()).isEqualTo(GroupTimeIndex.SORT);
+        assertThat(pageRequest.getValue().getPageNumber()).isEqualTo(1);
+        assertThat(pageRequest.getValue().getPageSize()).isEqualTo(10);
+    }
+
     @Test
     void listPhotosPassesThroughDatabaseOrderForEffectiveTimeSort() {
         // Database returns photos already ordered by the effectiveTime index.
@@ -214,13 +246,10 @@ class PhotoPublicQueryServiceImplTest {
     @Test
     void listGroupsShouldNotPopulatePhotos() {
         var group = group("trips");
-        var photo = photo("a", "2026-05-01T00:00:00Z", null);
-        photo.getSpec().setGroupName("trips");
+        group.getStatusOrDefault().setPhotoCount(1);
 
         when(client.listAll(eq(PhotoGroup.class), any(ListOptions.class), eq(Sort.unsorted())))
             .thenReturn(Flux.just(group));
-        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequestImpl.class)))
-            .thenReturn(Mono.just(new ListResult<>(1, 1, 1, List.of(photo))));
 
         var result = service.listGroups().collectList().block();
 
@@ -228,6 +257,98 @@ class PhotoPublicQueryServiceImplTest {
         assertThat(result).hasSize(1);
         assertThat(result.get(0).getPhotos()).isNull();
         assertThat(result.get(0).getStatus().getPhotoCount()).isEqualTo(1);
+        verify(client, never()).listBy(eq(Photo.class), any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
+    @Test
+    void listGroupsShouldBeQueriedOnceUntilInvalidated() {
+        when(client.listAll(eq(PhotoGroup.class), any(ListOptions.class), eq(Sort.unsorted())))
+            .thenReturn(Flux.just(group("trips")));
+
+        service.listGroups().collectList().block();
+        service.listGroups().collectList().block();
+        verify(client, times(1)).listAll(eq(PhotoGroup.class), any(ListOptions.class),
+            eq(Sort.unsorted()));
+
+        singleFlight.invalidate();
+        service.listGroups().collectList().block();
+        verify(client, times(2)).listAll(eq(PhotoGroup.class), any(ListOptions.class),
+            eq(Sort.unsorted()));
+    }
+
+    @Test
+    void listAllGroupPhotosShouldShareOneScan() {
+        var photo1 = photo("a", "2026-05-01T00:00:00Z", null);
+        photo1.getSpec().setGroupName("trips");
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequestImpl.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 500, 1, List.of(photo1))));
+
+        var first = service.listAllGroupPhotos("trips").collectList().block();
+        var second = service.listAllGroupPhotos("trips").collectList().block();
+
+        assertThat(first).extracting(vo -> vo.getMetadata().getName()).containsExactly("a");
+        assertThat(second).isEqualTo(first);
+        verify(client, times(1)).listBy(eq(Photo.class), any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
+    @Test
+    void listPhotosByCursorShouldReturnNextCursorOfLastPhoto() {
+        var photo1 = photo("a", "2026-05-02T00:00:00Z", null);
+        var photo2 = photo("b", "2026-05-01T00:00:00Z", null);
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequestImpl.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 2, 5, List.of(photo1, photo2))));
+
+        var result = service.listPhotosByCursor(ListOptions.builder().build(), null, 2).block();
+
+        assertThat(result).isNotNull();
+        assertThat(result.getItems()).extracting(vo -> vo.getMetadata().getName())
+            .containsExactly("a", "b");
+        assertThat(result.isHasNext()).isTrue();
+        assertThat(PhotoCursor.decode(result.getNextCursor()).name()).isEqualTo("b");
+    }
+
+    @Test
+    void listPhotosByCursorShouldEndWithoutNextCursor() {
+        var photo1 = photo("a", "2026-05-02T00:00:00Z", null);
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequestImpl.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 2, 1, List.of(photo1))));
+        var cursor = new PhotoCursor(Instant.parse("2026-05-03T00:00:00Z").toEpochMilli(),
+            Instant.parse("2026-05-03T00:00:00Z"), "z").encode();
+
+        var result = service.listPhotosByCursor(ListOptions.builder().build(), cursor, 2)
+            .block();
+
+        assertThat(result).isNotNull();
+        assertThat(result.isHasNext()).isFalse();
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void listPhotosByCursorShouldRejectInvalidCursor() {
+        assertThatThrownBy(() -> service.listPhotosByCursor(ListOptions.builder().build(),
+            "%%%", 2).block())
+            .isInstanceOf(ServerWebInputException.class);
+        verify(client, never()).listBy(eq(Photo.class), any(ListOptions.class),
+            any(PageRequestImpl.class));
+    }
+
+    @Test
+    void listAllPhotosInDefaultOrderShouldPageByCursor() {
+        var photo1 = photo("a", "2026-05-02T00:00:00Z", null);
+        var photo2 = photo("b", "2026-05-01T00:00:00Z", null);
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequestImpl.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 500, 2, List.of(photo1, photo2))));
+
+        var photos = service.listAllPhotos(ListOptions.builder().build(), PhotoCursor.SORT)
+            .collectList().block();
+
+        assertThat(photos).extracting(vo -> vo.getMetadata().getName())
+            .containsExactly("a", "b");
+        var pageCaptor = ArgumentCaptor.forClass(PageRequestImpl.class);
+        verify(client).listBy(eq(Photo.class), any(ListOptions.class), pageCaptor.capture());
+        assertThat(pageCaptor.getValue().getPageNumber()).isEqualTo(1);
     }
 
     @Test
@@ -0,0 +1,117 @@
+package run.halo.photos.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+
+class PhotoRankIndexTest {
+
+    private final ReactiveExtensionClient client = mock(ReactiveExtensionClient.class);
+    private final PhotoRankIndex index = new PhotoRankIndex(client);
+
+    @BeforeEach
+    void setUp() {
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(
+                photo("a", "trips", "2026-05-01T00:00:00Z", null),
+                photo("b", "trips", "2026-05-01T00:00:00Z", null),
+                photo("c", "home", "2026-05-02T00:00:00Z", null),
+                photo("d", "trips", "2026-04-01T00:00:00Z", "2026-06-01T00:00:00Z"),
+                photo("e", "", "2026-01-01T00:00:00Z", null)
+            ));
+        index.rebuild().block();
+    }
+
+    @Test
+    void shouldRankByDefaultPhotoOrder() {
+        var window = index.window("a", null, 5).orElseThrow();
+
+        assertThat(window.names()).containsExactly("d", "c", "a", "b", "e");
+        assertThat(window.index()).isEqualTo(2);
+        assertThat(window.current()).isEqualTo(2);
+        assertThat(window.total()).isEqualTo(5);
+    }
+
+    @Test
+    void effectiveTimesWithinSameMillisecondShouldTieLikeDatabaseSort() {
+        // the later shoot time differs only below a millisecond; the newer creation wins
+        index.onPhotoAdded(photo("x", "sub", "2026-04-01T00:00:00Z",
+            "2026-07-01T00:00:00.000500Z"));
+        index.onPhotoAdded(photo("y", "sub", "2026-04-02T00:00:00Z",
+            "2026-07-01T00:00:00.000100Z"));
+
+        assertThat(index.window("x", "sub", 5).orElseThrow().names())
+            .containsExactly("y", "x");
+    }
+
+    @Test
+    void shouldRankWithinGroup() {
+        var window = index.window("b", "trips", 5).orElseThrow();
+
+        assertThat(window.names()).containsExactly("d", "a", "b");
+        assertThat(window.index()).isEqualTo(2);
+        assertThat(window.total()).isEqualTo(3);
+        assertThat(index.window("c", "trips", 5)).isEmpty();
+    }
+
+    @Test
+    void shouldLimitWindowAroundPhoto() {
+        var window = index.window("e", null, 3).orElseThrow();
+
+        assertThat(window.names()).containsExactly("a", "b", "e");
+        assertThat(window.current()).isEqualTo(2);
+        assertThat(window.index()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldMovePhotoOnUpdateAndDropItOnDelete() {
+        index.onPhotoUpdated(photo("e", "trips", "2026-01-01T00:00:00Z", "2027-01-01T00:00:00Z"));
+        index.onPhotoDeleted(photo("d", "trips", "2026-04-01T00:00:00Z", null));
+
+        assertThat(index.window("e", "trips", 5).orElseThrow().names())
+            .containsExactly("e", "a", "b");
+        assertThat(index.window("d", null, 5)).isEmpty();
+        assertThat(index.window("c", null, 5).orElseThrow().total()).isEqualTo(4);
+    }
+
+    @Test
+    void softDeletedPhotoShouldNotBeRanked() {
+        var deleting = photo("a", "trips", "2026-05-01T00:00:00Z", null);
+        deleting.getMetadata().setDeletionTimestamp(Instant.now());
+        index.onPhotoUpdated(deleting);
+
+        assertThat(index.window("a", null, 5)).isEmpty();
+        assertThat(index.window("b", "trips", 5).orElseThrow().names())
+            .containsExactly("d", "b");
+    }
+
+    private static Photo photo(String name, String group, String creationTimestamp,
+        String dateTimeOriginal) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        metadata.setCreationTimestamp(Instant.parse(creationTimestamp));
+        var spec = new Photo.PhotoSpec();
+        spec.setGroupName(group);
+        var exif = new Photo.PhotoExif();
+        if (dateTimeOriginal != null) {
+            exif.setDateTimeOriginal(Instant.parse(dateTimeOriginal));
+        }
+        var photo = new Photo();
+        photo.setMetadata(metadata);
+        photo.setSpec(spec);
+        photo.setExif(exif);
+        return photo;
+    }
+}
@@ -0,0 +1,144 @@
+package run.halo.photos.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+
+class PhotoTagIndexTest {
+
+    private final ReactiveExtensionClient client = mock(ReactiveExtensionClient.class);
+    private final PhotoTagIndex index = new PhotoTagIndex(client);
+
+    @Test
+    void shouldApplyTagDiffsWithoutRescanning() {
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(photo("a", "sunset", "beach"), photo("b", "sunset")));
+        index.rebuild().block();
+
+        index.onPhotoUpdated(photo("a", "beach", "mountain"));
+        index.onPhotoAdded(photo("c", "mountain"));
+        index.onPhotoDeleted(photo("b", "sunset"));
+
+        assertThat(counts(null)).containsExactly("beach=1", "mountain=2");
+        verify(client, times(1)).listAll(eq(Photo.class), any(ListOptions.class),
+            any(Sort.class));
+    }
+
+    @Test
+    void softDeletedPhotoShouldNotBeCounted() {
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(photo("a", "sunset")));
+        index.rebuild().block();
+
+        var deleting = photo("a", "sunset");
+        deleting.getMetadata().setDeletionTimestamp(Instant.now());
+        index.onPhotoUpdated(deleting);
+
+        assertThat(counts(null)).isEmpty();
+    }
+
+    @Test
+    void eventsDuringRebuildShouldBeReplayed() {
+        var scan = Sinks.many().unicast().<Photo>onBackpressureBuffer();
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(scan.asFlux());
+        var ready = index.rebuild();
+
+        index.onPhotoUpdated(photo("a", "mountain"));
+        scan.tryEmitNext(photo("a", "sunset"));
+        scan.tryEmitComplete();
+        ready.block();
+
+        assertThat(counts(null)).containsExactly("mountain=1");
+    }
+
+    @Test
+    void failedScanShouldBeRetriedOnNextUse() {
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.error(new IllegalStateException("not ready")))
+            .thenReturn(Flux.just(photo("a", "sunset")));
+
+        assertThatThrownBy(() -> index.whenReady().block())
+            .isInstanceOf(IllegalStateException.class);
+        index.whenReady().block();
+
+        assertThat(counts(null)).containsExactly("sunset=1");
+        verify(client, times(2)).listAll(eq(Photo.class), any(ListOptions.class),
+            any(Sort.class));
+    }
+
+    @Test
+    void shouldFilterByNameCaseInsensitively() {
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(photo("a", "Sunset", "Sunrise", "beach")));
+
+        index.whenReady().block();
+
+        assertThat(counts("sun")).containsExactly("Sunrise=1", "Sunset=1");
+    }
+
+    @Test
+    void shouldCountTagsWithinGroupAndTagScope() {
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(
+                groupedPhoto("a", "trips", "sunset", "beach"),
+                groupedPhoto("b", "trips", "sunset"),
+                groupedPhoto("c", null, "sunset", "mountain")));
+        index.rebuild().block();
+
+        assertThat(counts(null, "trips", null)).containsExactly("beach=1", "sunset=2");
+        assertThat(counts(null, "", null)).containsExactly("mountain=1", "sunset=1");
+        assertThat(counts(null, null, "beach")).containsExactly("beach=1", "sunset=1");
+        assertThat(counts(null, "trips", "mountain")).isEmpty();
+
+        index.onPhotoUpdated(groupedPhoto("b", "home", "sunset"));
+
+        assertThat(counts(null, "trips", null)).containsExactly("beach=1", "sunset=1");
+        assertThat(counts(null, null, null))
+            .containsExactly("beach=1", "mountain=1", "sunset=3");
+    }
+
+    private List<String> counts(String nameFilter) {
+        return index.tags(nameFilter).stream()
+            .map(tag -> tag.getName() + "=" + tag.getPhotoCount())
+            .toList();
+    }
+
+    private List<String> counts(String nameFilter, String group, String tag) {
+        return index.tags(nameFilter, group, tag).stream()
+            .map(vo -> vo.getName() + "=" + vo.getPhotoCount())
+            .toList();
+    }
+
+    private static Photo photo(String name, String... tags) {
+        return groupedPhoto(name, null, tags);
+    }
+
+    private static Photo groupedPhoto(String name, String group, String... tags) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        var spec = new Photo.PhotoSpec();
+        spec.setGroupName(group);
+        spec.setTags(List.of(tags));
+        var photo = new Photo();
+        photo.setMetadata(metadata);
+        photo.setSpec(spec);
+        return photo;
+    }
+}
@@ -0,0 +1,133 @@
+package run.halo.photos.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import run.halo.app.infra.BackupRootGetter;
+
+class DerivativeCacheTest {
+
+    @TempDir
+    Path workDir;
+
+    private final BackupRootGetter backupRootGetter = mock(BackupRootGetter.class);
+
+    private DerivativeCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(backupRootGetter.get()).thenReturn(workDir.resolve("backups"));
+        cache = new DerivativeCache(backupRootGetter);
+    }
+
+    @Test
+    void missShouldStoreFileAndHitShouldSkipLoader() throws Exception {
+        var loads = new AtomicInteger();
+
+        var first = cache.get("k1", "jpg", () -> {
+            loads.incrementAndGet();
+            return Mono.just(new byte[] {1, 2, 3});
+        }).block();
+        var second = cache.get("k1", "jpg", () -> {
+            loads.incrementAndGet();
+            return Mono.just(new byte[] {9});
+        }).block();
+
+        assertThat(first).isEqualTo(second)
+            .isEqualTo(workDir.resolve("plugin-photos/derivatives/k1.jpg"));
+        assertThat(Files.readAllBytes(first)).containsExactly(1, 2, 3);
+        assertThat(loads).hasValue(1);
+        assertThat(cache.metrics())
+            .containsEntry("hits", 1L)
+            .containsEntry("misses", 1L)
+            .containsEntry("bytes", 3L);
+    }
+
+    @Test
+    void concurrentMissesShouldShareOneLoad() {
+        var loads = new AtomicInteger();
+        var content = Sinks.<byte[]>one();
+
+        var first = cache.get("k1", "jpg", () -> {
+            loads.incrementAndGet();
+            return content.asMono();
+        }).toFuture();
+        var second = cache.get("k1", "jpg", () -> {
+            loads.incrementAndGet();
+            return content.asMono();
+        }).toFuture();
+        content.tryEmitValue(new byte[] {1});
+
+        assertThat(first.join()).isEqualTo(second.join());
+        assertThat(loads).hasValue(1);
+        assertThat(cache.metrics())
+            .containsEntry("joins", 1L)
+            .containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void overflowShouldEvictLeastRecentlyServedFile() {
+        cache.configure(10);
+        var a = cache.get("a", "jpg", () -> Mono.just(new byte[4])).block();
+        var b = cache.get("b", "jpg", () -> Mono.just(new byte[4])).block();
+        // touch a so that b becomes the eldest
+        cache.get("a", "jpg", Mono::empty).block();
+
+        var c = cache.get("c", "jpg", () -> Mono.just(new byte[4])).block();
+
+        assertThat(a).exists();
+        assertThat(b).doesNotExist();
+        assertThat(c).exists();
+        assertThat(cache.metrics())
+            .containsEntry("entries", 2)
+            .containsEntry("bytes", 8L)
+            .containsEntry("evictions", 1L);
+    }
+
+    @Test
+    void fileLargerThanLimitShouldStillBeServed() {
+        cache.configure(2);
+
+        var file = cache.get("big", "jpg", () -> Mono.just(new byte[4])).block();
+
+        assertThat(file).exists();
+    }
+
+    @Test
+    void failedLoadShouldNotBeCached() {
+        var failed = cache.get("k1", "jpg",
+                () -> Mono.error(new IllegalStateException("boom")))
+            .onErrorResume(e -> Mono.empty())
+            .block();
+        var loaded = cache.get("k1", "jpg", () -> Mono.just(new byte[] {1})).block();
+
+        assertThat(failed).isNull();
+        assertThat(loaded).exists();
+        assertThat(cache.metrics()).containsEntry("failures", 1L);
+    }
+
+    @Test
+    void filesShouldBeIndexedAgainAfterRestart() throws Exception {
+        cache.get("k1", "jpg", () -> Mono.just(new byte[] {1, 2})).block();
+        var leftover = Files.writeString(
+            workDir.resolve("plugin-photos/derivatives/k2.tmp-123"), "partial");
+
+        var restarted = new DerivativeCache(backupRootGetter);
+        var file = restarted.get("k1", "jpg", () -> Mono.just(new byte[] {9})).block();
+
+        assertThat(Files.readAllBytes(file)).containsExactly(1, 2);
+        assertThat(leftover).doesNotExist();
+        assertThat(restarted.metrics())
+            .containsEntry("hits", 1L)
+            .containsEntry("bytes", 2L);
+    }
+}
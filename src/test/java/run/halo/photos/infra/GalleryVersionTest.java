@@ -0,0 +1,33 @@
+package run.halo.photos.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class GalleryVersionTest {
+
+    private final GalleryVersion galleryVersion = new GalleryVersion();
+
+    @Test
+    void bumpShouldChangeVersion() {
+        var before = galleryVersion.current();
+
+        galleryVersion.bump();
+
+        assertThat(galleryVersion.current()).isNotEqualTo(before);
+    }
+
+    @Test
+    void lastModifiedShouldIncreaseOnEveryBump() {
+        var before = galleryVersion.lastModified();
+
+        galleryVersion.bump();
+        var first = galleryVersion.lastModified();
+        galleryVersion.bump();
+        var second = galleryVersion.lastModified();
+
+        assertThat(first).isAfter(before);
+        assertThat(second).isAfter(first);
+        assertThat(second.getNano()).isZero();
+    }
+}
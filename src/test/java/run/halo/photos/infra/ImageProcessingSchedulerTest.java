@@ -0,0 +1,124 @@
+package run.halo.photos.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+
+class ImageProcessingSchedulerTest {
+
+    private final ImageProcessingScheduler scheduler = new ImageProcessingScheduler();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.destroy();
+    }
+
+    @Test
+    void taskShouldRunOnDedicatedThread() {
+        var threadName = scheduler.fromCallable(() -> Thread.currentThread().getName())
+            .block(Duration.ofSeconds(5));
+
+        assertThat(threadName).startsWith("photos-image");
+        assertThat(scheduler.metrics())
+            .containsEntry("completed", 1L)
+            .containsEntry("active", 0)
+            .containsEntry("queued", 0);
+    }
+
+    @Test
+    void virtualModeShouldRunOnVirtualThread() {
+        scheduler.configure(ImageProcessingScheduler.Mode.VIRTUAL, 2, 8);
+
+        var virtual = scheduler.fromCallable(() -> Thread.currentThread().isVirtual())
+            .block(Duration.ofSeconds(5));
+
+        assertThat(virtual).isTrue();
+        assertThat(scheduler.metrics()).containsEntry("mode", "VIRTUAL");
+    }
+
+    @Test
+    void fullQueueShouldRejectNewTasks() throws Exception {
+        scheduler.configure(ImageProcessingScheduler.Mode.VIRTUAL, 1, 1);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        Disposable running = scheduler.fromCallable(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }).subscribe();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Disposable waiting = scheduler.fromCallable(() -> true).subscribe();
+
+        assertThat(scheduler.metrics())
+            .containsEntry("active", 1)
+            .containsEntry("queued", 1);
+        assertThatThrownBy(() -> scheduler.fromCallable(() -> true).block())
+            .isInstanceOf(ResponseStatusException.class);
+        assertThat(scheduler.metrics()).containsEntry("rejected", 1L);
+
+        release.countDown();
+        running.dispose();
+        waiting.dispose();
+    }
+
+    @Test
+    void concurrentSubmissionsShouldNotOverfillQueue() throws Exception {
+        scheduler.configure(ImageProcessingScheduler.Mode.VIRTUAL, 1, 4);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        Disposable running = scheduler.fromCallable(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }).subscribe();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        var go = new CountDownLatch(1);
+        var submissions = new ArrayList<Disposable>();
+        var threads = new ArrayList<Thread>();
+        for (int i = 0; i < 16; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                var submission = scheduler.fromCallable(() -> true).subscribe(
+                    result -> {
+                    }, error -> {
+                    });
+                synchronized (submissions) {
+                    submissions.add(submission);
+                }
+            }));
+        }
+        go.countDown();
+        for (var thread : threads) {
+            thread.join(5000);
+        }
+
+        assertThat(scheduler.metrics())
+            .containsEntry("queued", 4)
+            .containsEntry("rejected", 12L);
+
+        release.countDown();
+        running.dispose();
+        submissions.forEach(Disposable::dispose);
+    }
+
+    @Test
+    void failedTaskShouldBeCounted() {
+        assertThatThrownBy(() -> scheduler.fromCallable(() -> {
+            throw new IllegalStateException("boom");
+        }).block(Duration.ofSeconds(5))).isInstanceOf(IllegalStateException.class);
+
+        assertThat(scheduler.metrics()).containsEntry("failed", 1L);
+    }
+}
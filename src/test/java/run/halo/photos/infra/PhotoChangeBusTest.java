@@ -0,0 +1,108 @@
+package run.halo.photos.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import run.halo.app.extension.Metadata;
+import run.halo.photos.Photo;
+
+class PhotoChangeBusTest {
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    @Test
+    void eventsWithinWindowShouldBeDeliveredAsOneBatch() {
+        var bus = new PhotoChangeBus(Duration.ofHours(1), 100);
+        bus.subscribe(this::record);
+
+        bus.publish(PhotoChange.added(photo("a")));
+        bus.publish(PhotoChange.updated(photo("a"), photo("a")));
+        bus.publish(PhotoChange.deleted(photo("b")));
+        assertThat(batches).isEmpty();
+
+        bus.flush();
+
+        assertThat(batches).containsExactly(List.of("ADDED a", "UPDATED a", "DELETED b"));
+        assertThat(bus.metrics())
+            .containsEntry("events", 3L)
+            .containsEntry("batches", 1L)
+            .containsEntry("largestBatch", 3L)
+            .containsEntry("pending", 0);
+    }
+
+    @Test
+    void fullBatchShouldBeDeliveredImmediately() {
+        var bus = new PhotoChangeBus(Duration.ofHours(1), 2);
+        bus.subscribe(this::record);
+
+        bus.publish(PhotoChange.added(photo("a")));
+        bus.publish(PhotoChange.added(photo("b")));
+        bus.publish(PhotoChange.added(photo("c")));
+
+        assertThat(batches).containsExactly(List.of("ADDED a", "ADDED b"));
+        assertThat(bus.metrics()).containsEntry("pending", 1);
+    }
+
+    @Test
+    void batchShouldBeDeliveredAfterWindow() throws InterruptedException {
+        var bus = new PhotoChangeBus(Duration.ofMillis(10), 100);
+        var delivered = new CountDownLatch(1);
+        bus.subscribe(changes -> {
+            record(changes);
+            delivered.countDown();
+        });
+
+        bus.publish(PhotoChange.added(photo("a")));
+        bus.publish(PhotoChange.added(photo("b")));
+
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(batches).containsExactly(List.of("ADDED a", "ADDED b"));
+    }
+
+    @Test
+    void failingSubscriberShouldNotStopOthers() {
+        var bus = new PhotoChangeBus(Duration.ofHours(1), 100);
+        bus.subscribe(changes -> {
+            throw new IllegalStateException("boom");
+        });
+        bus.subscribe(this::record);
+
+        bus.publish(PhotoChange.added(photo("a")));
+        bus.flush();
+
+        assertThat(batches).containsExactly(List.of("ADDED a"));
+        assertThat(bus.metrics()).containsEntry("failures", 1L);
+    }
+
+    @Test
+    void disposedSubscriptionShouldNotReceiveBatches() {
+        var bus = new PhotoChangeBus(Duration.ofHours(1), 100);
+        var subscription = bus.subscribe(this::record);
+
+        subscription.dispose();
+        bus.publish(PhotoChange.added(photo("a")));
+        bus.flush();
+
+        assertThat(batches).isEmpty();
+    }
+
+    private void record(List<PhotoChange> changes) {
+        batches.add(changes.stream()
+            .map(change -> change.type() + " " + change.name())
+            .toList());
+    }
+
+    private static Photo photo(String name) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        var photo = new Photo();
+        photo.setMetadata(metadata);
+        photo.setSpec(new Photo.PhotoSpec());
+        return photo;
+    }
+}
@@ -0,0 +1,161 @@
+package run.halo.photos.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import run.halo.app.extension.ListResult;
+import run.halo.app.extension.Metadata;
+import run.halo.photos.Photo;
+import run.halo.photos.vo.PhotoCursorResult;
+import run.halo.photos.vo.PhotoTagVo;
+import run.halo.photos.vo.PhotoVo;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+class PhotoJsonCacheTest {
+
+    private final JsonMapper mapper = JsonMapper.builder().build();
+
+    private final PhotoJsonCache cache = new PhotoJsonCache(mapper);
+
+    @Test
+    void splicedPageShouldMatchWholeEncoding() {
+        var result = new ListResult<>(2, 2, 5, List.of(photoVo("a", 1L), photoVo("b", 1L)));
+
+        var json = read(cache.page(result));
+
+        assertThat(json.get("page").asInt()).isEqualTo(2);
+        assertThat(json.get("total").asLong()).isEqualTo(5);
+        assertThat(json.get("items")).hasSize(2);
+        assertThat(json.get("items").get(1).get("metadata").get("name").asText()).isEqualTo("b");
+        assertThat(json.get("items").get(0).get("exif").get("gpsLatitude").isNull()).isTrue();
+        assertThat(json.get("size").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void cachedBytesShouldMatchUncachedEncodingOfSameMapper() {
+        var nonNull = JsonMapper.builder()
+            .changeDefaultPropertyInclusion(inclusion ->
+                inclusion.withValueInclusion(JsonInclude.Include.NON_NULL))
+            .build();
+        var configured = new PhotoJsonCache(nonNull);
+        var page = new ListResult<>(1, 2, 3, List.of(photoVo("a", 1L), photoVo("b", null)));
+        var cursorPage = PhotoCursorResult.builder()
+            .items(List.of(photoVo("a", 1L)))
+            .size(20)
+            .hasNext(false)
+            .build();
+
+        // twice each, so that the second pass is served from the cache
+        for (int i = 0; i < 2; i++) {
+            assertThat(configured.page(page).asString())
+                .isEqualTo(nonNull.writeValueAsString(page));
+            assertThat(configured.cursorPage(cursorPage).asString())
+                .isEqualTo(nonNull.writeValueAsString(cursorPage));
+            assertThat(configured.photo(photoVo("a", 1L)).asString())
+                .isEqualTo(nonNull.writeValueAsString(photoVo("a", 1L)));
+            assertThat(cache.page(page).asString()).isEqualTo(mapper.writeValueAsString(page));
+        }
+        assertThat(configured.metrics()).containsEntry("photoHits", 5L);
+    }
+
+    @Test
+    void emptyPageShouldStayValidJson() {
+        var json = read(cache.page(new ListResult<>(1, 10, 0, List.<PhotoVo>of())));
+
+        assertThat(json.get("items")).isEmpty();
+    }
+
+    @Test
+    void cursorPageShouldKeepCursorFields() {
+        var result = PhotoCursorResult.builder()
+            .items(List.of(photoVo("a", 1L)))
+            .size(20)
+            .hasNext(true)
+            .nextCursor("next")
+            .build();
+
+        var json = read(cache.cursorPage(result));
+
+        assertThat(json.get("items")).hasSize(1);
+        assertThat(json.get("nextCursor").asText()).isEqualTo("next");
+        assertThat(json.get("hasNext").asBoolean()).isTrue();
+    }
+
+    @Test
+    void photoBytesShouldBeReusedUntilVersionChanges() {
+        var first = cache.photo(photoVo("a", 1L)).parts().getFirst();
+
+        assertThat(cache.photo(photoVo("a", 1L)).parts().getFirst()).isSameAs(first);
+
+        var updated = photoVo("a", 2L);
+        updated.getSpec().setDisplayName("renamed");
+        var json = read(cache.photo(updated));
+        assertThat(json.get("spec").get("displayName").asText()).isEqualTo("renamed");
+        assertThat(cache.metrics())
+            .containsEntry("photoHits", 1L)
+            .containsEntry("photoMisses", 2L);
+    }
+
+    @Test
+    void tagListShouldBeCachedUntilInvalidated() {
+        var calls = new int[1];
+        Supplier<Mono<List<PhotoTagVo>>> tags = () -> {
+            calls[0]++;
+            return Mono.just(List.of(PhotoTagVo.builder().name("sunset").photoCount(2).build()));
+        };
+
+        cache.tags(null, tags).block();
+        var json = read(cache.tags(null, tags).block());
+
+        assertThat(calls[0]).isEqualTo(1);
+        assertThat(json.get(0).get("name").asText()).isEqualTo("sunset");
+
+        cache.invalidateTags();
+        cache.tags(null, tags).block();
+        assertThat(calls[0]).isEqualTo(2);
+    }
+
+    @Test
+    void tagListComputedAcrossInvalidationShouldNotBeStored() {
+        var calls = new int[1];
+        Supplier<Mono<List<PhotoTagVo>>> tags = () -> {
+            calls[0]++;
+            return Mono.fromSupplier(() -> {
+                cache.invalidateTags();
+                return List.of();
+            });
+        };
+
+        cache.tags("sun", tags).block();
+        cache.tags("sun", tags).block();
+
+        assertThat(calls[0]).isEqualTo(2);
+        assertThat(cache.metrics()).containsEntry("tagLists", 0);
+    }
+
+    private JsonNode read(PhotoJsonCache.Segments segments) {
+        return mapper.readTree(segments.asString());
+    }
+
+    private static PhotoVo photoVo(String name, Long version) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        metadata.setVersion(version);
+        var spec = new Photo.PhotoSpec();
+        spec.setDisplayName(name);
+        spec.setUrl("/" + name + ".jpg");
+        var exif = new Photo.PhotoExif();
+        exif.setMake("Canon");
+        exif.setGpsLatitude(39.9);
+        var photo = new Photo();
+        photo.setMetadata(metadata);
+        photo.setSpec(spec);
+        photo.setExif(exif);
+        return PhotoVo.from(photo);
+    }
+}
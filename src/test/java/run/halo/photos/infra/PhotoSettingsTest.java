@@ -0,0 +1,90 @@
+package run.halo.photos.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import run.halo.app.plugin.ReactiveSettingFetcher;
+import run.halo.photos.ModelConst;
+import tools.jackson.databind.node.JsonNodeFactory;
+
+class PhotoSettingsTest {
+
+    private final ReactiveSettingFetcher settingFetcher = mock(ReactiveSettingFetcher.class);
+
+    private final PhotoSettings photoSettings = new PhotoSettings(settingFetcher);
+
+    @Test
+    void shouldServeDefaultsBeforeFirstLoad() {
+        var settings = photoSettings.current();
+
+        assertThat(settings).isSameAs(PhotoSettings.Snapshot.DEFAULTS);
+        assertThat(settings.title()).isEqualTo("图库");
+        assertThat(settings.pageSize()).isEqualTo(ModelConst.DEFAULT_PAGE_SIZE);
+        assertThat(settings.apiCacheControl()).isEqualTo("no-cache");
+        assertThat(settings.policyName()).isEmpty();
+        assertThat(settings.pageCacheEnabled()).isFalse();
+        assertThat(settings.variantWidths()).containsExactly(320, 640, 1280);
+    }
+
+    @Test
+    void refreshShouldReplaceSnapshot() {
+        var base = JsonNodeFactory.instance.objectNode();
+        base.put("title", "Gallery");
+        base.put("pageSize", 24);
+        base.put("policyName", "local");
+        var advanced = JsonNodeFactory.instance.objectNode();
+        advanced.put("apiCacheControl", " public, max-age=60 ");
+        advanced.put("themeRenderMode", "prefetch");
+        advanced.put("pageCacheEnabled", true);
+        advanced.put("pageCacheMaxSize", 16);
+        advanced.put("staleWhileRevalidate", true);
+        advanced.put("variantWidths", "640, 320,abc,0,320");
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(base));
+        when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.just(advanced));
+
+        var loaded = photoSettings.refresh().block();
+
+        assertThat(photoSettings.current()).isSameAs(loaded);
+        assertThat(loaded.title()).isEqualTo("Gallery");
+        assertThat(loaded.pageSize()).isEqualTo(24);
+        assertThat(loaded.policyName()).isEqualTo("local");
+        assertThat(loaded.apiCacheControl()).isEqualTo("public, max-age=60");
+        assertThat(loaded.themeRenderMode()).isEqualTo("prefetch");
+        assertThat(loaded.pageCacheEnabled()).isTrue();
+        assertThat(loaded.pageCacheMaxSizeMb()).isEqualTo(16);
+        assertThat(loaded.staleWhileRevalidate()).isTrue();
+        assertThat(loaded.variantWidths()).containsExactly(320, 640);
+    }
+
+    @Test
+    void missingGroupsShouldFallBackToDefaults() {
+        var base = JsonNodeFactory.instance.objectNode();
+        base.put("pageSize", 0);
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(base));
+        when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.empty());
+
+        var loaded = photoSettings.refresh().block();
+
+        assertThat(loaded).isEqualTo(PhotoSettings.Snapshot.DEFAULTS);
+    }
+
+    @Test
+    void failedRefreshShouldKeepPreviousSnapshot() {
+        var base = JsonNodeFactory.instance.objectNode();
+        base.put("title", "Gallery");
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(base));
+        when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.empty());
+        photoSettings.refresh().block();
+
+        when(settingFetcher.getSettingValue("advanced"))
+            .thenReturn(Mono.error(new IllegalStateException("boom")));
+
+        assertThatThrownBy(() -> photoSettings.refresh().block())
+            .hasMessageContaining("boom");
+        assertThat(photoSettings.current().title()).isEqualTo("Gallery");
+    }
+}
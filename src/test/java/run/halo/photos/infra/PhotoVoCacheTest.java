@@ -0,0 +1,85 @@
+package run.halo.photos.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import run.halo.app.extension.Metadata;
+import run.halo.photos.Photo;
+
+class PhotoVoCacheTest {
+
+    private final PhotoVoCache cache = new PhotoVoCache(2);
+
+    @Test
+    void sameVersionShouldReuseVo() {
+        var first = cache.get(photo("a", 1L));
+        var second = cache.get(photo("a", 1L));
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.metrics())
+            .containsEntry("hits", 1L)
+            .containsEntry("misses", 1L)
+            .containsEntry("entries", 1);
+    }
+
+    @Test
+    void newVersionShouldRebuildVo() {
+        var first = cache.get(photo("a", 1L));
+        var updated = photo("a", 2L);
+        updated.getSpec().setDisplayName("renamed");
+
+        var second = cache.get(updated);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getSpec().getDisplayName()).isEqualTo("renamed");
+        assertThat(cache.get(photo("a", 2L))).isSameAs(second);
+    }
+
+    @Test
+    void cachedVoShouldStillHideGps() {
+        var photo = photo("a", 1L);
+        photo.getExif().setGpsLatitude(39.9);
+
+        cache.get(photo);
+        var vo = cache.get(photo);
+
+        assertThat(vo.getExif().getGpsLatitude()).isNull();
+        assertThat(photo.getExif().getGpsLatitude()).isEqualTo(39.9);
+    }
+
+    @Test
+    void photoWithoutVersionShouldNotBeCached() {
+        var first = cache.get(photo("a", null));
+        var second = cache.get(photo("a", null));
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(cache.metrics()).containsEntry("entries", 0);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsed() {
+        var a = cache.get(photo("a", 1L));
+        cache.get(photo("b", 1L));
+        cache.get(photo("a", 1L));
+        cache.get(photo("c", 1L));
+
+        assertThat(cache.get(photo("a", 1L))).isSameAs(a);
+        assertThat(cache.metrics()).containsEntry("entries", 2);
+
+        cache.evict("a");
+        assertThat(cache.get(photo("a", 1L))).isNotSameAs(a);
+    }
+
+    private static Photo photo(String name, Long version) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        metadata.setVersion(version);
+        var spec = new Photo.PhotoSpec();
+        spec.setDisplayName(name);
+        var photo = new Photo();
+        photo.setMetadata(metadata);
+        photo.setSpec(spec);
+        photo.setExif(new Photo.PhotoExif());
+        return photo;
+    }
+}
@@ -0,0 +1,146 @@
+package run.halo.photos.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+
+class RenderedPageCacheTest {
+
+    private final RenderedPageCache cache = new RenderedPageCache();
+
+    @BeforeEach
+    void setUp() {
+        cache.configure(true, 0, 0);
+    }
+
+    @Test
+    void renderedPageShouldBeServedFromCache() {
+        var key = listKey("1");
+
+        var body = render(key, "<html>1</html>");
+
+        assertThat(body).isEqualTo("<html>1</html>");
+        var page = cache.get(key);
+        assertThat(page).isNotNull();
+        assertThat(new String(page.body(), StandardCharsets.UTF_8)).isEqualTo("<html>1</html>");
+        assertThat(page.contentType()).isNotNull();
+        assertThat(page.contentType().isCompatibleWith(MediaType.TEXT_HTML)).isTrue();
+        assertThat(cache.metrics()).containsEntry("entries", 1).containsEntry("hits", 1L);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedPageWhenEntriesExceeded() {
+        cache.configure(true, 2, 0);
+        render(listKey("1"), "a");
+        render(listKey("2"), "b");
+        cache.get(listKey("1"));
+
+        render(listKey("3"), "c");
+
+        assertThat(cache.get(listKey("2"))).isNull();
+        assertThat(cache.get(listKey("1"))).isNotNull();
+        assertThat(cache.get(listKey("3"))).isNotNull();
+        assertThat(cache.metrics()).containsEntry("evictions", 1L);
+    }
+
+    @Test
+    void shouldEvictPagesWhenBytesExceeded() {
+        cache.configure(true, 0, 10);
+        render(listKey("1"), "123456");
+
+        render(listKey("2"), "abcdef");
+
+        assertThat(cache.get(listKey("1"))).isNull();
+        assertThat(cache.get(listKey("2"))).isNotNull();
+        assertThat(cache.metrics()).containsEntry("bytes", 6L);
+    }
+
+    @Test
+    void invalidateShouldOnlyDropGivenKind() {
+        var detail = new RenderedPageCache.Key(RenderedPageCache.Kind.DETAIL, "abc", null, null,
+            null, Locale.CHINESE);
+        render(listKey("1"), "list");
+        render(detail, "detail");
+
+        cache.invalidate(RenderedPageCache.Kind.LIST);
+
+        assertThat(cache.get(listKey("1"))).isNull();
+        assertThat(cache.get(detail)).isNotNull();
+
+        cache.invalidate(null);
+
+        assertThat(cache.get(detail)).isNull();
+        assertThat(cache.metrics()).containsEntry("bytes", 0L);
+    }
+
+    @Test
+    void pageRenderedAcrossInvalidationShouldNotBeStored() {
+        var key = listKey("1");
+        var response = cache.capture(key, ServerResponse.ok()
+            .contentType(MediaType.TEXT_HTML)
+            .bodyValue("stale")
+            .block());
+
+        cache.invalidate(null);
+        write(response);
+
+        assertThat(cache.get(key)).isNull();
+    }
+
+    @Test
+    void disabledCacheShouldPassResponsesThrough() {
+        cache.configure(false, 0, 0);
+        var response = ServerResponse.ok().bodyValue("page").block();
+
+        assertThat(cache.capture(listKey("1"), response)).isSameAs(response);
+        assertThat(cache.get(listKey("1"))).isNull();
+    }
+
+    @Test
+    void nonOkResponsesShouldNotBeCaptured() {
+        var response = ServerResponse.notFound().build().block();
+
+        assertThat(cache.capture(listKey("1"), response)).isSameAs(response);
+    }
+
+    private String render(RenderedPageCache.Key key, String html) {
+        var response = cache.capture(key, ServerResponse.ok()
+            .contentType(MediaType.TEXT_HTML)
+            .bodyValue(html)
+            .block());
+        return write(response);
+    }
+
+    private static String write(ServerResponse response) {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/photos"));
+        var strategies = HandlerStrategies.withDefaults();
+        response.writeTo(exchange, new ServerResponse.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return strategies.messageWriters();
+            }
+
+            @Override
+            public List<ViewResolver> viewResolvers() {
+                return strategies.viewResolvers();
+            }
+        }).block();
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    private static RenderedPageCache.Key listKey(String page) {
+        return new RenderedPageCache.Key(RenderedPageCache.Kind.LIST, null, null, page, null,
+            Locale.CHINESE);
+    }
+}
@@ -0,0 +1,115 @@
+package run.halo.photos.infra;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class SingleFlightCacheTest {
+
+    private final GalleryVersion galleryVersion = new GalleryVersion();
+    private final SingleFlightCache cache =
+        new SingleFlightCache(new RenderedPageCache(), galleryVersion);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void concurrentCallsShouldShareOneLoad() {
+        var result = Sinks.<String>one();
+        var first = cache.get("k", () -> load(result.asMono())).toFuture();
+        var second = cache.get("k", () -> load(result.asMono())).toFuture();
+
+        result.tryEmitValue("v");
+
+        assertThat(first.join()).isEqualTo("v");
+        assertThat(second.join()).isEqualTo("v");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.metrics()).containsEntry("joins", 1L).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void resultShouldBeKeptUntilInvalidated() {
+        assertThat(cache.get("k", () -> load(Mono.just("v1"))).block()).isEqualTo("v1");
+        assertThat(cache.get("k", () -> load(Mono.just("v2"))).block()).isEqualTo("v1");
+
+        cache.invalidate();
+
+        assertThat(cache.get("k", () -> load(Mono.just("v3"))).block()).isEqualTo("v3");
+        assertThat(loads).hasValue(2);
+        assertThat(cache.metrics()).containsEntry("hits", 1L);
+    }
+
+    @Test
+    void loadStartedBeforeInvalidationShouldNotBeJoined() {
+        var stale = Sinks.<String>one();
+        var first = cache.get("k", () -> load(stale.asMono())).toFuture();
+
+        cache.invalidate();
+        var second = cache.get("k", () -> load(Mono.just("fresh"))).block();
+        stale.tryEmitValue("stale");
+
+        assertThat(second).isEqualTo("fresh");
+        assertThat(first.join()).isEqualTo("stale");
+        assertThat(cache.get("k", () -> load(Mono.just("other"))).block()).isEqualTo("fresh");
+    }
+
+    @Test
+    void staleResultShouldBeServedWhileRefreshing() {
+        cache.configure(true);
+        cache.get("k", () -> load(Mono.just("v1"))).block();
+        cache.invalidate();
+        var version = galleryVersion.current();
+
+        var refresh = Sinks.<String>one();
+        assertThat(cache.get("k", () -> load(refresh.asMono())).block()).isEqualTo("v1");
+        assertThat(cache.get("k", () -> load(refresh.asMono())).block()).isEqualTo("v1");
+        assertThat(galleryVersion.current()).isEqualTo(version);
+
+        refresh.tryEmitValue("v2");
+
+        assertThat(cache.get("k", () -> load(Mono.just("v3"))).block()).isEqualTo("v2");
+        assertThat(loads).hasValue(2);
+        assertThat(galleryVersion.current()).isNotEqualTo(version);
+        assertThat(cache.metrics()).containsEntry("staleServed", 2L);
+    }
+
+    @Test
+    void resultsShouldBeEvictedBeyondMaxWeight() {
+        var bounded = new SingleFlightCache(new RenderedPageCache(), galleryVersion, 5);
+
+        bounded.get("a", () -> load(Mono.just(List.of(1, 2, 3)))).block();
+        bounded.get("b", () -> load(Mono.just(List.of(4, 5)))).block();
+        bounded.get("a", () -> load(Mono.just(List.of()))).block();
+        bounded.get("c", () -> load(Mono.just(List.of(6, 7)))).block();
+
+        // b was least recently used and made room for c
+        assertThat(bounded.metrics()).containsEntry("entries", 2).containsEntry("weight", 5L);
+        assertThat(bounded.get("a", () -> load(Mono.just(List.of()))).block()).hasSize(3);
+        assertThat(bounded.get("b", () -> load(Mono.just(List.of(8)))).block())
+            .containsExactly(8);
+
+        // too heavy to keep at all
+        bounded.get("d", () -> load(Mono.just(List.of(1, 2, 3, 4, 5, 6)))).block();
+        assertThat(bounded.get("d", () -> load(Mono.just(List.of(9)))).block())
+            .containsExactly(9);
+        assertThat(loads).hasValue(6);
+    }
+
+    @Test
+    void failedLoadShouldNotBeCached() {
+        assertThatThrownBy(() -> cache.get("k",
+            () -> load(Mono.<String>error(new IllegalStateException("boom")))).block())
+            .isInstanceOf(IllegalStateException.class);
+
+        assertThat(cache.get("k", () -> load(Mono.just("v"))).block()).isEqualTo("v");
+        assertThat(cache.metrics()).containsEntry("failures", 1L);
+    }
+
+    private <V> Mono<V> load(Mono<V> result) {
+        loads.incrementAndGet();
+        return result;
+    }
+}
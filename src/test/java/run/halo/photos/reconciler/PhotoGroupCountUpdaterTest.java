@@ -0,0 +1,85 @@
+package run.halo.photos.reconciler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+import run.halo.photos.PhotoGroup;
+
+class PhotoGroupCountUpdaterTest {
+
+    private final ReactiveExtensionClient client = mock(ReactiveExtensionClient.class);
+    private final PhotoGroupCountUpdater updater = new PhotoGroupCountUpdater(client);
+
+    @Test
+    void eventsShouldBeCoalescedIntoOneUpdatePerGroup() {
+        var trips = group("trips", 3);
+        var family = group("family", 1);
+        when(client.fetch(PhotoGroup.class, "trips")).thenReturn(Mono.just(trips));
+        when(client.fetch(PhotoGroup.class, "family")).thenReturn(Mono.just(family));
+        when(client.update(any(PhotoGroup.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        updater.onPhotoAdded(photo("a", "trips"));
+        updater.onPhotoAdded(photo("b", "trips"));
+        updater.onPhotoUpdated(photo("c", "family"), photo("c", "trips"));
+        updater.onPhotoDeleted(photo("d", "family"));
+        updater.flush().block();
+
+        assertThat(trips.getStatus().getPhotoCount()).isEqualTo(6);
+        assertThat(family.getStatus().getPhotoCount()).isZero();
+        verify(client, times(2)).update(any(PhotoGroup.class));
+    }
+
+    @Test
+    void updateWithinSameGroupShouldNotChangeCount() {
+        updater.onPhotoUpdated(photo("a", "trips"), photo("a", "trips"));
+        updater.onPhotoAdded(photo("b", ""));
+        updater.flush().block();
+
+        verify(client, never()).fetch(eq(PhotoGroup.class), anyString());
+    }
+
+    @Test
+    void groupNotCountedYetShouldBeLeftToReconciler() {
+        var fresh = group("fresh", null);
+        when(client.fetch(PhotoGroup.class, "fresh")).thenReturn(Mono.just(fresh));
+
+        updater.onPhotoAdded(photo("a", "fresh"));
+        updater.flush().block();
+
+        verify(client, never()).update(any(PhotoGroup.class));
+    }
+
+    private static PhotoGroup group(String name, Integer photoCount) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        var group = new PhotoGroup();
+        group.setMetadata(metadata);
+        group.setSpec(new PhotoGroup.PhotoGroupSpec());
+        group.getStatusOrDefault().setPhotoCount(photoCount);
+        return group;
+    }
+
+    private static Photo photo(String name, String groupName) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        var spec = new Photo.PhotoSpec();
+        spec.setGroupName(groupName);
+        var photo = new Photo();
+        photo.setMetadata(metadata);
+        photo.setSpec(spec);
+        return photo;
+    }
+}
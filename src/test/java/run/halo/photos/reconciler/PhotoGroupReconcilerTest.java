@@ -0,0 +1,135 @@
+package run.halo.photos.reconciler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import run.halo.app.extension.ExtensionClient;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.ListResult;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.PageRequest;
+import run.halo.app.extension.controller.Reconciler;
+import run.halo.photos.Photo;
+import run.halo.photos.PhotoGroup;
+
+class PhotoGroupReconcilerTest {
+
+    private final ExtensionClient client = mock(ExtensionClient.class);
+    private final PhotoGroupReconciler reconciler = new PhotoGroupReconciler(client);
+
+    @Test
+    void reconcileShouldPersistCountAndRequeueForResync() {
+        var group = group("trips");
+        when(client.fetch(PhotoGroup.class, "trips")).thenReturn(Optional.of(group));
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequest.class)))
+            .thenReturn(new ListResult<>(1, 1, 7, List.of()));
+
+        var result = reconciler.reconcile(new Reconciler.Request("trips"));
+
+        var captor = ArgumentCaptor.forClass(PhotoGroup.class);
+        verify(client).update(captor.capture());
+        assertThat(captor.getValue().getStatus().getPhotoCount()).isEqualTo(7);
+        assertThat(result.reEnqueue()).isTrue();
+        assertThat(result.retryAfter()).isEqualTo(PhotoGroupReconciler.RESYNC_INTERVAL);
+    }
+
+    @Test
+    void reconcileShouldNotUpdateWhenCountIsCurrent() {
+        var group = group("trips");
+        group.getStatusOrDefault().setPhotoCount(7);
+        when(client.fetch(PhotoGroup.class, "trips")).thenReturn(Optional.of(group));
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequest.class)))
+            .thenReturn(new ListResult<>(1, 1, 7, List.of()));
+
+        reconciler.reconcile(new Reconciler.Request("trips"));
+
+        verify(client, never()).update(any(PhotoGroup.class));
+    }
+
+    @Test
+    void reconcileBeforeResyncShouldNotRecount() {
+        var clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        var timedReconciler = new PhotoGroupReconciler(client, clock);
+        var group = group("trips");
+        when(client.fetch(PhotoGroup.class, "trips")).thenReturn(Optional.of(group));
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequest.class)))
+            .thenReturn(new ListResult<>(1, 1, 7, List.of()));
+        timedReconciler.reconcile(new Reconciler.Request("trips"));
+
+        // an incremental update from PhotoGroupCountUpdater triggers another reconcile
+        group.getStatusOrDefault().setPhotoCount(8);
+        clock.instant = clock.instant.plus(Duration.ofMinutes(10));
+        var result = timedReconciler.reconcile(new Reconciler.Request("trips"));
+
+        verify(client, times(1)).listBy(eq(Photo.class), any(ListOptions.class),
+            any(PageRequest.class));
+        assertThat(result.reEnqueue()).isTrue();
+        assertThat(result.retryAfter()).isEqualTo(Duration.ofMinutes(20));
+
+        clock.instant = clock.instant.plus(Duration.ofMinutes(20));
+        timedReconciler.reconcile(new Reconciler.Request("trips"));
+
+        verify(client, times(2)).listBy(eq(Photo.class), any(ListOptions.class),
+            any(PageRequest.class));
+        assertThat(group.getStatus().getPhotoCount()).isEqualTo(7);
+    }
+
+    @Test
+    void reconcileMissingGroupShouldNotRequeue() {
+        when(client.fetch(PhotoGroup.class, "gone")).thenReturn(Optional.empty());
+
+        var result = reconciler.reconcile(new Reconciler.Request("gone"));
+
+        assertThat(result.reEnqueue()).isFalse();
+        verify(client, never()).update(any(PhotoGroup.class));
+    }
+
+    private static final class MutableClock extends Clock {
+        Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    private static PhotoGroup group(String name) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        var spec = new PhotoGroup.PhotoGroupSpec();
+        spec.setDisplayName(name);
+        var group = new PhotoGroup();
+        group.setMetadata(metadata);
+        group.setSpec(spec);
+        return group;
+    }
+}
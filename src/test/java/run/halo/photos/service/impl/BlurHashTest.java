@@ -0,0 +1,36 @@
+package run.halo.photos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import org.junit.jupiter.api.Test;
+
+class BlurHashTest {
+
+    @Test
+    void averageColorShouldBeEncodedAfterHeader() {
+        var image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0xffffff);
+            }
+        }
+
+        // characters 3 to 6 hold the average color, 0xffffff in base 83
+        assertThat(BlurHash.encode(image).substring(2, 6)).isEqualTo("TSUA");
+        assertThat(BlurHash.encode(new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB)))
+            .isEqualTo("L00000" + "fQ".repeat(11));
+    }
+
+    @Test
+    void componentCountShouldFollowAspectRatio() {
+        var landscape = BlurHash.encode(new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB));
+        var portrait = BlurHash.encode(new BufferedImage(24, 32, BufferedImage.TYPE_INT_RGB));
+        var single = BlurHash.encode(new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB), 1, 1);
+
+        // 4 + 2 * (4 * 3 - 1) characters
+        assertThat(landscape).hasSize(28).startsWith("L");
+        assertThat(portrait).hasSize(28).startsWith("T");
+        assertThat(single).hasSize(6).isEqualTo("00" + "0000");
+    }
+}
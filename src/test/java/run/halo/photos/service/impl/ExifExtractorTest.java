@@ -2,7 +2,12 @@ package run.halo.photos.service.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class ExifExtractorTest {
 
@@ -26,4 +31,46 @@ class ExifExtractorTest {
         var photoExif = extractor.toPhotoExif(exifData);
         assertThat(photoExif).isNull();
     }
+
+    @Test
+    void completeHeaderShouldNotOpenFullContent() {
+        var opened = new AtomicInteger();
+        var result = extractor.extractExif("not an image".getBytes(), false, () -> {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(new byte[0]);
+        });
+        assertThat(result.hasData()).isFalse();
+        assertThat(opened).hasValue(0);
+    }
+
+    @Test
+    void unparsableTruncatedHeaderShouldFallBackToFullContent() {
+        var opened = new AtomicInteger();
+        var result = extractor.extractExif("not an image".getBytes(), true, () -> {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream("not an image either".getBytes());
+        });
+        assertThat(result.hasData()).isFalse();
+        assertThat(opened).hasValue(1);
+    }
+
+    @Test
+    void truncatedHeaderWithoutFullContentShouldReturnNoData() {
+        var result = extractor.extractExif("not an image".getBytes(), true, null);
+        assertThat(result.hasData()).isFalse();
+    }
+
+    @Test
+    void extractExifFromFileShouldReadWithinWindow(@TempDir Path tempDir) throws Exception {
+        var file = tempDir.resolve("photo.jpg");
+        Files.write(file, new byte[64 * 1024]);
+        var result = extractor.extractExif(file, 1024);
+        assertThat(result.hasData()).isFalse();
+    }
+
+    @Test
+    void extractExifFromMissingFileShouldReturnNoData(@TempDir Path tempDir) {
+        var result = extractor.extractExif(tempDir.resolve("missing.jpg"), 1024);
+        assertThat(result.hasData()).isFalse();
+    }
 }
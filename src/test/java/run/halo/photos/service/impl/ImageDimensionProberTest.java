@@ -0,0 +1,143 @@
+package run.halo.photos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import run.halo.photos.Photo;
+
+class ImageDimensionProberTest {
+
+    private final ImageDimensionProber prober = new ImageDimensionProber();
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jpeg", "png", "gif"})
+    void shouldReadImagesWrittenByImageIo(String format) throws IOException {
+        var bytes = encode(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), format);
+
+        assertThat(prober.probe(bytes, 1)).isEqualTo(dimensions(640, 480));
+    }
+
+    @Test
+    void sidewaysOrientationShouldSwapDimensions() throws IOException {
+        var bytes = encode(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+        assertThat(prober.probe(bytes, 6)).isEqualTo(dimensions(480, 640));
+        assertThat(prober.probe(bytes, 3)).isEqualTo(dimensions(640, 480));
+    }
+
+    @Test
+    void jpegSegmentsBeforeFrameShouldBeSkippedWithoutReading(@TempDir Path dir)
+        throws IOException {
+        var jpeg = encode(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "jpeg");
+        // a 60 KB APP1 segment between SOI and the rest of the file
+        var app1 = new byte[60 * 1024];
+        app1[0] = (byte) 0xff;
+        app1[1] = (byte) 0xe1;
+        app1[2] = (byte) ((app1.length - 2) >> 8);
+        app1[3] = (byte) (app1.length - 2);
+        var file = dir.resolve("large-exif.jpg");
+        var output = new ByteArrayOutputStream();
+        output.write(jpeg, 0, 2);
+        output.write(app1);
+        output.write(jpeg, 2, jpeg.length - 2);
+        Files.write(file, output.toByteArray());
+
+        assertThat(prober.probe(file, 1)).isEqualTo(dimensions(640, 480));
+        // a header window that ends inside the segment cannot reach the frame
+        assertThat(prober.probe(Arrays.copyOf(output.toByteArray(), 4096), 1)).isNull();
+    }
+
+    @Test
+    void shouldReadWebpChunks() {
+        var lossy = webp("VP8 ", new byte[] {0, 0, 0, (byte) 0x9d, 0x01, 0x2a,
+            (byte) 0x80, 0x02, (byte) 0xe0, 0x01});
+        // 14 bits of width - 1 and 14 bits of height - 1, little endian
+        int bits = (640 - 1) | (480 - 1) << 14;
+        var lossless = webp("VP8L", new byte[] {0x2f, (byte) bits, (byte) (bits >> 8),
+            (byte) (bits >> 16), (byte) (bits >> 24), 0, 0, 0, 0, 0});
+        var extended = webp("VP8X", new byte[] {0, 0, 0, 0,
+            (byte) 0x7f, 0x02, 0x00, (byte) 0xdf, 0x01, 0x00});
+
+        assertThat(prober.probe(lossy, 1)).isEqualTo(dimensions(640, 480));
+        assertThat(prober.probe(lossless, 1)).isEqualTo(dimensions(640, 480));
+        assertThat(prober.probe(extended, 1)).isEqualTo(dimensions(640, 480));
+    }
+
+    @Test
+    void heifShouldUseLargestExtentAndItsOwnRotation() {
+        var ipco = box("ipco", ispe(512, 512), ispe(4032, 3024), box("irot", new byte[] {1}));
+        var heif = concat(box("ftyp", "heic".getBytes(StandardCharsets.US_ASCII)),
+            fullBox("meta", box("hdlr", new byte[8]), box("iprp", ipco)),
+            box("mdat", new byte[16]));
+
+        // irot turns the image a quarter, EXIF orientation is ignored
+        assertThat(prober.probe(heif, 1)).isEqualTo(dimensions(3024, 4032));
+        assertThat(prober.probe(heif, 6)).isEqualTo(dimensions(3024, 4032));
+    }
+
+    @Test
+    void unknownOrTruncatedContentShouldYieldNothing() throws IOException {
+        var png = encode(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "png");
+
+        assertThat(prober.probe(new byte[100], 1)).isNull();
+        assertThat(prober.probe(Arrays.copyOf(png, 16), 1)).isNull();
+        assertThat(prober.probe(new byte[0], 1)).isNull();
+    }
+
+    private static Photo.PhotoDimensions dimensions(int width, int height) {
+        var dimensions = new Photo.PhotoDimensions();
+        dimensions.setWidth(width);
+        dimensions.setHeight(height);
+        return dimensions;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        var output = new ByteArrayOutputStream();
+        ImageIO.write(image, format, output);
+        return output.toByteArray();
+    }
+
+    private static byte[] webp(String chunk, byte[] data) {
+        var buffer = ByteBuffer.allocate(20 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(12 + data.length)
+            .put("WEBP".getBytes(StandardCharsets.US_ASCII))
+            .put(chunk.getBytes(StandardCharsets.US_ASCII)).putInt(data.length).put(data);
+        return buffer.array();
+    }
+
+    private static byte[] ispe(int width, int height) {
+        return box("ispe", ByteBuffer.allocate(12).putInt(0).putInt(width).putInt(height)
+            .array());
+    }
+
+    private static byte[] fullBox(String type, byte[]... children) {
+        return box(type, concat(new byte[4], concat(children)));
+    }
+
+    private static byte[] box(String type, byte[]... children) {
+        var content = concat(children);
+        return ByteBuffer.allocate(8 + content.length).putInt(8 + content.length)
+            .put(type.getBytes(StandardCharsets.US_ASCII)).put(content).array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        var output = new ByteArrayOutputStream();
+        for (var part : parts) {
+            output.writeBytes(part);
+        }
+        return output.toByteArray();
+    }
+}
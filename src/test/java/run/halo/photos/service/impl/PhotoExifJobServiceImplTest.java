@@ -0,0 +1,208 @@
+package run.halo.photos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.ListResult;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.PageRequest;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.photos.Photo;
+import run.halo.photos.PhotoExifJob;
+import run.halo.photos.PhotoQuery;
+import run.halo.photos.service.ExifReextractResult;
+import run.halo.photos.service.PhotoService;
+
+class PhotoExifJobServiceImplTest {
+
+    private final ReactiveExtensionClient client = mock(ReactiveExtensionClient.class);
+    private final PhotoService photoService = mock(PhotoService.class);
+    private final AtomicReference<PhotoExifJob> stored = new AtomicReference<>();
+
+    private PhotoExifJobServiceImpl jobService;
+
+    @BeforeEach
+    void setUp() {
+        jobService = new PhotoExifJobServiceImpl(client, photoService);
+        when(client.create(any(PhotoExifJob.class))).thenAnswer(invocation -> {
+            PhotoExifJob job = invocation.getArgument(0);
+            job.getMetadata().setName("job-1");
+            stored.set(job);
+            return Mono.just(job);
+        });
+        when(client.get(PhotoExifJob.class, "job-1"))
+            .thenAnswer(invocation -> Mono.just(stored.get()));
+        when(client.fetch(PhotoExifJob.class, "job-1"))
+            .thenAnswer(invocation -> Mono.justOrEmpty(stored.get()));
+        when(client.update(any(PhotoExifJob.class))).thenAnswer(invocation -> {
+            PhotoExifJob job = invocation.getArgument(0);
+            stored.set(job);
+            return Mono.just(job);
+        });
+    }
+
+    @Test
+    void jobShouldProcessSelectionAndRecordProgress() {
+        var p1 = photo("p1");
+        var p2 = photo("p2");
+        var p3 = photo("p3");
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequest.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 1, 3, List.of(p1))))
+            .thenReturn(Mono.just(new ListResult<>(1, 100, 3, List.of(p1, p2, p3))));
+        when(photoService.reextractExif(p1, false)).thenReturn(Mono.just(
+            new ExifReextractResult(p1, ExifReextractResult.Outcome.UPDATED)));
+        when(photoService.reextractExif(p2, false)).thenReturn(Mono.just(
+            new ExifReextractResult(p2, ExifReextractResult.Outcome.UNCHANGED)));
+        when(photoService.reextractExif(p3, false))
+            .thenReturn(Mono.error(new IllegalStateException("broken file")));
+
+        var created = jobService.start(query("/photoexifjobs?group=trips"), 2, false).block();
+
+        assertThat(created).isNotNull();
+        assertThat(created.getSpec().getSelection().getGroup()).isEqualTo("trips");
+        assertThat(created.getSpec().getParallelism()).isEqualTo(2);
+
+        var status = stored.get().getStatus();
+        assertThat(status.getPhase()).isEqualTo(PhotoExifJob.Phase.SUCCEEDED);
+        assertThat(status.getTotal()).isEqualTo(3);
+        assertThat(status.getProcessed()).isEqualTo(3);
+        assertThat(status.getUpdated()).isEqualTo(1);
+        assertThat(status.getSkipped()).isEqualTo(1);
+        assertThat(status.getFailed()).isEqualTo(1);
+        assertThat(status.getCheckpoint()).isEqualTo("p3");
+        assertThat(status.getStartedAt()).isNotNull();
+        assertThat(status.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    void jobShouldWalkFullBatchesUntilShortOne() {
+        var photos = new ArrayList<Photo>();
+        for (int i = 0; i < 2 * PhotoExifJobServiceImpl.BATCH_SIZE + 40; i++) {
+            photos.add(photo("p%04d".formatted(i)));
+        }
+        var pages = new AtomicInteger();
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequest.class)))
+            .thenAnswer(invocation -> {
+                PageRequest pageRequest = invocation.getArgument(2);
+                if (pageRequest.getPageSize() == 1) {
+                    return Mono.just(new ListResult<>(1, 1, photos.size(), photos.subList(0, 1)));
+                }
+                int from = pages.getAndIncrement() * PhotoExifJobServiceImpl.BATCH_SIZE;
+                int to = Math.min(from + PhotoExifJobServiceImpl.BATCH_SIZE, photos.size());
+                return Mono.just(new ListResult<>(1, PhotoExifJobServiceImpl.BATCH_SIZE,
+                    photos.size(), photos.subList(from, to)));
+            });
+        when(photoService.reextractExif(any(Photo.class), eq(false))).thenAnswer(invocation ->
+            Mono.just(new ExifReextractResult(invocation.getArgument(0),
+                ExifReextractResult.Outcome.UNCHANGED)));
+
+        jobService.start(query("/photoexifjobs"), 4, false).block();
+
+        var status = stored.get().getStatus();
+        assertThat(pages).hasValue(3);
+        assertThat(status.getPhase()).isEqualTo(PhotoExifJob.Phase.SUCCEEDED);
+        assertThat(status.getProcessed()).isEqualTo(photos.size());
+        assertThat(status.getCheckpoint()).isEqualTo(photos.getLast().getMetadata().getName());
+    }
+
+    @Test
+    void startWithInvalidParallelismShouldFail() {
+        assertThatThrownBy(() -> jobService.start(query("/photoexifjobs"), 64, false).block())
+            .hasMessageContaining("并发数");
+        verify(client, never()).create(any(PhotoExifJob.class));
+    }
+
+    @Test
+    void interruptedJobShouldResumeFromCheckpoint() {
+        var job = new PhotoExifJob();
+        var metadata = new Metadata();
+        metadata.setName("job-1");
+        job.setMetadata(metadata);
+        var spec = new PhotoExifJob.PhotoExifJobSpec();
+        spec.setSelection(new PhotoExifJob.Selection());
+        spec.setParallelism(4);
+        job.setSpec(spec);
+        var status = job.getStatusOrDefault();
+        status.setPhase(PhotoExifJob.Phase.RUNNING);
+        status.setTotal(3);
+        status.setProcessed(2);
+        status.setUpdated(2);
+        status.setCheckpoint("p2");
+        stored.set(job);
+
+        var p3 = photo("p3");
+        when(client.listAll(eq(PhotoExifJob.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(job));
+        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequest.class)))
+            .thenReturn(Mono.just(new ListResult<>(1, 100, 1, List.of(p3))));
+        when(photoService.reextractExif(p3, false)).thenReturn(Mono.just(
+            new ExifReextractResult(p3, ExifReextractResult.Outcome.UPDATED)));
+
+        jobService.resumeInterrupted();
+
+        var resumed = stored.get().getStatus();
+        assertThat(resumed.getPhase()).isEqualTo(PhotoExifJob.Phase.SUCCEEDED);
+        assertThat(resumed.getProcessed()).isEqualTo(3);
+        assertThat(resumed.getUpdated()).isEqualTo(3);
+        assertThat(resumed.getCheckpoint()).isEqualTo("p3");
+        verify(photoService, never()).reextractExif(eq(photo("p1")), any(Boolean.class));
+    }
+
+    @Test
+    void cancelFinishedJobShouldKeepItsPhase() {
+        var job = new PhotoExifJob();
+        var metadata = new Metadata();
+        metadata.setName("job-1");
+        job.setMetadata(metadata);
+        job.getStatusOrDefault().setPhase(PhotoExifJob.Phase.SUCCEEDED);
+        stored.set(job);
+
+        var result = jobService.cancel("job-1").block();
+
+        assertThat(result.getStatus().getPhase()).isEqualTo(PhotoExifJob.Phase.SUCCEEDED);
+        verify(client, never()).update(any(PhotoExifJob.class));
+    }
+
+    @Test
+    void getMissingJobShouldReturnNotFound() {
+        when(client.fetch(PhotoExifJob.class, "missing")).thenReturn(Mono.empty());
+
+        assertThatThrownBy(() -> jobService.get("missing").block())
+            .isInstanceOf(ResponseStatusException.class);
+    }
+
+    private static PhotoQuery query(String uri) {
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post(uri).build());
+        return new PhotoQuery(exchange);
+    }
+
+    private static Photo photo(String name) {
+        var metadata = new Metadata();
+        metadata.setName(name);
+        var spec = new Photo.PhotoSpec();
+        spec.setUrl("/upload/" + name + ".jpg");
+        var photo = new Photo();
+        photo.setMetadata(metadata);
+        photo.setSpec(spec);
+        return photo;
+    }
+}
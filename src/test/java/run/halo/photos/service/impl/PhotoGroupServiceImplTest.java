@@ -17,7 +17,6 @@ import org.springframework.data.domain.Sort;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import run.halo.app.extension.ListOptions;
-import run.halo.app.extension.ListResult;
 import run.halo.app.extension.Metadata;
 import run.halo.app.extension.PageRequest;
 import run.halo.app.extension.ReactiveExtensionClient;
@@ -40,8 +39,6 @@ class PhotoGroupServiceImplTest {
         var groups = List.of(group("a", 2), group("b", 1), group("c", 0));
         when(client.listAll(eq(PhotoGroup.class), any(ListOptions.class), eq(Sort.unsorted())))
             .thenReturn(Flux.fromIterable(groups));
-        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequest.class)))
-            .thenReturn(Mono.just(new ListResult<>(1, 1, 0L, List.of())));
 
         var result = service.listPhotoGroup().block();
 
@@ -50,18 +47,21 @@ class PhotoGroupServiceImplTest {
     }
 
     @Test
-    void listPhotoGroupPopulatesPhotoCountForEachGroup() {
-        var group = group("mygroup", 0);
+    void listPhotoGroupShouldReadMaterializedPhotoCount() {
+        var counted = group("counted", 1);
+        counted.getStatusOrDefault().setPhotoCount(5);
+        var pending = group("pending", 0);
         when(client.listAll(eq(PhotoGroup.class), any(ListOptions.class), eq(Sort.unsorted())))
-            .thenReturn(Flux.just(group));
-        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequest.class)))
-            .thenReturn(Mono.just(new ListResult<>(1, 1, 5L, List.of())));
+            .thenReturn(Flux.just(counted, pending));
 
         var result = service.listPhotoGroup().block();
 
         assertThat(result).isNotNull();
-        assertThat(result).hasSize(1);
+        assertThat(result).hasSize(2);
         assertThat(result.get(0).getStatusOrDefault().getPhotoCount()).isEqualTo(5);
+        assertThat(result.get(1).getStatusOrDefault().getPhotoCount()).isZero();
+        verify(client, never()).listBy(eq(Photo.class), any(ListOptions.class),
+            any(PageRequest.class));
     }
 
     @Test
@@ -127,17 +127,6 @@ class PhotoGroupServiceImplTest {
         assertThat(photo2.getSpec().getGroupName()).isEmpty();
     }
 
-    @Test
-    void fetchPhotoCountReturnsCountFromDatabase() {
-        var group = group("trips", 0);
-        when(client.listBy(eq(Photo.class), any(ListOptions.class), any(PageRequest.class)))
-            .thenReturn(Mono.just(new ListResult<>(1, 1, 7L, List.of())));
-
-        var count = service.fetchPhotoCount(group).block();
-
-        assertThat(count).isEqualTo(7);
-    }
-
     private static PhotoGroup group(String name, int priority) {
         var metadata = new Metadata();
         metadata.setName(name);
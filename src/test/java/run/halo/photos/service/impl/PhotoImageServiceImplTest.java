@@ -0,0 +1,124 @@
+package run.halo.photos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.infra.BackupRootGetter;
+import run.halo.app.plugin.ReactiveSettingFetcher;
+import run.halo.photos.Photo;
+import run.halo.photos.infra.DerivativeCache;
+import run.halo.photos.infra.ImageProcessingScheduler;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.service.ResizedImage;
+
+class PhotoImageServiceImplTest {
+
+    @TempDir
+    Path workDir;
+
+    private final ReactiveExtensionClient client = mock(ReactiveExtensionClient.class);
+    private final ReactiveSettingFetcher settingFetcher = mock(ReactiveSettingFetcher.class);
+    private final BackupRootGetter backupRootGetter = mock(BackupRootGetter.class);
+
+    private DerivativeCache derivativeCache;
+    private PhotoImageServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        when(backupRootGetter.get()).thenReturn(workDir.resolve("backups"));
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.empty());
+        when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.empty());
+        var photoSettings = new PhotoSettings(settingFetcher);
+        photoSettings.refresh().block();
+        derivativeCache = new DerivativeCache(backupRootGetter);
+        service = new PhotoImageServiceImpl(client, photoSettings,
+            new AttachmentFileResolver(backupRootGetter), new ExifExtractor(),
+            new VariantGenerator(), new ImageProcessingScheduler(), derivativeCache);
+    }
+
+    @Test
+    void resizeShouldRenderOnceAndServeFromCache() throws Exception {
+        var original = workDir.resolve("attachments/upload/photo.png");
+        Files.createDirectories(original.getParent());
+        ImageIO.write(new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB), "png",
+            original.toFile());
+        when(client.fetch(Photo.class, "p1"))
+            .thenReturn(Mono.just(photo("p1", "/upload/photo.png")));
+
+        var first = service.resize("p1", 320, ResizedImage.Format.JPEG).block();
+        var second = service.resize("p1", 320, ResizedImage.Format.JPEG).block();
+
+        assertThat(first.file()).isEqualTo(second.file());
+        assertThat(first.etag()).isEqualTo(second.etag());
+        var decoded = ImageIO.read(first.file().toFile());
+        assertThat(decoded.getWidth()).isEqualTo(320);
+        assertThat(decoded.getHeight()).isEqualTo(240);
+        assertThat(derivativeCache.metrics())
+            .containsEntry("misses", 1L)
+            .containsEntry("hits", 1L);
+
+        var png = service.resize("p1", 320, ResizedImage.Format.PNG).block();
+        assertThat(png.etag()).isNotEqualTo(first.etag());
+        assertThat(png.file().toString()).endsWith(".png");
+    }
+
+    @Test
+    void widthOutsideVariantWidthsShouldFail() {
+        assertThatThrownBy(() -> service.resize("p1", 500, ResizedImage.Format.JPEG).block())
+            .isInstanceOf(ServerWebInputException.class);
+        verify(client, never()).fetch(eq(Photo.class), any(String.class));
+    }
+
+    @Test
+    void photoWithoutLocalOriginalShouldBeNotFound() {
+        when(client.fetch(Photo.class, "p1"))
+            .thenReturn(Mono.just(photo("p1", "https://cdn.example.com/photo.jpg")));
+
+        assertThatThrownBy(() -> service.resize("p1", 320, ResizedImage.Format.JPEG).block())
+            .isInstanceOfSatisfying(ResponseStatusException.class, e ->
+                assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND));
+    }
+
+    @Test
+    void undecodableOriginalShouldBeUnsupported() throws Exception {
+        var original = workDir.resolve("attachments/upload/photo.webp");
+        Files.createDirectories(original.getParent());
+        Files.write(original, new byte[100]);
+        when(client.fetch(Photo.class, "p1"))
+            .thenReturn(Mono.just(photo("p1", "/upload/photo.webp")));
+
+        assertThatThrownBy(() -> service.resize("p1", 320, ResizedImage.Format.JPEG).block())
+            .isInstanceOfSatisfying(ResponseStatusException.class, e ->
+                assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNSUPPORTED_MEDIA_TYPE));
+    }
+
+    private static Photo photo(String name, String url) {
+        var photo = new Photo();
+        var metadata = new Metadata();
+        metadata.setName(name);
+        photo.setMetadata(metadata);
+        var spec = new Photo.PhotoSpec();
+        spec.setUrl(url);
+        photo.setSpec(spec);
+        return photo;
+    }
+}
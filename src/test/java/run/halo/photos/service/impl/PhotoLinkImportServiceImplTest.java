@@ -0,0 +1,348 @@
+package run.halo.photos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.plugin.ReactiveSettingFetcher;
+import run.halo.photos.Photo;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.service.LinkImportProgress;
+
+class PhotoLinkImportServiceImplTest {
+
+    private final ReactiveExtensionClient client = mock(ReactiveExtensionClient.class);
+    private final ReactiveSettingFetcher settingFetcher = mock(ReactiveSettingFetcher.class);
+    private final List<Photo> createdPhotos = new ArrayList<>();
+    private final Map<String, String> ranges = new ConcurrentHashMap<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private HttpServer server;
+    private String baseUrl;
+    private PhotoSettings photoSettings;
+    private PhotoLinkImportServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "png", png);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/images/", exchange -> {
+            ranges.put(exchange.getRequestURI().getPath(),
+                String.valueOf(exchange.getRequestHeaders().getFirst("Range")));
+            int current = active.incrementAndGet();
+            maxActive.accumulateAndGet(current, Math::max);
+            try {
+                if (exchange.getRequestURI().getPath().contains("slow")) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                respond(exchange, 200, png.toByteArray());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                active.decrementAndGet();
+            }
+        });
+        server.createContext("/missing/", exchange -> respond(exchange, 404, new byte[0]));
+        server.createContext("/redirect/", exchange -> {
+            var query = exchange.getRequestURI().getQuery();
+            exchange.getResponseHeaders().set("Location",
+                query == null ? "/images/moved.png" : query);
+            respond(exchange, 302, new byte[0]);
+        });
+        server.createContext("/stalled/", exchange -> {
+            // send the headers, then stall inside the body
+            exchange.sendResponseHeaders(200, 1024);
+            exchange.getResponseBody().write(new byte[] {(byte) 0x89, 'P'});
+            exchange.getResponseBody().flush();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.empty());
+        when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.empty());
+        photoSettings = new PhotoSettings(settingFetcher);
+        photoSettings.refresh().block();
+        var counter = new AtomicInteger();
+        when(client.create(any(Photo.class))).thenAnswer(invocation -> {
+            Photo photo = invocation.getArgument(0);
+            photo.getMetadata().setName("photo-" + counter.incrementAndGet());
+            synchronized (createdPhotos) {
+                createdPhotos.add(photo);
+            }
+            return Mono.just(photo);
+        });
+        service = new PhotoLinkImportServiceImpl(client, photoSettings, new ExifExtractor(),
+            new ImageDimensionProber(), Duration.ofMillis(500), address -> true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+        service.destroy();
+    }
+
+    @Test
+    void probeShouldFillDimensionsFromRangedRead() {
+        var events = service.importLinks(List.of(baseUrl + "/images/a%20b.png"), "trips",
+            true, null).collectList().block();
+
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.outcome()).isEqualTo(LinkImportProgress.Outcome.CREATED);
+            assertThat(event.photoName()).isEqualTo("photo-1");
+            assertThat(event.message()).isNull();
+        });
+        var photo = createdPhotos.getFirst();
+        assertThat(photo.getSpec().getDisplayName()).isEqualTo("a b.png");
+        assertThat(photo.getSpec().getGroupName()).isEqualTo("trips");
+        assertThat(photo.getStatus().getDimensions())
+            .extracting(Photo.PhotoDimensions::getWidth, Photo.PhotoDimensions::getHeight)
+            .containsExactly(640, 480);
+        assertThat(ranges).containsEntry("/images/a b.png",
+            "bytes=0-" + (ExifExtractor.DEFAULT_HEADER_WINDOW - 1));
+    }
+
+    @Test
+    void withoutProbeShouldCreatePhotosWithoutRequests() {
+        var events = service.importLinks(List.of(baseUrl + "/images/a.png", "",
+            baseUrl + "/images/a.png", "ftp://example.com/b.png"), "", false, null)
+            .collectList().block();
+
+        assertThat(events)
+            .extracting(LinkImportProgress::completed, LinkImportProgress::created,
+                LinkImportProgress::failed, LinkImportProgress::outcome)
+            .containsExactly(
+                tuple(1, 1, 0, LinkImportProgress.Outcome.CREATED),
+                tuple(2, 1, 1, LinkImportProgress.Outcome.FAILED));
+        assertThat(events).allSatisfy(event -> assertThat(event.total()).isEqualTo(2));
+        assertThat(ranges).isEmpty();
+        assertThat(createdPhotos.getFirst().getSpec().getGroupName()).isNull();
+        assertThat(createdPhotos.getFirst().getStatus()).isNull();
+    }
+
+    @Test
+    void failedOrStalledProbeShouldStillCreatePhoto() {
+        var events = service.importLinks(List.of(baseUrl + "/missing/a.png",
+                baseUrl + "/stalled/b.png"), "", true, null)
+            .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(events)
+            .extracting(LinkImportProgress::outcome)
+            .containsExactly(LinkImportProgress.Outcome.CREATED,
+                LinkImportProgress.Outcome.CREATED);
+        // the upstream reason is only logged, never echoed back
+        assertThat(events).allSatisfy(event -> assertThat(event.message())
+            .isEqualTo(PhotoLinkImportServiceImpl.PROBE_FAILED));
+        assertThat(createdPhotos).allSatisfy(photo -> assertThat(photo.getStatus()).isNull());
+    }
+
+    @Test
+    void probesShouldRespectPerHostLimit() {
+        var links = new ArrayList<String>();
+        for (int i = 0; i < 6; i++) {
+            links.add(baseUrl + "/images/slow-" + i + ".png");
+        }
+        // long enough for the server to hold every request until released
+        var patient = new PhotoLinkImportServiceImpl(client, photoSettings, new ExifExtractor(),
+            new ImageDimensionProber(), Duration.ofSeconds(5), address -> true);
+        var result = patient.importLinks(links, "", true, 6).collectList().toFuture();
+
+        await(() -> active.get() == PhotoLinkImportServiceImpl.PER_HOST_LIMIT);
+        sleep(200);
+        release.countDown();
+        var events = result.join();
+
+        assertThat(events).hasSize(6)
+            .extracting(LinkImportProgress::url)
+            .containsExactlyElementsOf(links);
+        assertThat(maxActive).hasValue(PhotoLinkImportServiceImpl.PER_HOST_LIMIT);
+        patient.destroy();
+    }
+
+    @Test
+    void perHostLimitShouldBeSharedAcrossImports() {
+        var patient = new PhotoLinkImportServiceImpl(client, photoSettings, new ExifExtractor(),
+            new ImageDimensionProber(), Duration.ofSeconds(5), address -> true);
+        var first = patient.importLinks(List.of(baseUrl + "/images/slow-a1.png",
+            baseUrl + "/images/slow-a2.png"), "", true, 2).collectList().toFuture();
+        var second = patient.importLinks(List.of(baseUrl + "/images/slow-b1.png",
+            baseUrl + "/images/slow-b2.png"), "", true, 2).collectList().toFuture();
+
+        await(() -> active.get() == PhotoLinkImportServiceImpl.PER_HOST_LIMIT);
+        sleep(200);
+        release.countDown();
+
+        assertThat(first.join()).hasSize(2);
+        assertThat(second.join()).hasSize(2);
+        assertThat(maxActive).hasValue(PhotoLinkImportServiceImpl.PER_HOST_LIMIT);
+        assertThat(patient.hostPermits().hosts()).isZero();
+        patient.destroy();
+    }
+
+    @Test
+    void probeShouldFollowRedirects() {
+        var events = service.importLinks(List.of(baseUrl + "/redirect/a.png"), "", true, null)
+            .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(events).singleElement()
+            .satisfies(event -> assertThat(event.message()).isNull());
+        assertThat(ranges).containsKey("/images/moved.png");
+        assertThat(createdPhotos.getFirst().getSpec().getUrl())
+            .isEqualTo(baseUrl + "/redirect/a.png");
+        assertThat(createdPhotos.getFirst().getStatus().getDimensions().getWidth())
+            .isEqualTo(640);
+    }
+
+    @Test
+    void redirectToDisallowedAddressShouldNotBeFollowed() {
+        var guarded = new PhotoLinkImportServiceImpl(client, photoSettings, new ExifExtractor(),
+            new ImageDimensionProber(), Duration.ofMillis(500),
+            address -> address.getHostAddress().equals("127.0.0.1"));
+        var target = "http://127.0.0.2:" + server.getAddress().getPort() + "/images/x.png";
+        var events = guarded.importLinks(List.of(baseUrl + "/redirect/a.png?" + target), "",
+            true, null).collectList().block(Duration.ofSeconds(5));
+
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.outcome()).isEqualTo(LinkImportProgress.Outcome.CREATED);
+            assertThat(event.message()).isEqualTo(PhotoLinkImportServiceImpl.PROBE_FAILED);
+        });
+        assertThat(ranges).isEmpty();
+        guarded.destroy();
+    }
+
+    @Test
+    void addressShouldBeCheckedWhereItIsConnectedTo() {
+        // a name server answering with an allowed address first and loopback afterwards
+        var answers = new ArrayDeque<>(List.of("127.0.0.2", "127.0.0.1"));
+        var lookups = new AtomicInteger();
+        var rebinding = new PhotoLinkImportServiceImpl(client, photoSettings,
+            new ExifExtractor(), new ImageDimensionProber(), Duration.ofMillis(500),
+            address -> address.getHostAddress().equals("127.0.0.2"),
+            host -> {
+                lookups.incrementAndGet();
+                var answer = answers.size() > 1 ? answers.poll() : answers.peek();
+                return new InetAddress[] {InetAddress.getByName(answer)};
+            });
+        var link = "http://photos.example:" + server.getAddress().getPort() + "/images/a.png";
+
+        var events = rebinding.importLinks(List.of(link, link + "?again"), "", true, 1)
+            .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event.outcome()).isEqualTo(LinkImportProgress.Outcome.CREATED);
+            assertThat(event.message()).isEqualTo(PhotoLinkImportServiceImpl.PROBE_FAILED);
+        });
+        assertThat(lookups).hasValueGreaterThanOrEqualTo(2);
+        assertThat(ranges).isEmpty();
+        rebinding.destroy();
+    }
+
+    @Test
+    void defaultPolicyShouldNotProbePrivateAddresses() {
+        var guarded = new PhotoLinkImportServiceImpl(client, photoSettings, new ExifExtractor(),
+            new ImageDimensionProber());
+        var events = guarded.importLinks(List.of(baseUrl + "/images/a.png"), "", true, null)
+            .collectList().block(Duration.ofSeconds(5));
+
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.outcome()).isEqualTo(LinkImportProgress.Outcome.CREATED);
+            assertThat(event.message()).isEqualTo(PhotoLinkImportServiceImpl.PROBE_FAILED);
+        });
+        assertThat(ranges).isEmpty();
+        guarded.destroy();
+    }
+
+    @Test
+    void onlyPublicAddressesShouldBeAllowed() throws UnknownHostException {
+        for (var address : List.of("10.0.0.1", "172.16.0.1", "192.168.1.1", "127.0.0.1",
+            "0.0.0.0", "169.254.169.254", "100.64.0.1", "224.0.0.1", "::1", "::", "fe80::1",
+            "fd00::1")) {
+            assertThat(PhotoLinkImportServiceImpl.isPublicAddress(InetAddress.getByName(address)))
+                .as(address).isFalse();
+        }
+        for (var address : List.of("8.8.8.8", "100.128.0.1", "2001:4860:4860::8888")) {
+            assertThat(PhotoLinkImportServiceImpl.isPublicAddress(InetAddress.getByName(address)))
+                .as(address).isTrue();
+        }
+    }
+
+    @Test
+    void invalidInputShouldFailBeforeCreatingAnything() {
+        assertThatThrownBy(() -> service.importLinks(List.of(" ", ""), "", false, null)
+            .collectList().block())
+            .isInstanceOf(ServerWebInputException.class);
+        assertThatThrownBy(() -> service.importLinks(List.of(baseUrl + "/images/a.png"), "",
+            false, 0).collectList().block())
+            .isInstanceOf(ServerWebInputException.class);
+        verify(client, never()).create(any(Photo.class));
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body)
+        throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (var output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
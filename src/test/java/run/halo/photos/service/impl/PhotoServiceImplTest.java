@@ -8,11 +8,15 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Instant;
 import java.util.List;
+import javax.imageio.ImageIO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.springframework.data.domain.Sort;
 import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
@@ -26,8 +30,14 @@ import run.halo.app.extension.Metadata;
 import run.halo.app.extension.PageRequest;
 import run.halo.app.extension.ReactiveExtensionClient;
 import run.halo.app.infra.BackupRootGetter;
+import run.halo.app.plugin.ReactiveSettingFetcher;
 import run.halo.photos.Photo;
 import run.halo.photos.PhotoQuery;
+import run.halo.photos.index.PhotoTagIndex;
+import run.halo.photos.infra.ImageProcessingScheduler;
+import run.halo.photos.infra.PhotoSettings;
+import run.halo.photos.service.ExifReextractResult;
+import run.halo.photos.vo.PhotoTagVo;
 
 class PhotoServiceImplTest {
 
@@ -35,12 +45,17 @@ class PhotoServiceImplTest {
         ReactiveExtensionClient.class);
     private final BackupRootGetter backupRootGetter = mock(BackupRootGetter.class);
     private final ExifExtractor exifExtractor = new ExifExtractor();
+    private final ReactiveSettingFetcher settingFetcher = mock(ReactiveSettingFetcher.class);
+    private final PhotoTagIndex tagIndex = mock(PhotoTagIndex.class);
 
     private PhotoServiceImpl photoService;
 
     @BeforeEach
     void setUp() {
-        photoService = new PhotoServiceImpl(client, backupRootGetter, exifExtractor);
+        when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.empty());
+        photoService = new PhotoServiceImpl(client, new AttachmentFileResolver(backupRootGetter),
+            exifExtractor, new PhotoSettings(settingFetcher), new ImageProcessingScheduler(),
+            tagIndex, new VariantGenerator(), new ImageDimensionProber());
     }
 
     @Test
@@ -145,6 +160,50 @@ class PhotoServiceImplTest {
             .isEqualTo(true);
     }
 
+    @Test
+    void listAllTagsShouldReadTagIndexForGroupAndTagFilters() {
+        when(tagIndex.whenReady()).thenReturn(Mono.empty());
+        when(tagIndex.tags(null, "trips", "sunset")).thenReturn(List.of(
+            PhotoTagVo.builder().name("beach").photoCount(2).build(),
+            PhotoTagVo.builder().name("sunset").photoCount(3).build()));
+
+        var tags = photoService.listAllTags(query("/photos?group=trips&tag=sunset"))
+            .collectList()
+            .block();
+
+        assertThat(tags).containsExactly("beach", "sunset");
+        verify(client, never()).listAll(eq(Photo.class), any(ListOptions.class),
+            any(Sort.class));
+    }
+
+    @Test
+    void listAllTagsShouldPassUngroupedAsEmptyGroup() {
+        when(tagIndex.whenReady()).thenReturn(Mono.empty());
+        when(tagIndex.tags(null, "", null)).thenReturn(List.of(
+            PhotoTagVo.builder().name("beach").photoCount(1).build()));
+
+        var tags = photoService.listAllTags(query("/photos?ungrouped=true&group=trips"))
+            .collectList()
+            .block();
+
+        assertThat(tags).containsExactly("beach");
+    }
+
+    @Test
+    void listAllTagsWithKeywordShouldScanMatchingPhotos() {
+        var photo = photo("a", "2026-05-01T00:00:00Z", null);
+        photo.getSpec().setTags(List.of("sunset", "beach"));
+        when(client.listAll(eq(Photo.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(photo));
+
+        var tags = photoService.listAllTags(query("/photos?keyword=a"))
+            .collectList()
+            .block();
+
+        assertThat(tags).containsExactly("sunset", "beach");
+        verify(tagIndex, never()).tags(any(), any(), any());
+    }
+
     private static List<String> names(List<Photo> photos) {
         return photos.stream()
             .map(photo -> photo.getMetadata().getName())
@@ -239,4 +298,80 @@ class PhotoServiceImplTest {
         assertThat(result).isNotNull();
         assertThat(result.getExif()).isNull();
     }
+
+    @Test
+    void reextractExifShouldSkipUnchangedSourceUnlessForced(@TempDir Path tempDir)
+        throws Exception {
+        var file = tempDir.resolve("attachments/upload/unchanged.jpg");
+        Files.createDirectories(file.getParent());
+        Files.write(file, "not an image".getBytes());
+        when(backupRootGetter.get()).thenReturn(tempDir.resolve("backups"));
+        when(client.update(any(Photo.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        var photo = new Photo();
+        var metadata = new Metadata();
+        metadata.setName("unchanged");
+        photo.setMetadata(metadata);
+        var spec = new Photo.PhotoSpec();
+        spec.setUrl("/upload/unchanged.jpg");
+        photo.setSpec(spec);
+
+        var first = photoService.reextractExif(photo, false).block();
+        assertThat(first.outcome()).isEqualTo(ExifReextractResult.Outcome.UPDATED);
+        assertThat(first.photo().getMetadata().getAnnotations())
+            .containsKey(PhotoServiceImpl.EXIF_SOURCE_ANNO);
+
+        var second = photoService.reextractExif(first.photo(), false).block();
+        assertThat(second.outcome()).isEqualTo(ExifReextractResult.Outcome.UNCHANGED);
+
+        var forced = photoService.reextractExif(first.photo(), true).block();
+        assertThat(forced.outcome()).isEqualTo(ExifReextractResult.Outcome.UPDATED);
+    }
+
+    @Test
+    void reextractExifShouldStoreBlurHashOfDecodableSource(@TempDir Path tempDir)
+        throws Exception {
+        var file = tempDir.resolve("attachments/upload/photo.png");
+        Files.createDirectories(file.getParent());
+        ImageIO.write(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB), "png",
+            file.toFile());
+        when(backupRootGetter.get()).thenReturn(tempDir.resolve("backups"));
+        when(client.update(any(Photo.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        var photo = new Photo();
+        var metadata = new Metadata();
+        metadata.setName("photo");
+        photo.setMetadata(metadata);
+        var spec = new Photo.PhotoSpec();
+        spec.setUrl("/upload/photo.png");
+        photo.setSpec(spec);
+
+        var result = photoService.reextractExif(photo, true).block();
+
+        assertThat(result.outcome()).isEqualTo(ExifReextractResult.Outcome.UPDATED);
+        assertThat(result.photo().getStatus().getBlurHash()).hasSize(28);
+        assertThat(result.photo().getStatus().getDimensions())
+            .extracting(Photo.PhotoDimensions::getWidth, Photo.PhotoDimensions::getHeight)
+            .containsExactly(200, 100);
+    }
+
+    @Test
+    void reextractExifWithoutLocalFileShouldReportNoSource() {
+        when(backupRootGetter.get()).thenReturn(
+            Path.of(System.getProperty("java.io.tmpdir"), "backups"));
+        var photo = new Photo();
+        var metadata = new Metadata();
+        metadata.setName("remote");
+        photo.setMetadata(metadata);
+        var spec = new Photo.PhotoSpec();
+        spec.setUrl("https://example.com/remote.jpg");
+        photo.setSpec(spec);
+
+        var result = photoService.reextractExif(photo, false).block();
+
+        assertThat(result.outcome()).isEqualTo(ExifReextractResult.Outcome.NO_SOURCE);
+        verify(client, never()).update(any(Photo.class));
+    }
 }
@@ -2,16 +2,26 @@ package run.halo.photos.service.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import tools.jackson.databind.node.JsonNodeFactory;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Instant;
+import javax.imageio.ImageIO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -23,21 +33,31 @@ import run.halo.app.core.extension.attachment.Attachment;
 import run.halo.app.core.extension.service.AttachmentService;
 import run.halo.app.extension.Metadata;
 import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.infra.BackupRootGetter;
 import run.halo.app.plugin.ReactiveSettingFetcher;
 import run.halo.photos.Photo;
+import run.halo.photos.infra.ImageProcessingScheduler;
+import run.halo.photos.infra.PhotoSettings;
 
 class PhotoUploadServiceImplTest {
 
     private final AttachmentService attachmentService = mock(AttachmentService.class);
     private final ReactiveExtensionClient client = mock(ReactiveExtensionClient.class);
     private final ReactiveSettingFetcher settingFetcher = mock(ReactiveSettingFetcher.class);
+    private final PhotoSettings photoSettings = new PhotoSettings(settingFetcher);
+    private final BackupRootGetter backupRootGetter = mock(BackupRootGetter.class);
     private final ExifExtractor exifExtractor = new ExifExtractor();
 
     private PhotoUploadServiceImpl service;
 
     @BeforeEach
     void setUp() {
-        service = new PhotoUploadServiceImpl(attachmentService, client, settingFetcher, exifExtractor);
+        when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.empty());
+        when(backupRootGetter.get()).thenReturn(
+            Path.of(System.getProperty("java.io.tmpdir"), "backups"));
+        service = new PhotoUploadServiceImpl(attachmentService, client, photoSettings,
+            exifExtractor, new AttachmentFileResolver(backupRootGetter),
+            new ImageProcessingScheduler(), new VariantGenerator(), new ImageDimensionProber());
     }
 
     @Test
@@ -75,6 +95,7 @@ class PhotoUploadServiceImplTest {
         var setting = JsonNodeFactory.instance.objectNode();
         setting.put("policyName", "");
         when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(setting));
+        photoSettings.refresh().block();
 
         assertThatThrownBy(() -> service.upload(filePart, null).block())
             .isInstanceOf(ServerWebInputException.class)
@@ -83,9 +104,10 @@ class PhotoUploadServiceImplTest {
 
     @Test
     void uploadWithNoSettingShouldFail() {
-        // switchIfEmpty provides AttachmentConfig("", "") which triggers the error
+        // an empty setting group falls back to a blank policy name, which triggers the error
         var filePart = filePartWithContent("photo.jpg", MediaType.IMAGE_JPEG, new byte[100]);
         when(settingFetcher.getSettingValue("base")).thenReturn(Mono.empty());
+        photoSettings.refresh().block();
 
         assertThatThrownBy(() -> service.upload(filePart, null).block())
             .isInstanceOf(ServerWebInputException.class)
@@ -100,6 +122,7 @@ class PhotoUploadServiceImplTest {
         setting.put("policyName", "local");
         setting.put("groupName", "attachments");
         when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(setting));
+        photoSettings.refresh().block();
 
         var attachment = attachment("photo.jpg", "/attachments/photo.jpg");
         when(attachmentService.upload(anyString(), anyString(), anyString(), any(), any(MediaType.class)))
@@ -121,6 +144,7 @@ class PhotoUploadServiceImplTest {
         var setting = JsonNodeFactory.instance.objectNode();
         setting.put("policyName", "local");
         when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(setting));
+        photoSettings.refresh().block();
 
         var attachment = attachment("photo.jpg", "/attachments/photo.jpg");
         when(attachmentService.upload(anyString(), anyString(), anyString(), any(), any(MediaType.class)))
@@ -141,6 +165,7 @@ class PhotoUploadServiceImplTest {
         var setting = JsonNodeFactory.instance.objectNode();
         setting.put("policyName", "local");
         when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(setting));
+        photoSettings.refresh().block();
 
         var attachment = attachment("photo.webp", "/attachments/photo.webp");
         when(attachmentService.upload(anyString(), anyString(), anyString(), any(), any(MediaType.class)))
@@ -158,13 +183,176 @@ class PhotoUploadServiceImplTest {
         // Content-Length == MAX_FILE_SIZE (50 MB) is allowed (condition is >)
         long exactLimit = 50L * 1024 * 1024;
         var filePart = filePartHeadersOnly("photo.jpg", MediaType.IMAGE_JPEG, exactLimit);
+        when(filePart.content()).thenReturn(Flux.empty());
+
+        var setting = JsonNodeFactory.instance.objectNode();
+        setting.put("policyName", "local");
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(setting));
+        photoSettings.refresh().block();
+
+        var attachment = attachment("photo.jpg", "/attachments/photo.jpg");
+        when(attachmentService.upload(anyString(), anyString(), anyString(), any(), any(MediaType.class)))
+            .thenReturn(Mono.just(attachment));
+        when(client.create(any(Photo.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        assertThat(service.upload(filePart, null).block()).isNotNull();
+    }
+
+    @Test
+    void uploadStreamExceedingLimitWithoutContentLengthShouldFail() {
+        // No Content-Length header: the limit must be enforced while bytes stream through.
+        var filePart = filePartHeadersOnly("photo.jpg", MediaType.IMAGE_JPEG, -1);
+        var chunk = new byte[1024 * 1024];
+        var factory = new DefaultDataBufferFactory();
+        when(filePart.content()).thenReturn(
+            Flux.range(0, 51).map(i -> (DataBuffer) factory.wrap(chunk)));
+
+        var setting = JsonNodeFactory.instance.objectNode();
+        setting.put("policyName", "local");
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(setting));
+        photoSettings.refresh().block();
+
+        var attachment = attachment("photo.jpg", "/attachments/photo.jpg");
+        when(attachmentService.upload(anyString(), anyString(), anyString(), any(), any(MediaType.class)))
+            .thenAnswer(inv -> {
+                Flux<DataBuffer> content = inv.getArgument(3);
+                return content.then(Mono.just(attachment));
+            });
 
-        // Since the service proceeds to readFileContent, which calls filePart.content(),
-        // and we haven't stubbed content(), it will return null. But the size check passes.
-        // We assert the error is NOT about file size.
         assertThatThrownBy(() -> service.upload(filePart, null).block())
-            .isNotInstanceOf(ServerWebInputException.class)
-            .satisfies(ex -> assertThat(ex.getMessage()).doesNotContain("50MB"));
+            .isInstanceOf(ServerWebInputException.class)
+            .hasMessageContaining("50MB");
+        verify(client, never()).create(any(Photo.class));
+    }
+
+    @Test
+    void uploadShouldStreamContentToAttachmentServiceUnchanged() {
+        var content = new byte[20_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        var filePart = filePartWithContent("photo.jpg", MediaType.IMAGE_JPEG, content);
+
+        var setting = JsonNodeFactory.instance.objectNode();
+        setting.put("policyName", "local");
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(setting));
+        photoSettings.refresh().block();
+
+        var attachment = attachment("photo.jpg", "/attachments/photo.jpg");
+        var received = new java.io.ByteArrayOutputStream();
+        when(attachmentService.upload(anyString(), anyString(), anyString(), any(), any(MediaType.class)))
+            .thenAnswer(inv -> {
+                Flux<DataBuffer> flux = inv.getArgument(3);
+                return flux.doOnNext(buffer -> {
+                        var bytes = new byte[buffer.readableByteCount()];
+                        buffer.read(bytes);
+                        received.writeBytes(bytes);
+                    })
+                    .then(Mono.just(attachment));
+            });
+        when(client.create(any(Photo.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        service.upload(filePart, null).block();
+
+        assertThat(received.toByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void resubscribedUploadShouldCaptureHeaderAfresh() throws Exception {
+        var png = new java.io.ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "png", png);
+        var filePart = filePartWithContent("photo.png", MediaType.IMAGE_PNG, png.toByteArray());
+        // the first pass is cut short with unrelated bytes, the retry sends the image
+        var passes = new java.util.concurrent.atomic.AtomicInteger();
+        var factory = new DefaultDataBufferFactory();
+        when(filePart.content()).thenReturn(Flux.defer(() -> Flux.just(
+            passes.getAndIncrement() == 0 ? factory.wrap(new byte[16])
+                : factory.wrap(png.toByteArray()))));
+
+        var setting = JsonNodeFactory.instance.objectNode();
+        setting.put("policyName", "s3");
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(setting));
+        photoSettings.refresh().block();
+
+        var attachment = attachment("photo.png", "https://cdn.example.com/photo.png");
+        when(attachmentService.upload(anyString(), anyString(), anyString(), any(), any(MediaType.class)))
+            .thenAnswer(inv -> {
+                Flux<DataBuffer> content = inv.getArgument(3);
+                return content.then(content.then(Mono.just(attachment)));
+            });
+        when(client.create(any(Photo.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        var result = service.upload(filePart, null).block();
+
+        assertThat(passes).hasValue(2);
+        assertThat(result.getStatus().getDimensions())
+            .extracting(Photo.PhotoDimensions::getWidth, Photo.PhotoDimensions::getHeight)
+            .containsExactly(640, 480);
+    }
+
+    @Test
+    void uploadShouldCreateVariantsFromLocalOriginal(@TempDir Path workDir) throws Exception {
+        when(backupRootGetter.get()).thenReturn(workDir.resolve("backups"));
+        var original = workDir.resolve("attachments/upload/photo.jpg");
+        Files.createDirectories(original.getParent());
+        var image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        ImageIO.write(image, "jpeg", original.toFile());
+        var content = Files.readAllBytes(original);
+        var filePart = filePartWithContent("photo.jpg", MediaType.IMAGE_JPEG, content);
+
+        var base = JsonNodeFactory.instance.objectNode();
+        base.put("policyName", "local");
+        var advanced = JsonNodeFactory.instance.objectNode();
+        advanced.put("variantWidths", "320, 640, 1280");
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(base));
+        when(settingFetcher.getSettingValue("advanced")).thenReturn(Mono.just(advanced));
+        photoSettings.refresh().block();
+
+        when(attachmentService.upload(anyString(), anyString(), anyString(), any(), any(MediaType.class)))
+            .thenAnswer(inv -> {
+                String filename = inv.getArgument(2);
+                return Mono.just(attachment(filename, "/upload/" + filename));
+            });
+        when(client.create(any(Photo.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        var result = service.upload(filePart, null).block();
+
+        assertThat(result).isNotNull();
+        assertThat(result.getSpec().getUrl()).isEqualTo("/upload/photo.jpg");
+        assertThat(result.getStatus().getVariants())
+            .extracting(Photo.PhotoVariant::getWidth, Photo.PhotoVariant::getHeight,
+                Photo.PhotoVariant::getUrl)
+            .containsExactly(
+                tuple(320, 240, "/upload/photo-320w.jpg"),
+                tuple(640, 480, "/upload/photo-640w.jpg"));
+        assertThat(result.getStatus().getBlurHash()).hasSize(28);
+        assertThat(result.getStatus().getDimensions())
+            .extracting(Photo.PhotoDimensions::getWidth, Photo.PhotoDimensions::getHeight)
+            .containsExactly(800, 600);
+        verify(attachmentService).upload(eq("local"), anyString(), eq("photo-320w.jpg"), any(),
+            eq(MediaType.IMAGE_JPEG));
+    }
+
+    @Test
+    void uploadShouldSucceedWithoutVariantsWhenOriginalIsNotLocal() {
+        var filePart = filePartWithContent("photo.jpg", MediaType.IMAGE_JPEG, new byte[100]);
+
+        var setting = JsonNodeFactory.instance.objectNode();
+        setting.put("policyName", "s3");
+        when(settingFetcher.getSettingValue("base")).thenReturn(Mono.just(setting));
+        photoSettings.refresh().block();
+
+        var attachment = attachment("photo.jpg", "https://cdn.example.com/photo.jpg");
+        when(attachmentService.upload(anyString(), anyString(), anyString(), any(), any(MediaType.class)))
+            .thenReturn(Mono.just(attachment));
+        when(client.create(any(Photo.class))).thenAnswer(inv -> Mono.just(inv.getArgument(0)));
+
+        var result = service.upload(filePart, null).block();
+
+        assertThat(result).isNotNull();
+        assertThat(result.getStatus()).isNull();
+        verify(attachmentService, times(1)).upload(anyString(), anyString(), anyString(),
+            any(), any(MediaType.class));
     }
 
     private static FilePart filePartHeadersOnly(String filename, MediaType contentType,
@@ -0,0 +1,108 @@
+package run.halo.photos.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class VariantGeneratorTest {
+
+    private final VariantGenerator generator = new VariantGenerator();
+
+    @Test
+    void shouldRenderJpegPerWidthNarrowerThanOriginal() throws IOException {
+        var original = encode(new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+        var renditions = generator.render(() -> new ByteArrayInputStream(original), 1,
+            List.of(1280, 320, 640, 5000), 80).variants();
+
+        assertThat(renditions)
+            .extracting(VariantGenerator.Rendition::width, VariantGenerator.Rendition::height)
+            .containsExactly(tuple(320, 240), tuple(640, 480), tuple(1280, 960));
+        var decoded = ImageIO.read(new ByteArrayInputStream(renditions.getFirst().bytes()));
+        assertThat(decoded.getWidth()).isEqualTo(320);
+    }
+
+    @Test
+    void sidewaysOrientationShouldSwapDimensions() throws IOException {
+        var original = encode(new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+        var renditions = generator.render(() -> new ByteArrayInputStream(original), 6,
+            List.of(300), 80).variants();
+
+        assertThat(renditions)
+            .extracting(VariantGenerator.Rendition::width, VariantGenerator.Rendition::height)
+            .containsExactly(tuple(300, 400));
+    }
+
+    @Test
+    void transparentPngShouldBeFlattened() throws IOException {
+        var original = encode(new BufferedImage(800, 800, BufferedImage.TYPE_INT_ARGB), "png");
+
+        var renditions = generator.render(() -> new ByteArrayInputStream(original), 1,
+            List.of(200), 80).variants();
+
+        var decoded = ImageIO.read(new ByteArrayInputStream(renditions.getFirst().bytes()));
+        assertThat(decoded.getRGB(100, 100) & 0xffffff).isGreaterThan(0xf0f0f0);
+    }
+
+    @Test
+    void smallOrUndecodableImagesShouldProduceNothing() throws IOException {
+        var small = encode(new BufferedImage(200, 100, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+        var derivatives = generator.render(() -> new ByteArrayInputStream(small), 1,
+            List.of(320, 640), 80);
+        assertThat(derivatives.variants()).isEmpty();
+        assertThat(derivatives.blurHash()).hasSize(28);
+        assertThat(generator.render(() -> new ByteArrayInputStream(new byte[100]), 1,
+            List.of(320), 80)).isEqualTo(VariantGenerator.Derivatives.NONE);
+    }
+
+    @Test
+    void blurHashShouldFollowOrientation() throws IOException {
+        var original = encode(new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+        var upright = generator.blurHash(() -> new ByteArrayInputStream(original), 1);
+        var sideways = generator.blurHash(() -> new ByteArrayInputStream(original), 6);
+
+        // the first character encodes the component grid: 4 x 3 landscape, 3 x 4 portrait
+        assertThat(upright).hasSize(28).startsWith("L");
+        assertThat(sideways).hasSize(28).startsWith("T");
+        assertThat(generator.blurHash(() -> new ByteArrayInputStream(new byte[100]), 1))
+            .isNull();
+    }
+
+    @ParameterizedTest(name = "orientation {0} moves the top-left pixel to ({1}, {2})")
+    @CsvSource({
+        "1, 0, 0",
+        "2, 2, 0",
+        "3, 2, 1",
+        "4, 0, 1",
+        "5, 0, 0",
+        "6, 1, 0",
+        "7, 1, 2",
+        "8, 0, 2"
+    })
+    void orientShouldTurnPixelsUpright(int orientation, int x, int y) {
+        var image = new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xffffff);
+
+        var oriented = VariantGenerator.orient(image, orientation);
+
+        assertThat(oriented.getRGB(x, y) & 0xffffff).isEqualTo(0xffffff);
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        var output = new ByteArrayOutputStream();
+        ImageIO.write(image, format, output);
+        return output.toByteArray();
+    }
+}